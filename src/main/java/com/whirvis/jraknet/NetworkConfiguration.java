@@ -0,0 +1,723 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import com.whirvis.jraknet.peer.CongestionController;
+import com.whirvis.jraknet.peer.RakNetPeer;
+import com.whirvis.jraknet.peer.SlidingWindowCongestionController;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator;
+
+/**
+ * The network configuration of a {@link com.whirvis.jraknet.server.RakNetServer
+ * RakNetServer} or {@link com.whirvis.jraknet.client.RakNetClient
+ * RakNetClient}.
+ * <p>
+ * This determines how large the kernel socket buffers are, how buffers for
+ * received datagrams are allocated, how many datagrams are read or written
+ * at once, and how quickly and with what congestion control datagrams are
+ * sent. The configuration is only applied when the server starts or the
+ * client connects, changing it afterwards has no effect until then.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class NetworkConfiguration {
+
+	/**
+	 * The default size of the kernel socket receive buffer.
+	 */
+	public static final int DEFAULT_RECEIVE_BUFFER_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * The default size of the kernel socket send buffer.
+	 */
+	public static final int DEFAULT_SEND_BUFFER_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * The default amount of datagrams read at once.
+	 */
+	public static final int DEFAULT_READ_BATCH_SIZE = 16;
+
+	/**
+	 * The default amount of datagrams written at once.
+	 */
+	public static final int DEFAULT_WRITE_BATCH_SIZE = 16;
+
+	private int receiveBufferSize;
+	private int sendBufferSize;
+	private ByteBufAllocator allocator;
+	private RecvByteBufAllocator receiveAllocator;
+	private int readBatchSize;
+	private int writeBatchSize;
+	private boolean zeroCopyPayloads;
+	private CongestionController.Factory congestionControllerFactory;
+	private long sendPacketRate;
+	private long sendByteRate;
+	private long sendBurstTime;
+	private long acknowledgeDelay;
+	private int orderWindowSize;
+	private int maximumSplitCount;
+	private int maximumSplits;
+	private long maximumSplitBytes;
+	private long splitTimeout;
+	private int streamWindowSize;
+
+	/**
+	 * Creates a network configuration with the default values.
+	 */
+	public NetworkConfiguration() {
+		this.receiveBufferSize = DEFAULT_RECEIVE_BUFFER_SIZE;
+		this.sendBufferSize = DEFAULT_SEND_BUFFER_SIZE;
+		this.allocator = ByteBufAllocator.DEFAULT;
+		this.readBatchSize = DEFAULT_READ_BATCH_SIZE;
+		this.writeBatchSize = DEFAULT_WRITE_BATCH_SIZE;
+		this.congestionControllerFactory = SlidingWindowCongestionController::new;
+		this.sendPacketRate = -1L;
+		this.sendBurstTime = RakNetPeer.DEFAULT_SEND_BURST_TIME;
+		this.acknowledgeDelay = RakNetPeer.DEFAULT_ACKNOWLEDGE_DELAY;
+		this.orderWindowSize = RakNetPeer.DEFAULT_ORDER_WINDOW_SIZE;
+		this.maximumSplitCount = RakNetPeer.MAX_SPLIT_COUNT;
+		this.maximumSplits = RakNetPeer.MAX_SPLITS_PER_QUEUE;
+		this.maximumSplitBytes = RakNetPeer.DEFAULT_MAXIMUM_SPLIT_BYTES;
+		this.splitTimeout = RakNetPeer.DEFAULT_SPLIT_TIMEOUT;
+		this.streamWindowSize = RakNetPeer.DEFAULT_STREAM_WINDOW_SIZE;
+	}
+
+	/**
+	 * Returns the requested size of the kernel socket receive buffer
+	 * (<code>SO_RCVBUF</code>).
+	 * <p>
+	 * The kernel may limit the actual size, for example to
+	 * <code>net.core.rmem_max</code> on Linux.
+	 * 
+	 * @return the requested size of the kernel socket receive buffer.
+	 */
+	public int getReceiveBufferSize() {
+		return this.receiveBufferSize;
+	}
+
+	/**
+	 * Sets the requested size of the kernel socket receive buffer
+	 * (<code>SO_RCVBUF</code>).
+	 * <p>
+	 * Any datagrams that arrive while this buffer is full are dropped by the
+	 * kernel before they can be read, so it should be large enough to hold a
+	 * burst of datagrams.
+	 * 
+	 * @param receiveBufferSize
+	 *            the size in bytes.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if the <code>receiveBufferSize</code> is less than or equal
+	 *             to <code>0</code>.
+	 */
+	public NetworkConfiguration setReceiveBufferSize(int receiveBufferSize) throws IllegalArgumentException {
+		if (receiveBufferSize <= 0) {
+			throw new IllegalArgumentException("Receive buffer size must be greater than 0");
+		}
+		this.receiveBufferSize = receiveBufferSize;
+		return this;
+	}
+
+	/**
+	 * Returns the requested size of the kernel socket send buffer
+	 * (<code>SO_SNDBUF</code>).
+	 * <p>
+	 * The kernel may limit the actual size, for example to
+	 * <code>net.core.wmem_max</code> on Linux.
+	 * 
+	 * @return the requested size of the kernel socket send buffer.
+	 */
+	public int getSendBufferSize() {
+		return this.sendBufferSize;
+	}
+
+	/**
+	 * Sets the requested size of the kernel socket send buffer
+	 * (<code>SO_SNDBUF</code>).
+	 * 
+	 * @param sendBufferSize
+	 *            the size in bytes.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if the <code>sendBufferSize</code> is less than or equal to
+	 *             <code>0</code>.
+	 */
+	public NetworkConfiguration setSendBufferSize(int sendBufferSize) throws IllegalArgumentException {
+		if (sendBufferSize <= 0) {
+			throw new IllegalArgumentException("Send buffer size must be greater than 0");
+		}
+		this.sendBufferSize = sendBufferSize;
+		return this;
+	}
+
+	/**
+	 * Returns the allocator used by the channel for its buffers.
+	 * 
+	 * @return the allocator used by the channel for its buffers.
+	 */
+	public ByteBufAllocator getAllocator() {
+		return this.allocator;
+	}
+
+	/**
+	 * Sets the allocator used by the channel for its buffers.
+	 * 
+	 * @param allocator
+	 *            the allocator.
+	 * @return the configuration.
+	 * @throws NullPointerException
+	 *             if the <code>allocator</code> is <code>null</code>.
+	 */
+	public NetworkConfiguration setAllocator(ByteBufAllocator allocator) throws NullPointerException {
+		if (allocator == null) {
+			throw new NullPointerException("Allocator cannot be null");
+		}
+		this.allocator = allocator;
+		return this;
+	}
+
+	/**
+	 * Returns the allocator used to size the buffers received datagrams are
+	 * read into.
+	 * 
+	 * @return the allocator used to size the buffers received datagrams are
+	 *         read into, <code>null</code> if one is picked based on the
+	 *         maximum transfer unit and {@link #getReadBatchSize() read batch
+	 *         size}.
+	 */
+	public RecvByteBufAllocator getReceiveAllocator() {
+		return this.receiveAllocator;
+	}
+
+	/**
+	 * Sets the allocator used to size the buffers received datagrams are read
+	 * into.
+	 * 
+	 * @param receiveAllocator
+	 *            the allocator. A <code>null</code> value will have one be
+	 *            picked based on the maximum transfer unit and
+	 *            {@link #getReadBatchSize() read batch size}.
+	 * @return the configuration.
+	 */
+	public NetworkConfiguration setReceiveAllocator(RecvByteBufAllocator receiveAllocator) {
+		this.receiveAllocator = receiveAllocator;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum amount of datagrams read at once.
+	 * 
+	 * @return the maximum amount of datagrams read at once.
+	 */
+	public int getReadBatchSize() {
+		return this.readBatchSize;
+	}
+
+	/**
+	 * Sets the maximum amount of datagrams read at once.
+	 * <p>
+	 * This only has an effect on transports that support reading multiple
+	 * datagrams with a single system call, such as the native epoll
+	 * transport using <code>recvmmsg</code>.
+	 * 
+	 * @param readBatchSize
+	 *            the maximum amount of datagrams read at once. A value of
+	 *            <code>1</code> will have datagrams be read one at a time.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if the <code>readBatchSize</code> is less than
+	 *             <code>1</code>.
+	 */
+	public NetworkConfiguration setReadBatchSize(int readBatchSize) throws IllegalArgumentException {
+		if (readBatchSize < 1) {
+			throw new IllegalArgumentException("Read batch size must be greater than 0");
+		}
+		this.readBatchSize = readBatchSize;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum amount of datagrams written at once.
+	 * 
+	 * @return the maximum amount of datagrams written at once.
+	 */
+	public int getWriteBatchSize() {
+		return this.writeBatchSize;
+	}
+
+	/**
+	 * Sets the maximum amount of datagrams written at once.
+	 * <p>
+	 * This is applied to every peer as its
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setWriteBatchSize(int) write
+	 * batch size}.
+	 * 
+	 * @param writeBatchSize
+	 *            the maximum amount of datagrams written at once. A value of
+	 *            <code>1</code> will have every datagram be flushed on its own.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if the <code>writeBatchSize</code> is less than
+	 *             <code>1</code>.
+	 */
+	public NetworkConfiguration setWriteBatchSize(int writeBatchSize) throws IllegalArgumentException {
+		if (writeBatchSize < 1) {
+			throw new IllegalArgumentException("Write batch size must be greater than 0");
+		}
+		this.writeBatchSize = writeBatchSize;
+		return this;
+	}
+
+	/**
+	 * Returns whether or not user messages are handed to listeners as
+	 * zero-copy slices of the received datagram.
+	 * 
+	 * @return <code>true</code> if zero-copy payloads are enabled,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isZeroCopyPayloads() {
+		return this.zeroCopyPayloads;
+	}
+
+	/**
+	 * Enables/disables zero-copy payloads.
+	 * <p>
+	 * This is applied to every peer through
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setZeroCopyPayloads(boolean)
+	 * setZeroCopyPayloads(boolean)}. When enabled, every listener that
+	 * handles a message owns a reference to it and must release it once it
+	 * is done with it, or the received datagram will never be freed.
+	 * 
+	 * @param enabled
+	 *            <code>true</code> to enable zero-copy payloads,
+	 *            <code>false</code> to disable them.
+	 * @return the configuration.
+	 */
+	public NetworkConfiguration setZeroCopyPayloads(boolean enabled) {
+		this.zeroCopyPayloads = enabled;
+		return this;
+	}
+
+	/**
+	 * Returns the factory used to create the congestion controller of every
+	 * peer.
+	 * 
+	 * @return the factory used to create the congestion controller of every
+	 *         peer.
+	 */
+	public CongestionController.Factory getCongestionControllerFactory() {
+		return this.congestionControllerFactory;
+	}
+
+	/**
+	 * Sets the factory used to create the congestion controller of every
+	 * peer.
+	 * <p>
+	 * Every peer is given its own congestion controller through
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setCongestionController(CongestionController)
+	 * setCongestionController(CongestionController)}. By default, this creates
+	 * a {@link SlidingWindowCongestionController}. To pace datagrams
+	 * according to the estimated bandwidth of the network instead, use
+	 * <code>PacingCongestionController::new</code>.
+	 * 
+	 * @param congestionControllerFactory
+	 *            the factory used to create the congestion controller of
+	 *            every peer.
+	 * @return the configuration.
+	 * @throws NullPointerException
+	 *             if the <code>congestionControllerFactory</code> is
+	 *             <code>null</code>.
+	 */
+	public NetworkConfiguration setCongestionControllerFactory(
+			CongestionController.Factory congestionControllerFactory) throws NullPointerException {
+		if (congestionControllerFactory == null) {
+			throw new NullPointerException("Congestion controller factory cannot be null");
+		}
+		this.congestionControllerFactory = congestionControllerFactory;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum amount of datagrams sent to each peer per second.
+	 * 
+	 * @return the maximum amount of datagrams sent to each peer per second,
+	 *         <code>0</code> if there is no limit, or <code>-1</code> if
+	 *         {@link RakNet#getMaxPacketsPerSecond()} is used.
+	 */
+	public long getSendPacketRate() {
+		return this.sendPacketRate;
+	}
+
+	/**
+	 * Sets the maximum amount of datagrams sent to each peer per second.
+	 * <p>
+	 * This is applied to every peer as its
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setSendPacketRate(long) send
+	 * packet rate}.
+	 * 
+	 * @param packetsPerSecond
+	 *            the maximum amount of datagrams sent to each peer per second,
+	 *            <code>0</code> for no limit, or <code>-1</code> to use
+	 *            {@link RakNet#getMaxPacketsPerSecond()}.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if <code>packetsPerSecond</code> is less than
+	 *             <code>-1</code>.
+	 */
+	public NetworkConfiguration setSendPacketRate(long packetsPerSecond) throws IllegalArgumentException {
+		if (packetsPerSecond < -1L) {
+			throw new IllegalArgumentException("Send packet rate cannot be less than -1");
+		}
+		this.sendPacketRate = packetsPerSecond;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum amount of bytes sent to each peer per second.
+	 * 
+	 * @return the maximum amount of bytes sent to each peer per second,
+	 *         <code>0</code> if there is no limit.
+	 */
+	public long getSendByteRate() {
+		return this.sendByteRate;
+	}
+
+	/**
+	 * Sets the maximum amount of bytes sent to each peer per second.
+	 * <p>
+	 * This is applied to every peer as its
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setSendByteRate(long) send
+	 * byte rate}.
+	 * 
+	 * @param bytesPerSecond
+	 *            the maximum amount of bytes sent to each peer per second,
+	 *            <code>0</code> for no limit.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if <code>bytesPerSecond</code> is negative.
+	 */
+	public NetworkConfiguration setSendByteRate(long bytesPerSecond) throws IllegalArgumentException {
+		if (bytesPerSecond < 0) {
+			throw new IllegalArgumentException("Send byte rate cannot be negative");
+		}
+		this.sendByteRate = bytesPerSecond;
+		return this;
+	}
+
+	/**
+	 * Returns the amount of time worth of datagrams that can be sent to each
+	 * peer at once when sending is rate limited.
+	 * 
+	 * @return the amount of time in milliseconds worth of datagrams that can
+	 *         be sent at once.
+	 */
+	public long getSendBurstTime() {
+		return this.sendBurstTime;
+	}
+
+	/**
+	 * Sets the amount of time worth of datagrams that can be sent to each
+	 * peer at once when sending is rate limited.
+	 * <p>
+	 * This is applied to every peer as its
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setSendBurstTime(long) send
+	 * burst time}.
+	 * 
+	 * @param sendBurstTime
+	 *            the amount of time in milliseconds worth of datagrams that
+	 *            can be sent at once.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if the <code>sendBurstTime</code> is negative.
+	 */
+	public NetworkConfiguration setSendBurstTime(long sendBurstTime) throws IllegalArgumentException {
+		if (sendBurstTime < 0) {
+			throw new IllegalArgumentException("Send burst time cannot be negative");
+		}
+		this.sendBurstTime = sendBurstTime;
+		return this;
+	}
+
+	/**
+	 * Returns the amount of time acknowledgements are held back for so that
+	 * they can be sent together.
+	 * 
+	 * @return the amount of time in milliseconds acknowledgements are held
+	 *         back for.
+	 */
+	public long getAcknowledgeDelay() {
+		return this.acknowledgeDelay;
+	}
+
+	/**
+	 * Sets the amount of time acknowledgements are held back for so that they
+	 * can be sent together.
+	 * <p>
+	 * This is applied to every peer as its
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setAcknowledgeDelay(long)
+	 * acknowledge delay}.
+	 * 
+	 * @param acknowledgeDelay
+	 *            the amount of time in milliseconds acknowledgements are held
+	 *            back for.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if the <code>acknowledgeDelay</code> is negative.
+	 */
+	public NetworkConfiguration setAcknowledgeDelay(long acknowledgeDelay) throws IllegalArgumentException {
+		if (acknowledgeDelay < 0) {
+			throw new IllegalArgumentException("Acknowledge delay cannot be negative");
+		}
+		this.acknowledgeDelay = acknowledgeDelay;
+		return this;
+	}
+
+	/**
+	 * Returns the amount of ordered messages that can be waiting to be handled
+	 * on a single channel at once.
+	 * 
+	 * @return the amount of ordered messages that can be waiting on a single
+	 *         channel at once.
+	 */
+	public int getOrderWindowSize() {
+		return this.orderWindowSize;
+	}
+
+	/**
+	 * Sets the amount of ordered messages that can be waiting to be handled
+	 * on a single channel at once.
+	 * <p>
+	 * This is applied to every peer as its
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setOrderWindowSize(int) order
+	 * window size}.
+	 * 
+	 * @param orderWindowSize
+	 *            the amount of ordered messages that can be waiting on a
+	 *            single channel at once.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if the <code>orderWindowSize</code> is less than or equal to
+	 *             <code>0</code> or greater than <code>2^23</code>.
+	 */
+	public NetworkConfiguration setOrderWindowSize(int orderWindowSize) throws IllegalArgumentException {
+		if (orderWindowSize <= 0 || orderWindowSize > 1 << 23) {
+			throw new IllegalArgumentException("Order window size must be in between 1 and 2^23");
+		}
+		this.orderWindowSize = orderWindowSize;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum amount of chunks a single packet can be split into.
+	 * 
+	 * @return the maximum amount of chunks a packet can be split into.
+	 */
+	public int getMaximumSplitCount() {
+		return this.maximumSplitCount;
+	}
+
+	/**
+	 * Sets the maximum amount of chunks a single packet can be split into.
+	 * <p>
+	 * This is applied to every peer as its
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setMaximumSplitCount(int)
+	 * maximum split count}.
+	 * 
+	 * @param maximumSplitCount
+	 *            the maximum amount of chunks a packet can be split into.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if the <code>maximumSplitCount</code> is less than or equal
+	 *             to <code>0</code>.
+	 */
+	public NetworkConfiguration setMaximumSplitCount(int maximumSplitCount) throws IllegalArgumentException {
+		if (maximumSplitCount <= 0) {
+			throw new IllegalArgumentException("Maximum split count must be greater than 0");
+		}
+		this.maximumSplitCount = maximumSplitCount;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum amount of split packets that can be waiting to be
+	 * reassembled at once.
+	 * 
+	 * @return the maximum amount of split packets that can be waiting to be
+	 *         reassembled at once.
+	 */
+	public int getMaximumSplits() {
+		return this.maximumSplits;
+	}
+
+	/**
+	 * Sets the maximum amount of split packets that can be waiting to be
+	 * reassembled at once.
+	 * <p>
+	 * This is applied to every peer as its
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setMaximumSplits(int) maximum
+	 * splits}.
+	 * 
+	 * @param maximumSplits
+	 *            the maximum amount of split packets that can be waiting to
+	 *            be reassembled at once.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if the <code>maximumSplits</code> is less than or equal to
+	 *             <code>0</code>.
+	 */
+	public NetworkConfiguration setMaximumSplits(int maximumSplits) throws IllegalArgumentException {
+		if (maximumSplits <= 0) {
+			throw new IllegalArgumentException("Maximum splits must be greater than 0");
+		}
+		this.maximumSplits = maximumSplits;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum amount of payload bytes the split packets of a
+	 * single peer can hold while they are waiting to be reassembled.
+	 * 
+	 * @return the maximum amount of payload bytes the split packets can hold.
+	 */
+	public long getMaximumSplitBytes() {
+		return this.maximumSplitBytes;
+	}
+
+	/**
+	 * Sets the maximum amount of payload bytes the split packets of a single
+	 * peer can hold while they are waiting to be reassembled.
+	 * <p>
+	 * This is applied to every peer as its
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setMaximumSplitBytes(long)
+	 * maximum split bytes}.
+	 * 
+	 * @param maximumSplitBytes
+	 *            the maximum amount of payload bytes the split packets can
+	 *            hold.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if the <code>maximumSplitBytes</code> is less than or equal
+	 *             to <code>0</code>.
+	 */
+	public NetworkConfiguration setMaximumSplitBytes(long maximumSplitBytes) throws IllegalArgumentException {
+		if (maximumSplitBytes <= 0) {
+			throw new IllegalArgumentException("Maximum split bytes must be greater than 0");
+		}
+		this.maximumSplitBytes = maximumSplitBytes;
+		return this;
+	}
+
+	/**
+	 * Returns the amount of time a split packet can go without receiving any
+	 * of its chunks before it is evicted.
+	 * 
+	 * @return the amount of time in milliseconds a split packet can go
+	 *         without receiving any of its chunks.
+	 */
+	public long getSplitTimeout() {
+		return this.splitTimeout;
+	}
+
+	/**
+	 * Sets the amount of time a split packet can go without receiving any of
+	 * its chunks before it is evicted.
+	 * <p>
+	 * This is applied to every peer as its
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setSplitTimeout(long) split
+	 * timeout}.
+	 * 
+	 * @param splitTimeout
+	 *            the amount of time in milliseconds a split packet can go
+	 *            without receiving any of its chunks.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if the <code>splitTimeout</code> is less than or equal to
+	 *             <code>0</code>.
+	 */
+	public NetworkConfiguration setSplitTimeout(long splitTimeout) throws IllegalArgumentException {
+		if (splitTimeout <= 0) {
+			throw new IllegalArgumentException("Split timeout must be greater than 0");
+		}
+		this.splitTimeout = splitTimeout;
+		return this;
+	}
+
+	/**
+	 * Returns the amount of stream data that can be received but not yet
+	 * read on a single stream.
+	 * 
+	 * @return the amount of stream data that can be waiting to be read on a
+	 *         single stream.
+	 */
+	public int getStreamWindowSize() {
+		return this.streamWindowSize;
+	}
+
+	/**
+	 * Sets the amount of stream data that can be received but not yet read on
+	 * a single stream.
+	 * <p>
+	 * This is applied to every peer as its
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setStreamWindowSize(int)
+	 * stream window size}.
+	 * 
+	 * @param streamWindowSize
+	 *            the amount of stream data that can be waiting to be read on
+	 *            a single stream.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException
+	 *             if the <code>streamWindowSize</code> is less than or equal
+	 *             to <code>0</code>.
+	 */
+	public NetworkConfiguration setStreamWindowSize(int streamWindowSize) throws IllegalArgumentException {
+		if (streamWindowSize <= 0) {
+			throw new IllegalArgumentException("Stream window size must be greater than 0");
+		}
+		this.streamWindowSize = streamWindowSize;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "NetworkConfiguration [receiveBufferSize=" + receiveBufferSize + ", sendBufferSize=" + sendBufferSize
+				+ ", allocator=" + allocator + ", receiveAllocator=" + receiveAllocator + ", readBatchSize="
+				+ readBatchSize + ", writeBatchSize=" + writeBatchSize + ", zeroCopyPayloads="
+				+ zeroCopyPayloads + ", congestionControllerFactory=" + congestionControllerFactory
+				+ ", sendPacketRate=" + sendPacketRate + ", sendByteRate=" + sendByteRate + ", sendBurstTime="
+				+ sendBurstTime + ", acknowledgeDelay=" + acknowledgeDelay
+				+ ", orderWindowSize=" + orderWindowSize + ", maximumSplitCount=" + maximumSplitCount
+				+ ", maximumSplits=" + maximumSplits + ", maximumSplitBytes=" + maximumSplitBytes
+				+ ", splitTimeout=" + splitTimeout + ", streamWindowSize=" + streamWindowSize + "]";
+	}
+
+}
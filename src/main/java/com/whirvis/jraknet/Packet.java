@@ -35,13 +35,13 @@ import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
-import java.util.Arrays;
 import java.util.UUID;
 
 import com.whirvis.jraknet.stream.PacketDataInputStream;
 import com.whirvis.jraknet.stream.PacketDataOutputStream;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.EmptyByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.socket.DatagramPacket;
@@ -64,8 +64,9 @@ public class Packet {
 	 * 
 	 * @param buffer
 	 *            the {@link ByteBuf} to read from and write to, a
-	 *            <code>null</code> value will have a new buffer be used
-	 *            instead.
+	 *            <code>null</code> value will have a new buffer be
+	 *            allocated by the {@link RakNet#getAllocator() packet
+	 *            allocator} instead.
 	 * @throws IllegalArgumentException
 	 *             if the <code>buffer</code> is an {@link EmptyByteBuf}.
 	 */
@@ -73,9 +74,7 @@ public class Packet {
 		if (buffer instanceof EmptyByteBuf) {
 			throw new IllegalArgumentException("No content");
 		}
-		this.buffer = buffer == null ? Unpooled.buffer() : buffer;
-		this.input = new PacketDataInputStream(this);
-		this.output = new PacketDataOutputStream(this);
+		this.buffer = buffer == null ? RakNet.getAllocator().buffer() : buffer;
 	}
 
 	/**
@@ -109,6 +108,21 @@ public class Packet {
 		this(packet.buffer());
 	}
 
+	/**
+	 * Creates an empty packet whose buffer is allocated by the
+	 * {@link RakNet#getAllocator() packet allocator}.
+	 * 
+	 * @param initialCapacity
+	 *            the initial capacity of the buffer. This should be the size
+	 *            the packet is expected to have once it has been written to,
+	 *            so the buffer does not need to grow.
+	 * @throws IllegalArgumentException
+	 *             if the <code>initialCapacity</code> is negative.
+	 */
+	public Packet(int initialCapacity) throws IllegalArgumentException {
+		this(RakNet.getAllocator().buffer(initialCapacity));
+	}
+
 	/**
 	 * Creates an empty packet.
 	 */
@@ -315,7 +329,7 @@ public class Packet {
 	 *             the packet.
 	 */
 	public final int readUnsignedTriadLE() throws IndexOutOfBoundsException {
-		return this.readTriad() & 0xFFFFFF;
+		return buffer.readUnsignedMediumLE();
 	}
 
 	/**
@@ -666,9 +680,29 @@ public class Packet {
 		if (data == null) {
 			throw new NullPointerException("Data cannot be null");
 		}
-		for (int i = 0; i < data.length; i++) {
-			buffer.writeByte(data[i]);
+		buffer.writeBytes(data);
+		return this;
+	}
+
+	/**
+	 * Writes the contents of the specified packet to the packet.
+	 * <p>
+	 * Everything from the start of the <code>packet</code>'s buffer up to its
+	 * {@link #size() size} is written, without modifying the position it is
+	 * being read from. The data is copied directly between the buffers,
+	 * without being copied to a <code>byte[]</code> first.
+	 * 
+	 * @param packet
+	 *            the packet whose contents to write.
+	 * @return the packet.
+	 * @throws NullPointerException
+	 *             if the <code>packet</code> is <code>null</code>.
+	 */
+	public final Packet write(Packet packet) throws NullPointerException {
+		if (packet == null) {
+			throw new NullPointerException("Packet cannot be null");
 		}
+		buffer.writeBytes(packet.buffer, 0, packet.buffer.writerIndex());
 		return this;
 	}
 
@@ -706,8 +740,8 @@ public class Packet {
 	 * @return the packet.
 	 */
 	public final Packet pad(int length) {
-		for (int i = 0; i < length; i++) {
-			buffer.writeByte(0x00);
+		if (length > 0) {
+			buffer.writeZero(length);
 		}
 		return this;
 	}
@@ -1327,14 +1361,10 @@ public class Packet {
 	/**
 	 * Returns the packet as a <code>byte[]</code>.
 	 * 
-	 * @return the packet as a <code>byte[]</code>, <code>null</code> if the
-	 *         buffer being used within the packet is a direct buffer.
+	 * @return the packet as a <code>byte[]</code>.
 	 */
 	public byte[] array() {
-		if (buffer.isDirect()) {
-			return null;
-		}
-		return Arrays.copyOfRange(buffer.array(), 0, buffer.writerIndex());
+		return ByteBufUtil.getBytes(buffer, 0, buffer.writerIndex());
 	}
 
 	/**
@@ -1377,6 +1407,21 @@ public class Packet {
 		return buffer.copy();
 	}
 
+	/**
+	 * Retains the packet's buffer, increasing its reference count by
+	 * <code>1</code>.
+	 * <p>
+	 * This must be called once for every extra time the same packet is sent,
+	 * as sending a packet passes ownership of one reference to the peer it is
+	 * being sent to.
+	 * 
+	 * @return the packet.
+	 */
+	public Packet retain() {
+		buffer.retain();
+		return this;
+	}
+
 	/**
 	 * Releases the packet's buffer.
 	 * 
@@ -1390,19 +1435,31 @@ public class Packet {
 
 	/**
 	 * Returns the packet's {@link java.io.InputStream InputStream}
+	 * <p>
+	 * The stream is only created the first time this method is called, as
+	 * most packets are never read through it.
 	 * 
 	 * @return the packet's {@link java.io.InputStream InputStream}.
 	 */
 	public final PacketDataInputStream getInputStream() {
+		if (input == null) {
+			this.input = new PacketDataInputStream(this);
+		}
 		return this.input;
 	}
 
 	/**
 	 * Returns the packet's {@link java.io.OutputStream OutputStream}.
+	 * <p>
+	 * The stream is only created the first time this method is called, as
+	 * most packets are never written to through it.
 	 * 
 	 * @return the packet's {@link java.io.OutputStream OutputStream}.
 	 */
 	public final PacketDataOutputStream getOutputStream() {
+		if (output == null) {
+			this.output = new PacketDataOutputStream(this);
+		}
 		return this.output;
 	}
 
@@ -1426,11 +1483,12 @@ public class Packet {
 	 * 
 	 * @param buffer
 	 *            the buffer to read from and write to, a <code>null</code>
-	 *            value will have a new buffer be used instead.
+	 *            value will have a new buffer be allocated by the
+	 *            {@link RakNet#getAllocator() packet allocator} instead.
 	 * @return the packet.
 	 */
 	public final Packet setBuffer(ByteBuf buffer) {
-		this.buffer = buffer == null ? Unpooled.buffer() : buffer;
+		this.buffer = buffer == null ? RakNet.getAllocator().buffer() : buffer;
 		return this;
 	}
 
@@ -1494,11 +1552,14 @@ public class Packet {
 	 * @return the packet.
 	 */
 	public Packet flip() {
-		byte[] data = buffer.array();
+		ByteBuf flipped = RakNet.getAllocator().buffer(buffer.writerIndex());
+		flipped.writeBytes(buffer, 0, buffer.writerIndex());
 		int increment = buffer.refCnt();
 		buffer.release(increment); // No longer needed
-		this.buffer = Unpooled.copiedBuffer(data);
-		buffer.retain(increment);
+		this.buffer = flipped;
+		if (increment > 1) {
+			buffer.retain(increment - 1);
+		}
 		return this;
 	}
 
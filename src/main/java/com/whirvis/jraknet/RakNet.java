@@ -29,7 +29,10 @@
  */
 package com.whirvis.jraknet;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -52,6 +55,8 @@ import com.whirvis.jraknet.protocol.status.UnconnectedPing;
 import com.whirvis.jraknet.protocol.status.UnconnectedPong;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -246,6 +251,7 @@ public final class RakNet {
 	private static int _lowestMaximumTransferUnitSize = -1;
 	private static long _maxPacketsPerSecond = 500;
 	private static int _systemAddressCount = RAKNET_SYSTEM_ADDRESS_COUNT;
+	private static volatile ByteBufAllocator _allocator = PooledByteBufAllocator.DEFAULT;
 
 	private RakNet() {
 		// Static class
@@ -610,7 +616,7 @@ public final class RakNet {
 			// Wait for response
 			while (retries > 0 && received == null && !Thread.currentThread().isInterrupted()) {
 				long sendTime = System.currentTimeMillis();
-				channel.writeAndFlush(new DatagramPacket(packet.buffer(), address));
+				channel.writeAndFlush(new DatagramPacket(packet.buffer().retainedDuplicate(), address));
 				while (System.currentTimeMillis() - sendTime < timeout && handler.packet == null)
 					; // Wait for either a timeout or a response
 				received = handler.packet;
@@ -618,6 +624,8 @@ public final class RakNet {
 			}
 		} catch (InterruptedException e) {
 			return null;
+		} finally {
+			packet.release();
 		}
 		group.shutdownGracefully();
 		return received;
@@ -1022,6 +1030,87 @@ public final class RakNet {
 		}
 	}
 
+	/**
+	 * Returns the allocator used to allocate the buffers of packets.
+	 * 
+	 * @return the allocator used to allocate the buffers of packets.
+	 */
+	public static ByteBufAllocator getAllocator() {
+		return _allocator;
+	}
+
+	/**
+	 * Sets the allocator used to allocate the buffers of packets.
+	 * <p>
+	 * By default, buffers are pooled and direct if the platform supports
+	 * it. Pooled buffers are only returned to the pool once they have been
+	 * released, so packets that are created but never sent must be released
+	 * with {@link Packet#release()}.
+	 * 
+	 * @param allocator
+	 *            the allocator.
+	 * @throws NullPointerException
+	 *             if the <code>allocator</code> is <code>null</code>.
+	 */
+	public static void setAllocator(ByteBufAllocator allocator) throws NullPointerException {
+		if (allocator == null) {
+			throw new NullPointerException("Allocator cannot be null");
+		}
+		boolean updated = _allocator != allocator;
+		_allocator = allocator;
+		if (updated == true) {
+			LOGGER.info("Set packet allocator to " + allocator.getClass().getSimpleName());
+		}
+	}
+
+	/**
+	 * Returns the amount of datagrams the kernel has dropped for the UDP
+	 * sockets bound to the specified port.
+	 * <p>
+	 * These are datagrams that were discarded before they could be read,
+	 * usually because the socket receive buffer was full. They are read from
+	 * the <code>drops</code> column of <code>/proc/net/udp</code> and
+	 * <code>/proc/net/udp6</code>, and are summed if multiple sockets are bound
+	 * to the port. As such, this is only supported on Linux.
+	 * 
+	 * @param port
+	 *            the port.
+	 * @return the amount of datagrams the kernel has dropped for the UDP
+	 *         sockets bound to the port, <code>-1</code> if it could not be
+	 *         determined.
+	 * @throws IllegalArgumentException
+	 *             if the <code>port</code> is not in between <code>0</code>
+	 *             and <code>65535</code>.
+	 */
+	public static long getKernelDropCount(int port) throws IllegalArgumentException {
+		if (port < 0x0000 || port > 0xFFFF) {
+			throw new IllegalArgumentException("Port must be in between 0-65535");
+		}
+		long drops = 0;
+		boolean found = false;
+		for (String table : new String[] { "/proc/net/udp", "/proc/net/udp6" }) {
+			try (BufferedReader reader = new BufferedReader(new FileReader(table))) {
+				reader.readLine(); // Skip header
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] columns = line.trim().split("\\s+");
+					if (columns.length < 13) {
+						continue; // Unknown format
+					}
+					String localAddress = columns[1];
+					int localPort = Integer.parseInt(localAddress.substring(localAddress.indexOf(':') + 1), 16);
+					if (localPort == port) {
+						drops += Long.parseLong(columns[12]);
+						found = true;
+					}
+				}
+			} catch (IOException | NumberFormatException e) {
+				LOGGER.debug("Failed to read kernel drop count from " + table, e);
+			}
+		}
+		return found ? drops : -1L;
+	}
+
 	/**
 	 * Converts the specified ID to a hex string.
 	 * 
@@ -64,6 +64,32 @@ public class RakNetPacket extends Packet {
 	 */
 	private static final String DECODE_METHOD_NAME = "decode";
 
+	/**
+	 * Whether or not each packet class supports encoding, computed only once
+	 * per class.
+	 */
+	private static final ClassValue<Boolean> SUPPORTS_ENCODING = new ClassValue<Boolean>() {
+
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			return Boolean.valueOf(isMethodOverriden(type, RakNetPacket.class, ENCODE_METHOD_NAME));
+		}
+
+	};
+
+	/**
+	 * Whether or not each packet class supports decoding, computed only once
+	 * per class.
+	 */
+	private static final ClassValue<Boolean> SUPPORTS_DECODING = new ClassValue<Boolean>() {
+
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			return Boolean.valueOf(isMethodOverriden(type, RakNetPacket.class, DECODE_METHOD_NAME));
+		}
+
+	};
+
 	/**
 	 * The cached packet names, mapped by their ID.
 	 */
@@ -1065,6 +1091,11 @@ public class RakNetPacket extends Packet {
 	 * Returns whether or not a method with the specified name has been
 	 * overridden the method in the original specified class by the specified
 	 * class instance.
+	 * <p>
+	 * This uses reflection, and as such should not be called every time a
+	 * packet is created. Use {@link #SUPPORTS_ENCODING} and
+	 * {@link #SUPPORTS_DECODING} instead, which only call this once per
+	 * class.
 	 * 
 	 * @param instance
 	 *            the class instance.
@@ -1080,15 +1111,13 @@ public class RakNetPacket extends Packet {
 			if (instance == null || clazz == null || methodName == null) {
 				return false; // Not enough information to compare
 			}
-			return !clazz.getMethod(methodName).getDeclaringClass().equals(clazz);
+			return !instance.getMethod(methodName).getDeclaringClass().equals(clazz);
 		} catch (NoSuchMethodException | SecurityException e) {
 			return false;
 		}
 	}
 
 	private short id;
-	private final boolean supportsEncoding;
-	private final boolean supportsDecoding;
 
 	/**
 	 * Creates a RakNet packet.
@@ -1104,8 +1133,28 @@ public class RakNetPacket extends Packet {
 			throw new IllegalArgumentException("ID must be in between 0-255");
 		}
 		this.writeUnsignedByte(this.id = (short) id);
-		this.supportsEncoding = isMethodOverriden(this.getClass(), RakNetPacket.class, ENCODE_METHOD_NAME);
-		this.supportsDecoding = isMethodOverriden(this.getClass(), RakNetPacket.class, DECODE_METHOD_NAME);
+	}
+
+	/**
+	 * Creates a RakNet packet with a buffer of the specified initial
+	 * capacity.
+	 * 
+	 * @param id
+	 *            the ID of the packet.
+	 * @param initialCapacity
+	 *            the initial capacity of the buffer, including the ID of the
+	 *            packet.
+	 * @throws IllegalArgumentException
+	 *             if the <code>id</code> is not in between <code>0-255</code>
+	 *             or the <code>initialCapacity</code> is negative.
+	 * @see Packet#Packet(int)
+	 */
+	public RakNetPacket(int id, int initialCapacity) throws IllegalArgumentException {
+		super(initialCapacity);
+		if (id < 0x00 || id > 0xFF) {
+			throw new IllegalArgumentException("ID must be in between 0-255");
+		}
+		this.writeUnsignedByte(this.id = (short) id);
 	}
 
 	/**
@@ -1124,8 +1173,6 @@ public class RakNetPacket extends Packet {
 			throw new IllegalArgumentException("Buffer must have at least one readable byte for the ID");
 		}
 		this.id = this.readUnsignedByte();
-		this.supportsEncoding = isMethodOverriden(this.getClass(), RakNetPacket.class, ENCODE_METHOD_NAME);
-		this.supportsDecoding = isMethodOverriden(this.getClass(), RakNetPacket.class, DECODE_METHOD_NAME);
 	}
 
 	/**
@@ -1181,8 +1228,6 @@ public class RakNetPacket extends Packet {
 			}
 			this.id = this.readUnsignedByte();
 		}
-		this.supportsEncoding = isMethodOverriden(this.getClass(), RakNetPacket.class, ENCODE_METHOD_NAME);
-		this.supportsDecoding = isMethodOverriden(this.getClass(), RakNetPacket.class, DECODE_METHOD_NAME);
 	}
 
 	/**
@@ -1309,7 +1354,7 @@ public class RakNetPacket extends Packet {
 	 *         otherwise.
 	 */
 	public final boolean supportsEncoding() {
-		return this.supportsEncoding;
+		return SUPPORTS_ENCODING.get(this.getClass()).booleanValue();
 	}
 
 	/**
@@ -1331,7 +1376,7 @@ public class RakNetPacket extends Packet {
 	 *         otherwise.
 	 */
 	public final boolean supportsDecoding() {
-		return this.supportsDecoding;
+		return SUPPORTS_DECODING.get(this.getClass()).booleanValue();
 	}
 
 	/**
@@ -36,12 +36,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.whirvis.jraknet.NetworkConfiguration;
 import com.whirvis.jraknet.Packet;
 import com.whirvis.jraknet.RakNet;
 import com.whirvis.jraknet.RakNetException;
@@ -49,9 +51,13 @@ import com.whirvis.jraknet.RakNetPacket;
 import com.whirvis.jraknet.ThreadedListener;
 import com.whirvis.jraknet.client.peer.PeerFactory;
 import com.whirvis.jraknet.discovery.DiscoveredServer;
+import com.whirvis.jraknet.peer.MessageRegistry;
+import com.whirvis.jraknet.peer.PeerScheduler;
 import com.whirvis.jraknet.peer.RakNetPeerMessenger;
 import com.whirvis.jraknet.peer.RakNetServerPeer;
 import com.whirvis.jraknet.peer.RakNetState;
+import com.whirvis.jraknet.peer.ShardedPeerScheduler;
+import com.whirvis.jraknet.protocol.PacketPriority;
 import com.whirvis.jraknet.protocol.Reliability;
 import com.whirvis.jraknet.protocol.login.ConnectionRequest;
 import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
@@ -64,6 +70,7 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.util.ReferenceCounted;
 
 /**
  * Used to connect to servers using the RakNet protocol.
@@ -109,7 +116,9 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 	private int highestMaximumTransferUnitSize;
 	private PeerFactory peerFactory;
 	private volatile RakNetServerPeer peer;
-	private Thread peerThread;
+	private PeerScheduler peerScheduler;
+	private NetworkConfiguration networkConfiguration;
+	private final MessageRegistry messageRegistry;
 
 	/**
 	 * Creates a RakNet client.
@@ -127,6 +136,9 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 				.getLogger(RakNetClient.class.getSimpleName() + "[" + Long.toHexString(guid).toUpperCase() + "]");
 		this.timestamp = System.currentTimeMillis();
 		this.listeners = new ConcurrentLinkedQueue<RakNetClientListener>();
+		this.peerScheduler = new ShardedPeerScheduler(1);
+		this.networkConfiguration = new NetworkConfiguration();
+		this.messageRegistry = new MessageRegistry(Long.toHexString(guid).toUpperCase());
 		if (this.getClass() != RakNetClient.class && RakNetClientListener.class.isAssignableFrom(this.getClass())) {
 			this.addSelfListener();
 		}
@@ -242,6 +254,104 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 		return System.currentTimeMillis() - timestamp;
 	}
 
+	/**
+	 * Returns the scheduler used to update the server peer.
+	 * <p>
+	 * By default, this is a {@link ShardedPeerScheduler} with a single shard.
+	 * 
+	 * @return the scheduler used to update the server peer.
+	 */
+	public final PeerScheduler getPeerScheduler() {
+		return this.peerScheduler;
+	}
+
+	/**
+	 * Sets the scheduler used to update the server peer.
+	 * 
+	 * @param peerScheduler
+	 *            the scheduler.
+	 * @throws NullPointerException
+	 *             if the <code>peerScheduler</code> is <code>null</code>.
+	 * @throws IllegalStateException
+	 *             if the client is currently connected to a server.
+	 */
+	public final void setPeerScheduler(PeerScheduler peerScheduler)
+			throws NullPointerException, IllegalStateException {
+		if (peerScheduler == null) {
+			throw new NullPointerException("Peer scheduler cannot be null");
+		} else if (this.peerScheduler.isRunning()) {
+			throw new IllegalStateException("Cannot change peer scheduler while connected to a server");
+		}
+		this.peerScheduler = peerScheduler;
+		logger.info("Set peer scheduler to " + peerScheduler.getClass().getName());
+	}
+
+	/**
+	 * Returns the network configuration of the client.
+	 * 
+	 * @return the network configuration of the client.
+	 */
+	public final NetworkConfiguration getNetworkConfiguration() {
+		return this.networkConfiguration;
+	}
+
+	/**
+	 * Sets the network configuration of the client.
+	 * <p>
+	 * The read batch size has no effect, as the client always reads datagrams
+	 * one at a time.
+	 * 
+	 * @param networkConfiguration
+	 *            the network configuration.
+	 * @throws NullPointerException
+	 *             if the <code>networkConfiguration</code> is
+	 *             <code>null</code>.
+	 * @throws IllegalStateException
+	 *             if the client is currently connected to a server.
+	 */
+	public final void setNetworkConfiguration(NetworkConfiguration networkConfiguration)
+			throws NullPointerException, IllegalStateException {
+		if (networkConfiguration == null) {
+			throw new NullPointerException("Network configuration cannot be null");
+		} else if (this.isConnected()) {
+			throw new IllegalStateException("Cannot change network configuration while connected to a server");
+		}
+		this.networkConfiguration = networkConfiguration;
+		logger.info("Set network configuration to " + networkConfiguration);
+	}
+
+	/**
+	 * Returns the registry of the handlers for user messages received from
+	 * the server.
+	 * <p>
+	 * A message with an ID that has a handler registered to it is passed to
+	 * that handler on the thread that owns the peer it was received from,
+	 * rather than to the <code>handleMessage()</code> method of the
+	 * listeners.
+	 * 
+	 * @return the registry of the handlers for user messages.
+	 */
+	public final MessageRegistry getMessageRegistry() {
+		return this.messageRegistry;
+	}
+
+	/**
+	 * Returns the amount of datagrams the kernel has dropped for the socket of
+	 * the client.
+	 * 
+	 * @return the amount of datagrams the kernel has dropped for the socket of
+	 *         the client, <code>-1</code> if it could not be determined or the
+	 *         client is not connected to a server.
+	 * @see RakNet#getKernelDropCount(int)
+	 */
+	public final long getKernelDropCount() {
+		InetSocketAddress bindAddress = this.bindAddress;
+		if (bindAddress == null || !this.isConnected()) {
+			return -1L;
+		}
+		return RakNet.getKernelDropCount(bindAddress.getPort());
+	}
+
 	/**
 	 * Adds a {@link RakNetClientListener} to the client.
 	 * <p>
@@ -326,11 +436,66 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 	 * @see RakNetClientListener
 	 */
 	public final void callEvent(Consumer<? super RakNetClientListener> event) throws NullPointerException {
+		this.dispatchEvent(event, null);
+	}
+
+	/**
+	 * Calls an event which hands a reference counted message to each
+	 * listener.
+	 * <p>
+	 * The <code>message</code> is retained once for every listener before the
+	 * event is called for it, with each listener being responsible for
+	 * releasing its reference once it is done with the message. This allows
+	 * listeners that handle events on their own thread to keep using the
+	 * message after the event has been called. The reference held by the
+	 * caller is released once the event has been called for every listener.
+	 * 
+	 * @param event
+	 *            the event to call.
+	 * @param message
+	 *            the message handed to each listener.
+	 * @throws NullPointerException
+	 *             if the <code>event</code> or <code>message</code> are
+	 *             <code>null</code>.
+	 * @see RakNetClientListener
+	 */
+	public final void callEvent(Consumer<? super RakNetClientListener> event, ReferenceCounted message)
+			throws NullPointerException {
+		if (message == null) {
+			throw new NullPointerException("Message cannot be null");
+		}
+		try {
+			this.dispatchEvent(event, message);
+		} finally {
+			message.release();
+		}
+	}
+
+	/**
+	 * Calls an event for every listener, retaining the message for each of
+	 * them if there is one.
+	 * 
+	 * @param event
+	 *            the event to call.
+	 * @param message
+	 *            the message handed to each listener, may be
+	 *            <code>null</code>.
+	 * @throws NullPointerException
+	 *             if the <code>event</code> is <code>null</code>.
+	 */
+	private void dispatchEvent(Consumer<? super RakNetClientListener> event, ReferenceCounted message)
+			throws NullPointerException {
 		if (event == null) {
 			throw new NullPointerException("Event cannot be null");
 		}
-		logger.trace("Called event of class " + event.getClass().getName() + " for " + listeners.size() + " listeners");
+		if (logger.isTraceEnabled()) {
+			logger.trace("Called event of class " + event.getClass().getName() + " for " + listeners.size()
+					+ " listeners");
+		}
 		for (RakNetClientListener listener : listeners) {
+			if (message != null) {
+				message.retain(); // Reference owned by the listener
+			}
 			if (listener.getClass().isAnnotationPresent(ThreadedListener.class)) {
 				ThreadedListener threadedListener = listener.getClass().getAnnotation(ThreadedListener.class);
 				new Thread(RakNetClient.class.getSimpleName() + (threadedListener.name().length() > 0 ? "-" : "")
@@ -570,12 +735,12 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 	 *             if the client is not connected to a server.
 	 */
 	@Override
-	public final EncapsulatedPacket sendMessage(Reliability reliability, int channel, Packet packet)
-			throws IllegalStateException {
+	public final EncapsulatedPacket sendMessage(PacketPriority priority, Reliability reliability, int channel,
+			Packet packet) throws IllegalStateException {
 		if (!this.isConnected()) {
 			throw new IllegalStateException("Cannot send messages while not connected to a server");
 		}
-		return peer.sendMessage(reliability, channel, packet);
+		return peer.sendMessage(priority, reliability, channel, packet);
 	}
 
 	/**
@@ -604,8 +769,10 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 			throw new NullPointerException("IP address cannot be null");
 		}
 		channel.writeAndFlush(new DatagramPacket(buf, address));
-		logger.trace("Sent netty message with size of " + buf.capacity() + " bytes (" + (buf.capacity() * 8)
-				+ " bits) to " + address);
+		if (logger.isTraceEnabled()) {
+			logger.trace("Sent netty message with size of " + buf.capacity() + " bytes (" + (buf.capacity() * 8)
+					+ " bits) to " + address);
+		}
 	}
 
 	/**
@@ -680,7 +847,9 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 		} else if (peer != null) {
 			peer.handleInternal(packet);
 		}
-		logger.trace("Handled " + RakNetPacket.getName(packet) + " packet from " + sender);
+		if (logger.isTraceEnabled()) {
+			logger.trace("Handled " + RakNetPacket.getName(packet) + " packet from " + sender);
+		}
 	}
 
 	/**
@@ -746,7 +915,13 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 			this.group = new NioEventLoopGroup();
 			this.handler = new RakNetClientHandler(this);
 			bootstrap.channel(NioDatagramChannel.class).group(group).handler(handler);
-			bootstrap.option(ChannelOption.SO_BROADCAST, true).option(ChannelOption.SO_REUSEADDR, false);
+			bootstrap.option(ChannelOption.SO_BROADCAST, true).option(ChannelOption.SO_REUSEADDR, false)
+					.option(ChannelOption.SO_SNDBUF, networkConfiguration.getSendBufferSize())
+					.option(ChannelOption.SO_RCVBUF, networkConfiguration.getReceiveBufferSize())
+					.option(ChannelOption.ALLOCATOR, networkConfiguration.getAllocator());
+			if (networkConfiguration.getReceiveAllocator() != null) {
+				bootstrap.option(ChannelOption.RCVBUF_ALLOCATOR, networkConfiguration.getReceiveAllocator());
+			}
 			this.channel = (bindingAddress != null ? bootstrap.bind(bindingAddress) : bootstrap.bind(0)).sync()
 					.channel();
 			this.bindAddress = (InetSocketAddress) channel.localAddress();
@@ -776,38 +951,33 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 		peer.sendMessage(Reliability.RELIABLE_ORDERED, connectionRequest);
 		logger.debug("Sent connection request to server");
 
-		// Create and start peer update thread
-		RakNetClient client = this;
-		this.peerThread = new Thread(
-				RakNetClient.class.getSimpleName() + "-Peer-Thread-" + Long.toHexString(guid).toUpperCase()) {
-
-			@Override
-			public void run() {
-				while (peer != null && !this.isInterrupted()) {
-					try {
-						Thread.sleep(0, 1); // Lower CPU usage
-					} catch (InterruptedException e) {
-						this.interrupt(); // Interrupted during sleep
-						continue;
-					}
-					if (peer != null) {
-						if (!peer.isDisconnected()) {
-							try {
-								peer.update();
-							} catch (Throwable throwable) {
-								client.callEvent(listener -> listener.onPeerException(client, peer, throwable));
-								if (!peer.isDisconnected()) {
-									client.disconnect(throwable);
-								}
-							}
-						}
+		// Start peer scheduler
+		peerScheduler.start(
+				RakNetClient.class.getSimpleName() + "-Peer-Thread-" + Long.toHexString(guid).toUpperCase(),
+				(peer, throwable) -> {
+					RakNetServerPeer server = (RakNetServerPeer) peer;
+					this.callEvent(listener -> listener.onPeerException(this, server, throwable));
+					if (!server.isDisconnected()) {
+						this.disconnect(throwable);
 					}
-				}
-			}
-
-		};
-		peerThread.start();
-		logger.debug("Created and started peer update thread");
+				});
+		peer.setWriteBatchSize(networkConfiguration.getWriteBatchSize());
+		peer.setZeroCopyPayloads(networkConfiguration.isZeroCopyPayloads());
+		peer.setSendPacketRate(networkConfiguration.getSendPacketRate());
+		peer.setSendByteRate(networkConfiguration.getSendByteRate());
+		peer.setSendBurstTime(networkConfiguration.getSendBurstTime());
+		peer.setAcknowledgeDelay(networkConfiguration.getAcknowledgeDelay());
+		peer.setOrderWindowSize(networkConfiguration.getOrderWindowSize());
+		peer.setMaximumSplitCount(networkConfiguration.getMaximumSplitCount());
+		peer.setMaximumSplits(networkConfiguration.getMaximumSplits());
+		peer.setMaximumSplitBytes(networkConfiguration.getMaximumSplitBytes());
+		peer.setSplitTimeout(networkConfiguration.getSplitTimeout());
+		peer.setStreamWindowSize(networkConfiguration.getStreamWindowSize());
+		peer.setCongestionController(
+				networkConfiguration.getCongestionControllerFactory().create(peer.getMaximumTransferUnit()));
+		peer.setMessageRegistry(messageRegistry);
+		peerScheduler.register(peer);
+		logger.debug("Started peer scheduler");
 		logger.info("Connected to server with address " + address);
 	}
 
@@ -902,14 +1072,24 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 			throw new IllegalStateException("Client is not connected to a server");
 		}
 
-		// Disconnect peer and interrupt thread
-		peerThread.interrupt();
-		this.peerThread = null;
+		/*
+		 * The peer is disconnected by the thread that owns it, which must
+		 * finish doing so before the scheduler is stopped. If it takes too
+		 * long, the scheduler is stopped anyway.
+		 */
 		RakNetServerPeer peer = this.peer;
-		if (!peer.isDisconnected()) {
-			peer.disconnect();
-			this.peer = null;
+		CountDownLatch disconnected = peerScheduler.disconnect(peer, null);
+		try {
+			if (disconnected.await(PeerScheduler.DISCONNECT_TIMEOUT, TimeUnit.MILLISECONDS) == false) {
+				logger.warn("Timed out while waiting for peer to be disconnected");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (peerScheduler.isRunning()) {
+			peerScheduler.shutdown();
 		}
+		this.peer = null;
 		logger.info("Disconnected from server with address " + peer.getAddress()
 				+ (reason != null ? " with reason \"" + reason + "\"" : ""));
 		this.callEvent(
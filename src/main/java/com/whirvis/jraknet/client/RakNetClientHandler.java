@@ -87,7 +87,12 @@ public final class RakNetClientHandler extends ChannelInboundHandlerAdapter {
 			if (datagram.release() /* No longer needed */) {
 				logger.trace("Released datagram");
 			} else {
-				logger.error("Memory leak: Failed to deallocate datagram when releasing it");
+				/*
+				 * The datagram is still referenced by a peer that has yet to
+				 * handle it on its own thread. It will be deallocated once the
+				 * peer has finished handling it and releases it.
+				 */
+				logger.trace("Released datagram, still referenced by peer");
 			}
 
 			// No exceptions occurred, release the suspect
@@ -135,6 +135,11 @@ public interface RakNetClientListener {
 	/**
 	 * Called when a packet from the server has been received and is ready to be
 	 * handled.
+	 * <p>
+	 * If {@link com.whirvis.jraknet.NetworkConfiguration#setZeroCopyPayloads(boolean)
+	 * zero-copy payloads} are enabled, the packet is a slice of the received
+	 * datagram and the listener owns one reference to it, which must be
+	 * released with {@link RakNetPacket#release()} once it has been handled.
 	 * 
 	 * @param client
 	 *            the client.
@@ -155,6 +160,11 @@ public interface RakNetClientListener {
 	 * <p>
 	 * This function can be used to add missing features from the regular RakNet
 	 * protocol that are absent in JRakNet if needed.
+	 * <p>
+	 * If {@link com.whirvis.jraknet.NetworkConfiguration#setZeroCopyPayloads(boolean)
+	 * zero-copy payloads} are enabled, the packet is a slice of the received
+	 * datagram and the listener owns one reference to it, which must be
+	 * released with {@link RakNetPacket#release()} once it has been handled.
 	 * 
 	 * @param client
 	 *            the client.
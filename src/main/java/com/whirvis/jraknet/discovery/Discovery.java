@@ -213,7 +213,10 @@ public final class Discovery {
 		if (event == null) {
 			throw new NullPointerException("Event cannot be null");
 		}
-		LOGGER.trace("Called event of class " + event.getClass().getName() + " for " + LISTENERS.size() + " listeners");
+		if (LOGGER.isTraceEnabled()) {
+			LOGGER.trace("Called event of class " + event.getClass().getName() + " for " + LISTENERS.size()
+					+ " listeners");
+		}
 		for (DiscoveryListener listener : LISTENERS) {
 			if (listener.getClass().isAnnotationPresent(ThreadedListener.class)) {
 				ThreadedListener threadedListener = listener.getClass().getAnnotation(ThreadedListener.class);
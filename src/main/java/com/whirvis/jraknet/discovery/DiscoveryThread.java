@@ -155,8 +155,11 @@ public final class DiscoveryThread extends Thread {
 				for (InetSocketAddress address : Discovery.DISCOVERY_ADDRESSES.keySet()) {
 					channel.writeAndFlush(new DatagramPacket(ping.buffer().retain(), address));
 				}
-				logger.trace("Sent unconnected ping to " + Discovery.DISCOVERY_ADDRESSES.size() + " server"
-						+ (Discovery.DISCOVERY_ADDRESSES.size() == 1 ? "" : "s"));
+				ping.release();
+				if (logger.isTraceEnabled()) {
+					logger.trace("Sent unconnected ping to " + Discovery.DISCOVERY_ADDRESSES.size() + " server"
+							+ (Discovery.DISCOVERY_ADDRESSES.size() == 1 ? "" : "s"));
+				}
 				this.lastPingBroadcast = currentTime;
 			}
 		}
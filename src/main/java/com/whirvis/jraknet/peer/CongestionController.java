@@ -0,0 +1,137 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+/**
+ * Decides how much data a {@link RakNetPeer} may have in flight, and how
+ * quickly it may send it.
+ * <p>
+ * A congestion controller is notified every time a datagram containing
+ * reliable messages is sent, acknowledged, or lost. From these events it
+ * determines a congestion window, which is the amount of bytes that may be
+ * awaiting acknowledgement at once, and optionally a pacing rate, which
+ * spaces out the datagrams that are sent. Datagrams that contain only
+ * unreliable messages are never acknowledged, and as such are only subject
+ * to the pacing rate.
+ * <p>
+ * Every peer has its own congestion controller, which is only ever used by
+ * the thread that owns the peer. Implementations need not be thread-safe.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see SlidingWindowCongestionController
+ * @see PacingCongestionController
+ */
+public interface CongestionController {
+
+	/**
+	 * Creates congestion controllers for peers.
+	 * 
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	@FunctionalInterface
+	public static interface Factory {
+
+		/**
+		 * Creates a congestion controller for a peer.
+		 * 
+		 * @param maximumTransferUnit
+		 *            the maximum transfer unit of the peer.
+		 * @return the created congestion controller.
+		 */
+		public CongestionController create(int maximumTransferUnit);
+
+	}
+
+	/**
+	 * Called when a datagram containing reliable messages is sent.
+	 * 
+	 * @param time
+	 *            the time the datagram was sent.
+	 * @param size
+	 *            the size of the datagram in bytes.
+	 * @param bytesInFlight
+	 *            the amount of bytes awaiting acknowledgement, including the
+	 *            datagram.
+	 */
+	public void onSend(long time, int size, long bytesInFlight);
+
+	/**
+	 * Called when a datagram containing reliable messages is acknowledged.
+	 * 
+	 * @param time
+	 *            the current time.
+	 * @param sendTime
+	 *            the time the datagram was sent.
+	 * @param size
+	 *            the size of the datagram in bytes.
+	 * @param bytesInFlight
+	 *            the amount of bytes still awaiting acknowledgement.
+	 */
+	public void onAcknowledge(long time, long sendTime, int size, long bytesInFlight);
+
+	/**
+	 * Called when a datagram containing reliable messages is lost, either
+	 * because the peer reported it lost or because it was not acknowledged
+	 * within the retransmission timeout.
+	 * 
+	 * @param time
+	 *            the current time.
+	 * @param sendTime
+	 *            the time the datagram was sent.
+	 * @param size
+	 *            the size of the datagram in bytes.
+	 * @param timeout
+	 *            <code>true</code> if the datagram was lost because it was not
+	 *            acknowledged in time, <code>false</code> if the peer reported
+	 *            it lost.
+	 */
+	public void onLoss(long time, long sendTime, int size, boolean timeout);
+
+	/**
+	 * Returns the congestion window.
+	 * <p>
+	 * New datagrams are only sent while the amount of bytes awaiting
+	 * acknowledgement is less than the congestion window.
+	 * 
+	 * @return the congestion window in bytes.
+	 */
+	public long getCongestionWindow();
+
+	/**
+	 * Returns the pacing rate.
+	 * 
+	 * @return the pacing rate in bytes per second, <code>0</code> if
+	 *         datagrams are not paced.
+	 */
+	public long getPacingRate();
+
+}
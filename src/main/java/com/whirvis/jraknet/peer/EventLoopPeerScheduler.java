@@ -0,0 +1,314 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.ScheduledFuture;
+
+/**
+ * A {@link PeerScheduler} that pins every peer to the Netty event loop of the
+ * channel it communicates over.
+ * <p>
+ * Since packets received from a peer are already handled on the event loop of
+ * its channel, running its updates and queueing its messages on that same
+ * event loop means that all of the peer's state is only ever touched by a
+ * single thread. Updates are ticked through
+ * {@link EventLoop#scheduleAtFixedRate(Runnable, long, long, TimeUnit)}, and
+ * are also run early whenever the peer is woken up.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class EventLoopPeerScheduler implements PeerScheduler {
+
+	/**
+	 * The default interval in milliseconds at which peers are checked for
+	 * updates that are due.
+	 */
+	public static final long DEFAULT_TICK_INTERVAL = 10L;
+
+	/**
+	 * Holds the scheduling data of a registered peer.
+	 * 
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private final class Registration implements Runnable {
+
+		private final RakNetPeer peer;
+		private final EventLoop eventLoop;
+		private final AtomicBoolean queued;
+		private volatile boolean cancelled;
+		private ScheduledFuture<?> tick;
+
+		/**
+		 * Creates a registration.
+		 * 
+		 * @param peer
+		 *            the peer.
+		 * @param eventLoop
+		 *            the event loop the peer is pinned to.
+		 */
+		private Registration(RakNetPeer peer, EventLoop eventLoop) {
+			this.peer = peer;
+			this.eventLoop = eventLoop;
+			this.queued = new AtomicBoolean();
+		}
+
+		/**
+		 * Queues the peer to be updated as soon as possible.
+		 */
+		private void queue() {
+			if (queued.compareAndSet(false, true)) {
+				eventLoop.execute(this);
+			}
+		}
+
+		/**
+		 * Called when the peer throws an exception on its event loop.
+		 * 
+		 * @param throwable
+		 *            the exception.
+		 */
+		private void fail(Throwable throwable) {
+			if (registrations.remove(peer, this)) {
+				EventLoopPeerScheduler.this.unregister(this);
+				BiConsumer<RakNetPeer, Throwable> exceptionHandler = EventLoopPeerScheduler.this.exceptionHandler;
+				if (exceptionHandler != null) {
+					exceptionHandler.accept(peer, throwable); // Not yet shutdown
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			queued.set(false);
+			if (cancelled == true || peer.isDisconnected()) {
+				return;
+			}
+			try {
+				peer.update();
+			} catch (Throwable throwable) {
+				this.fail(throwable);
+				return;
+			}
+
+			/*
+			 * If the peer still has work to do, such as a send queue that has
+			 * yet to be emptied, it is queued again rather than updated in a
+			 * loop. This gives the event loop a chance to handle other tasks,
+			 * such as incoming packets, in between updates.
+			 * 
+			 * If the work is due before the next tick, such as the next
+			 * datagram of a peer whose send rate is limited, the peer is
+			 * queued once it is due. Otherwise, every datagram due within a
+			 * tick would be sent at once.
+			 */
+			if (cancelled == false) {
+				long delay = peer.getNextUpdateTime() - System.currentTimeMillis();
+				if (delay <= 0) {
+					this.queue();
+				} else if (delay < tickInterval) {
+					eventLoop.schedule(this::queue, delay, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+
+	}
+
+	private final long tickInterval;
+	private final ConcurrentHashMap<RakNetPeer, Registration> registrations;
+	private volatile BiConsumer<RakNetPeer, Throwable> exceptionHandler;
+	private volatile boolean running;
+
+	/**
+	 * Creates an event loop peer scheduler.
+	 * 
+	 * @param tickInterval
+	 *            the interval in milliseconds at which peers are checked for
+	 *            updates that are due.
+	 * @throws IllegalArgumentException
+	 *             if the <code>tickInterval</code> is less than
+	 *             <code>1</code>.
+	 */
+	public EventLoopPeerScheduler(long tickInterval) throws IllegalArgumentException {
+		if (tickInterval < 1) {
+			throw new IllegalArgumentException("Tick interval must be at least 1");
+		}
+		this.tickInterval = tickInterval;
+		this.registrations = new ConcurrentHashMap<RakNetPeer, Registration>();
+	}
+
+	/**
+	 * Creates an event loop peer scheduler which checks peers for updates
+	 * that are due every {@value #DEFAULT_TICK_INTERVAL} milliseconds.
+	 */
+	public EventLoopPeerScheduler() {
+		this(DEFAULT_TICK_INTERVAL);
+	}
+
+	/**
+	 * Returns the interval in milliseconds at which peers are checked for
+	 * updates that are due.
+	 * 
+	 * @return the interval in milliseconds at which peers are checked for
+	 *         updates that are due.
+	 */
+	public long getTickInterval() {
+		return this.tickInterval;
+	}
+
+	@Override
+	public void start(String name, BiConsumer<RakNetPeer, Throwable> exceptionHandler)
+			throws NullPointerException, IllegalStateException {
+		if (name == null) {
+			throw new NullPointerException("Name cannot be null");
+		} else if (exceptionHandler == null) {
+			throw new NullPointerException("Exception handler cannot be null");
+		} else if (running == true) {
+			throw new IllegalStateException("Scheduler is already running");
+		}
+		this.exceptionHandler = exceptionHandler;
+		this.running = true;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public void register(RakNetPeer peer) throws NullPointerException, IllegalStateException {
+		if (peer == null) {
+			throw new NullPointerException("Peer cannot be null");
+		} else if (running == false) {
+			throw new IllegalStateException("Scheduler is not running");
+		} else if (peer.getChannel() == null) {
+			throw new IllegalStateException("Peer has no channel to take the event loop from");
+		}
+		Registration registration = new Registration(peer, peer.getChannel().eventLoop());
+		Registration previous = registrations.put(peer, registration);
+		if (previous != null) {
+			this.unregister(previous);
+		}
+		peer.setScheduler(this);
+		registration.tick = registration.eventLoop.scheduleAtFixedRate(() -> {
+			if (registration.cancelled == false && peer.getNextUpdateTime() <= System.currentTimeMillis()) {
+				registration.run();
+			}
+		}, tickInterval, tickInterval, TimeUnit.MILLISECONDS);
+		registration.queue();
+	}
+
+	/**
+	 * Cancels a registration that has been removed from the registered
+	 * peers.
+	 * 
+	 * @param registration
+	 *            the registration.
+	 */
+	private void unregister(Registration registration) {
+		registration.cancelled = true;
+		if (registration.tick != null) {
+			registration.tick.cancel(false);
+		}
+		if (registration.peer.getScheduler() == this) {
+			registration.peer.setScheduler(null);
+		}
+	}
+
+	@Override
+	public void unregister(RakNetPeer peer) {
+		if (peer == null) {
+			return;
+		}
+		Registration registration = registrations.remove(peer);
+		if (registration != null) {
+			this.unregister(registration);
+		}
+	}
+
+	@Override
+	public boolean inPeerThread(RakNetPeer peer) {
+		Registration registration = peer != null ? registrations.get(peer) : null;
+		return registration == null || registration.eventLoop.inEventLoop();
+	}
+
+	@Override
+	public void execute(RakNetPeer peer, Runnable task) throws NullPointerException {
+		if (peer == null) {
+			throw new NullPointerException("Peer cannot be null");
+		} else if (task == null) {
+			throw new NullPointerException("Task cannot be null");
+		}
+		Registration registration = registrations.get(peer);
+		if (registration != null) {
+			registration.eventLoop.execute(() -> {
+				try {
+					task.run();
+				} catch (Throwable throwable) {
+					registration.fail(throwable);
+				}
+			});
+		} else {
+			task.run();
+		}
+	}
+
+	@Override
+	public void wakeup(RakNetPeer peer) {
+		if (peer == null) {
+			return;
+		}
+		Registration registration = registrations.get(peer);
+		if (registration != null) {
+			registration.queue();
+		}
+	}
+
+	@Override
+	public void shutdown() throws IllegalStateException {
+		if (running == false) {
+			throw new IllegalStateException("Scheduler is not running");
+		}
+		this.running = false;
+		for (Registration registration : registrations.values()) {
+			this.unregister(registration);
+		}
+		registrations.clear();
+		this.exceptionHandler = null;
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import com.whirvis.jraknet.RakNetPacket;
+
+/**
+ * Handles a user message with a specific ID on the thread that owns the
+ * {@link RakNetPeer} it was received from.
+ * <p>
+ * Message handlers are registered to a {@link MessageRegistry}, and are
+ * called instead of the <code>handleMessage()</code> method of the server or
+ * client listeners for the ID they are registered to.
+ * 
+ * @param <T>
+ *            the type of packet the handler handles.
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see MessageRegistry
+ */
+@FunctionalInterface
+public interface MessageHandler<T extends RakNetPacket> {
+
+	/**
+	 * Called when a message with the ID the handler is registered to has been
+	 * received.
+	 * <p>
+	 * Ownership of the <code>packet</code> is passed to the handler. If
+	 * {@link RakNetPeer#setZeroCopyPayloads(boolean) zero-copy payloads} are
+	 * enabled, the packet is a slice of the received datagram and must be
+	 * released with {@link RakNetPacket#release()} once it has been handled.
+	 * 
+	 * @param peer
+	 *            the peer that sent the message.
+	 * @param packet
+	 *            the message.
+	 * @param channel
+	 *            the channel the message was sent on.
+	 */
+	public void handleMessage(RakNetPeer peer, T packet, int channel);
+
+}
@@ -0,0 +1,212 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+/**
+ * Keeps track of the message indexes of the reliable messages received from a
+ * peer, so that reliable messages that are received more than once are only
+ * handled once.
+ * <p>
+ * Which of the most recent message indexes have been received is kept in a
+ * bitmap that slides along with the highest message index received, making
+ * both adding and looking up a message index a single array access and
+ * keeping the memory used constant no matter how long the peer has been
+ * connected. Message indexes are sent as unsigned <code>triads</code>, and
+ * wrap around back to <code>0</code> once they exceed <code>2^24 - 1</code>.
+ * As such, they are compared by their distance from the highest message index
+ * received rather than by their value. Message indexes that are older than the
+ * bitmap reaches are considered to have already been received.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+final class MessageIndexWindow {
+
+	/**
+	 * The amount of bits in a message index.
+	 */
+	private static final int INDEX_BITS = 24;
+
+	/**
+	 * The mask used to wrap a message index around.
+	 */
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+
+	/**
+	 * The largest size the window can be while still being able to tell
+	 * which of two message indexes is the newer one.
+	 */
+	private static final int MAXIMUM_SIZE = 1 << (INDEX_BITS - 1);
+
+	private final long[] received;
+	private final int mask;
+	private int highestIndex;
+
+	/**
+	 * Creates a message index window.
+	 * 
+	 * @param size
+	 *            the amount of message indexes the window keeps track of,
+	 *            which is rounded up to a multiple of <code>64</code> that is
+	 *            a power of two.
+	 * @throws IllegalArgumentException
+	 *             if the <code>size</code> is less than or equal to
+	 *             <code>0</code> or greater than <code>2^23</code>.
+	 */
+	MessageIndexWindow(int size) throws IllegalArgumentException {
+		if (size <= 0 || size > MAXIMUM_SIZE) {
+			throw new IllegalArgumentException("Size must be in between 1 and 2^23");
+		}
+		int capacity = Integer.highestOneBit(Math.max(size, Long.SIZE));
+		if (capacity < size) {
+			capacity <<= 1;
+		}
+		this.received = new long[capacity / Long.SIZE];
+		this.mask = capacity - 1;
+		this.highestIndex = -1;
+	}
+
+	/**
+	 * Returns whether or not the specified message index has been received.
+	 * 
+	 * @param index
+	 *            the message index.
+	 * @return <code>true</code> if the message index has been received or is
+	 *         too old to tell, <code>false</code> otherwise.
+	 */
+	boolean contains(int index) {
+		if (highestIndex < 0) {
+			return false;
+		}
+		int distance = distance(index, highestIndex);
+		if (distance > 0) {
+			return false;
+		} else if (-distance > mask) {
+			return true; // Too old to tell
+		}
+		return this.isReceived(index);
+	}
+
+	/**
+	 * Marks the specified message index as received.
+	 * 
+	 * @param index
+	 *            the message index.
+	 * @return <code>true</code> if the message index had not been received
+	 *         yet, <code>false</code> if it had been received or is too old to
+	 *         tell.
+	 */
+	boolean add(int index) {
+		index &= INDEX_MASK;
+		if (highestIndex < 0) {
+			this.highestIndex = index;
+			this.set(index);
+			return true;
+		}
+		int distance = distance(index, highestIndex);
+		if (distance > 0) {
+			if (distance > mask) {
+				for (int i = 0; i < received.length; i++) {
+					received[i] = 0L;
+				}
+			} else {
+				for (int i = 1; i <= distance; i++) {
+					this.clear(highestIndex + i);
+				}
+			}
+			this.highestIndex = index;
+		} else if (-distance > mask || this.isReceived(index)) {
+			return false;
+		}
+		this.set(index);
+		return true;
+	}
+
+	/**
+	 * Forgets every message index that was received.
+	 */
+	void clear() {
+		for (int i = 0; i < received.length; i++) {
+			received[i] = 0L;
+		}
+		this.highestIndex = -1;
+	}
+
+	/**
+	 * Returns how far ahead the specified message index is from another,
+	 * taking into account that message indexes wrap around.
+	 * 
+	 * @param index
+	 *            the message index.
+	 * @param from
+	 *            the message index to measure from.
+	 * @return how far ahead the message index is, negative if it is behind.
+	 */
+	private static int distance(int index, int from) {
+		return ((index - from) << (Integer.SIZE - INDEX_BITS)) >> (Integer.SIZE - INDEX_BITS);
+	}
+
+	/**
+	 * Returns whether or not the specified message index is marked as
+	 * received in the bitmap.
+	 * 
+	 * @param index
+	 *            the message index.
+	 * @return <code>true</code> if the message index is marked as received,
+	 *         <code>false</code> otherwise.
+	 */
+	private boolean isReceived(int index) {
+		int bit = index & mask;
+		return (received[bit >>> 6] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * Marks the specified message index as received in the bitmap.
+	 * 
+	 * @param index
+	 *            the message index.
+	 */
+	private void set(int index) {
+		int bit = index & mask;
+		received[bit >>> 6] |= 1L << bit;
+	}
+
+	/**
+	 * Marks the specified message index as not received in the bitmap.
+	 * 
+	 * @param index
+	 *            the message index.
+	 */
+	private void clear(int index) {
+		int bit = index & mask;
+		received[bit >>> 6] &= ~(1L << bit);
+	}
+
+}
@@ -0,0 +1,387 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+
+import com.whirvis.jraknet.RakNetPacket;
+import com.whirvis.jraknet.protocol.Reliability;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * The receiving end of a stream of data sent by a {@link RakNetPeer}.
+ * <p>
+ * Received chunks are kept until they have been read, and the sending peer
+ * is given back credit for them once half of the
+ * {@link RakNetPeer#setStreamWindowSize(int) stream window} has been read.
+ * As the sending peer cannot send more than it has credit for, the stream
+ * never holds more than the size of the window at once. If nothing is
+ * available, reading blocks until more data is received or the stream has
+ * ended.
+ * <p>
+ * A stream can be read by any thread other than the one that owns the peer,
+ * as that thread is the one that receives the data. Reading on that thread
+ * fails with an {@link IOException} rather than blocking forever if nothing
+ * is {@link #available() available}.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see MessageRegistry#registerStream(int, StreamHandler)
+ * @see MessageOutputStream
+ */
+public final class MessageInputStream extends InputStream implements ReadableByteChannel {
+
+	private final RakNetPeer peer;
+	private final int id;
+	private final int channel;
+	private final int windowSize;
+	private final ArrayDeque<ByteBuf> chunks;
+	private int available;
+	private int credit;
+	private int consumed;
+	private boolean closed;
+	private boolean ended;
+	private boolean closeSent;
+	private IOException failure;
+
+	/**
+	 * Creates a message input stream.
+	 * 
+	 * @param peer
+	 *            the peer the stream receives data from.
+	 * @param id
+	 *            the ID of the stream messages.
+	 * @param channel
+	 *            the channel the stream is sent on.
+	 * @param windowSize
+	 *            the maximum amount of data that can be waiting to be read.
+	 */
+	MessageInputStream(RakNetPeer peer, int id, int channel, int windowSize) {
+		this.peer = peer;
+		this.id = id;
+		this.channel = channel;
+		this.windowSize = windowSize;
+		this.chunks = new ArrayDeque<ByteBuf>();
+	}
+
+	/**
+	 * Returns the peer the stream receives data from.
+	 * 
+	 * @return the peer the stream receives data from.
+	 */
+	public RakNetPeer getPeer() {
+		return this.peer;
+	}
+
+	/**
+	 * Returns the ID of the stream messages.
+	 * 
+	 * @return the ID of the stream messages.
+	 */
+	public int getId() {
+		return this.id;
+	}
+
+	/**
+	 * Returns the channel the stream is sent on.
+	 * 
+	 * @return the channel the stream is sent on.
+	 */
+	public int getChannel() {
+		return this.channel;
+	}
+
+	@Override
+	public synchronized boolean isOpen() {
+		return closed == false;
+	}
+
+	@Override
+	public synchronized int available() throws IOException {
+		if (closed == true) {
+			throw new ClosedChannelException();
+		}
+		return this.available;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return this.read(b, 0, 1) > 0 ? b[0] & 0xFF : -1;
+	}
+
+	@Override
+	public synchronized int read(byte[] b, int off, int len) throws IOException {
+		if (b == null) {
+			throw new NullPointerException("Buffer cannot be null");
+		} else if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		} else if (len == 0) {
+			return 0;
+		} else if (this.await() == false) {
+			return -1; // End of stream
+		}
+		int read = 0;
+		while (read < len && !chunks.isEmpty()) {
+			ByteBuf chunk = chunks.peek();
+			int length = Math.min(len - read, chunk.readableBytes());
+			chunk.readBytes(b, off + read, length);
+			read += length;
+			this.consume(chunk, length);
+		}
+		return read;
+	}
+
+	@Override
+	public synchronized int read(ByteBuffer dst) throws IOException {
+		if (dst == null) {
+			throw new NullPointerException("Buffer cannot be null");
+		} else if (!dst.hasRemaining()) {
+			return 0;
+		} else if (this.await() == false) {
+			return -1; // End of stream
+		}
+		int read = 0;
+		while (dst.hasRemaining() && !chunks.isEmpty()) {
+			ByteBuf chunk = chunks.peek();
+			int length = Math.min(dst.remaining(), chunk.readableBytes());
+			int limit = dst.limit();
+			dst.limit(dst.position() + length);
+			chunk.readBytes(dst);
+			dst.limit(limit);
+			read += length;
+			this.consume(chunk, length);
+		}
+		return read;
+	}
+
+	/**
+	 * Closes the stream, discarding any data that has not been read.
+	 * <p>
+	 * If the stream has not ended yet, the sending peer is told to stop
+	 * sending data.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed == true) {
+			return; // Already closed
+		}
+		this.closed = true;
+		this.releaseChunks();
+		if (failure == null) {
+			this.sendClose();
+		}
+		this.notifyAll();
+	}
+
+	/**
+	 * Waits until there is data to be read.
+	 * 
+	 * @return <code>true</code> if there is data to be read,
+	 *         <code>false</code> if the stream has ended.
+	 * @throws IOException
+	 *             if the stream was closed or failed, if the current thread
+	 *             is the one that owns the peer, or if the current thread was
+	 *             interrupted.
+	 */
+	private boolean await() throws IOException {
+		this.ensureReadable();
+		if (chunks.isEmpty() && ended == false) {
+			PeerScheduler scheduler = peer.getScheduler();
+			if (scheduler != null && scheduler.inPeerThread(peer)) {
+				throw new IOException("Cannot wait for data on the thread that owns the peer");
+			}
+			try {
+				while (chunks.isEmpty() && ended == false && closed == false && failure == null) {
+					this.wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for data");
+			}
+			this.ensureReadable();
+		}
+		return !chunks.isEmpty();
+	}
+
+	/**
+	 * Makes sure the stream can still be read from.
+	 * 
+	 * @throws IOException
+	 *             if the stream has been closed or has failed.
+	 */
+	private void ensureReadable() throws IOException {
+		if (closed == true) {
+			throw new ClosedChannelException();
+		} else if (failure != null) {
+			throw new IOException(failure.getMessage(), failure);
+		}
+	}
+
+	/**
+	 * Accounts for data that has been read from the first chunk, releasing it
+	 * once it has been read entirely and giving back credit to the sending
+	 * peer once half of the window has been read.
+	 * 
+	 * @param chunk
+	 *            the first chunk.
+	 * @param length
+	 *            the amount of bytes read from the chunk.
+	 */
+	private void consume(ByteBuf chunk, int length) {
+		this.available -= length;
+		this.consumed += length;
+		if (!chunk.isReadable()) {
+			chunks.poll().release();
+		}
+		if (consumed >= windowSize / 2 && ended == false) {
+			this.sendCredit(consumed);
+			this.consumed = 0;
+		}
+	}
+
+	/**
+	 * Sends credit to the sending peer.
+	 * 
+	 * @param credit
+	 *            the amount of credit to send.
+	 */
+	private void sendCredit(int credit) {
+		this.credit += credit;
+		RakNetPacket message = new RakNetPacket(id, StreamMessage.HEADER_SIZE + 4);
+		message.writeUnsignedByte(StreamMessage.CREDIT);
+		message.writeInt(credit);
+		peer.sendMessage(Reliability.RELIABLE_ORDERED, channel, message);
+	}
+
+	/**
+	 * Tells the sending peer the stream will no longer be read from, if it
+	 * has not been told already.
+	 */
+	private void sendClose() {
+		if (closeSent == false) {
+			RakNetPacket message = new RakNetPacket(id, StreamMessage.HEADER_SIZE);
+			message.writeUnsignedByte(StreamMessage.CLOSE);
+			peer.sendMessage(Reliability.RELIABLE_ORDERED, channel, message);
+			this.closeSent = true;
+		}
+	}
+
+	/**
+	 * Releases every chunk that has not been read.
+	 */
+	private void releaseChunks() {
+		while (!chunks.isEmpty()) {
+			chunks.poll().release();
+		}
+		this.available = 0;
+	}
+
+	/**
+	 * Gives the sending peer its initial credit.
+	 * <p>
+	 * This is called by the peer once the stream has been stored.
+	 */
+	synchronized void open() {
+		this.sendCredit(windowSize);
+	}
+
+	/**
+	 * Adds a chunk of data to the stream.
+	 * <p>
+	 * This is called by the peer when the sending peer sends
+	 * <code>DATA</code>. The stream takes ownership of the <code>chunk</code>.
+	 * If the sending peer sends more data than it was given credit for, the
+	 * stream fails and the sending peer is told to stop sending data.
+	 * 
+	 * @param chunk
+	 *            the chunk.
+	 * @return <code>true</code> if the chunk was within the credit given to
+	 *         the sending peer, <code>false</code> otherwise.
+	 */
+	synchronized boolean offer(ByteBuf chunk) {
+		int length = chunk.readableBytes();
+		if (length > credit) {
+			chunk.release();
+			if (failure == null) {
+				this.fail(new IOException("Peer sent more data than it was given credit for"));
+				this.sendClose();
+			}
+			return false; // More than was allowed
+		}
+		this.credit -= length;
+		if (closed == true || failure != null || length <= 0) {
+			chunk.release();
+			return true; // No longer being read
+		}
+		chunks.add(chunk);
+		this.available += length;
+		this.notifyAll();
+		return true;
+	}
+
+	/**
+	 * Ends the stream.
+	 * <p>
+	 * This is called by the peer when the sending peer sends
+	 * <code>END</code>, after which nothing else will be received for the
+	 * stream.
+	 */
+	synchronized void end() {
+		this.ended = true;
+		this.sendClose();
+		this.notifyAll();
+	}
+
+	/**
+	 * Fails the stream, causing every read after this to throw the specified
+	 * exception.
+	 * <p>
+	 * This is called by the peer when it disconnects.
+	 * 
+	 * @param failure
+	 *            the reason the stream failed.
+	 */
+	synchronized void fail(IOException failure) {
+		if (this.failure == null) {
+			this.failure = failure;
+		}
+		this.releaseChunks();
+		this.notifyAll();
+	}
+
+}
@@ -0,0 +1,375 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+import com.whirvis.jraknet.RakNetPacket;
+import com.whirvis.jraknet.protocol.Reliability;
+
+/**
+ * The sending end of a stream of data sent to a {@link RakNetPeer}.
+ * <p>
+ * Written data is gathered into chunks that each fit in a single datagram,
+ * which are sent as {@link Reliability#RELIABLE_ORDERED RELIABLE_ORDERED}
+ * messages once they are full or the stream is flushed. The stream can only
+ * send as much data as the receiving peer has given it credit for, which is
+ * given back as the data is read on the other end. Once it runs out, writing
+ * blocks until more credit arrives. This keeps the data held by both peers
+ * bound by the {@link RakNetPeer#setStreamWindowSize(int) stream window
+ * size} of the receiving peer, no matter how much is sent through the
+ * stream.
+ * <p>
+ * A stream can be written to by any thread other than the one that owns the
+ * peer, as that thread is the one that receives credit. Writing on that
+ * thread fails with an {@link IOException} rather than blocking forever once
+ * the stream runs out of credit.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see RakNetPeer#openStream(int, int)
+ * @see MessageInputStream
+ */
+public final class MessageOutputStream extends OutputStream implements WritableByteChannel {
+
+	private final RakNetPeer peer;
+	private final int id;
+	private final int channel;
+	private final int chunkSize;
+	private RakNetPacket chunk;
+	private int credit;
+	private boolean closed;
+	private boolean ended;
+	private boolean cancelled;
+	private IOException failure;
+
+	/**
+	 * Creates a message output stream.
+	 * 
+	 * @param peer
+	 *            the peer the stream sends data to.
+	 * @param id
+	 *            the ID of the stream messages.
+	 * @param channel
+	 *            the channel the stream is sent on.
+	 * @param chunkSize
+	 *            the maximum amount of data that can be sent in a single
+	 *            message.
+	 */
+	MessageOutputStream(RakNetPeer peer, int id, int channel, int chunkSize) {
+		this.peer = peer;
+		this.id = id;
+		this.channel = channel;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Returns the peer the stream sends data to.
+	 * 
+	 * @return the peer the stream sends data to.
+	 */
+	public RakNetPeer getPeer() {
+		return this.peer;
+	}
+
+	/**
+	 * Returns the ID of the stream messages.
+	 * 
+	 * @return the ID of the stream messages.
+	 */
+	public int getId() {
+		return this.id;
+	}
+
+	/**
+	 * Returns the channel the stream is sent on.
+	 * 
+	 * @return the channel the stream is sent on.
+	 */
+	public int getChannel() {
+		return this.channel;
+	}
+
+	/**
+	 * Returns the amount of bytes that can be written before the stream has
+	 * to wait for the receiving peer to give it more credit.
+	 * 
+	 * @return the amount of bytes that can be written without blocking.
+	 */
+	public synchronized int getCredit() {
+		return this.credit;
+	}
+
+	@Override
+	public synchronized boolean isOpen() {
+		return closed == false;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		this.write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+		if (b == null) {
+			throw new NullPointerException("Buffer cannot be null");
+		} else if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		this.ensureWritable();
+		while (len > 0) {
+			int length = this.reserve(len);
+			chunk.buffer().writeBytes(b, off, length);
+			off += length;
+			len -= length;
+			this.sendFullChunk();
+		}
+	}
+
+	@Override
+	public synchronized int write(ByteBuffer src) throws IOException {
+		if (src == null) {
+			throw new NullPointerException("Buffer cannot be null");
+		}
+		this.ensureWritable();
+		int written = 0;
+		while (src.hasRemaining()) {
+			int length = this.reserve(src.remaining());
+			int limit = src.limit();
+			src.limit(src.position() + length);
+			chunk.buffer().writeBytes(src);
+			src.limit(limit);
+			written += length;
+			this.sendFullChunk();
+		}
+		return written;
+	}
+
+	/**
+	 * Sends the data that has been written so far, even if it does not fill
+	 * a whole chunk.
+	 * 
+	 * @throws IOException
+	 *             if the stream has been closed.
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		this.ensureWritable();
+		this.sendChunk();
+	}
+
+	/**
+	 * Sends the data that has been written so far and ends the stream.
+	 * <p>
+	 * This does not wait for the data to be received, it is sent in the
+	 * background like every other message.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed == true) {
+			return; // Already closed
+		}
+		this.closed = true;
+		if (cancelled == false && failure == null) {
+			this.sendChunk();
+			this.end();
+		} else {
+			this.releaseChunk();
+		}
+		this.notifyAll();
+	}
+
+	/**
+	 * Makes sure the stream can still be written to.
+	 * 
+	 * @throws IOException
+	 *             if the stream has been closed, has been closed by the
+	 *             receiving peer, or has failed.
+	 */
+	private void ensureWritable() throws IOException {
+		if (closed == true) {
+			throw new ClosedChannelException();
+		} else if (failure != null) {
+			throw new IOException(failure.getMessage(), failure);
+		} else if (cancelled == true) {
+			throw new IOException("Stream closed by the receiving peer");
+		}
+	}
+
+	/**
+	 * Reserves space in the current chunk for the specified amount of bytes,
+	 * waiting for credit if there is none.
+	 * 
+	 * @param length
+	 *            the amount of bytes waiting to be written.
+	 * @return the amount of bytes that can be written to the current chunk.
+	 * @throws IOException
+	 *             if the stream was closed or failed while waiting, if the
+	 *             current thread is the one that owns the peer, or if the
+	 *             current thread was interrupted.
+	 */
+	private int reserve(int length) throws IOException {
+		if (credit <= 0) {
+			/*
+			 * The data that has already been written must be sent before
+			 * waiting, as the receiving peer cannot give back any credit for
+			 * data it has not received.
+			 */
+			this.sendChunk();
+			PeerScheduler scheduler = peer.getScheduler();
+			if (scheduler != null && scheduler.inPeerThread(peer)) {
+				throw new IOException("Cannot wait for credit on the thread that owns the peer");
+			}
+			try {
+				while (credit <= 0 && closed == false && cancelled == false && failure == null) {
+					this.wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for credit");
+			}
+			this.ensureWritable();
+		}
+		if (chunk == null) {
+			this.chunk = new RakNetPacket(id, StreamMessage.HEADER_SIZE + chunkSize);
+			chunk.writeUnsignedByte(StreamMessage.DATA);
+		}
+		int reserved = Math.min(length,
+				Math.min(credit, chunkSize - (chunk.size() - StreamMessage.HEADER_SIZE)));
+		this.credit -= reserved;
+		return reserved;
+	}
+
+	/**
+	 * Sends the current chunk if it is full.
+	 */
+	private void sendFullChunk() {
+		if (chunk != null && chunk.size() - StreamMessage.HEADER_SIZE >= chunkSize) {
+			this.sendChunk();
+		}
+	}
+
+	/**
+	 * Sends the current chunk if it has any data in it.
+	 */
+	private void sendChunk() {
+		if (chunk != null && chunk.size() > StreamMessage.HEADER_SIZE) {
+			peer.sendMessage(Reliability.RELIABLE_ORDERED, channel, chunk);
+			this.chunk = null;
+		}
+	}
+
+	/**
+	 * Releases the current chunk without sending it.
+	 */
+	private void releaseChunk() {
+		if (chunk != null) {
+			chunk.release();
+			this.chunk = null;
+		}
+	}
+
+	/**
+	 * Sends the message ending the stream, if it has not been sent already.
+	 */
+	private void end() {
+		if (ended == false) {
+			RakNetPacket end = new RakNetPacket(id, StreamMessage.HEADER_SIZE);
+			end.writeUnsignedByte(StreamMessage.END);
+			peer.sendMessage(Reliability.RELIABLE_ORDERED, channel, end);
+			this.ended = true;
+		}
+	}
+
+	/**
+	 * Sends the message opening the stream.
+	 * <p>
+	 * This is called by the peer once the stream has been stored.
+	 */
+	synchronized void open() {
+		RakNetPacket open = new RakNetPacket(id, StreamMessage.HEADER_SIZE);
+		open.writeUnsignedByte(StreamMessage.OPEN);
+		peer.sendMessage(Reliability.RELIABLE_ORDERED, channel, open);
+	}
+
+	/**
+	 * Gives the stream more credit.
+	 * <p>
+	 * This is called by the peer when the receiving peer sends
+	 * <code>CREDIT</code>.
+	 * 
+	 * @param credit
+	 *            the amount of credit to add.
+	 */
+	synchronized void grant(int credit) {
+		if (credit > 0) {
+			this.credit = (int) Math.min(Integer.MAX_VALUE, (long) this.credit + credit);
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * Cancels the stream, ending it if it has not been ended already.
+	 * <p>
+	 * This is called by the peer when the receiving peer sends
+	 * <code>CLOSE</code>, after which nothing else will be received for the
+	 * stream.
+	 */
+	synchronized void cancel() {
+		this.cancelled = true;
+		this.releaseChunk();
+		this.end();
+		this.notifyAll();
+	}
+
+	/**
+	 * Fails the stream, causing every write after this to throw the specified
+	 * exception.
+	 * <p>
+	 * This is called by the peer when it disconnects.
+	 * 
+	 * @param failure
+	 *            the reason the stream failed.
+	 */
+	synchronized void fail(IOException failure) {
+		if (this.failure == null) {
+			this.failure = failure;
+		}
+		this.releaseChunk();
+		this.notifyAll();
+	}
+
+}
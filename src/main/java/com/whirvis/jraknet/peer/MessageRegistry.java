@@ -0,0 +1,233 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.RakNetPacket;
+
+/**
+ * A table of {@link MessageHandler message handlers}, indexed by the ID of
+ * the message they handle.
+ * <p>
+ * Looking up the handler for a message is a single array access, which makes
+ * registering a handler the fastest way to handle a frequently sent message.
+ * Only IDs at or above {@link RakNetPacket#ID_USER_PACKET_ENUM} can be
+ * registered, as every ID below is handled by the peer itself.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see MessageHandler
+ */
+public final class MessageRegistry {
+
+	/**
+	 * The amount of IDs a packet can have.
+	 */
+	private static final int ID_COUNT = 256;
+
+	private final Logger logger;
+	private final AtomicReferenceArray<MessageHandler<RakNetPacket>> handlers;
+
+	/**
+	 * Creates a message registry with no handlers.
+	 * 
+	 * @param name
+	 *            the name of the registry, used for logging.
+	 * @throws NullPointerException
+	 *             if the <code>name</code> is <code>null</code>.
+	 */
+	public MessageRegistry(String name) throws NullPointerException {
+		if (name == null) {
+			throw new NullPointerException("Name cannot be null");
+		}
+		this.logger = LogManager.getLogger(MessageRegistry.class.getSimpleName() + "[" + name + "]");
+		this.handlers = new AtomicReferenceArray<MessageHandler<RakNetPacket>>(ID_COUNT);
+	}
+
+	/**
+	 * Validates the specified message ID.
+	 * 
+	 * @param id
+	 *            the message ID.
+	 * @throws IllegalArgumentException
+	 *             if the <code>id</code> is not in between
+	 *             <code>ID_USER_PACKET_ENUM</code> and <code>255</code>.
+	 */
+	private static void validateId(int id) throws IllegalArgumentException {
+		if (id < RakNetPacket.ID_USER_PACKET_ENUM || id >= ID_COUNT) {
+			throw new IllegalArgumentException("ID must be in between ID_USER_PACKET_ENUM and 255");
+		}
+	}
+
+	/**
+	 * Registers a handler for messages with the specified ID, replacing the
+	 * handler that was previously registered to it if there was one.
+	 * 
+	 * @param id
+	 *            the ID of the messages to handle.
+	 * @param handler
+	 *            the handler.
+	 * @throws IllegalArgumentException
+	 *             if the <code>id</code> is not in between
+	 *             <code>ID_USER_PACKET_ENUM</code> and <code>255</code>.
+	 * @throws NullPointerException
+	 *             if the <code>handler</code> is <code>null</code>.
+	 */
+	public void register(int id, MessageHandler<RakNetPacket> handler)
+			throws IllegalArgumentException, NullPointerException {
+		validateId(id);
+		if (handler == null) {
+			throw new NullPointerException("Handler cannot be null");
+		}
+		handlers.set(id, handler);
+		logger.debug("Registered handler for " + RakNetPacket.getName(id) + " messages");
+	}
+
+	/**
+	 * Registers a handler for messages with the specified ID, which are
+	 * decoded before they are handled.
+	 * <p>
+	 * The <code>decoder</code> is given the received message, and should
+	 * return a packet wrapping it, such as by calling a constructor that takes
+	 * in a {@link com.whirvis.jraknet.Packet Packet}. The returned packet is
+	 * then decoded if it supports decoding, and passed on to the
+	 * <code>handler</code>.
+	 * 
+	 * @param <T>
+	 *            the type of packet the messages are decoded to.
+	 * @param id
+	 *            the ID of the messages to handle.
+	 * @param decoder
+	 *            the function that wraps received messages.
+	 * @param handler
+	 *            the handler.
+	 * @throws IllegalArgumentException
+	 *             if the <code>id</code> is not in between
+	 *             <code>ID_USER_PACKET_ENUM</code> and <code>255</code>.
+	 * @throws NullPointerException
+	 *             if the <code>decoder</code> or <code>handler</code> are
+	 *             <code>null</code>.
+	 */
+	public <T extends RakNetPacket> void register(int id, Function<RakNetPacket, T> decoder,
+			MessageHandler<? super T> handler) throws IllegalArgumentException, NullPointerException {
+		if (decoder == null) {
+			throw new NullPointerException("Decoder cannot be null");
+		} else if (handler == null) {
+			throw new NullPointerException("Handler cannot be null");
+		}
+		this.register(id, (peer, packet, channel) -> {
+			T decoded = decoder.apply(packet);
+			if (decoded.supportsDecoding()) {
+				decoded.decode();
+			}
+			handler.handleMessage(peer, decoded, channel);
+		});
+	}
+
+	/**
+	 * Registers a handler for streams opened with the specified ID.
+	 * <p>
+	 * Once registered, every message with the ID is treated as part of a
+	 * stream. When a peer {@link RakNetPeer#openStream(int, int) opens} a
+	 * stream with the ID, the <code>handler</code> is given a
+	 * {@link MessageInputStream} to read the stream data from.
+	 * 
+	 * @param id
+	 *            the ID of the streams to handle.
+	 * @param handler
+	 *            the handler.
+	 * @throws IllegalArgumentException
+	 *             if the <code>id</code> is not in between
+	 *             <code>ID_USER_PACKET_ENUM</code> and <code>255</code>.
+	 * @throws NullPointerException
+	 *             if the <code>handler</code> is <code>null</code>.
+	 */
+	public void registerStream(int id, StreamHandler handler) throws IllegalArgumentException, NullPointerException {
+		if (handler == null) {
+			throw new NullPointerException("Handler cannot be null");
+		}
+		this.register(id, (peer, packet, channel) -> peer.acceptStream(packet, channel, handler));
+	}
+
+	/**
+	 * Unregisters the handler for messages with the specified ID.
+	 * 
+	 * @param id
+	 *            the ID of the messages.
+	 * @return <code>true</code> if a handler was unregistered,
+	 *         <code>false</code> otherwise.
+	 * @throws IllegalArgumentException
+	 *             if the <code>id</code> is not in between
+	 *             <code>ID_USER_PACKET_ENUM</code> and <code>255</code>.
+	 */
+	public boolean unregister(int id) throws IllegalArgumentException {
+		validateId(id);
+		boolean unregistered = handlers.getAndSet(id, null) != null;
+		if (unregistered == true) {
+			logger.debug("Unregistered handler for " + RakNetPacket.getName(id) + " messages");
+		}
+		return unregistered;
+	}
+
+	/**
+	 * Returns the handler for messages with the specified ID.
+	 * 
+	 * @param id
+	 *            the ID of the messages.
+	 * @return the handler for messages with the specified ID,
+	 *         <code>null</code> if there is none or the <code>id</code> is not
+	 *         in between <code>0-255</code>.
+	 */
+	public MessageHandler<RakNetPacket> getHandler(int id) {
+		if (id < 0 || id >= ID_COUNT) {
+			return null;
+		}
+		return handlers.get(id);
+	}
+
+	/**
+	 * Returns whether or not a handler is registered for messages with the
+	 * specified ID.
+	 * 
+	 * @param id
+	 *            the ID of the messages.
+	 * @return <code>true</code> if a handler is registered,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isRegistered(int id) {
+		return this.getHandler(id) != null;
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.util.function.Consumer;
+
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+
+/**
+ * Holds the ordered messages received on a channel until all of the messages
+ * before them have been received, backed by a ring buffer.
+ * <p>
+ * The message for an order index is stored at the index of the order index
+ * masked by the size of the ring, making storing and taking out a message a
+ * single array access. The ring starts out small and doubles in size when a
+ * message arrives too far ahead of the next one to be handled, up to a
+ * maximum chosen by the peer. Order indexes are sent as unsigned
+ * <code>triads</code>, and wrap around back to <code>0</code> once they
+ * exceed <code>2^24 - 1</code>. As such, they are compared by their distance
+ * from the next order index to be handled rather than by their value.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+final class OrderWindow {
+
+	/**
+	 * The amount of bits in an order index.
+	 */
+	private static final int INDEX_BITS = 24;
+
+	/**
+	 * The mask used to wrap an order index around.
+	 */
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+
+	/**
+	 * The largest size the window can be while still being able to tell
+	 * which of two order indexes is the newer one.
+	 */
+	static final int MAXIMUM_SIZE = 1 << (INDEX_BITS - 1);
+
+	/**
+	 * The size the ring starts out at.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	private EncapsulatedPacket[] ring;
+	private int mask;
+	private int nextIndex;
+	private int size;
+
+	/**
+	 * Creates an order window.
+	 */
+	OrderWindow() {
+		this.ring = new EncapsulatedPacket[INITIAL_CAPACITY];
+		this.mask = INITIAL_CAPACITY - 1;
+	}
+
+	/**
+	 * Returns the amount of messages waiting in the window.
+	 * 
+	 * @return the amount of messages waiting in the window.
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Stores an ordered message until all of the messages before it have been
+	 * received.
+	 * <p>
+	 * The payload of a waiting message is not copied, so it keeps the buffer
+	 * the datagram it arrived in was received in from being reused until it
+	 * has been handled. As such, the <code>maximumSize</code> also limits how
+	 * many receive buffers the window can keep from being reused.
+	 * 
+	 * @param encapsulated
+	 *            the message.
+	 * @param maximumSize
+	 *            how far ahead of the next message to be handled a message
+	 *            can be.
+	 * @return <code>true</code> if the message was stored, <code>false</code>
+	 *         if it has already been handled or is already waiting in the
+	 *         window.
+	 * @throws OrderQueueOverflowException
+	 *             if the message is <code>maximumSize</code> or more messages
+	 *             ahead of the next message to be handled. The payload of the
+	 *             message is released before this is thrown.
+	 */
+	boolean add(EncapsulatedPacket encapsulated, int maximumSize) throws OrderQueueOverflowException {
+		int distance = ((encapsulated.orderIndex - nextIndex) << (Integer.SIZE - INDEX_BITS)) >> (Integer.SIZE
+				- INDEX_BITS);
+		if (distance < 0) {
+			return false; // Already handled
+		} else if (distance >= maximumSize) {
+			encapsulated.payload.release(); // Will never be handled
+			throw new OrderQueueOverflowException();
+		} else if (distance >= ring.length) {
+			this.grow(distance + 1);
+		}
+		int index = (nextIndex + distance) & mask;
+		if (ring[index] != null) {
+			return false; // Already waiting
+		}
+		ring[index] = encapsulated;
+		this.size++;
+		return true;
+	}
+
+	/**
+	 * Removes the next message to be handled, if it has been received.
+	 * 
+	 * @return the next message to be handled, <code>null</code> if it has not
+	 *         been received yet.
+	 */
+	EncapsulatedPacket poll() {
+		if (size <= 0) {
+			return null;
+		}
+		int index = nextIndex & mask;
+		EncapsulatedPacket encapsulated = ring[index];
+		if (encapsulated != null) {
+			ring[index] = null;
+			this.nextIndex = (nextIndex + 1) & INDEX_MASK;
+			this.size--;
+		}
+		return encapsulated;
+	}
+
+	/**
+	 * Removes every message from the window.
+	 * 
+	 * @param action
+	 *            the action to perform on every removed message.
+	 * @throws NullPointerException
+	 *             if the <code>action</code> is <code>null</code>.
+	 */
+	void clear(Consumer<? super EncapsulatedPacket> action) throws NullPointerException {
+		if (action == null) {
+			throw new NullPointerException("Action cannot be null");
+		}
+		for (int i = 0; i < ring.length && size > 0; i++) {
+			if (ring[i] != null) {
+				action.accept(ring[i]);
+				ring[i] = null;
+				this.size--;
+			}
+		}
+	}
+
+	/**
+	 * Grows the ring so that it can hold at least the specified amount of
+	 * messages starting from the next message to be handled.
+	 * 
+	 * @param minimumCapacity
+	 *            the amount of messages the ring must be able to hold.
+	 */
+	private void grow(int minimumCapacity) {
+		int capacity = Integer.highestOneBit(minimumCapacity);
+		if (capacity < minimumCapacity) {
+			capacity <<= 1;
+		}
+		EncapsulatedPacket[] grown = new EncapsulatedPacket[capacity];
+		int grownMask = capacity - 1;
+		for (int i = 0; i < ring.length; i++) {
+			grown[(nextIndex + i) & grownMask] = ring[(nextIndex + i) & mask];
+		}
+		this.ring = grown;
+		this.mask = grownMask;
+	}
+
+}
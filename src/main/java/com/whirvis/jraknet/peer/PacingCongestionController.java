@@ -0,0 +1,408 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+/**
+ * A congestion controller that paces datagrams according to a model of the
+ * network path, in the style of
+ * <a href="https://queue.acm.org/detail.cfm?id=3022184">BBR</a>.
+ * <p>
+ * Rather than treating loss as a sign of congestion, this controller
+ * estimates the bottleneck bandwidth of the path from the rate at which
+ * datagrams are acknowledged, and the propagation delay from the lowest
+ * round trip time. Datagrams are paced at a multiple of the bottleneck
+ * bandwidth, and the congestion window is kept at a multiple of the
+ * bandwidth-delay product. The controller goes through the following
+ * phases:
+ * <ul>
+ * <li><b>Startup:</b> The pacing rate grows exponentially until the
+ * bandwidth estimate stops growing for three round trips.</li>
+ * <li><b>Drain:</b> The pacing rate is lowered until the queue created
+ * during startup has drained.</li>
+ * <li><b>Bandwidth probing:</b> The pacing rate cycles between slightly
+ * above and slightly below the bandwidth estimate, to discover any
+ * bandwidth that has become available.</li>
+ * <li><b>Round trip time probing:</b> If the lowest round trip time has not
+ * been seen again for ten seconds, the congestion window is briefly reduced
+ * to empty any queue and measure it again.</li>
+ * </ul>
+ * Datagrams sent while the peer did not have enough data to fill the
+ * bandwidth-delay product can only raise the bandwidth estimate, never lower
+ * it.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public class PacingCongestionController implements CongestionController {
+
+	/**
+	 * The gain used during startup, which is the smallest gain that doubles
+	 * the amount of data sent every round trip.
+	 */
+	private static final double STARTUP_GAIN = 2.0D / Math.log(2.0D);
+
+	/**
+	 * The gains cycled through while probing for bandwidth.
+	 */
+	private static final double[] PROBE_BANDWIDTH_GAINS = new double[] { 1.25D, 0.75D, 1.0D, 1.0D, 1.0D, 1.0D, 1.0D,
+			1.0D };
+
+	/**
+	 * The amount of round trips the bandwidth estimate is kept for.
+	 */
+	private static final int BANDWIDTH_FILTER_LENGTH = 10;
+
+	/**
+	 * The amount of time in milliseconds the lowest round trip time is kept
+	 * for.
+	 */
+	private static final long ROUND_TRIP_TIME_FILTER_LENGTH = 10000L;
+
+	/**
+	 * The amount of time in milliseconds spent probing the round trip time.
+	 */
+	private static final long PROBE_ROUND_TRIP_TIME_DURATION = 200L;
+
+	/**
+	 * The amount of send snapshots kept to sample the delivery rate.
+	 */
+	private static final int SNAPSHOT_COUNT = 256;
+
+	/**
+	 * The size of the smallest congestion window in datagrams.
+	 */
+	public static final int MINIMUM_WINDOW = 4;
+
+	/**
+	 * The size of the initial congestion window in datagrams.
+	 */
+	public static final int INITIAL_WINDOW = 10;
+
+	/**
+	 * A phase of the controller.
+	 * 
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	public static enum Phase {
+
+		/**
+		 * The controller is growing the pacing rate exponentially.
+		 */
+		STARTUP,
+
+		/**
+		 * The controller is draining the queue created during startup.
+		 */
+		DRAIN,
+
+		/**
+		 * The controller is probing for bandwidth.
+		 */
+		PROBE_BANDWIDTH,
+
+		/**
+		 * The controller is probing the round trip time.
+		 */
+		PROBE_ROUND_TRIP_TIME;
+
+	}
+
+	private final int maximumTransferUnit;
+	private Phase phase;
+	private double pacingGain;
+	private double windowGain;
+
+	// Delivery rate sampling
+	private long delivered;
+	private long deliveredTime;
+	private final long[] snapshotSendTimes;
+	private final long[] snapshotDelivered;
+	private final long[] snapshotDeliveredTimes;
+	private final boolean[] snapshotApplicationLimited;
+	private int snapshotHead;
+	private int snapshotSize;
+
+	// Path model
+	private final long[] bandwidthFilter;
+	private long bottleneckBandwidth;
+	private long minimumRoundTripTime;
+	private long minimumRoundTripTimeStamp;
+	private long roundCount;
+	private long nextRoundDelivered;
+
+	// Phase state
+	private long fullBandwidth;
+	private int fullBandwidthCount;
+	private int cycleIndex;
+	private long cycleStartTime;
+	private long probeRoundTripTimeDoneTime;
+
+	/**
+	 * Creates a pacing congestion controller.
+	 * 
+	 * @param maximumTransferUnit
+	 *            the maximum transfer unit of the peer.
+	 * @throws IllegalArgumentException
+	 *             if the <code>maximumTransferUnit</code> is less than or
+	 *             equal to <code>0</code>.
+	 */
+	public PacingCongestionController(int maximumTransferUnit) throws IllegalArgumentException {
+		if (maximumTransferUnit <= 0) {
+			throw new IllegalArgumentException("Maximum transfer unit must be greater than 0");
+		}
+		this.maximumTransferUnit = maximumTransferUnit;
+		this.phase = Phase.STARTUP;
+		this.pacingGain = STARTUP_GAIN;
+		this.windowGain = STARTUP_GAIN;
+		this.snapshotSendTimes = new long[SNAPSHOT_COUNT];
+		this.snapshotDelivered = new long[SNAPSHOT_COUNT];
+		this.snapshotDeliveredTimes = new long[SNAPSHOT_COUNT];
+		this.snapshotApplicationLimited = new boolean[SNAPSHOT_COUNT];
+		this.bandwidthFilter = new long[BANDWIDTH_FILTER_LENGTH];
+		this.minimumRoundTripTime = -1L;
+		this.deliveredTime = -1L;
+	}
+
+	/**
+	 * Returns the current phase of the controller.
+	 * 
+	 * @return the current phase of the controller.
+	 */
+	public Phase getPhase() {
+		return this.phase;
+	}
+
+	/**
+	 * Returns the estimated bottleneck bandwidth of the path.
+	 * 
+	 * @return the estimated bottleneck bandwidth in bytes per second,
+	 *         <code>0</code> if it has not yet been measured.
+	 */
+	public long getBottleneckBandwidth() {
+		return this.bottleneckBandwidth;
+	}
+
+	/**
+	 * Returns the lowest round trip time of the path.
+	 * 
+	 * @return the lowest round trip time in milliseconds, <code>-1</code> if
+	 *         it has not yet been measured.
+	 */
+	public long getMinimumRoundTripTime() {
+		return this.minimumRoundTripTime;
+	}
+
+	/**
+	 * Returns the estimated bandwidth-delay product of the path.
+	 * 
+	 * @return the estimated bandwidth-delay product in bytes, <code>-1</code>
+	 *         if it has not yet been measured.
+	 */
+	public long getBandwidthDelayProduct() {
+		if (bottleneckBandwidth <= 0 || minimumRoundTripTime < 0) {
+			return -1L;
+		}
+		return bottleneckBandwidth * Math.max(1L, minimumRoundTripTime) / 1000L;
+	}
+
+	@Override
+	public void onSend(long time, int size, long bytesInFlight) {
+		if (deliveredTime < 0) {
+			this.deliveredTime = time; // Start sampling from the first send
+		}
+
+		/*
+		 * Take a snapshot of how much had been delivered when the datagram
+		 * was sent, so that the delivery rate can be sampled once it has been
+		 * acknowledged. Datagrams sent in the same millisecond share the
+		 * snapshot taken by the first of them.
+		 */
+		int last = (snapshotHead + snapshotSize - 1) % SNAPSHOT_COUNT;
+		if (snapshotSize <= 0 || snapshotSendTimes[last] != time) {
+			if (snapshotSize >= SNAPSHOT_COUNT) {
+				this.snapshotHead = (snapshotHead + 1) % SNAPSHOT_COUNT;
+				this.snapshotSize--;
+			}
+			int index = (snapshotHead + snapshotSize) % SNAPSHOT_COUNT;
+			snapshotSendTimes[index] = time;
+			snapshotDelivered[index] = delivered;
+			snapshotDeliveredTimes[index] = deliveredTime;
+			long bandwidthDelayProduct = this.getBandwidthDelayProduct();
+			snapshotApplicationLimited[index] = bandwidthDelayProduct > 0
+					&& bytesInFlight + maximumTransferUnit < bandwidthDelayProduct;
+			this.snapshotSize++;
+		}
+	}
+
+	@Override
+	public void onAcknowledge(long time, long sendTime, int size, long bytesInFlight) {
+		this.delivered += size;
+		this.deliveredTime = time;
+
+		// Update lowest round trip time
+		long roundTripTime = Math.max(1L, time - sendTime);
+		boolean roundTripTimeExpired = minimumRoundTripTime >= 0
+				&& time - minimumRoundTripTimeStamp > ROUND_TRIP_TIME_FILTER_LENGTH;
+		if (minimumRoundTripTime < 0 || roundTripTime <= minimumRoundTripTime
+				|| (roundTripTimeExpired == true && phase == Phase.PROBE_ROUND_TRIP_TIME)) {
+			this.minimumRoundTripTime = roundTripTime;
+			this.minimumRoundTripTimeStamp = time;
+			roundTripTimeExpired = false;
+		}
+
+		// Find the snapshot taken when the datagram was sent
+		while (snapshotSize > 1 && snapshotSendTimes[(snapshotHead + 1) % SNAPSHOT_COUNT] <= sendTime) {
+			this.snapshotHead = (snapshotHead + 1) % SNAPSHOT_COUNT;
+			this.snapshotSize--;
+		}
+		if (snapshotSize <= 0) {
+			return; // Nothing to sample from
+		}
+		long sentDelivered = snapshotDelivered[snapshotHead];
+		long sentDeliveredTime = snapshotDeliveredTimes[snapshotHead];
+		boolean applicationLimited = snapshotApplicationLimited[snapshotHead];
+
+		// Start a new round once a datagram sent in this round is delivered
+		boolean roundStart = false;
+		if (sentDelivered >= nextRoundDelivered) {
+			this.nextRoundDelivered = delivered;
+			this.roundCount++;
+			bandwidthFilter[(int) (roundCount % BANDWIDTH_FILTER_LENGTH)] = 0L;
+			roundStart = true;
+		}
+
+		// Sample delivery rate
+		long interval = Math.max(1L, time - sentDeliveredTime);
+		long deliveryRate = (delivered - sentDelivered) * 1000L / interval;
+		int slot = (int) (roundCount % BANDWIDTH_FILTER_LENGTH);
+		if (applicationLimited == false || deliveryRate > bottleneckBandwidth) {
+			bandwidthFilter[slot] = Math.max(bandwidthFilter[slot], deliveryRate);
+		}
+		long maximumBandwidth = 0L;
+		for (long bandwidth : bandwidthFilter) {
+			maximumBandwidth = Math.max(maximumBandwidth, bandwidth);
+		}
+		this.bottleneckBandwidth = maximumBandwidth;
+
+		// Update phase
+		if (phase == Phase.STARTUP && roundStart == true && applicationLimited == false) {
+			if (bottleneckBandwidth >= fullBandwidth * 5 / 4) {
+				this.fullBandwidth = bottleneckBandwidth;
+				this.fullBandwidthCount = 0;
+			} else if (++fullBandwidthCount >= 3) {
+				this.enter(Phase.DRAIN, time);
+			}
+		}
+		if (phase == Phase.DRAIN && bytesInFlight <= Math.max(this.getBandwidthDelayProduct(),
+				(long) maximumTransferUnit * MINIMUM_WINDOW)) {
+			this.enter(Phase.PROBE_BANDWIDTH, time);
+		}
+		if (phase == Phase.PROBE_BANDWIDTH && time - cycleStartTime > minimumRoundTripTime) {
+			this.cycleIndex = (cycleIndex + 1) % PROBE_BANDWIDTH_GAINS.length;
+			this.cycleStartTime = time;
+			this.pacingGain = PROBE_BANDWIDTH_GAINS[cycleIndex];
+		}
+		if (phase != Phase.PROBE_ROUND_TRIP_TIME && roundTripTimeExpired == true) {
+			this.enter(Phase.PROBE_ROUND_TRIP_TIME, time);
+		} else if (phase == Phase.PROBE_ROUND_TRIP_TIME && time >= probeRoundTripTimeDoneTime) {
+			this.minimumRoundTripTimeStamp = time;
+			this.enter(fullBandwidthCount >= 3 ? Phase.PROBE_BANDWIDTH : Phase.STARTUP, time);
+		}
+	}
+
+	/**
+	 * Enters the specified phase.
+	 * 
+	 * @param phase
+	 *            the phase to enter.
+	 * @param time
+	 *            the current time.
+	 */
+	private void enter(Phase phase, long time) {
+		this.phase = phase;
+		switch (phase) {
+		case STARTUP:
+			this.pacingGain = STARTUP_GAIN;
+			this.windowGain = STARTUP_GAIN;
+			break;
+		case DRAIN:
+			this.pacingGain = 1.0D / STARTUP_GAIN;
+			this.windowGain = STARTUP_GAIN;
+			break;
+		case PROBE_BANDWIDTH:
+			this.cycleIndex = 0;
+			this.cycleStartTime = time;
+			this.pacingGain = PROBE_BANDWIDTH_GAINS[cycleIndex];
+			this.windowGain = 2.0D;
+			break;
+		case PROBE_ROUND_TRIP_TIME:
+			this.probeRoundTripTimeDoneTime = time + Math.max(PROBE_ROUND_TRIP_TIME_DURATION, minimumRoundTripTime);
+			this.pacingGain = 1.0D;
+			this.windowGain = 1.0D;
+			break;
+		}
+	}
+
+	@Override
+	public void onLoss(long time, long sendTime, int size, boolean timeout) {
+		// Loss is not used as a signal of congestion
+	}
+
+	@Override
+	public long getCongestionWindow() {
+		long minimumWindow = (long) maximumTransferUnit * MINIMUM_WINDOW;
+		if (phase == Phase.PROBE_ROUND_TRIP_TIME) {
+			return minimumWindow;
+		}
+		long bandwidthDelayProduct = this.getBandwidthDelayProduct();
+		if (bandwidthDelayProduct < 0) {
+			return (long) maximumTransferUnit * INITIAL_WINDOW;
+		}
+		return Math.max(minimumWindow, (long) (windowGain * bandwidthDelayProduct));
+	}
+
+	@Override
+	public long getPacingRate() {
+		if (bottleneckBandwidth <= 0) {
+			return 0L; // Not yet measured, limited by the window only
+		}
+		long minimumRate = (long) maximumTransferUnit * MINIMUM_WINDOW * 1000L / Math.max(1L, minimumRoundTripTime);
+		return Math.max(minimumRate, (long) (pacingGain * bottleneckBandwidth));
+	}
+
+	@Override
+	public String toString() {
+		return "PacingCongestionController [phase=" + phase + ", bottleneckBandwidth=" + bottleneckBandwidth
+				+ ", minimumRoundTripTime=" + minimumRoundTripTime + ", pacingGain=" + pacingGain + ", windowGain="
+				+ windowGain + "]";
+	}
+
+}
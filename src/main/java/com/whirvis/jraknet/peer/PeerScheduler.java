@@ -0,0 +1,212 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiConsumer;
+
+/**
+ * Used to determine when and on which thread a {@link RakNetPeer} is updated.
+ * <p>
+ * Rather than every peer being polled constantly, a scheduler is notified
+ * whenever a peer has work to do and is expected to call
+ * {@link RakNetPeer#update()} no later than the time returned by
+ * {@link RakNetPeer#getNextUpdateTime()}.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see ShardedPeerScheduler
+ * @see EventLoopPeerScheduler
+ */
+public interface PeerScheduler {
+
+	/**
+	 * The maximum amount of time in milliseconds to wait for peers to be
+	 * disconnected by the threads that own them before shutting down.
+	 */
+	public static final long DISCONNECT_TIMEOUT = 1000L;
+
+	/**
+	 * Starts the scheduler.
+	 * 
+	 * @param name
+	 *            the name of the scheduler, used to name any threads it
+	 *            creates.
+	 * @param exceptionHandler
+	 *            the handler called when a peer throws an exception while it
+	 *            is being updated. Once this has been called, the peer will
+	 *            no longer be updated by the scheduler.
+	 * @throws NullPointerException
+	 *             if the <code>name</code> or <code>exceptionHandler</code>
+	 *             are <code>null</code>.
+	 * @throws IllegalStateException
+	 *             if the scheduler is already running.
+	 */
+	public void start(String name, BiConsumer<RakNetPeer, Throwable> exceptionHandler)
+			throws NullPointerException, IllegalStateException;
+
+	/**
+	 * Returns whether or not the scheduler is running.
+	 * 
+	 * @return <code>true</code> if the scheduler is running,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isRunning();
+
+	/**
+	 * Registers a peer to the scheduler.
+	 * <p>
+	 * The peer will be updated for the first time as soon as possible.
+	 * 
+	 * @param peer
+	 *            the peer to register.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code> is <code>null</code>.
+	 * @throws IllegalStateException
+	 *             if the scheduler is not running.
+	 */
+	public void register(RakNetPeer peer) throws NullPointerException, IllegalStateException;
+
+	/**
+	 * Unregisters a peer from the scheduler.
+	 * <p>
+	 * If the peer is not registered, nothing happens.
+	 * 
+	 * @param peer
+	 *            the peer to unregister.
+	 */
+	public void unregister(RakNetPeer peer);
+
+	/**
+	 * Returns whether or not the current thread is the thread that owns the
+	 * peer.
+	 * <p>
+	 * Every registered peer is owned by a single thread, which is the only
+	 * thread that may handle its packets, update it, or modify its queues. If
+	 * the peer is not registered, <code>true</code> is returned, as any
+	 * thread may then act on it.
+	 * 
+	 * @param peer
+	 *            the peer.
+	 * @return <code>true</code> if the current thread owns the
+	 *         <code>peer</code>, <code>false</code> otherwise.
+	 */
+	public boolean inPeerThread(RakNetPeer peer);
+
+	/**
+	 * Executes a task on the thread that owns the peer.
+	 * <p>
+	 * If the task throws an exception, the peer is unregistered and the
+	 * exception handler is called, the same as if an update had failed. Once
+	 * the task has been accepted it will always be run, even if the peer is
+	 * unregistered before then. If the peer is not registered, the task is
+	 * run immediately on the current thread.
+	 * 
+	 * @param peer
+	 *            the peer.
+	 * @param task
+	 *            the task to execute.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code> or <code>task</code> are
+	 *             <code>null</code>.
+	 */
+	public void execute(RakNetPeer peer, Runnable task) throws NullPointerException;
+
+	/**
+	 * Disconnects a peer on the thread that owns it, and unregisters it once
+	 * it has been disconnected.
+	 * <p>
+	 * A registered peer must never be disconnected by any other thread, as
+	 * the thread that owns it may be in the middle of updating it. If the
+	 * current thread owns the peer, it is disconnected right away. Otherwise,
+	 * it is disconnected once the thread that owns it has finished what it
+	 * is doing. Tasks executed for the peer after it has been disconnected
+	 * are dropped by the peer.
+	 * 
+	 * @param peer
+	 *            the peer to disconnect.
+	 * @param callback
+	 *            the callback run by the thread that owns the peer once it
+	 *            has been disconnected and unregistered. This may be
+	 *            <code>null</code>.
+	 * @return a latch that is counted down once the peer has been
+	 *         disconnected and unregistered.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code> is <code>null</code>.
+	 */
+	public default CountDownLatch disconnect(RakNetPeer peer, Runnable callback) throws NullPointerException {
+		if (peer == null) {
+			throw new NullPointerException("Peer cannot be null");
+		}
+		CountDownLatch disconnected = new CountDownLatch(1);
+		Runnable task = () -> {
+			try {
+				if (peer.isDisconnected() == false) {
+					peer.disconnect();
+				}
+			} finally {
+				this.unregister(peer);
+				disconnected.countDown();
+			}
+			if (callback != null) {
+				callback.run();
+			}
+		};
+		if (this.inPeerThread(peer)) {
+			task.run();
+		} else {
+			this.execute(peer, task);
+		}
+		return disconnected;
+	}
+
+	/**
+	 * Notifies the scheduler that a peer has work to do and should be updated
+	 * as soon as possible.
+	 * <p>
+	 * This is called by the peer itself, such as when a message is added to
+	 * its send queue. If the peer is not registered, nothing happens.
+	 * 
+	 * @param peer
+	 *            the peer to wake up.
+	 */
+	public void wakeup(RakNetPeer peer);
+
+	/**
+	 * Shuts down the scheduler.
+	 * <p>
+	 * All registered peers are unregistered.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the scheduler is not running.
+	 */
+	public void shutdown() throws IllegalStateException;
+
+}
@@ -100,6 +100,7 @@ public final class RakNetClientPeer extends RakNetPeer {
 		if (packet.getId() == ID_CONNECTION_REQUEST && this.isConnected()) {
 			ConnectionRequest request = new ConnectionRequest(packet);
 			request.decode();
+			packet.release();
 			if (request.clientGuid == this.getGloballyUniqueId() && request.useSecurity == false) {
 				ConnectionRequestAccepted requestAccepted = new ConnectionRequestAccepted();
 				requestAccepted.clientAddress = this.getAddress();
@@ -126,6 +127,7 @@ public final class RakNetClientPeer extends RakNetPeer {
 		} else if (packet.getId() == ID_NEW_INCOMING_CONNECTION && this.getState() == RakNetState.HANDSHAKING) {
 			NewIncomingConnection newIncomingConnection = new NewIncomingConnection(packet);
 			newIncomingConnection.decode();
+			packet.release();
 			if (!newIncomingConnection.failed()) {
 				this.timestamp = System.currentTimeMillis() - newIncomingConnection.clientTimestamp;
 				this.setState(RakNetState.LOGGED_IN);
@@ -137,11 +139,13 @@ public final class RakNetClientPeer extends RakNetPeer {
 						"Failed to login (" + newIncomingConnection.getClass().getSimpleName() + " failed to decode)");
 			}
 		} else if (packet.getId() == ID_DISCONNECTION_NOTIFICATION) {
+			packet.release();
 			server.disconnect(this, "Client disconnected");
 		} else if (packet.getId() >= ID_USER_PACKET_ENUM) {
-			server.callEvent(listener -> listener.handleMessage(server, this, packet, channel));
+			server.callEvent(listener -> listener.handleMessage(server, this, packet, channel), packet.buffer());
 		} else {
-			server.callEvent(listener -> listener.handleUnknownMessage(server, this, packet, channel));
+			server.callEvent(listener -> listener.handleUnknownMessage(server, this, packet, channel),
+					packet.buffer());
 		}
 	}
 
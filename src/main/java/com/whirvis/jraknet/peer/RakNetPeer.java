@@ -31,13 +31,14 @@ package com.whirvis.jraknet.peer;
 
 import static com.whirvis.jraknet.RakNetPacket.*;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -46,8 +47,9 @@ import com.whirvis.jraknet.InvalidChannelException;
 import com.whirvis.jraknet.Packet;
 import com.whirvis.jraknet.RakNet;
 import com.whirvis.jraknet.RakNetPacket;
-import com.whirvis.jraknet.map.concurrent.ConcurrentIntMap;
+import com.whirvis.jraknet.map.IntMap;
 import com.whirvis.jraknet.protocol.ConnectionType;
+import com.whirvis.jraknet.protocol.PacketPriority;
 import com.whirvis.jraknet.protocol.Reliability;
 import com.whirvis.jraknet.protocol.message.CustomFourPacket;
 import com.whirvis.jraknet.protocol.message.CustomPacket;
@@ -59,11 +61,19 @@ import com.whirvis.jraknet.protocol.status.ConnectedPing;
 import com.whirvis.jraknet.protocol.status.ConnectedPong;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.IllegalReferenceCountException;
 
 /**
  * Represents a connection to another machine, be it a server or a client.
+ * <p>
+ * Once a peer has been registered to a {@link PeerScheduler}, its state is
+ * only ever modified by the thread that owns it. Packets received and messages
+ * sent from any other thread are handed off to the owning thread, which is why
+ * none of the queues used by the peer are concurrent. The only exception are
+ * the open streams, as they can be opened and closed by any thread.
  * 
  * @author "Whirvis" Trent Summerlin
  * @since JRakNet v1.0.0
@@ -71,73 +81,161 @@ import io.netty.channel.socket.DatagramPacket;
 public abstract class RakNetPeer implements RakNetPeerMessenger {
 
 	/**
-	 * Used to store the message index for received reliable packets in a
-	 * condensed fashion.
-	 * 
-	 * @author "Whirvis" Trent Summerlin
-	 * @since JRakNet v2.11.0
+	 * The default maximum amount of chunks a single encapsulated packet can be
+	 * split into.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setMaximumSplitCount(int)
+	 * RakNetPeer.setMaximumSplitCount(int)} method.
 	 */
-	private static class ConcurrentMessageIndexList {
+	public static final int MAX_SPLIT_COUNT = 128;
 
-		private ArrayList<Record> indexes;
+	/**
+	 * The default maximum amount of split packets can be in the split handle
+	 * queue.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setMaximumSplits(int)
+	 * RakNetPeer.setMaximumSplits(int)} method.
+	 */
+	public static final int MAX_SPLITS_PER_QUEUE = 4;
 
-		/**
-		 * Constructs a <code>ConcurrentMesageIndexList</code>.
-		 */
-		public ConcurrentMessageIndexList() {
-			this.indexes = new ArrayList<Record>();
-		}
+	/**
+	 * The default maximum amount of payload bytes the split packets in the
+	 * split handle queue can hold at once.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setMaximumSplitBytes(long)
+	 * RakNetPeer.setMaximumSplitBytes(long)} method.
+	 */
+	public static final long DEFAULT_MAXIMUM_SPLIT_BYTES = 1024L * 1024L;
 
-		/**
-		 * Adds the specified message index to the list.
-		 * 
-		 * @param index
-		 *            the index to add.
-		 */
-		public synchronized void add(int index) {
-			indexes.add(new Record(index));
-			Record[] condensed = Record.condense(indexes);
-			indexes.clear();
-			for (Record record : condensed) {
-				indexes.add(record);
-			}
-		}
+	/**
+	 * The default amount of time in milliseconds a split packet can go without
+	 * receiving any of its chunks before it is evicted from the split handle
+	 * queue.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setSplitTimeout(long)
+	 * RakNetPeer.setSplitTimeout(long)} method.
+	 */
+	public static final long DEFAULT_SPLIT_TIMEOUT = 10000L;
 
-		/**
-		 * Returns whether or not the list contains the specified message index.
-		 * 
-		 * @param index
-		 *            the index.
-		 * @return <code>true</code> if the list contains the
-		 *         <code>index</code>.
-		 */
-		public synchronized boolean contains(int index) {
-			for (Record record : indexes) {
-				if ((record.isRanged() && record.getIndex() >= index && record.getIndex() <= index)
-						|| record.getIndex() == index) {
-					return true;
-				}
-			}
-			return false;
-		}
+	/**
+	 * The amount of payload bytes held by the split packets of every peer.
+	 */
+	private static final AtomicLong TOTAL_SPLIT_BYTES = new AtomicLong();
 
-	}
+	/**
+	 * The amount of time in milliseconds after which the reliable messages of
+	 * a datagram that has not been acknowledged are automatically resent,
+	 * until the round trip time to the peer has been measured.
+	 */
+	public static final long RECOVERY_SEND_INTERVAL = 500L;
 
 	/**
-	 * The maximum amount of chunks a single encapsulated packet can be split
-	 * into.
+	 * The lowest the retransmission timeout of a peer can be in milliseconds.
 	 */
-	public static final int MAX_SPLIT_COUNT = 128;
+	public static final long MINIMUM_RETRANSMISSION_TIMEOUT = 50L;
 
 	/**
-	 * The maximum amount of split packets can be in the split handle queue.
+	 * The highest the retransmission timeout of a peer can be in
+	 * milliseconds, including the backoff applied while datagrams keep being
+	 * lost.
 	 */
-	public static final int MAX_SPLITS_PER_QUEUE = 4;
+	public static final long MAXIMUM_RETRANSMISSION_TIMEOUT = 5000L;
 
 	/**
-	 * The interval at which not acknowledged packets are automatically resent.
+	 * The maximum amount of datagrams that can be sent from the oldest
+	 * datagram still awaiting acknowledgement onwards. Once this many have
+	 * been sent, messages are held back in the send queue until the oldest
+	 * datagram is acknowledged or resent.
 	 */
-	public static final long RECOVERY_SEND_INTERVAL = 500L;
+	public static final int SEND_WINDOW_SIZE = 1024;
+
+	/**
+	 * The maximum amount of messages of each priority in the send queue that
+	 * are looked at when filling a datagram. Messages that do not fit in the space left in a
+	 * datagram are skipped over in favor of smaller messages behind them, up
+	 * to this many messages deep.
+	 */
+	public static final int SEND_PACKING_DEPTH = 64;
+
+	/**
+	 * The default amount of time in milliseconds worth of datagrams that can
+	 * be sent at once when sending is rate limited.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setSendBurstTime(long)
+	 * RakNetPeer.setSendBurstTime(long)} method.
+	 */
+	public static final long DEFAULT_SEND_BURST_TIME = 5L;
+
+	/**
+	 * The amount of the most recently received datagrams that are kept track
+	 * of to tell datagrams that arrive out of order apart from duplicates.
+	 * Datagrams older than this are dropped without being acknowledged, so
+	 * that the messages inside of them are resent if they were not received.
+	 */
+	public static final int RECEIVE_WINDOW_SIZE = 4096;
+
+	/**
+	 * The amount of the most recently received reliable message indexes that
+	 * are kept track of to tell reliable messages that are received more than
+	 * once apart from new ones. Reliable messages older than this are
+	 * considered to have already been received.
+	 */
+	public static final int MESSAGE_INDEX_WINDOW_SIZE = 1 << 18;
+
+	/**
+	 * The default amount of ordered messages that can be waiting to be
+	 * handled on a single channel at once.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setOrderWindowSize(int)
+	 * RakNetPeer.setOrderWindowSize(int)} method.
+	 */
+	public static final int DEFAULT_ORDER_WINDOW_SIZE = 1 << 16;
+
+	/**
+	 * The default amount of stream data that can be received but not yet read
+	 * on a single stream.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setStreamWindowSize(int)
+	 * RakNetPeer.setStreamWindowSize(int)} method.
+	 */
+	public static final int DEFAULT_STREAM_WINDOW_SIZE = 1 << 18;
+
+	/**
+	 * The default amount of time in milliseconds acknowledgements are held
+	 * back for so that they can be sent together.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setAcknowledgeDelay(long)
+	 * RakNetPeer.setAcknowledgeDelay(long)} method.
+	 */
+	public static final long DEFAULT_ACKNOWLEDGE_DELAY = 0L;
+
+	/**
+	 * The size of the ID and record count at the start of an
+	 * {@link com.whirvis.jraknet.protocol.message.acknowledge.AcknowledgedPacket
+	 * ACK} packet.
+	 */
+	private static final int ACKNOWLEDGE_HEADER_SIZE = 3;
+
+	/**
+	 * The largest size of a single record inside of an
+	 * {@link com.whirvis.jraknet.protocol.message.acknowledge.AcknowledgedPacket
+	 * ACK} packet.
+	 */
+	private static final int ACKNOWLEDGE_RECORD_SIZE = 7;
+
+	/**
+	 * The initial amount of sent datagrams whose acknowledgement receipts can
+	 * be tracked before the receipt window has to grow.
+	 */
+	public static final int ACK_RECEIPT_WINDOW_SIZE = 1024;
 
 	/**
 	 * The interval at which pings are sent.
@@ -165,7 +263,8 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	private final int maximumTransferUnit;
 	private final ConnectionType connectionType;
 	private final Channel channel;
-	private RakNetState state;
+	private volatile RakNetState state;
+	private volatile boolean closed;
 	private long timeout;
 	private int packetsSentThisSecond;
 	private int packetsReceivedThisSecond;
@@ -173,23 +272,32 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	private long lastPacketsReceivedThisSecondResetTime;
 	private long lastPacketSendTime;
 	private long lastPacketReceiveTime;
-	private long lastRecoverySendTime;
 	private long lastDetectionSendTime;
 	private long lastPingSendTime;
 	private int messageIndex;
 	private int splitId;
-	private final ConcurrentMessageIndexList reliablePackets;
-	private final ConcurrentIntMap<EncapsulatedPacket.Split> splitQueue;
-	private final ConcurrentLinkedQueue<EncapsulatedPacket> sendQueue;
-	private final ConcurrentIntMap<EncapsulatedPacket[]> recoveryQueue;
-	private final ConcurrentHashMap<EncapsulatedPacket, Integer> ackReceiptPackets;
+	private final MessageIndexWindow reliablePackets;
+	private final IntMap<EncapsulatedPacket.Split> splitQueue;
+	private int maximumSplitCount;
+	private int maximumSplits;
+	private long maximumSplitBytes;
+	private long splitTimeout;
+	private long splitBytes;
+	private final SendQueue sendQueue;
+	private final SendWindow recoveryQueue;
+	private final SequenceWindow<EncapsulatedPacket[]> ackReceipts;
 	private int sendSequenceNumber;
-	private int receiveSequenceNumber;
+	private final ReceiveWindow receiveWindow;
+	private long acknowledgeDelay;
+	private long acknowledgeTime;
 	private final int[] orderSendIndex;
-	private final int[] orderReceiveIndex;
 	private final int[] sequenceSendIndex;
 	private final int[] sequenceReceiveIndex;
-	private final ConcurrentIntMap<ConcurrentIntMap<EncapsulatedPacket>> handleQueue;
+	private final OrderWindow[] orderWindows;
+	private int orderWindowSize;
+	private final ConcurrentHashMap<Integer, MessageOutputStream> outputStreams;
+	private final ConcurrentHashMap<Integer, MessageInputStream> inputStreams;
+	private int streamWindowSize;
 	private boolean latencyEnabled;
 	private int pongsReceived;
 	private long totalLatency;
@@ -197,7 +305,22 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	private long lastLatency;
 	private long lowestLatency;
 	private long highestLatency;
+	private double smoothedRoundTripTime;
+	private double roundTripTimeVariance;
+	private long retransmissionTimeout;
+	private long lastBackoffTime;
+	private CongestionController congestionController;
+	private long sendPacketRate;
+	private long sendByteRate;
+	private long sendBurstTime;
+	private final TokenBucket packetBucket;
+	private final TokenBucket byteBucket;
 	private final ArrayList<Long> latencyTimestamps;
+	private volatile PeerScheduler scheduler;
+	private int writeBatchSize;
+	private int pendingWrites;
+	private boolean zeroCopyPayloads;
+	private volatile MessageRegistry messageRegistry;
 
 	/**
 	 * Creates a RakNet peer.
@@ -225,27 +348,43 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		this.state = RakNetState.CONNECTED;
 		this.timeout = PEER_TIMEOUT;
 		this.lastPacketReceiveTime = System.currentTimeMillis();
-		this.reliablePackets = new ConcurrentMessageIndexList();
-		this.splitQueue = new ConcurrentIntMap<EncapsulatedPacket.Split>();
-		this.sendQueue = new ConcurrentLinkedQueue<EncapsulatedPacket>();
-		this.recoveryQueue = new ConcurrentIntMap<EncapsulatedPacket[]>();
-		this.ackReceiptPackets = new ConcurrentHashMap<EncapsulatedPacket, Integer>();
-		this.receiveSequenceNumber = -1;
+		this.reliablePackets = new MessageIndexWindow(MESSAGE_INDEX_WINDOW_SIZE);
+		this.splitQueue = new IntMap<EncapsulatedPacket.Split>();
+		this.maximumSplitCount = MAX_SPLIT_COUNT;
+		this.maximumSplits = MAX_SPLITS_PER_QUEUE;
+		this.maximumSplitBytes = DEFAULT_MAXIMUM_SPLIT_BYTES;
+		this.splitTimeout = DEFAULT_SPLIT_TIMEOUT;
+		this.sendQueue = new SendQueue();
+		this.recoveryQueue = new SendWindow(SEND_WINDOW_SIZE);
+		this.ackReceipts = new SequenceWindow<EncapsulatedPacket[]>(ACK_RECEIPT_WINDOW_SIZE);
+		this.receiveWindow = new ReceiveWindow(RECEIVE_WINDOW_SIZE);
+		this.acknowledgeDelay = DEFAULT_ACKNOWLEDGE_DELAY;
+		this.acknowledgeTime = -1L;
 		this.orderSendIndex = new int[RakNet.CHANNEL_COUNT];
-		this.orderReceiveIndex = new int[RakNet.CHANNEL_COUNT];
 		this.sequenceSendIndex = new int[RakNet.CHANNEL_COUNT];
 		this.sequenceReceiveIndex = new int[RakNet.CHANNEL_COUNT];
-		this.handleQueue = new ConcurrentIntMap<ConcurrentIntMap<EncapsulatedPacket>>();
+		this.orderWindows = new OrderWindow[RakNet.CHANNEL_COUNT];
+		this.orderWindowSize = DEFAULT_ORDER_WINDOW_SIZE;
+		this.outputStreams = new ConcurrentHashMap<Integer, MessageOutputStream>();
+		this.inputStreams = new ConcurrentHashMap<Integer, MessageInputStream>();
+		this.streamWindowSize = DEFAULT_STREAM_WINDOW_SIZE;
 		for (int i = 0; i < RakNet.CHANNEL_COUNT; i++) {
 			sequenceReceiveIndex[i] = -1;
-			handleQueue.put(i, new ConcurrentIntMap<EncapsulatedPacket>());
 		}
 		this.latencyEnabled = true;
 		this.latency = -1;
 		this.lastLatency = -1;
 		this.lowestLatency = -1;
 		this.highestLatency = -1;
+		this.smoothedRoundTripTime = -1.0D;
+		this.retransmissionTimeout = RECOVERY_SEND_INTERVAL;
+		this.congestionController = new SlidingWindowCongestionController(maximumTransferUnit);
+		this.sendPacketRate = -1L;
+		this.sendBurstTime = DEFAULT_SEND_BURST_TIME;
+		this.packetBucket = new TokenBucket(System.nanoTime());
+		this.byteBucket = new TokenBucket(System.nanoTime());
 		this.latencyTimestamps = new ArrayList<Long>();
+		this.writeBatchSize = 1;
 	}
 
 	/**
@@ -302,6 +441,15 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		return this.maximumTransferUnit;
 	}
 
+	/**
+	 * Returns the channel used to communicate with the peer.
+	 * 
+	 * @return the channel used to communicate with the peer.
+	 */
+	public final Channel getChannel() {
+		return this.channel;
+	}
+
 	/**
 	 * Returns the connection type of the peer.
 	 * 
@@ -380,6 +528,7 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		}
 		this.state = state;
 		logger.debug("Set state to " + state.name());
+		this.wakeup();
 	}
 
 	/**
@@ -409,6 +558,7 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 			throw new IllegalArgumentException("Timeout cannot be negative");
 		}
 		this.timeout = timeout;
+		this.wakeup();
 	}
 
 	/**
@@ -482,7 +632,9 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 * @return the message index.
 	 */
 	public final int bumpMessageIndex() {
-		logger.trace("Bumped message index from " + messageIndex + " to " + (messageIndex + 1));
+		if (logger.isTraceEnabled()) {
+			logger.trace("Bumped message index from " + messageIndex + " to " + (messageIndex + 1));
+		}
 		return this.messageIndex++;
 	}
 
@@ -504,6 +656,7 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		this.pongsReceived = enabled ? pongsReceived : 0;
 		if (wasEnabled != enabled) {
 			logger.info((enabled ? "Enabled" : "Disabled") + " latency detection");
+			this.wakeup();
 		}
 	}
 
@@ -517,6 +670,94 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		return this.latencyEnabled;
 	}
 
+	/**
+	 * Sets the maximum amount of datagrams written per batch.
+	 * <p>
+	 * When this is greater than <code>1</code>, datagrams sent by the thread
+	 * that owns the peer are only written to the channel, and are flushed
+	 * together once this many have been written or the peer has finished
+	 * updating or handling a packet. This allows transports that support it
+	 * to send an entire batch with a single system call.
+	 * 
+	 * @param writeBatchSize
+	 *            the maximum amount of datagrams written per batch. A value of
+	 *            <code>1</code> disables write batching.
+	 * @throws IllegalArgumentException
+	 *             if the <code>writeBatchSize</code> is less than
+	 *             <code>1</code>.
+	 */
+	public final void setWriteBatchSize(int writeBatchSize) throws IllegalArgumentException {
+		if (writeBatchSize < 1) {
+			throw new IllegalArgumentException("Write batch size must be greater than 0");
+		}
+		this.writeBatchSize = writeBatchSize;
+		if (writeBatchSize <= 1) {
+			this.flush();
+		}
+	}
+
+	/**
+	 * Enables/disables zero-copy payloads.
+	 * <p>
+	 * When enabled, the payloads of received messages are handed to
+	 * {@link #handleMessage(RakNetPacket, int)} as retained slices of the
+	 * datagrams they were received in, rather than as copies. Whoever receives
+	 * such a packet must release it once they are done with it, and the
+	 * datagram is only deallocated once every slice of it has been released.
+	 * 
+	 * @param enabled
+	 *            <code>true</code> to enable zero-copy payloads,
+	 *            <code>false</code> to disable them.
+	 */
+	public final void setZeroCopyPayloads(boolean enabled) {
+		this.zeroCopyPayloads = enabled;
+	}
+
+	/**
+	 * Returns whether or not zero-copy payloads are enabled.
+	 * 
+	 * @return <code>true</code> if zero-copy payloads are enabled,
+	 *         <code>false</code> otherwise.
+	 */
+	public final boolean isZeroCopyPayloads() {
+		return this.zeroCopyPayloads;
+	}
+
+	/**
+	 * Sets the registry used to look up the handlers of user messages.
+	 * <p>
+	 * Messages with an ID that has a handler registered to it are passed to
+	 * that handler, rather than to {@link #handleMessage(RakNetPacket, int)}.
+	 * 
+	 * @param messageRegistry
+	 *            the message registry, a <code>null</code> value will have
+	 *            every user message be passed to
+	 *            {@link #handleMessage(RakNetPacket, int)}.
+	 */
+	public final void setMessageRegistry(MessageRegistry messageRegistry) {
+		this.messageRegistry = messageRegistry;
+	}
+
+	/**
+	 * Returns the registry used to look up the handlers of user messages.
+	 * 
+	 * @return the registry used to look up the handlers of user messages,
+	 *         <code>null</code> if there is none.
+	 */
+	public final MessageRegistry getMessageRegistry() {
+		return this.messageRegistry;
+	}
+
+	/**
+	 * Returns the maximum amount of datagrams written per batch.
+	 * 
+	 * @return the maximum amount of datagrams written per batch,
+	 *         <code>1</code> if write batching is disabled.
+	 */
+	public final int getWriteBatchSize() {
+		return this.writeBatchSize;
+	}
+
 	/**
 	 * Returns the average latency for the peer.
 	 * 
@@ -557,234 +798,1103 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	}
 
 	/**
-	 * Handles the specified internal packet.
+	 * Returns the smoothed round trip time to the peer.
+	 * <p>
+	 * Unlike the {@link #getLatency() latency}, which is measured with pings
+	 * that are only sent while latency detection is enabled, the round trip
+	 * time is measured from the time it takes for every datagram containing
+	 * reliable messages to be acknowledged.
 	 * 
-	 * @param packet
-	 *            the packet to handle.
-	 * @throws NullPointerException
-	 *             if the <code>packet</code> is <code>null</code>.
-	 * @throws InvalidChannelException
-	 *             if the packet is a {@link CustomPacket CUSTOM_PACKET} and the
-	 *             channel of an encapsulated packet found inside of it is
-	 *             greater than or equal to {@value RakNet#CHANNEL_COUNT}.
-	 * @throws SplitQueueOverflowException
-	 *             if the packet is a {@link CustomPacket CUSTOM_PACKET}, an
-	 *             encapsulated packet found inside of it is split, and adding
-	 *             it to the split queue would cause it to overflow.
+	 * @return the smoothed round trip time to the peer in milliseconds,
+	 *         <code>-1</code> if it has not yet been measured.
 	 */
-	public final void handleInternal(RakNetPacket packet)
-			throws NullPointerException, InvalidChannelException, SplitQueueOverflowException {
-		if (packet == null) {
-			throw new NullPointerException("Packet cannot be null");
-		}
-		long currentTime = this.lastPacketReceiveTime = System.currentTimeMillis();
-		if (currentTime - lastPacketsReceivedThisSecondResetTime >= 1000L) {
-			this.packetsReceivedThisSecond = 0;
-			this.lastPacketsReceivedThisSecondResetTime = currentTime;
-		}
-		this.packetsReceivedThisSecond++;
-		if (packet.getId() >= ID_CUSTOM_0 && packet.getId() <= ID_CUSTOM_F) {
-			CustomPacket custom = new CustomPacket(packet);
-			custom.decode();
-
-			/*
-			 * We send an ACK packet as soon as we get the packet. This is
-			 * because sometimes handling a packet takes longer than expected
-			 * (or longer than the recovery send interval time). If this
-			 * happens, it will cause the other side to resend a packet that we
-			 * already got. If the resend time is too low, this can end up
-			 * causing the other side to also spam us without meaning to.
-			 */
-			this.sendAcknowledge(true, new Record(custom.sequenceId));
+	public final long getRoundTripTime() {
+		return Math.round(this.smoothedRoundTripTime);
+	}
 
-			/*
-			 * NACK must be generated first before the peer data is updated,
-			 * otherwise the data needed to know which packets have been lost
-			 * will have been overwritten.
-			 */
-			int skipped = custom.sequenceId - receiveSequenceNumber - 1;
-			if (skipped > 0) {
-				this.sendAcknowledge(false, skipped == 1 ? new Record(custom.sequenceId - 1)
-						: new Record(receiveSequenceNumber + 1, custom.sequenceId - 1));
-			}
-			if (custom.sequenceId > receiveSequenceNumber - 1) {
-				this.receiveSequenceNumber = custom.sequenceId;
-				for (EncapsulatedPacket encapsulated : custom.messages) {
-					this.handleEncapsulated(encapsulated);
-				}
-			}
-			logger.trace("Handled custom packet with sequence number " + custom.sequenceId);
-		} else if (packet.getId() == ID_NACK) {
-			NotAcknowledgedPacket notAcknowledged = new NotAcknowledgedPacket(packet);
-			notAcknowledged.decode();
+	/**
+	 * Returns the variance of the round trip time to the peer.
+	 * 
+	 * @return the variance of the round trip time to the peer in
+	 *         milliseconds, <code>-1</code> if the round trip time has not yet
+	 *         been measured.
+	 * @see #getRoundTripTime()
+	 */
+	public final long getRoundTripTimeVariance() {
+		return smoothedRoundTripTime < 0.0D ? -1L : Math.round(this.roundTripTimeVariance);
+	}
 
-			/*
-			 * When a peer realizes they have lost a packet in transmission,
-			 * they only send a NACK packet once. This makes implementation
-			 * easier. However, this can make this code look a bit whacky.
-			 * 
-			 * What's happening here is we are getting the old sequence numbers
-			 * of the lost packets and then creating an array to store the new
-			 * ones in. The new sequence number is found when sending the custom
-			 * packet containing the lost data without updating the recovery
-			 * queue.
-			 * 
-			 * As a final step, we rename the keys in the recovery queue from
-			 * the old sequence number to the new sequence number after all the
-			 * packets that were lost in transmission were resent. We do not
-			 * remove them from the recovery queue until the peer has responded
-			 * with an ACK packet.
-			 */
-			for (int i = 0; i < notAcknowledged.records.length; i++) {
-				Record record = notAcknowledged.records[i];
-
-				// Notify peer of packets lost in transmission
-				Iterator<EncapsulatedPacket> ackReceiptPacketsI = ackReceiptPackets.keySet().iterator();
-				while (ackReceiptPacketsI.hasNext()) {
-					EncapsulatedPacket encapsulated = ackReceiptPacketsI.next();
-					int encapsulatedRecordIndex = ackReceiptPackets.get(encapsulated).intValue();
-					if (record.getIndex() == encapsulatedRecordIndex) {
-						this.onNotAcknowledge(record, encapsulated);
-						encapsulated.ackRecord = null;
-						ackReceiptPackets.remove(encapsulated);
-					}
-				}
+	/**
+	 * Returns the amount of time in milliseconds after which the reliable
+	 * messages of a datagram that has not been acknowledged are resent.
+	 * <p>
+	 * This is calculated from the round trip time and its variance. Every time
+	 * datagrams expire and are resent, it is doubled until the next datagram
+	 * is acknowledged.
+	 * 
+	 * @return the retransmission timeout in milliseconds.
+	 */
+	public final long getRetransmissionTimeout() {
+		return this.retransmissionTimeout;
+	}
 
-				// Resend packets lost in transmission
-				EncapsulatedPacket[] lost = recoveryQueue.remove(record.getIndex());
-				if (lost != null) {
-					recoveryQueue.put(this.sendCustomPacket(false, lost), lost);
-				}
-			}
-		} else if (packet.getId() == ID_ACK) {
-			AcknowledgedPacket acknowledged = new AcknowledgedPacket(packet);
-			acknowledged.decode();
-			for (Record record : acknowledged.records) {
-				Iterator<EncapsulatedPacket> ackReceiptPacketsI = ackReceiptPackets.keySet().iterator();
-				while (ackReceiptPacketsI.hasNext()) {
-					EncapsulatedPacket encapsulated = ackReceiptPacketsI.next();
-					int encapsulatedRecordIndex = ackReceiptPackets.get(encapsulated).intValue();
-					if (record.getIndex() == encapsulatedRecordIndex) {
-						this.onAcknowledge(record, encapsulated);
-						encapsulated.ackRecord = null;
-						ackReceiptPacketsI.remove();
-					}
-				}
-				recoveryQueue.remove(record.getIndex());
-			}
-			logger.trace("Handled ACK packet with " + acknowledged.records.length + " record"
-					+ (acknowledged.records.length == 1 ? "" : "s") + " " + Arrays.toString(acknowledged.records));
+	/**
+	 * Sets the congestion controller of the peer.
+	 * <p>
+	 * By default, every peer uses a {@link SlidingWindowCongestionController}.
+	 * The congestion controller should only be changed before the peer has
+	 * started sending messages, as it will not know about the datagrams that
+	 * are already in flight.
+	 * 
+	 * @param congestionController
+	 *            the congestion controller.
+	 * @throws NullPointerException
+	 *             if the <code>congestionController</code> is
+	 *             <code>null</code>.
+	 */
+	public final void setCongestionController(CongestionController congestionController)
+			throws NullPointerException {
+		if (congestionController == null) {
+			throw new NullPointerException("Congestion controller cannot be null");
 		}
-		logger.trace("Handled " + RakNetPacket.getName(packet));
+		this.congestionController = congestionController;
 	}
 
 	/**
-	 * Handles an {@link EncapsulatedPacket}.
+	 * Returns the congestion controller of the peer.
 	 * 
-	 * @param encapsulated
-	 *            the encapsulated packet.
-	 * @throws NullPointerException
-	 *             if the <code>encapsulated</code> packet is <code>null</code>.
-	 * @throws InvalidChannelException
-	 *             if the channel of the <code>encapsulated</code> packet is
-	 *             greater than or equal to {@value RakNet#CHANNEL_COUNT}.
-	 * @throws SplitQueueOverflowException
-	 *             if the <code>encapsulated</code> packet is split, and adding
-	 *             it to the split queue would cause it to overflow.
+	 * @return the congestion controller of the peer.
 	 */
-	private final void handleEncapsulated(EncapsulatedPacket encapsulated)
-			throws InvalidChannelException, SplitQueueOverflowException {
-		if (encapsulated == null) {
-			throw new NullPointerException("Encapsulated packet cannot be null");
-		} else if (encapsulated.orderChannel >= RakNet.CHANNEL_COUNT) {
-			throw new InvalidChannelException(encapsulated.orderChannel);
-		} else if (encapsulated.split == true) {
-			if (!splitQueue.containsKey(encapsulated.splitId)) {
-				splitQueue.put(encapsulated.splitId, new EncapsulatedPacket.Split(encapsulated.splitId,
-						encapsulated.splitCount, encapsulated.reliability));
+	public final CongestionController getCongestionController() {
+		return this.congestionController;
+	}
 
-				/**
-				 * If the split queue is greater than the maximum amount of
-				 * packets that can be split, remove all unreliable split
-				 * packets. If the split queue is still too big, then the queue
-				 * has been overloaded.
-				 */
-				if (splitQueue.size() > MAX_SPLITS_PER_QUEUE) {
-					Iterator<EncapsulatedPacket.Split> splitQueueI = splitQueue.values().iterator();
-					int removeCount = 0;
-					while (splitQueueI.hasNext()) {
-						EncapsulatedPacket.Split splitPacket = splitQueueI.next();
-						if (!splitPacket.getReliability().isReliable()) {
-							splitQueueI.remove();
-							removeCount++;
-						}
-					}
-					if (removeCount > 0) {
-						logger.warn("Removed " + removeCount
-								+ " unreliable packets from the split queue due to an overflowing split queue");
-					}
-					if (splitQueue.size() > MAX_SPLITS_PER_QUEUE) {
-						throw new SplitQueueOverflowException();
-					}
-				}
-			}
-			EncapsulatedPacket stitched = splitQueue.get(encapsulated.splitId).update(encapsulated);
-			if (stitched != null) {
-				splitQueue.remove(encapsulated.splitId);
-				this.handleEncapsulated(stitched);
-			}
-		} else if (!encapsulated.reliability.isReliable()
-				|| (encapsulated.reliability.isReliable() && !reliablePackets.contains(encapsulated.messageIndex))) {
-			/*
-			 * Determine if the message should be handled based on its
-			 * reliability.
-			 * 
-			 * If the message is ordered, only handle it when all the messages
-			 * before it on the channel have also been received and are ready to
-			 * be handled.
-			 * 
-			 * If the message is sequenced, only handle it if it is the newest
-			 * packet on the channel.
-			 * 
-			 * If the message is neither ordered nor sequenced, then it is
-			 * handled regardless.
-			 */
-			reliablePackets.add(encapsulated.messageIndex);
-			if (encapsulated.reliability.isOrdered()) {
-				handleQueue.get(encapsulated.orderChannel).put(encapsulated.orderIndex, encapsulated);
-				while (handleQueue.get(encapsulated.orderChannel)
-						.containsKey(orderReceiveIndex[encapsulated.orderChannel])) {
-					this.handleMessage0(encapsulated.orderChannel,
-							new RakNetPacket(handleQueue.get(encapsulated.orderChannel)
-									.remove(orderReceiveIndex[encapsulated.orderChannel]++).payload));
-				}
-			} else if (encapsulated.reliability.isSequenced()
-					&& encapsulated.orderIndex > sequenceReceiveIndex[encapsulated.orderChannel]) {
-				sequenceReceiveIndex[encapsulated.orderChannel] = encapsulated.orderIndex;
-				this.handleMessage0(encapsulated.orderChannel, new RakNetPacket(encapsulated.payload));
-			} else {
-				this.handleMessage0(encapsulated.orderChannel, new RakNetPacket(encapsulated.payload));
-			}
-		}
-		logger.trace("Handled " + (encapsulated.split ? "split " : "") + "encapsulated packet with "
-				+ encapsulated.reliability + " reliability on channel " + encapsulated.orderChannel);
+	/**
+	 * Returns the congestion window of the peer.
+	 * 
+	 * @return the amount of bytes that can be awaiting acknowledgement at
+	 *         once.
+	 * @see CongestionController#getCongestionWindow()
+	 */
+	public final long getCongestionWindow() {
+		return congestionController.getCongestionWindow();
 	}
 
 	/**
-	 * Handles an internal packet.
-	 * <p>
-	 * If the ID is unrecognized it is passed on to the extending peer class via
-	 * the {@link #handleMessage(RakNetPacket, int)} method.
+	 * Returns the rate at which datagrams are paced.
 	 * 
-	 * @param channel
-	 *            the channel the packet was sent on.
-	 * @param packet
-	 *            the packet.
-	 * @throws InvalidChannelException
-	 *             if the <code>channel</code> is greater than or equal to
-	 *             {@value RakNet#CHANNEL_COUNT}.
-	 * @throws NullPointerException
-	 *             if the <code>packet</code> is <code>null</code>.
+	 * @return the pacing rate in bytes per second, <code>0</code> if
+	 *         datagrams are not paced.
+	 * @see CongestionController#getPacingRate()
+	 */
+	public final long getPacingRate() {
+		return congestionController.getPacingRate();
+	}
+
+	/**
+	 * Returns the amount of bytes sent to the peer in datagrams containing
+	 * reliable messages that are still awaiting acknowledgement.
+	 * 
+	 * @return the amount of bytes in flight.
+	 */
+	public final long getBytesInFlight() {
+		return recoveryQueue.getBytes();
+	}
+
+	/**
+	 * Sets the maximum amount of datagrams sent to the peer per second.
+	 * <p>
+	 * Datagrams are paced with a token bucket, meaning they are spread out
+	 * evenly over each second rather than being sent all at once and then
+	 * held back for the rest of the second. How many can be sent at once is
+	 * determined by the {@link #setSendBurstTime(long) send burst time}.
+	 * 
+	 * @param packetsPerSecond
+	 *            the maximum amount of datagrams sent per second,
+	 *            <code>0</code> for no limit, or <code>-1</code> to use
+	 *            {@link RakNet#getMaxPacketsPerSecond()}.
+	 * @throws IllegalArgumentException
+	 *             if <code>packetsPerSecond</code> is less than
+	 *             <code>-1</code>.
+	 */
+	public final void setSendPacketRate(long packetsPerSecond) throws IllegalArgumentException {
+		if (packetsPerSecond < -1L) {
+			throw new IllegalArgumentException("Send packet rate cannot be less than -1");
+		}
+		this.sendPacketRate = packetsPerSecond;
+		this.wakeup();
+	}
+
+	/**
+	 * Returns the maximum amount of datagrams sent to the peer per second.
+	 * 
+	 * @return the maximum amount of datagrams sent per second,
+	 *         <code>0</code> if there is no limit.
+	 */
+	public final long getSendPacketRate() {
+		return sendPacketRate < 0 ? RakNet.getMaxPacketsPerSecond() : sendPacketRate;
+	}
+
+	/**
+	 * Sets the maximum amount of bytes sent to the peer per second.
+	 * <p>
+	 * If the {@link CongestionController congestion controller} has a pacing
+	 * rate that is lower than this, the pacing rate is used instead.
+	 * 
+	 * @param bytesPerSecond
+	 *            the maximum amount of bytes sent per second, <code>0</code>
+	 *            for no limit.
+	 * @throws IllegalArgumentException
+	 *             if <code>bytesPerSecond</code> is negative.
+	 * @see #setSendPacketRate(long)
+	 */
+	public final void setSendByteRate(long bytesPerSecond) throws IllegalArgumentException {
+		if (bytesPerSecond < 0) {
+			throw new IllegalArgumentException("Send byte rate cannot be negative");
+		}
+		this.sendByteRate = bytesPerSecond;
+		this.wakeup();
+	}
+
+	/**
+	 * Returns the maximum amount of bytes sent to the peer per second.
+	 * 
+	 * @return the maximum amount of bytes sent per second, <code>0</code> if
+	 *         there is no limit.
+	 */
+	public final long getSendByteRate() {
+		return this.sendByteRate;
+	}
+
+	/**
+	 * Sets the amount of time worth of datagrams that can be sent at once
+	 * when sending is rate limited.
+	 * <p>
+	 * A lower burst time spaces datagrams out more evenly, while a higher
+	 * one makes up for peers that are not updated often enough to send each
+	 * datagram at the exact time it is due.
+	 * 
+	 * @param sendBurstTime
+	 *            the amount of time in milliseconds worth of datagrams that
+	 *            can be sent at once. At least one datagram can always be
+	 *            sent at once.
+	 * @throws IllegalArgumentException
+	 *             if the <code>sendBurstTime</code> is negative.
+	 */
+	public final void setSendBurstTime(long sendBurstTime) throws IllegalArgumentException {
+		if (sendBurstTime < 0) {
+			throw new IllegalArgumentException("Send burst time cannot be negative");
+		}
+		this.sendBurstTime = sendBurstTime;
+	}
+
+	/**
+	 * Returns the amount of time worth of datagrams that can be sent at once
+	 * when sending is rate limited.
+	 * 
+	 * @return the amount of time in milliseconds worth of datagrams that can
+	 *         be sent at once.
+	 */
+	public final long getSendBurstTime() {
+		return this.sendBurstTime;
+	}
+
+	/**
+	 * Sets the amount of time acknowledgements are held back for so that they
+	 * can be sent together.
+	 * <p>
+	 * Rather than one acknowledgement being sent for every datagram received,
+	 * the datagrams received are gathered and acknowledged together the next
+	 * time the peer is updated once this much time has passed since the first
+	 * of them was received. This also gives datagrams that arrive out of order
+	 * a chance to arrive before the ones that were skipped over are reported
+	 * as lost. A higher delay results in fewer acknowledgements being sent,
+	 * but makes the round trip time measured by the other side higher.
+	 * 
+	 * @param acknowledgeDelay
+	 *            the amount of time in milliseconds acknowledgements are held
+	 *            back for. A value of <code>0</code> has them sent the next
+	 *            time the peer is updated, which is right after the datagrams
+	 *            that have already arrived have been handled.
+	 * @throws IllegalArgumentException
+	 *             if the <code>acknowledgeDelay</code> is negative.
+	 */
+	public final void setAcknowledgeDelay(long acknowledgeDelay) throws IllegalArgumentException {
+		if (acknowledgeDelay < 0) {
+			throw new IllegalArgumentException("Acknowledge delay cannot be negative");
+		}
+		this.acknowledgeDelay = acknowledgeDelay;
+	}
+
+	/**
+	 * Returns the amount of time acknowledgements are held back for so that
+	 * they can be sent together.
+	 * 
+	 * @return the amount of time in milliseconds acknowledgements are held
+	 *         back for.
+	 */
+	public final long getAcknowledgeDelay() {
+		return this.acknowledgeDelay;
+	}
+
+	/**
+	 * Sets the amount of ordered messages that can be waiting to be handled
+	 * on a single channel at once.
+	 * <p>
+	 * Ordered messages that arrive before the messages sent before them are
+	 * held back until those messages arrive. If a message arrives this many
+	 * messages or more ahead of the next message to be handled on its
+	 * channel, the peer is considered to be misbehaving and an
+	 * {@link OrderQueueOverflowException} is thrown. This puts a limit on how
+	 * much memory the messages being held back can take up. A message that is
+	 * held back keeps no more than the datagram it arrived in from being
+	 * reused, as it is copied if it arrived in a buffer holding a batch of
+	 * datagrams.
+	 * 
+	 * @param orderWindowSize
+	 *            the amount of ordered messages that can be waiting on a
+	 *            single channel at once.
+	 * @throws IllegalArgumentException
+	 *             if the <code>orderWindowSize</code> is less than or equal to
+	 *             <code>0</code> or greater than <code>2^23</code>.
+	 */
+	public final void setOrderWindowSize(int orderWindowSize) throws IllegalArgumentException {
+		if (orderWindowSize <= 0 || orderWindowSize > OrderWindow.MAXIMUM_SIZE) {
+			throw new IllegalArgumentException("Order window size must be in between 1 and 2^23");
+		}
+		this.orderWindowSize = orderWindowSize;
+	}
+
+	/**
+	 * Returns the amount of ordered messages that can be waiting to be handled
+	 * on a single channel at once.
+	 * 
+	 * @return the amount of ordered messages that can be waiting on a single
+	 *         channel at once.
+	 */
+	public final int getOrderWindowSize() {
+		return this.orderWindowSize;
+	}
+
+	/**
+	 * Sets the amount of stream data sent by the peer that can be received
+	 * but not yet read on a single stream.
+	 * <p>
+	 * This is the amount of credit given to the peer when it opens a stream,
+	 * which bounds the amount of data held on both ends of the stream. As the
+	 * peer cannot send more until the data it has sent is read, a stream can
+	 * send at most this much data per round trip. This only applies to
+	 * streams opened after it has been set.
+	 * 
+	 * @param streamWindowSize
+	 *            the amount of stream data that can be waiting to be read on
+	 *            a single stream.
+	 * @throws IllegalArgumentException
+	 *             if the <code>streamWindowSize</code> is less than or equal
+	 *             to <code>0</code>.
+	 */
+	public final void setStreamWindowSize(int streamWindowSize) throws IllegalArgumentException {
+		if (streamWindowSize <= 0) {
+			throw new IllegalArgumentException("Stream window size must be greater than 0");
+		}
+		this.streamWindowSize = streamWindowSize;
+	}
+
+	/**
+	 * Returns the amount of stream data sent by the peer that can be received
+	 * but not yet read on a single stream.
+	 * 
+	 * @return the amount of stream data that can be waiting to be read on a
+	 *         single stream.
+	 */
+	public final int getStreamWindowSize() {
+		return this.streamWindowSize;
+	}
+
+	/**
+	 * Sets the maximum amount of chunks a single packet sent by the peer can
+	 * be split into.
+	 * <p>
+	 * Along with the maximum transfer unit, this determines how large of a
+	 * packet the peer can send. A split packet with more chunks than this
+	 * causes a {@link SplitQueueOverflowException} to be thrown.
+	 * 
+	 * @param maximumSplitCount
+	 *            the maximum amount of chunks a packet can be split into.
+	 * @throws IllegalArgumentException
+	 *             if the <code>maximumSplitCount</code> is less than or equal
+	 *             to <code>0</code>.
+	 */
+	public final void setMaximumSplitCount(int maximumSplitCount) throws IllegalArgumentException {
+		if (maximumSplitCount <= 0) {
+			throw new IllegalArgumentException("Maximum split count must be greater than 0");
+		}
+		this.maximumSplitCount = maximumSplitCount;
+	}
+
+	/**
+	 * Returns the maximum amount of chunks a single packet sent by the peer
+	 * can be split into.
+	 * 
+	 * @return the maximum amount of chunks a packet can be split into.
+	 */
+	public final int getMaximumSplitCount() {
+		return this.maximumSplitCount;
+	}
+
+	/**
+	 * Sets the maximum amount of split packets sent by the peer that can be
+	 * waiting to be reassembled at once.
+	 * <p>
+	 * If a new split packet would go over this amount, the unreliable split
+	 * packets waiting to be reassembled are evicted. If this is still not
+	 * enough, a {@link SplitQueueOverflowException} is thrown.
+	 * 
+	 * @param maximumSplits
+	 *            the maximum amount of split packets that can be waiting to
+	 *            be reassembled at once.
+	 * @throws IllegalArgumentException
+	 *             if the <code>maximumSplits</code> is less than or equal to
+	 *             <code>0</code>.
+	 */
+	public final void setMaximumSplits(int maximumSplits) throws IllegalArgumentException {
+		if (maximumSplits <= 0) {
+			throw new IllegalArgumentException("Maximum splits must be greater than 0");
+		}
+		this.maximumSplits = maximumSplits;
+	}
+
+	/**
+	 * Returns the maximum amount of split packets sent by the peer that can be
+	 * waiting to be reassembled at once.
+	 * 
+	 * @return the maximum amount of split packets that can be waiting to be
+	 *         reassembled at once.
+	 */
+	public final int getMaximumSplits() {
+		return this.maximumSplits;
+	}
+
+	/**
+	 * Sets the maximum amount of payload bytes the split packets sent by the
+	 * peer can hold while they are waiting to be reassembled.
+	 * <p>
+	 * If a chunk would go over this amount, the unreliable split packets
+	 * waiting to be reassembled are evicted. If this is still not enough, the
+	 * chunk is dropped if it is unreliable, otherwise a
+	 * {@link SplitQueueOverflowException} is thrown.
+	 * <p>
+	 * A chunk is not copied out of the buffer the datagram it arrived in was
+	 * received in, so it counts for its own size rather than for the buffer it
+	 * keeps from being reused. The amount of receive buffers the split packets
+	 * can keep from being reused is limited by the maximum splits and the
+	 * maximum split count instead.
+	 * 
+	 * @param maximumSplitBytes
+	 *            the maximum amount of payload bytes the split packets can
+	 *            hold.
+	 * @throws IllegalArgumentException
+	 *             if the <code>maximumSplitBytes</code> is less than or equal
+	 *             to <code>0</code>.
+	 */
+	public final void setMaximumSplitBytes(long maximumSplitBytes) throws IllegalArgumentException {
+		if (maximumSplitBytes <= 0) {
+			throw new IllegalArgumentException("Maximum split bytes must be greater than 0");
+		}
+		this.maximumSplitBytes = maximumSplitBytes;
+	}
+
+	/**
+	 * Returns the maximum amount of payload bytes the split packets sent by
+	 * the peer can hold while they are waiting to be reassembled.
+	 * 
+	 * @return the maximum amount of payload bytes the split packets can hold.
+	 */
+	public final long getMaximumSplitBytes() {
+		return this.maximumSplitBytes;
+	}
+
+	/**
+	 * Sets the amount of time a split packet sent by the peer can go without
+	 * receiving any of its chunks before it is evicted.
+	 * <p>
+	 * Unreliable split packets are simply evicted, as the chunks that are
+	 * missing may never arrive. Reliable split packets are always completed
+	 * eventually, as their chunks are resent until they are received. As
+	 * such, a reliable split packet that goes this long without receiving
+	 * any of its chunks causes the peer to timeout.
+	 * 
+	 * @param splitTimeout
+	 *            the amount of time in milliseconds a split packet can go
+	 *            without receiving any of its chunks.
+	 * @throws IllegalArgumentException
+	 *             if the <code>splitTimeout</code> is less than or equal to
+	 *             <code>0</code>.
+	 */
+	public final void setSplitTimeout(long splitTimeout) throws IllegalArgumentException {
+		if (splitTimeout <= 0) {
+			throw new IllegalArgumentException("Split timeout must be greater than 0");
+		}
+		this.splitTimeout = splitTimeout;
+		this.wakeup();
+	}
+
+	/**
+	 * Returns the amount of time a split packet sent by the peer can go
+	 * without receiving any of its chunks before it is evicted.
+	 * 
+	 * @return the amount of time in milliseconds a split packet can go
+	 *         without receiving any of its chunks.
+	 */
+	public final long getSplitTimeout() {
+		return this.splitTimeout;
+	}
+
+	/**
+	 * Returns the amount of payload bytes held by the split packets sent by
+	 * the peer that are waiting to be reassembled.
+	 * 
+	 * @return the amount of payload bytes held by the split packets waiting
+	 *         to be reassembled.
+	 */
+	public final long getSplitBytes() {
+		return this.splitBytes;
+	}
+
+	/**
+	 * Returns the amount of payload bytes held by the split packets of every
+	 * peer that are waiting to be reassembled.
+	 * 
+	 * @return the amount of payload bytes held by the split packets of every
+	 *         peer waiting to be reassembled.
+	 */
+	public static long getTotalSplitBytes() {
+		return TOTAL_SPLIT_BYTES.get();
+	}
+
+	/**
+	 * Updates the rates of the token buckets used to pace datagrams.
+	 * <p>
+	 * The byte rate is the lowest of the configured byte rate and the pacing
+	 * rate of the congestion controller.
+	 * 
+	 * @param time
+	 *            the current time in nanoseconds.
+	 */
+	private final void updateSendRates(long time) {
+		long packetRate = this.getSendPacketRate();
+		packetBucket.setRate(packetRate, Math.max(1.0D, packetRate * sendBurstTime / 1000.0D), time);
+		long byteRate = sendByteRate;
+		long pacingRate = congestionController.getPacingRate();
+		if (pacingRate > 0 && (byteRate <= 0 || pacingRate < byteRate)) {
+			byteRate = pacingRate;
+		}
+		byteBucket.setRate(byteRate, Math.max(maximumTransferUnit, byteRate * sendBurstTime / 1000.0D), time);
+	}
+
+	/**
+	 * Returns the amount of time until the token buckets allow another
+	 * datagram to be sent.
+	 * 
+	 * @param time
+	 *            the current time in nanoseconds.
+	 * @return the amount of time in nanoseconds until another datagram can
+	 *         be sent, <code>0</code> if one can be sent now.
+	 */
+	private final long getSendDelay(long time) {
+		return Math.max(packetBucket.getDelay(time), byteBucket.getDelay(time));
+	}
+
+	/**
+	 * Updates the round trip time and retransmission timeout with the
+	 * specified round trip time sample.
+	 * <p>
+	 * This follows the algorithm by Jacobson and Karels, as described in
+	 * <a href="https://tools.ietf.org/html/rfc6298">RFC 6298</a>. Since
+	 * resent messages are always given a new datagram with a new sequence
+	 * number, every acknowledgement belongs to exactly one transmission and
+	 * every sample is usable.
+	 * 
+	 * @param sample
+	 *            the time in milliseconds it took for a datagram to be
+	 *            acknowledged.
+	 */
+	private final void updateRoundTripTime(long sample) {
+		if (smoothedRoundTripTime < 0.0D) {
+			this.smoothedRoundTripTime = sample;
+			this.roundTripTimeVariance = sample / 2.0D;
+		} else {
+			this.roundTripTimeVariance = 0.75D * roundTripTimeVariance
+					+ 0.25D * Math.abs(smoothedRoundTripTime - sample);
+			this.smoothedRoundTripTime = 0.875D * smoothedRoundTripTime + 0.125D * sample;
+		}
+		long timeout = Math.round(smoothedRoundTripTime + Math.max(1.0D, 4.0D * roundTripTimeVariance));
+		this.retransmissionTimeout = Math.max(MINIMUM_RETRANSMISSION_TIMEOUT,
+				Math.min(timeout, MAXIMUM_RETRANSMISSION_TIMEOUT));
+	}
+
+	/**
+	 * Returns the scheduler the peer is registered to.
+	 * 
+	 * @return the scheduler the peer is registered to, <code>null</code> if
+	 *         it is not registered to one.
+	 */
+	public final PeerScheduler getScheduler() {
+		return this.scheduler;
+	}
+
+	/**
+	 * Sets the scheduler the peer is registered to.
+	 * <p>
+	 * This is called by the {@link PeerScheduler} itself when the peer is
+	 * registered or unregistered, so that the peer is able to notify it when
+	 * there is work to be done. It should not be called by anything else.
+	 * 
+	 * @param scheduler
+	 *            the scheduler, <code>null</code> if the peer is no longer
+	 *            registered to one.
+	 */
+	public final void setScheduler(PeerScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Notifies the scheduler the peer is registered to that the peer should
+	 * be updated as soon as possible.
+	 */
+	private final void wakeup() {
+		PeerScheduler scheduler = this.scheduler;
+		if (scheduler != null) {
+			scheduler.wakeup(this);
+		}
+	}
+
+	/**
+	 * Returns whether or not the send window and the congestion window have
+	 * room for another datagram.
+	 * 
+	 * @return <code>true</code> if another datagram can be sent,
+	 *         <code>false</code> otherwise.
+	 */
+	private final boolean isSendWindowOpen() {
+		return recoveryQueue.span(sendSequenceNumber) < SEND_WINDOW_SIZE
+				&& recoveryQueue.getBytes() < congestionController.getCongestionWindow();
+	}
+
+	/**
+	 * Returns the time at which the peer must next be updated.
+	 * <p>
+	 * This is the earliest of the time the next queued message can be sent
+	 * according to the send window, the congestion controller and the send
+	 * rate, the time the acknowledgements being held back must be sent, the
+	 * time the oldest split packet being reassembled expires, the time the
+	 * oldest unacknowledged datagram must be resent, the time the
+	 * next ping or keep-alive packet must be sent, and the time the peer will
+	 * timeout. Updating the peer before this time is harmless, however
+	 * updating it after this time will delay the sending of packets.
+	 * 
+	 * @return the time at which the peer must next be updated.
+	 */
+	public final long getNextUpdateTime() {
+		long currentTime = System.currentTimeMillis();
+		long nextUpdateTime = lastPacketReceiveTime + timeout;
+		if (acknowledgeTime >= 0) {
+			nextUpdateTime = Math.min(nextUpdateTime, acknowledgeTime + acknowledgeDelay);
+		}
+		for (EncapsulatedPacket.Split split : splitQueue.values()) {
+			nextUpdateTime = Math.min(nextUpdateTime, split.getLastUpdateTime() + splitTimeout);
+		}
+		if (!sendQueue.isEmpty() && this.isSendWindowOpen()) {
+			long sendDelay = this.getSendDelay(System.nanoTime());
+			if (sendDelay <= 0) {
+				return currentTime;
+			}
+			nextUpdateTime = Math.min(nextUpdateTime, currentTime + (sendDelay + 999999L) / 1000000L);
+		}
+		if (!recoveryQueue.isEmpty()) {
+			nextUpdateTime = Math.min(nextUpdateTime,
+					recoveryQueue.getSendTime(recoveryQueue.first()) + retransmissionTimeout);
+		}
+		if (state == RakNetState.LOGGED_IN) {
+			if (latencyEnabled == true) {
+				nextUpdateTime = Math.min(nextUpdateTime, lastPingSendTime + PING_SEND_INTERVAL);
+			} else {
+				nextUpdateTime = Math.min(nextUpdateTime,
+						Math.max(lastPacketReceiveTime, lastDetectionSendTime) + DETECTION_SEND_INTERVAL);
+			}
+		}
+		return Math.max(nextUpdateTime, currentTime);
+	}
+
+	/**
+	 * Handles the specified internal packet.
+	 * <p>
+	 * If this is called from a thread other than the one that owns the peer,
+	 * the packet is handed off to the owning thread and handled later. In this
+	 * case, any exceptions that occur are reported to the peer's
+	 * {@link PeerScheduler} rather than being thrown by this method.
+	 * 
+	 * @param packet
+	 *            the packet to handle.
+	 * @throws NullPointerException
+	 *             if the <code>packet</code> is <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the packet is a {@link CustomPacket CUSTOM_PACKET} and the
+	 *             channel of an encapsulated packet found inside of it is
+	 *             greater than or equal to {@value RakNet#CHANNEL_COUNT}.
+	 * @throws SplitQueueOverflowException
+	 *             if the packet is a {@link CustomPacket CUSTOM_PACKET}, an
+	 *             encapsulated packet found inside of it is split, and adding
+	 *             it to the split queue would cause it to overflow.
+	 * @throws OrderQueueOverflowException
+	 *             if the packet is a {@link CustomPacket CUSTOM_PACKET} and an
+	 *             ordered packet found inside of it arrived too far ahead of
+	 *             the next ordered packet to be handled on its channel.
+	 */
+	public final void handleInternal(RakNetPacket packet) throws NullPointerException, InvalidChannelException,
+			SplitQueueOverflowException, OrderQueueOverflowException {
+		if (packet == null) {
+			throw new NullPointerException("Packet cannot be null");
+		}
+		PeerScheduler scheduler = this.scheduler;
+		if (scheduler != null && !scheduler.inPeerThread(this)) {
+			/*
+			 * The packet is handed off to the thread that owns the peer. The
+			 * buffer is sliced so it has its own reader index, as the original
+			 * will still be read by the caller, and retained so it is not
+			 * released before it has been handled. A slice is used rather
+			 * than a duplicate, as the buffer may itself be a slice of a
+			 * larger buffer holding a batch of datagrams.
+			 */
+			ByteBuf source = packet.buffer();
+			ByteBuf buffer = source.retainedSlice(0, source.writerIndex());
+			scheduler.execute(this, () -> {
+				try {
+					this.handleInternal0(new RakNetPacket(buffer));
+				} finally {
+					buffer.release();
+				}
+			});
+			return;
+		}
+		this.handleInternal0(packet);
+	}
+
+	/**
+	 * Handles the specified internal packet on the thread that owns the peer.
+	 * 
+	 * @param packet
+	 *            the packet to handle.
+	 * @throws InvalidChannelException
+	 *             if the packet is a {@link CustomPacket CUSTOM_PACKET} and the
+	 *             channel of an encapsulated packet found inside of it is
+	 *             greater than or equal to {@value RakNet#CHANNEL_COUNT}.
+	 * @throws SplitQueueOverflowException
+	 *             if the packet is a {@link CustomPacket CUSTOM_PACKET}, an
+	 *             encapsulated packet found inside of it is split, and adding
+	 *             it to the split queue would cause it to overflow.
+	 * @throws OrderQueueOverflowException
+	 *             if the packet is a {@link CustomPacket CUSTOM_PACKET} and an
+	 *             ordered packet found inside of it arrived too far ahead of
+	 *             the next ordered packet to be handled on its channel.
+	 */
+	private final void handleInternal0(RakNetPacket packet)
+			throws InvalidChannelException, SplitQueueOverflowException, OrderQueueOverflowException {
+		if (closed == true) {
+			return; // Disconnected
+		}
+		long currentTime = this.lastPacketReceiveTime = System.currentTimeMillis();
+		if (currentTime - lastPacketsReceivedThisSecondResetTime >= 1000L) {
+			this.packetsReceivedThisSecond = 0;
+			this.lastPacketsReceivedThisSecondResetTime = currentTime;
+		}
+		this.packetsReceivedThisSecond++;
+		switch (packet.getId()) {
+		case ID_CUSTOM_0:
+		case ID_CUSTOM_1:
+		case ID_CUSTOM_2:
+		case ID_CUSTOM_3:
+		case ID_CUSTOM_4:
+		case ID_CUSTOM_5:
+		case ID_CUSTOM_6:
+		case ID_CUSTOM_7:
+		case ID_CUSTOM_8:
+		case ID_CUSTOM_9:
+		case ID_CUSTOM_A:
+		case ID_CUSTOM_B:
+		case ID_CUSTOM_C:
+		case ID_CUSTOM_D:
+		case ID_CUSTOM_E:
+		case ID_CUSTOM_F:
+			this.handleCustom(packet);
+			break;
+		case ID_NACK:
+			this.handleNotAcknowledged(packet);
+			break;
+		case ID_ACK:
+			this.handleAcknowledged(packet);
+			break;
+		default:
+			break; // Not an internal packet
+		}
+		this.flush(); // Acknowledgements and anything sent in response
+		if (logger.isTraceEnabled()) {
+			logger.trace("Handled " + RakNetPacket.getName(packet));
+		}
+	}
+
+	/**
+	 * Handles a {@link CustomPacket CUSTOM_PACKET}.
+	 * 
+	 * @param packet
+	 *            the packet to handle.
+	 * @throws InvalidChannelException
+	 *             if the channel of an encapsulated packet found inside of the
+	 *             packet is greater than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 * @throws SplitQueueOverflowException
+	 *             if an encapsulated packet found inside of the packet is
+	 *             split, and adding it to the split queue would cause it to
+	 *             overflow.
+	 * @throws OrderQueueOverflowException
+	 *             if an ordered packet found inside of the packet arrived too
+	 *             far ahead of the next ordered packet to be handled on its
+	 *             channel.
+	 */
+	private final void handleCustom(RakNetPacket packet)
+			throws InvalidChannelException, SplitQueueOverflowException, OrderQueueOverflowException {
+		CustomPacket custom = new CustomPacket(packet);
+		custom.decode();
+
+		/*
+		 * Datagrams too old for the receive window to know whether or not
+		 * they were already received are dropped without acknowledging them.
+		 * If they were not received yet, the other side will eventually
+		 * resend the messages inside of them.
+		 */
+		if (receiveWindow.isOutdated(custom.sequenceId)) {
+			for (EncapsulatedPacket encapsulated : custom.messages) {
+				encapsulated.payload.release(); // Outdated
+			}
+			if (logger.isTraceEnabled()) {
+				logger.trace("Dropped outdated custom packet with sequence number " + custom.sequenceId);
+			}
+			return;
+		}
+
+		/*
+		 * The datagram is acknowledged before it is handled, as handling it
+		 * may take longer than expected (or longer than the recovery send
+		 * interval time). If this happens, it will cause the other side to
+		 * resend a packet that we already got. If the resend time is too
+		 * low, this can end up causing the other side to also spam us without
+		 * meaning to. The acknowledgement is sent together with those of the
+		 * other datagrams received around the same time, along with those of
+		 * the datagrams that were skipped over and are still missing by then.
+		 */
+		boolean received = receiveWindow.receive(custom.sequenceId);
+		if (acknowledgeTime < 0) {
+			this.acknowledgeTime = System.currentTimeMillis();
+			this.wakeup();
+		}
+		if (received == true) {
+			int handled = 0;
+			try {
+				for (; handled < custom.messages.length; handled++) {
+					EncapsulatedPacket encapsulated = custom.messages[handled];
+					if (closed == true) {
+						encapsulated.payload.release();
+						continue; // Disconnected while handling
+					}
+					/*
+					 * Reliable packets are checked for duplicates before
+					 * they are handled, as the peer may resend a packet we
+					 * already received if our acknowledgement of it arrived
+					 * late. This must be done here rather than when handling
+					 * the packet, as the message index of a stitched split
+					 * packet is the same as the last split packet that made
+					 * it up.
+					 */
+					if (encapsulated.reliability.isReliable()) {
+						if (reliablePackets.add(encapsulated.messageIndex) == false) {
+							encapsulated.payload.release();
+							continue; // Already received
+						}
+					}
+					this.handleEncapsulated(encapsulated);
+				}
+			} catch (RuntimeException e) {
+				for (int i = handled + 1; i < custom.messages.length; i++) {
+					custom.messages[i].payload.release(); // Will never be handled
+				}
+				throw e;
+			}
+		} else {
+			for (EncapsulatedPacket encapsulated : custom.messages) {
+				encapsulated.payload.release(); // Duplicate
+			}
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace("Handled custom packet with sequence number " + custom.sequenceId);
+		}
+	}
+
+	/**
+	 * Handles a {@link NotAcknowledgedPacket NACK} packet.
+	 * 
+	 * @param packet
+	 *            the packet to handle.
+	 */
+	private final void handleNotAcknowledged(RakNetPacket packet) {
+		NotAcknowledgedPacket notAcknowledged = new NotAcknowledgedPacket(packet);
+		notAcknowledged.decode();
+
+		/*
+		 * When a peer realizes they have lost a packet in transmission,
+		 * they only send a NACK packet once. As such, every datagram in the
+		 * recovery queue that falls within a NACK record is resent right
+		 * away. Resending a datagram removes it from the recovery queue and
+		 * sends its messages in a new datagram with a new sequence number,
+		 * which takes its place at the end of the recovery queue. The
+		 * messages are not removed from the recovery queue until the peer
+		 * has responded with an ACK packet for the new datagram.
+		 */
+		long currentTime = System.currentTimeMillis();
+		int lastSequenceId = (sendSequenceNumber - 1) & SendWindow.SEQUENCE_MASK;
+		for (Record record : notAcknowledged.records) {
+			// Notify peer of packets lost in transmission
+			ackReceipts.removeRange(record.getIndex(), record.getIndex() + record.size() - 1, receipts -> {
+				for (EncapsulatedPacket encapsulated : receipts) {
+					if (encapsulated.ackRecord == null) {
+						continue; // Already reported for an earlier transmission
+					}
+					this.onNotAcknowledge(encapsulated.ackRecord, encapsulated);
+					encapsulated.ackRecord = null;
+					if (!encapsulated.reliability.isReliable()) {
+						encapsulated.payload.release(); // Will not be resent
+					}
+				}
+			});
+
+			// Resend packets lost in transmission
+			int endIndex = record.getIndex() + record.size() - 1;
+			if (SendWindow.distance(endIndex, lastSequenceId) > 0) {
+				endIndex = lastSequenceId; // Never sent, cannot be lost
+			}
+			for (int sequenceId = recoveryQueue.next(record.getIndex()); SendWindow.distance(sequenceId, endIndex) <= 0
+					&& recoveryQueue.contains(sequenceId); sequenceId = recoveryQueue.next(sequenceId + 1)) {
+				congestionController.onLoss(currentTime, recoveryQueue.getSendTime(sequenceId),
+						recoveryQueue.getSize(sequenceId), false);
+				this.resend(sequenceId);
+			}
+		}
+	}
+
+	/**
+	 * Resends the messages of the datagram with the specified sequence number
+	 * in a new datagram, which takes its place in the recovery queue.
+	 * 
+	 * @param sequenceId
+	 *            the sequence number of the datagram.
+	 */
+	private final void resend(int sequenceId) {
+		int resendCount = recoveryQueue.getResendCount(sequenceId);
+		this.sendCustomPacket(resendCount + 1, recoveryQueue.remove(sequenceId));
+	}
+
+	/**
+	 * Handles an {@link AcknowledgedPacket ACK} packet.
+	 * 
+	 * @param packet
+	 *            the packet to handle.
+	 */
+	private final void handleAcknowledged(RakNetPacket packet) {
+		AcknowledgedPacket acknowledged = new AcknowledgedPacket(packet);
+		acknowledged.decode();
+		boolean windowOpen = this.isSendWindowOpen();
+		long currentTime = System.currentTimeMillis();
+		long lastSendTime = -1L;
+		for (Record record : acknowledged.records) {
+			int endIndex = record.getIndex() + record.size() - 1;
+			ackReceipts.removeRange(record.getIndex(), endIndex, receipts -> {
+				for (EncapsulatedPacket encapsulated : receipts) {
+					if (encapsulated.ackRecord == null) {
+						continue; // Already reported for an earlier transmission
+					}
+					this.onAcknowledge(encapsulated.ackRecord, encapsulated);
+					encapsulated.ackRecord = null;
+					if (!encapsulated.reliability.isReliable()) {
+						encapsulated.payload.release();
+					}
+				}
+			});
+			for (int sequenceId = recoveryQueue.next(record.getIndex()); SendWindow.distance(sequenceId, endIndex) <= 0
+					&& recoveryQueue.contains(sequenceId); sequenceId = recoveryQueue.next(sequenceId + 1)) {
+				long sendTime = recoveryQueue.getSendTime(sequenceId);
+				int size = recoveryQueue.getSize(sequenceId);
+				for (EncapsulatedPacket encapsulated : recoveryQueue.remove(sequenceId)) {
+					encapsulated.payload.release(); // No longer needed
+				}
+				congestionController.onAcknowledge(currentTime, sendTime, size, recoveryQueue.getBytes());
+				lastSendTime = Math.max(lastSendTime, sendTime);
+			}
+		}
+		if (lastSendTime >= 0) {
+			this.updateRoundTripTime(currentTime - lastSendTime);
+		}
+		if (windowOpen == false && !sendQueue.isEmpty() && this.isSendWindowOpen()) {
+			this.wakeup(); // Queued messages can be sent again
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace("Handled ACK packet with " + acknowledged.records.length + " record"
+					+ (acknowledged.records.length == 1 ? "" : "s") + " " + Arrays.toString(acknowledged.records));
+		}
+	}
+
+	/**
+	 * Handles an {@link EncapsulatedPacket}.
+	 * 
+	 * @param encapsulated
+	 *            the encapsulated packet.
+	 * @throws NullPointerException
+	 *             if the <code>encapsulated</code> packet is <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel of the <code>encapsulated</code> packet is
+	 *             greater than or equal to {@value RakNet#CHANNEL_COUNT}.
+	 * @throws SplitQueueOverflowException
+	 *             if the <code>encapsulated</code> packet is split, and adding
+	 *             it to the split queue would cause it to overflow.
+	 * @throws OrderQueueOverflowException
+	 *             if the <code>encapsulated</code> packet is ordered and
+	 *             arrived too far ahead of the next ordered packet to be
+	 *             handled on its channel.
+	 */
+	private final void handleEncapsulated(EncapsulatedPacket encapsulated)
+			throws InvalidChannelException, SplitQueueOverflowException, OrderQueueOverflowException {
+		if (encapsulated == null) {
+			throw new NullPointerException("Encapsulated packet cannot be null");
+		} else if (encapsulated.orderChannel >= RakNet.CHANNEL_COUNT) {
+			encapsulated.payload.release();
+			throw new InvalidChannelException(encapsulated.orderChannel);
+		} else if (encapsulated.split == true) {
+			if (encapsulated.splitCount > maximumSplitCount) {
+				encapsulated.payload.release();
+				throw new SplitQueueOverflowException();
+			}
+
+			/*
+			 * If the chunk would cause the split queue to hold more bytes than
+			 * allowed, remove all unreliable split packets. If the split queue
+			 * is still too big, the chunk is dropped if it is unreliable, as
+			 * it is allowed to be lost. Otherwise, the queue has been
+			 * overloaded.
+			 */
+			int size = encapsulated.payload.buffer().readableBytes();
+			if (splitBytes + size > maximumSplitBytes) {
+				this.evictSplits("holding too many bytes");
+				if (splitBytes + size > maximumSplitBytes) {
+					if (!encapsulated.reliability.isReliable()) {
+						encapsulated.payload.release();
+						return; // Dropped
+					}
+					this.discardSplit(encapsulated);
+					throw new SplitQueueOverflowException();
+				}
+			}
+
+			EncapsulatedPacket.Split split = splitQueue.get(encapsulated.splitId);
+			if (split == null) {
+				split = new EncapsulatedPacket.Split(encapsulated.splitId, encapsulated.splitCount,
+						encapsulated.reliability, maximumSplitCount);
+				splitQueue.put(encapsulated.splitId, split);
+
+				/*
+				 * If the split queue is greater than the maximum amount of
+				 * packets that can be split, remove all unreliable split
+				 * packets. If the split queue is still too big, then the queue
+				 * has been overloaded.
+				 */
+				if (splitQueue.size() > maximumSplits) {
+					this.evictSplits("having too many split packets");
+					if (splitQueue.size() > maximumSplits) {
+						this.discardSplit(encapsulated);
+						throw new SplitQueueOverflowException();
+					}
+					if (!splitQueue.containsKey(encapsulated.splitId)) {
+						encapsulated.payload.release();
+						return; // Evicted
+					}
+				}
+			}
+			EncapsulatedPacket stitched = null;
+			try {
+				stitched = split.update(encapsulated, lastPacketReceiveTime);
+			} catch (IllegalArgumentException e) {
+				encapsulated.payload.release(); // Does not belong to the split
+				throw e;
+			}
+			this.addSplitBytes(size);
+			if (stitched != null) {
+				splitQueue.remove(encapsulated.splitId);
+				this.addSplitBytes(-split.getSize());
+				this.handleEncapsulated(stitched);
+			}
+		} else {
+			/*
+			 * Determine if the message should be handled based on its
+			 * reliability.
+			 * 
+			 * If the message is ordered, only handle it when all the messages
+			 * before it on the channel have also been received and are ready to
+			 * be handled.
+			 * 
+			 * If the message is sequenced, only handle it if it is the newest
+			 * packet on the channel.
+			 * 
+			 * If the message is neither ordered nor sequenced, then it is
+			 * handled regardless.
+			 */
+			if (encapsulated.reliability.isOrdered()) {
+				OrderWindow orderWindow = orderWindows[encapsulated.orderChannel];
+				if (orderWindow == null) {
+					orderWindow = orderWindows[encapsulated.orderChannel] = new OrderWindow();
+				}
+				if (orderWindow.add(encapsulated, orderWindowSize) == false) {
+					encapsulated.payload.release(); // Already received
+				}
+				EncapsulatedPacket ordered = null;
+				while ((ordered = orderWindow.poll()) != null) {
+					this.handleMessage0(encapsulated.orderChannel, new RakNetPacket(ordered.payload));
+				}
+			} else if (encapsulated.reliability.isSequenced()
+					&& encapsulated.orderIndex > sequenceReceiveIndex[encapsulated.orderChannel]) {
+				sequenceReceiveIndex[encapsulated.orderChannel] = encapsulated.orderIndex;
+				this.handleMessage0(encapsulated.orderChannel, new RakNetPacket(encapsulated.payload));
+			} else {
+				this.handleMessage0(encapsulated.orderChannel, new RakNetPacket(encapsulated.payload));
+			}
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace("Handled " + (encapsulated.split ? "split " : "") + "encapsulated packet with "
+					+ encapsulated.reliability + " reliability on channel " + encapsulated.orderChannel);
+		}
+	}
+
+	/**
+	 * Handles an internal packet.
+	 * <p>
+	 * If the ID is unrecognized it is passed on to the extending peer class via
+	 * the {@link #handleMessage(RakNetPacket, int)} method.
+	 * 
+	 * @param channel
+	 *            the channel the packet was sent on.
+	 * @param packet
+	 *            the packet.
+	 * @throws InvalidChannelException
+	 *             if the <code>channel</code> is greater than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 * @throws NullPointerException
+	 *             if the <code>packet</code> is <code>null</code>.
 	 */
 	private final void handleMessage0(int channel, RakNetPacket packet)
 			throws InvalidChannelException, NullPointerException {
@@ -793,60 +1903,201 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		} else if (packet == null) {
 			throw new NullPointerException("Packet cannot be null");
 		}
-		if (packet.getId() == ID_CONNECTED_PING) {
+		short id = packet.getId();
+		switch (id) {
+		case ID_CONNECTED_PING:
 			ConnectedPing ping = new ConnectedPing(packet);
 			ping.decode();
 			ConnectedPong pong = new ConnectedPong();
 			pong.timestamp = ping.timestamp;
 			pong.timestampPong = this.getTimestamp();
 			pong.encode();
-			this.sendMessage(Reliability.UNRELIABLE, pong);
-		} else if (packet.getId() == ID_CONNECTED_PONG) {
-			ConnectedPong pong = new ConnectedPong(packet);
-			pong.decode();
-
-			// Calculate latency
-			if (latencyEnabled == true && latencyTimestamps.contains(pong.timestamp)) {
-				latencyTimestamps.remove(pong.timestamp);
-				long responseTime = lastPacketReceiveTime - lastPingSendTime;
-				this.lastLatency = responseTime;
-				if (this.pongsReceived == 0) {
-					this.lowestLatency = responseTime;
-					this.highestLatency = responseTime;
-				} else if (responseTime < lowestLatency) {
-					this.lowestLatency = responseTime;
-				} else if (responseTime > highestLatency) {
-					this.highestLatency = responseTime;
+			this.sendMessage(PacketPriority.IMMEDIATE, Reliability.UNRELIABLE, pong);
+			break;
+		case ID_CONNECTED_PONG:
+			this.handleConnectedPong(packet);
+			break;
+		default:
+			/*
+			 * Ownership of the payload is passed on to the registered message
+			 * handler if there is one, or the extending peer class otherwise.
+			 * Unless zero-copy payloads are enabled, it is given a heap copy
+			 * instead so the payload does not have to be released by the
+			 * handler or the listeners that receive it.
+			 */
+			if (zeroCopyPayloads == false) {
+				ByteBuf buffer = packet.buffer();
+				ByteBuf copy = Unpooled.buffer(buffer.writerIndex());
+				copy.writeBytes(buffer, 0, buffer.writerIndex());
+				packet.release();
+				packet = new RakNetPacket(copy);
+			}
+			if ((!inputStreams.isEmpty() || !outputStreams.isEmpty()) && this.handleStream(packet, channel)) {
+				packet = null; // Owned by the stream
+				break;
+			}
+			MessageRegistry messageRegistry = this.messageRegistry;
+			MessageHandler<RakNetPacket> handler = messageRegistry != null ? messageRegistry.getHandler(id) : null;
+			if (handler != null) {
+				handler.handleMessage(this, packet, channel);
+			} else {
+				this.handleMessage(packet, channel);
+			}
+			packet = null; // No longer owned
+			break;
+		}
+		if (packet != null) {
+			packet.release();
+		}
+		this.flush();
+		if (logger.isTraceEnabled()) {
+			logger.trace("Handled " + RakNetPacket.getName(id) + " packet");
+		}
+	}
+
+	/**
+	 * Passes a message on to the stream it belongs to.
+	 * 
+	 * @param packet
+	 *            the message.
+	 * @param channel
+	 *            the channel the message was sent on.
+	 * @return <code>true</code> if the message belonged to an open stream and
+	 *         ownership of it was taken, <code>false</code> otherwise.
+	 */
+	private final boolean handleStream(RakNetPacket packet, int channel) {
+		if (packet.remaining() < 1) {
+			return false; // Not a stream message
+		}
+		ByteBuf buffer = packet.buffer();
+		int type = buffer.getUnsignedByte(buffer.readerIndex());
+		int key = StreamMessage.key(packet.getId(), channel);
+		if (type == StreamMessage.DATA || type == StreamMessage.END) {
+			MessageInputStream stream = inputStreams.get(key);
+			if (stream == null) {
+				return false;
+			}
+			buffer.skipBytes(1);
+			if (type == StreamMessage.DATA) {
+				if (stream.offer(buffer) == false) {
+					logger.warn("Peer sent more " + RakNetPacket.getName(packet.getId())
+							+ " stream data than it was given credit for on channel " + channel);
 				}
-				this.totalLatency += responseTime;
-				this.latency = totalLatency / ++pongsReceived;
+			} else {
+				packet.release();
+				inputStreams.remove(key);
+				stream.end();
+			}
+			return true;
+		} else if (type == StreamMessage.CREDIT || type == StreamMessage.CLOSE) {
+			MessageOutputStream stream = outputStreams.get(key);
+			if (stream == null) {
+				return false;
+			}
+			buffer.skipBytes(1);
+			if (type == StreamMessage.CREDIT) {
+				stream.grant(packet.remaining() >= 4 ? packet.readInt() : 0);
+			} else {
+				outputStreams.remove(key);
+				stream.cancel();
+			}
+			packet.release();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Accepts a stream opened by the peer, passing it on to the specified
+	 * handler.
+	 * <p>
+	 * This is called by the handlers registered with
+	 * {@link MessageRegistry#registerStream(int, StreamHandler)}, which are
+	 * given every message with their ID that does not belong to a stream that
+	 * is already open. These are either messages opening a new stream, or
+	 * messages for a stream that has already been forgotten, which are
+	 * discarded.
+	 * 
+	 * @param packet
+	 *            the message.
+	 * @param channel
+	 *            the channel the message was sent on.
+	 * @param handler
+	 *            the handler to pass the stream on to.
+	 */
+	final void acceptStream(RakNetPacket packet, int channel, StreamHandler handler) {
+		MessageInputStream stream = null;
+		try {
+			if (packet.remaining() < 1 || packet.readUnsignedByte() != StreamMessage.OPEN) {
+				logger.debug("Discarded " + RakNetPacket.getName(packet.getId())
+						+ " stream message for a stream that is not open on channel " + channel);
+				return;
+			}
+			stream = new MessageInputStream(this, packet.getId(), channel, streamWindowSize);
+			MessageInputStream previous = inputStreams.put(StreamMessage.key(packet.getId(), channel), stream);
+			if (previous != null) {
+				previous.fail(new IOException("Stream was opened again before it ended"));
+			}
+			stream.open();
+		} finally {
+			packet.release();
+		}
+		logger.debug("Accepted " + RakNetPacket.getName(stream.getId()) + " stream on channel " + channel);
+		handler.handleStream(this, stream, channel);
+	}
+
+	/**
+	 * Handles a {@link ConnectedPong CONNECTED_PONG} packet, updating the
+	 * latency information of the peer.
+	 * 
+	 * @param packet
+	 *            the packet to handle.
+	 */
+	private final void handleConnectedPong(RakNetPacket packet) {
+		ConnectedPong pong = new ConnectedPong(packet);
+		pong.decode();
+
+		// Calculate latency
+		if (latencyEnabled == true && latencyTimestamps.contains(pong.timestamp)) {
+			latencyTimestamps.remove(pong.timestamp);
+			long responseTime = lastPacketReceiveTime - lastPingSendTime;
+			this.lastLatency = responseTime;
+			if (this.pongsReceived == 0) {
+				this.lowestLatency = responseTime;
+				this.highestLatency = responseTime;
+			} else if (responseTime < lowestLatency) {
+				this.lowestLatency = responseTime;
+			} else if (responseTime > highestLatency) {
+				this.highestLatency = responseTime;
+			}
+			this.totalLatency += responseTime;
+			this.latency = totalLatency / ++pongsReceived;
+			if (logger.isTraceEnabled()) {
 				logger.trace("Updated latency information (last latency timestamp: " + lastLatency
 						+ ", lowest latency: " + lowestLatency + ", highest latency: " + highestLatency
 						+ ", total latency: " + totalLatency + ", pongs received: " + pongsReceived
 						+ ", average latency: " + latency + ")");
 			}
+		}
 
-			// Clear overdue ping responses
-			long currentTimestamp = this.getTimestamp();
-			Iterator<Long> timestampI = latencyTimestamps.iterator();
-			while (timestampI.hasNext()) {
-				long timestamp = timestampI.next().longValue();
-				if (currentTimestamp - timestamp >= PEER_TIMEOUT || latencyTimestamps.size() > 10) {
-					timestampI.remove();
-					logger.debug("Cleared overdue ping response with timestamp " + timestamp);
-				}
+		// Clear overdue ping responses
+		long currentTimestamp = this.getTimestamp();
+		Iterator<Long> timestampI = latencyTimestamps.iterator();
+		while (timestampI.hasNext()) {
+			long timestamp = timestampI.next().longValue();
+			if (currentTimestamp - timestamp >= PEER_TIMEOUT || latencyTimestamps.size() > 10) {
+				timestampI.remove();
+				logger.debug("Cleared overdue ping response with timestamp " + timestamp);
 			}
-		} else {
-			this.handleMessage(packet, channel);
 		}
-		logger.trace("Handled " + RakNetPacket.getName(packet) + "packet");
 	}
 
 	/**
 	 * Sends a message over the channel raw.
 	 * <p>
 	 * This will automatically update the <code>lastPacketSendTime</code> and
-	 * <code>packetsSentThisSecond</code> variable.
+	 * <code>packetsSentThisSecond</code> variable, and take the datagram out
+	 * of the send rate.
 	 * 
 	 * @param buf
 	 *            the buffer.
@@ -857,7 +2108,16 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		if (buf == null) {
 			throw new NullPointerException("Buffer cannot be null");
 		}
-		channel.writeAndFlush(new DatagramPacket(buf, address));
+		int size = buf.readableBytes();
+		PeerScheduler scheduler = this.scheduler;
+		if (writeBatchSize > 1 && (scheduler == null || scheduler.inPeerThread(this))) {
+			channel.write(new DatagramPacket(buf, address));
+			if (++pendingWrites >= writeBatchSize) {
+				this.flush();
+			}
+		} else {
+			channel.writeAndFlush(new DatagramPacket(buf, address));
+		}
 		long currentTime = System.currentTimeMillis();
 		if (currentTime - lastPacketsSentThisSecondResetTime >= 1000L) {
 			this.packetsSentThisSecond = 0;
@@ -865,8 +2125,27 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		}
 		this.lastPacketSendTime = currentTime;
 		this.packetsSentThisSecond++;
-		logger.trace("Sent netty message with size of " + buf.capacity() + " bytes (" + (buf.capacity() * 8)
-				+ " bits) to " + address);
+		long time = System.nanoTime();
+		packetBucket.consume(1L, time);
+		byteBucket.consume(size, time);
+		if (logger.isTraceEnabled()) {
+			logger.trace("Sent netty message with size of " + buf.capacity() + " bytes (" + (buf.capacity() * 8)
+					+ " bits) to " + address);
+		}
+	}
+
+	/**
+	 * Flushes all datagrams that have been written to the channel but not yet
+	 * flushed due to {@link #setWriteBatchSize(int) write batching}.
+	 * <p>
+	 * This is called automatically after the peer has been updated or has
+	 * handled a packet.
+	 */
+	public final void flush() {
+		if (pendingWrites > 0) {
+			channel.flush();
+			this.pendingWrites = 0;
+		}
 	}
 
 	/**
@@ -891,13 +2170,16 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 * Sends a {@link CustomFourPacket} to the peer with the specified
 	 * {@link EncapsulatedPacket encapsulated packets}.
 	 * 
-	 * @param updateRecoveryQueue
-	 *            <code>true</code> if the the encapsulated packets should be
-	 *            stored in the recovery queue for later, <code>false</code>
-	 *            otherwise. This should only be <code>true</code> when sending
-	 *            a group of packets for the first time, rather than resending
-	 *            old data that the peer has reported to be lost in
-	 *            transmission.
+	 * <p>
+	 * The reliable messages in the packet are stored in the recovery queue
+	 * until the peer acknowledges them, and the payloads of the other messages
+	 * are released once the packet has been sent.
+	 * 
+	 * @param resendCount
+	 *            how many times the messages have been resent. This should
+	 *            only be <code>0</code> when sending a group of packets for the
+	 *            first time, rather than resending old data that the peer has
+	 *            reported to be lost in transmission.
 	 * @param messages
 	 *            the packets to send.
 	 * @return the sequence number of the {@link CustomFourPacket}.
@@ -906,7 +2188,7 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 * @throws IllegalArgumentException
 	 *             if the <code>messages</code> array is empty.
 	 */
-	private final int sendCustomPacket(boolean updateRecoveryQueue, EncapsulatedPacket... messages)
+	private final int sendCustomPacket(int resendCount, EncapsulatedPacket... messages)
 			throws NullPointerException, IllegalArgumentException {
 		if (messages == null) {
 			throw new NullPointerException("Messages cannot be null");
@@ -915,42 +2197,70 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		}
 
 		// Encode custom packet
-		CustomFourPacket custom = new CustomFourPacket();
-		custom.sequenceId = this.sendSequenceNumber++;
+		CustomFourPacket custom = new CustomFourPacket(maximumTransferUnit);
+		custom.sequenceId = this.sendSequenceNumber;
+		this.sendSequenceNumber = (sendSequenceNumber + 1) & SendWindow.SEQUENCE_MASK;
 		custom.messages = messages;
 		custom.encode();
 
 		// Save packets that require acknowledgement receipts for later
-		for (EncapsulatedPacket packet : custom.ackMessages) {
-			EncapsulatedPacket clone = packet.getClone();
-			if (!clone.reliability.requiresAck()) {
-				throw new IllegalArgumentException("Invalid reliability " + packet.reliability);
+		if (custom.ackMessages.length > 0) {
+			EncapsulatedPacket[] receipts = new EncapsulatedPacket[custom.ackMessages.length];
+			for (int i = 0; i < receipts.length; i++) {
+				EncapsulatedPacket packet = custom.ackMessages[i];
+				EncapsulatedPacket clone = packet.getClone();
+				if (!clone.reliability.requiresAck()) {
+					throw new IllegalArgumentException("Invalid reliability " + packet.reliability);
+				}
+				clone.ackRecord = packet.ackRecord;
+				receipts[i] = clone;
 			}
-			clone.ackRecord = packet.ackRecord;
-			ackReceiptPackets.put(clone, clone.ackRecord.getIndex());
+			ackReceipts.put(custom.sequenceId, receipts);
 		}
 
 		// Send packet
+		int size = custom.size();
 		this.sendNettyMessage(custom);
-		if (updateRecoveryQueue == true) {
-			ArrayList<EncapsulatedPacket> reliable = new ArrayList<EncapsulatedPacket>();
-			for (EncapsulatedPacket packet : custom.messages) {
-				if (packet.reliability.isReliable()) {
-					reliable.add(packet);
+		int reliableCount = 0;
+		for (EncapsulatedPacket packet : custom.messages) {
+			if (packet.reliability.isReliable()) {
+				reliableCount++;
+			}
+		}
+		if (reliableCount > 0) {
+			EncapsulatedPacket[] reliable = custom.messages;
+			if (reliableCount < reliable.length) {
+				reliable = new EncapsulatedPacket[reliableCount];
+				int index = 0;
+				for (EncapsulatedPacket packet : custom.messages) {
+					if (packet.reliability.isReliable()) {
+						reliable[index++] = packet;
+					}
 				}
 			}
-			if (reliable.size() > 0) {
-				recoveryQueue.put(custom.sequenceId, reliable.toArray(new EncapsulatedPacket[reliable.size()]));
+			long currentTime = System.currentTimeMillis();
+			recoveryQueue.add(custom.sequenceId, reliable, size, currentTime, resendCount);
+			congestionController.onSend(currentTime, size, recoveryQueue.getBytes());
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace("Sent custom packet containing " + custom.messages.length + " encapsulated packet"
+					+ (custom.messages.length == 1 ? "" : "s") + " with sequence number " + custom.sequenceId);
+			for (int i = 0; i < custom.messages.length; i++) {
+				if (custom.messages[i].payload.size() > 0) {
+					logger.trace("\tID of packet " + i + ": "
+							+ RakNetPacket.getName(custom.messages[i].payload.buffer().getUnsignedByte(0)));
+				} else {
+					logger.trace("\tID packet " + i + ": none (payload length is 0)");
+				}
 			}
 		}
-		logger.trace("Sent custom packet containing " + custom.messages.length + " encapsulated packet"
-				+ (custom.messages.length == 1 ? "" : "s") + " with sequence number " + custom.sequenceId);
-		for (int i = 0; i < custom.messages.length; i++) {
-			if (custom.messages[i].payload.size() > 0) {
-				logger.trace("\tID of packet " + i + ": "
-						+ RakNetPacket.getName(custom.messages[i].payload.array()[0] & 0xFF));
-			} else {
-				logger.trace("\tID packet " + i + ": none (payload length is 0)");
+
+		// Release payloads that will never be sent again
+		if (reliableCount < custom.messages.length) {
+			for (EncapsulatedPacket packet : custom.messages) {
+				if (!packet.reliability.isReliable() && !packet.reliability.requiresAck()) {
+					packet.payload.release();
+				}
 			}
 		}
 		return custom.sequenceId;
@@ -959,7 +2269,9 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	/**
 	 * Sends an
 	 * {@link com.whirvis.jraknet.protocol.message.acknowledge.AcknowledgedPacket
-	 * ACK} packet with the specified {@link Record records}.
+	 * ACK} packet with the specified {@link Record records}. If the records do
+	 * not fit inside of a single packet, they are split across as many packets
+	 * as needed.
 	 * 
 	 * @param acknowledge
 	 *            <code>true</code> if the records inside the packet are
@@ -979,23 +2291,125 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		} else if (records.length <= 0) {
 			throw new IllegalArgumentException("There must be a record to send");
 		}
-		AcknowledgedPacket acknowledged = acknowledge == true ? new AcknowledgedPacket() : new NotAcknowledgedPacket();
-		acknowledged.records = records;
-		acknowledged.encode();
-		this.sendNettyMessage(acknowledged);
-		logger.trace("Sent " + acknowledged.records.length + " record" + (acknowledged.records.length == 1 ? "" : "s")
-				+ " in " + (acknowledged.isAcknowledgement() ? "ACK" : "NACK") + " packet");
+		records = Record.condense(records);
+		int maximumRecords = (maximumTransferUnit - ACKNOWLEDGE_HEADER_SIZE) / ACKNOWLEDGE_RECORD_SIZE;
+		for (int i = 0; i < records.length; i += maximumRecords) {
+			AcknowledgedPacket acknowledged = acknowledge == true ? new AcknowledgedPacket()
+					: new NotAcknowledgedPacket();
+			acknowledged.records = Arrays.copyOfRange(records, i, Math.min(i + maximumRecords, records.length));
+			acknowledged.encode();
+			this.sendNettyMessage(acknowledged);
+			if (logger.isTraceEnabled()) {
+				logger.trace("Sent " + acknowledged.records.length + " record"
+						+ (acknowledged.records.length == 1 ? "" : "s") + " in "
+						+ (acknowledged.isAcknowledgement() ? "ACK" : "NACK") + " packet");
+			}
+		}
+	}
+
+	/**
+	 * Sends the acknowledgements that have been held back, along with the
+	 * sequence numbers that were skipped over and are still missing.
+	 */
+	private final void sendAcknowledgements() {
+		Record[] acknowledged = receiveWindow.pollAcknowledged();
+		Record[] notAcknowledged = receiveWindow.pollNotAcknowledged();
+		if (acknowledged.length > 0) {
+			this.sendAcknowledge(true, acknowledged);
+		}
+		if (notAcknowledged.length > 0) {
+			this.sendAcknowledge(false, notAcknowledged);
+		}
+		this.acknowledgeTime = -1L;
+	}
+
+	/**
+	 * Opens a stream to the peer.
+	 * <p>
+	 * Data written to the stream is sent to the peer in messages with the
+	 * specified ID, which the peer must have registered a
+	 * {@link StreamHandler} for with
+	 * {@link MessageRegistry#registerStream(int, StreamHandler)}. Only one
+	 * stream can be open with the same ID on the same channel at once, and
+	 * the channel should not be used for anything else while the stream is
+	 * open, as the stream data is ordered along with the other messages on
+	 * the channel.
+	 * <p>
+	 * The stream can send data once the peer has given it credit, which
+	 * takes a round trip. It is forgotten once it has been closed by both
+	 * ends, after which another stream can be opened with the same ID on the
+	 * same channel.
+	 * 
+	 * @param id
+	 *            the ID of the stream messages.
+	 * @param channel
+	 *            the channel to send the stream on.
+	 * @return the stream.
+	 * @throws IllegalArgumentException
+	 *             if the <code>id</code> is not in between
+	 *             <code>ID_USER_PACKET_ENUM</code> and <code>255</code>.
+	 * @throws InvalidChannelException
+	 *             if the <code>channel</code> is greater than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 * @throws IllegalStateException
+	 *             if the peer is disconnected, or a stream is already open
+	 *             with the same ID on the same channel.
+	 */
+	public final MessageOutputStream openStream(int id, int channel)
+			throws IllegalArgumentException, InvalidChannelException, IllegalStateException {
+		if (id < ID_USER_PACKET_ENUM || id > 0xFF) {
+			throw new IllegalArgumentException("ID must be in between ID_USER_PACKET_ENUM and 255");
+		} else if (channel >= RakNet.CHANNEL_COUNT) {
+			throw new InvalidChannelException(channel);
+		}
+		int chunkSize = maximumTransferUnit - CustomPacket.MINIMUM_SIZE
+				- EncapsulatedPacket.size(Reliability.RELIABLE_ORDERED, false) - StreamMessage.HEADER_SIZE;
+		MessageOutputStream stream = new MessageOutputStream(this, id, channel, chunkSize);
+		int key = StreamMessage.key(id, channel);
+		if (outputStreams.putIfAbsent(key, stream) != null) {
+			throw new IllegalStateException("A stream is already open with the same ID on channel " + channel);
+		} else if (this.isDisconnected()) {
+			outputStreams.remove(key, stream);
+			throw new IllegalStateException("Peer disconnected");
+		}
+		stream.open();
+		logger.debug("Opened " + RakNetPacket.getName(id) + " stream on channel " + channel);
+		return stream;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If this is called from a thread other than the one that owns the peer,
+	 * the message is handed off to the owning thread to be queued. In this
+	 * case, the message and order indexes of the returned encapsulated packet
+	 * are only assigned once the message has been queued.
+	 * <p>
+	 * The peer takes ownership of the <code>packet</code>, and releases it
+	 * once it has been sent, or once it has been acknowledged if it is
+	 * reliable. To send the same packet more than once, it must be
+	 * {@link Packet#retain() retained} before every extra send. The payload
+	 * of the returned encapsulated packet must not be read after this.
+	 * <p>
+	 * A packet whose buffer has already been released is rejected with an
+	 * {@link IllegalReferenceCountException}. This only catches a packet that
+	 * was sent again without being retained if its buffer has not been handed
+	 * out again by a pooled allocator in the meantime, so it is not a
+	 * substitute for retaining it.
+	 */
 	@Override
-	public final EncapsulatedPacket sendMessage(Reliability reliability, int channel, Packet packet)
-			throws NullPointerException, InvalidChannelException {
-		if (reliability == null) {
+	public final EncapsulatedPacket sendMessage(PacketPriority priority, Reliability reliability, int channel,
+			Packet packet) throws NullPointerException, InvalidChannelException {
+		if (priority == null) {
+			throw new NullPointerException("Priority cannot be null");
+		} else if (reliability == null) {
 			throw new NullPointerException("Reliability cannot be null");
 		} else if (packet == null) {
 			throw new NullPointerException("Packet cannot be null");
 		} else if (channel >= RakNet.CHANNEL_COUNT) {
 			throw new InvalidChannelException(channel);
+		} else if (packet.buffer().refCnt() <= 0) {
+			throw new IllegalReferenceCountException(0);
 		}
 
 		// Generate encapsulated packet
@@ -1003,39 +2417,193 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		encapsulated.reliability = reliability;
 		encapsulated.orderChannel = (byte) channel;
 		encapsulated.payload = packet;
+
+		/*
+		 * Return a copy of the encapsulated packet as if a single variable is
+		 * modified in the encapsulated packet before it is sent, the
+		 * communication with the peer could cease to function entirely.
+		 */
+		EncapsulatedPacket clone = encapsulated.getClone();
+		PeerScheduler scheduler = this.scheduler;
+		if (scheduler != null && !scheduler.inPeerThread(this)) {
+			scheduler.execute(this, () -> this.queueMessage(priority, encapsulated));
+		} else {
+			this.queueMessage(priority, encapsulated);
+		}
+		return clone;
+	}
+
+	/**
+	 * Assigns the indexes of an {@link EncapsulatedPacket} and adds it to the
+	 * send queue, splitting it if necessary.
+	 * <p>
+	 * This must only be called by the thread that owns the peer, as the
+	 * indexes must be assigned in the same order the packets are queued.
+	 * Packets with the {@link PacketPriority#IMMEDIATE IMMEDIATE} priority
+	 * are sent right away, rather than once the peer is next updated.
+	 * Packets queued after the peer has been disconnected are dropped.
+	 * 
+	 * @param priority
+	 *            the priority of the encapsulated packet.
+	 * @param encapsulated
+	 *            the encapsulated packet.
+	 */
+	private final void queueMessage(PacketPriority priority, EncapsulatedPacket encapsulated) {
+		if (closed == true) {
+			encapsulated.payload.release(); // Will never be sent
+			return;
+		}
+		Reliability reliability = encapsulated.reliability;
+		int channel = encapsulated.orderChannel;
 		if (reliability.isReliable()) {
 			encapsulated.messageIndex = this.bumpMessageIndex();
-			logger.trace("Bumped message index from " + encapsulated.messageIndex + " to " + messageIndex);
+			if (logger.isTraceEnabled()) {
+				logger.trace("Bumped message index from " + encapsulated.messageIndex + " to " + messageIndex);
+			}
 		}
 		if (reliability.isOrdered() || reliability.isSequenced()) {
 			encapsulated.orderIndex = reliability.isOrdered() ? orderSendIndex[channel]++
 					: sequenceSendIndex[channel]++;
-			logger.trace("Bumped " + (reliability.isOrdered() ? "order" : "sequence") + " index from "
-					+ ((reliability.isOrdered() ? orderSendIndex[channel] : sequenceSendIndex[channel]) - 1) + " to "
-					+ (reliability.isOrdered() ? orderSendIndex[channel] : sequenceSendIndex[channel]) + " on channel "
-					+ channel);
+			if (logger.isTraceEnabled()) {
+				logger.trace("Bumped " + (reliability.isOrdered() ? "order" : "sequence") + " index from "
+						+ ((reliability.isOrdered() ? orderSendIndex[channel] : sequenceSendIndex[channel]) - 1)
+						+ " to " + (reliability.isOrdered() ? orderSendIndex[channel] : sequenceSendIndex[channel])
+						+ " on channel " + channel);
+			}
 		}
+		EncapsulatedPacket clone = encapsulated.getClone();
+		clone.messageIndex = encapsulated.messageIndex;
+		clone.orderIndex = encapsulated.orderIndex;
 
 		// Add to send queue
 		if (encapsulated.needsSplit(this)) {
 			encapsulated.splitId = ++this.splitId % 65536;
 			for (EncapsulatedPacket split : encapsulated.split(this)) {
-				sendQueue.add(split);
+				sendQueue.add(priority, split);
 			}
+			encapsulated.payload.release(); // Referenced by the split packets
 			logger.trace("Split encapsulated packet and added it to the send queue");
 		} else {
-			sendQueue.add(encapsulated);
+			sendQueue.add(priority, encapsulated);
 			logger.trace("Added encapsulated packet to the send queue");
 		}
-		logger.trace("Sent packet with size of " + packet.size() + " bytes (" + (packet.size() * 8)
-				+ " bits) with reliability " + reliability + " on channel " + channel);
+		if (priority == PacketPriority.IMMEDIATE) {
+			this.sendQueued(false);
+			this.flush();
+		} else {
+			this.wakeup();
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace("Sent packet with size of " + encapsulated.payload.size() + " bytes ("
+					+ (encapsulated.payload.size() * 8) + " bits) with reliability " + reliability + " and priority "
+					+ priority + " on channel " + channel);
+		}
+	}
 
-		/*
-		 * Return a copy of the encapsulated packet as if a single variable is
-		 * modified in the encapsulated packet before it is sent, the
-		 * communication with the peer could cease to function entirely.
-		 */
-		return encapsulated.getClone();
+	/**
+	 * Sends as many datagrams from the send queue as the send window,
+	 * congestion window and send rate allow.
+	 * 
+	 * @param force
+	 *            <code>true</code> if the datagrams should be sent regardless
+	 *            of the send window, congestion window and send rate,
+	 *            <code>false</code> otherwise.
+	 */
+	private final void sendQueued(boolean force) {
+		this.updateSendRates(System.nanoTime());
+		while (!sendQueue.isEmpty() && (force == true
+				|| (this.isSendWindowOpen() && this.getSendDelay(System.nanoTime()) <= 0))) {
+			EncapsulatedPacket[] send = sendQueue.poll(maximumTransferUnit - CustomPacket.MINIMUM_SIZE,
+					SEND_PACKING_DEPTH);
+			if (send.length <= 0) {
+				break; // Next packet does not fit in a datagram
+			}
+			this.sendCustomPacket(0, send);
+		}
+	}
+
+	/**
+	 * Adds to the amount of payload bytes held by the split packets of the
+	 * peer, as well as those held by the split packets of every peer.
+	 * 
+	 * @param bytes
+	 *            the amount of bytes to add, negative to subtract.
+	 */
+	private final void addSplitBytes(long bytes) {
+		this.splitBytes += bytes;
+		TOTAL_SPLIT_BYTES.addAndGet(bytes);
+	}
+
+	/**
+	 * Removes all unreliable split packets from the split queue.
+	 * 
+	 * @param reason
+	 *            the reason the split packets are being removed.
+	 */
+	private final void evictSplits(String reason) {
+		Iterator<EncapsulatedPacket.Split> splitQueueI = splitQueue.values().iterator();
+		int removeCount = 0;
+		while (splitQueueI.hasNext()) {
+			EncapsulatedPacket.Split split = splitQueueI.next();
+			if (!split.getReliability().isReliable()) {
+				this.addSplitBytes(-split.getSize());
+				split.release();
+				splitQueueI.remove();
+				removeCount++;
+			}
+		}
+		if (removeCount > 0) {
+			logger.warn("Removed " + removeCount + " unreliable packet" + (removeCount == 1 ? "" : "s")
+					+ " from the split queue due to it " + reason);
+		}
+	}
+
+	/**
+	 * Releases a split chunk that has been rejected, along with the chunks
+	 * of the same split packet that were received before it, as the split
+	 * packet can no longer be completed.
+	 * 
+	 * @param encapsulated
+	 *            the rejected chunk.
+	 */
+	private final void discardSplit(EncapsulatedPacket encapsulated) {
+		encapsulated.payload.release();
+		EncapsulatedPacket.Split split = splitQueue.remove(encapsulated.splitId);
+		if (split != null) {
+			this.addSplitBytes(-split.getSize());
+			split.release();
+		}
+	}
+
+	/**
+	 * Removes the split packets that have gone longer than the split timeout
+	 * without receiving any of their chunks.
+	 * 
+	 * @param currentTime
+	 *            the current time in milliseconds.
+	 * @throws TimeoutException
+	 *             if a reliable split packet has expired, as its missing
+	 *             chunks should have been resent long before.
+	 */
+	private final void expireSplits(long currentTime) throws TimeoutException {
+		Iterator<EncapsulatedPacket.Split> splitQueueI = splitQueue.values().iterator();
+		int removeCount = 0;
+		while (splitQueueI.hasNext()) {
+			EncapsulatedPacket.Split split = splitQueueI.next();
+			if (currentTime - split.getLastUpdateTime() >= splitTimeout) {
+				if (split.getReliability().isReliable()) {
+					throw new TimeoutException(this);
+				}
+				this.addSplitBytes(-split.getSize());
+				split.release();
+				splitQueueI.remove();
+				removeCount++;
+			}
+		}
+		if (removeCount > 0) {
+			logger.debug("Removed " + removeCount + " expired unreliable packet" + (removeCount == 1 ? "" : "s")
+					+ " from the split queue");
+		}
 	}
 
 	/**
@@ -1048,8 +2616,8 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 *             if the peer is disconnected and <code>force</code> is
 	 *             <code>false</code>.
 	 * @throws TimeoutException
-	 *             if the peer has timed out and <code>force</code> is
-	 *             <code>false</code>.
+	 *             if the peer has timed out or a reliable split packet has
+	 *             expired, and <code>force</code> is <code>false</code>.
 	 */
 	private final void update(boolean force) throws IllegalStateException, TimeoutException {
 		long currentTime = System.currentTimeMillis();
@@ -1060,7 +2628,6 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 				throw new TimeoutException(this);
 			}
 		}
-
 		// Send keep alive packet
 		if (currentTime - lastPacketReceiveTime >= DETECTION_SEND_INTERVAL
 				&& currentTime - lastDetectionSendTime >= DETECTION_SEND_INTERVAL && latencyEnabled == false
@@ -1075,44 +2642,55 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 			ConnectedPing ping = new ConnectedPing();
 			ping.timestamp = this.getTimestamp();
 			ping.encode();
-			this.sendMessage(Reliability.UNRELIABLE, ping);
+			this.sendMessage(PacketPriority.IMMEDIATE, Reliability.UNRELIABLE, ping);
 			this.lastPingSendTime = currentTime;
 			latencyTimestamps.add(ping.timestamp);
 		}
 
+		// Evict split packets that have stopped receiving chunks
+		if (force == false && !splitQueue.isEmpty()) {
+			this.expireSplits(currentTime);
+		}
+
+		// Send acknowledgements that have been held back
+		if (acknowledgeTime >= 0 && (force == true || currentTime - acknowledgeTime >= acknowledgeDelay)) {
+			this.sendAcknowledgements();
+		}
+
 		// Send next packets in the send queue
-		if (!sendQueue.isEmpty() && packetsSentThisSecond < RakNet.getMaxPacketsPerSecond()) {
-			ArrayList<EncapsulatedPacket> send = new ArrayList<EncapsulatedPacket>();
-			int sendLength = CustomPacket.MINIMUM_SIZE;
-			Iterator<EncapsulatedPacket> sendQueueI = sendQueue.iterator();
-			while (sendQueueI.hasNext()) {
-				EncapsulatedPacket encapsulated = sendQueueI.next();
-				sendLength += encapsulated.size();
-				if (sendLength > maximumTransferUnit) {
-					break; // Adding this packet would cause an overflow
-				}
-				send.add(encapsulated);
-				sendQueueI.remove();
-			}
-			if (!send.isEmpty()) {
-				this.sendCustomPacket(true, send.toArray(new EncapsulatedPacket[send.size()]));
-			}
+		if (currentTime - lastPacketsSentThisSecondResetTime >= 1000L) {
+			this.packetsSentThisSecond = 0;
+			this.lastPacketsSentThisSecondResetTime = currentTime;
 		}
+		this.sendQueued(force);
 
-		// Resend lost packets
-		Iterator<EncapsulatedPacket[]> recoveryQueueI = recoveryQueue.values().iterator();
-		if (currentTime - lastRecoverySendTime >= RECOVERY_SEND_INTERVAL && recoveryQueueI.hasNext()) {
-			this.sendCustomPacket(false, recoveryQueueI.next());
-			this.lastRecoverySendTime = currentTime;
-		} else {
-			/*
-			 * Nothing needs to be recovered if there is nothing in the queue.
-			 * Only start counting the time that has been passed since the last
-			 * recovery packet has been sent when there are reliable packets in
-			 * the queue that have yet to be acknowledged.
-			 */
-			this.lastRecoverySendTime = currentTime;
+		/*
+		 * Resend lost packets, oldest first. Since resent messages take the
+		 * place of the oldest datagram with a new one, the datagrams in the
+		 * recovery queue are always sorted by the time they were sent. This
+		 * means that once a datagram is found that has not yet expired, none
+		 * of the datagrams after it have either.
+		 * 
+		 * If any datagrams expired, the retransmission timeout is doubled so
+		 * that a peer that has stopped responding is not flooded. This only
+		 * happens once per retransmission timeout, as a backlog of expired
+		 * datagrams would otherwise double it on every update. It is set back
+		 * according to the round trip time once a datagram is acknowledged.
+		 */
+		boolean expired = false;
+		for (int i = 0; i < writeBatchSize && !recoveryQueue.isEmpty()
+				&& currentTime - recoveryQueue.getSendTime(recoveryQueue.first()) >= retransmissionTimeout; i++) {
+			int sequenceId = recoveryQueue.first();
+			congestionController.onLoss(currentTime, recoveryQueue.getSendTime(sequenceId),
+					recoveryQueue.getSize(sequenceId), true);
+			this.resend(sequenceId);
+			expired = true;
 		}
+		if (expired == true && currentTime - lastBackoffTime >= retransmissionTimeout) {
+			this.retransmissionTimeout = Math.min(retransmissionTimeout * 2, MAXIMUM_RETRANSMISSION_TIMEOUT);
+			this.lastBackoffTime = currentTime;
+		}
+		this.flush();
 	}
 
 	/**
@@ -1132,6 +2710,11 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 * <p>
 	 * Proper disconnection is accomplished here by sending it an unreliable
 	 * <code>DISCONNECTION_NOTIFICATION</code> packet.
+	 * <p>
+	 * If the peer is registered to a {@link PeerScheduler}, this must only be
+	 * called by the thread that owns it, which is done by
+	 * {@link PeerScheduler#disconnect(RakNetPeer, Runnable)}. Once this has
+	 * returned, any messages sent or received by the peer are dropped.
 	 * 
 	 * @throws IllegalStateException
 	 *             if the peer is already disconnected.
@@ -1148,13 +2731,63 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		 * sent, the peer will be forcefully updated to ensure the packet is
 		 * sent out at least once.
 		 */
+		sendQueue.forEach(encapsulated -> encapsulated.payload.release());
 		sendQueue.clear();
 		this.sendMessage(Reliability.UNRELIABLE, ID_DISCONNECTION_NOTIFICATION);
 		this.update(true);
+
+		// Drop anything queued from now on, including what was not yet sent
+		this.closed = true;
+		sendQueue.forEach(encapsulated -> encapsulated.payload.release());
+		sendQueue.clear();
+
+		// Release sent payloads that will never be acknowledged
+		recoveryQueue.forEach(recovery -> {
+			for (EncapsulatedPacket encapsulated : recovery) {
+				encapsulated.payload.release();
+			}
+		});
+		recoveryQueue.clear();
+		ackReceipts.forEach(receipts -> {
+			for (EncapsulatedPacket encapsulated : receipts) {
+				if (!encapsulated.reliability.isReliable()) {
+					encapsulated.payload.release();
+				}
+			}
+		});
+		ackReceipts.clear();
+
+		// Release received payloads that will never be handled
+		for (EncapsulatedPacket.Split split : splitQueue.values()) {
+			this.addSplitBytes(-split.getSize());
+			split.release();
+		}
+		splitQueue.clear();
+		for (OrderWindow orderWindow : orderWindows) {
+			if (orderWindow != null) {
+				orderWindow.clear(encapsulated -> encapsulated.payload.release());
+			}
+		}
+
+		// Fail streams that will never be completed
+		IOException disconnected = new IOException("Peer disconnected");
+		for (MessageOutputStream stream : outputStreams.values()) {
+			stream.fail(disconnected);
+		}
+		outputStreams.clear();
+		for (MessageInputStream stream : inputStreams.values()) {
+			stream.fail(disconnected);
+		}
+		inputStreams.clear();
 	}
 
 	/**
 	 * Called when a packet is received.
+	 * <p>
+	 * The peer passes ownership of the <code>packet</code> to this method, it
+	 * must be released once it has been handled. If
+	 * {@link #setZeroCopyPayloads(boolean) zero-copy payloads} are enabled,
+	 * the packet buffer is a slice of the datagram it was received in.
 	 * 
 	 * @param packet
 	 *            the packet to handle.
@@ -33,6 +33,7 @@ import com.whirvis.jraknet.InvalidChannelException;
 import com.whirvis.jraknet.Packet;
 import com.whirvis.jraknet.RakNet;
 import com.whirvis.jraknet.RakNetPacket;
+import com.whirvis.jraknet.protocol.PacketPriority;
 import com.whirvis.jraknet.protocol.Reliability;
 import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
 
@@ -50,6 +51,19 @@ import io.netty.buffer.ByteBuf;
  * object first. Of course, calling from the client is just a shorthand and
  * would be the exact same thing as grabbing the peer manually and then sending
  * it a message.
+ * <p>
+ * Messages sent without a {@link PacketPriority} are sent with the
+ * {@link PacketPriority#MEDIUM MEDIUM} priority.
+ * <p>
+ * Sending a packet passes ownership of its buffer to the peer, which releases
+ * it once the packet has been sent, or once it has been acknowledged if it is
+ * reliable. A packet must not be written to, read from, or released after it
+ * has been sent. To send the same packet more than once, it must be
+ * {@link Packet#retain() retained} before every extra send, otherwise the
+ * buffer is released too early. If a pooled buffer has already been handed out
+ * again, the later sends read whatever data it now holds rather than failing.
+ * The same goes for buffers sent with the methods that take a
+ * {@link ByteBuf}.
  * 
  * @author "Whirvis" Trent Summerlin
  * @since JRakNet v2.11.0
@@ -77,7 +91,40 @@ public interface RakNetPeerMessenger {
 	 *             if the channel is higher than or equal to
 	 *             {@value RakNet#CHANNEL_COUNT}.
 	 */
-	public EncapsulatedPacket sendMessage(Reliability reliability, int channel, Packet packet)
+	public default EncapsulatedPacket sendMessage(Reliability reliability, int channel, Packet packet)
+			throws NullPointerException, InvalidChannelException {
+		return this.sendMessage(PacketPriority.MEDIUM, reliability, channel, packet);
+	}
+
+	/**
+	 * Sends a message to the peer with the specified priority.
+	 * <p>
+	 * Ownership of the <code>packet</code> is passed to the peer, which
+	 * releases it once it is no longer needed. It must be
+	 * {@link Packet#retain() retained} beforehand if it is going to be sent
+	 * again or used after this.
+	 * 
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet. This is normally not
+	 *         important, however it can be used for packet acknowledged and not
+	 *         acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>packet</code> are <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public EncapsulatedPacket sendMessage(PacketPriority priority, Reliability reliability, int channel, Packet packet)
 			throws NullPointerException, InvalidChannelException;
 
 	/**
@@ -113,6 +160,41 @@ public interface RakNetPeerMessenger {
 		return encapsulated;
 	}
 
+	/**
+	 * Sends messages to the peer with the specified priority.
+	 * 
+	 * @param priority
+	 *            the priority of the packets.
+	 * @param reliability
+	 *            the reliability of the packets.
+	 * @param channel
+	 *            the channel to send the packets on.
+	 * @param packets
+	 *            the packets to send.
+	 * @return the generated encapsulated packets. These are normally not
+	 *         important, however they can be used for packet acknowledged and
+	 *         not acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>packets</code> are <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public default EncapsulatedPacket[] sendMessage(PacketPriority priority, Reliability reliability, int channel,
+			Packet... packets) throws NullPointerException, InvalidChannelException {
+		if (packets == null) {
+			throw new NullPointerException("Packets cannot be null");
+		}
+		EncapsulatedPacket[] encapsulated = new EncapsulatedPacket[packets.length];
+		for (int i = 0; i < encapsulated.length; i++) {
+			encapsulated[i] = this.sendMessage(priority, reliability, channel, packets[i]);
+		}
+		return encapsulated;
+	}
+
 	/**
 	 * Sends a message to the peer on the default channel.
 	 * 
@@ -133,6 +215,30 @@ public interface RakNetPeerMessenger {
 		return this.sendMessage(reliability, RakNet.DEFAULT_CHANNEL, packet);
 	}
 
+	/**
+	 * Sends a message to the peer on the default channel with the specified
+	 * priority.
+	 * 
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet. This is normally not
+	 *         important, however it can be used for packet acknowledged and not
+	 *         acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>packet</code> are <code>null</code>.
+	 */
+	public default EncapsulatedPacket sendMessage(PacketPriority priority, Reliability reliability, Packet packet)
+			throws NullPointerException {
+		return this.sendMessage(priority, reliability, RakNet.DEFAULT_CHANNEL, packet);
+	}
+
 	/**
 	 * Sends messages to the peer on the default channel.
 	 * 
@@ -153,6 +259,30 @@ public interface RakNetPeerMessenger {
 		return this.sendMessage(reliability, RakNet.DEFAULT_CHANNEL, packets);
 	}
 
+	/**
+	 * Sends messages to the peer on the default channel with the specified
+	 * priority.
+	 * 
+	 * @param priority
+	 *            the priority of the packets.
+	 * @param reliability
+	 *            the reliability of the packets.
+	 * @param packets
+	 *            the packets to send.
+	 * @return the generated encapsulated packets. These are normally not
+	 *         important, however they can be used for packet acknowledged and
+	 *         not acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>packets</code> are <code>null</code>.
+	 */
+	public default EncapsulatedPacket[] sendMessage(PacketPriority priority, Reliability reliability,
+			Packet... packets) {
+		return this.sendMessage(priority, reliability, RakNet.DEFAULT_CHANNEL, packets);
+	}
+
 	/**
 	 * Sends a message to the peer.
 	 * 
@@ -179,6 +309,34 @@ public interface RakNetPeerMessenger {
 		return this.sendMessage(reliability, channel, new Packet(buf));
 	}
 
+	/**
+	 * Sends a message to the peer with the specified priority.
+	 * 
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param buf
+	 *            the buffer to send.
+	 * @return the generated encapsulated packet. This is normally not
+	 *         important, however it can be used for packet acknowledged and not
+	 *         acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>buf</code> are <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public default EncapsulatedPacket sendMessage(PacketPriority priority, Reliability reliability, int channel,
+			ByteBuf buf) throws NullPointerException, InvalidChannelException {
+		return this.sendMessage(priority, reliability, channel, new Packet(buf));
+	}
+
 	/**
 	 * Sends messages to the peer.
 	 * 
@@ -212,6 +370,41 @@ public interface RakNetPeerMessenger {
 		return encapsulated;
 	}
 
+	/**
+	 * Sends messages to the peer with the specified priority.
+	 * 
+	 * @param priority
+	 *            the priority of the packets.
+	 * @param reliability
+	 *            the reliability of the packets.
+	 * @param channel
+	 *            the channel to send the packets on.
+	 * @param bufs
+	 *            the buffers to send.
+	 * @return the generated encapsulated packet. This is normally not
+	 *         important, however it can be used for packet acknowledged and not
+	 *         acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>bufs</code> are <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public default EncapsulatedPacket[] sendMessage(PacketPriority priority, Reliability reliability, int channel,
+			ByteBuf... bufs) throws NullPointerException, InvalidChannelException {
+		if (bufs == null) {
+			throw new NullPointerException("Buffers cannot be null");
+		}
+		EncapsulatedPacket[] encapsulated = new EncapsulatedPacket[bufs.length];
+		for (int i = 0; i < encapsulated.length; i++) {
+			encapsulated[i] = this.sendMessage(priority, reliability, channel, bufs[i]);
+		}
+		return encapsulated;
+	}
+
 	/**
 	 * Sends messages to the peer on the default channel.
 	 * 
@@ -232,6 +425,30 @@ public interface RakNetPeerMessenger {
 		return this.sendMessage(reliability, RakNet.DEFAULT_CHANNEL, buf);
 	}
 
+	/**
+	 * Sends messages to the peer on the default channel with the specified
+	 * priority.
+	 * 
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param buf
+	 *            the buffer to send.
+	 * @return the generated encapsulated packet. This is normally not
+	 *         important, however it can be used for packet acknowledged and not
+	 *         acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>buf</code> are <code>null</code>.
+	 */
+	public default EncapsulatedPacket sendMessage(PacketPriority priority, Reliability reliability, ByteBuf buf)
+			throws NullPointerException {
+		return this.sendMessage(priority, reliability, RakNet.DEFAULT_CHANNEL, buf);
+	}
+
 	/**
 	 * Sends messages to the peer on the default channel.
 	 * 
@@ -253,6 +470,30 @@ public interface RakNetPeerMessenger {
 		return this.sendMessage(reliability, RakNet.DEFAULT_CHANNEL, bufs);
 	}
 
+	/**
+	 * Sends messages to the peer on the default channel with the specified
+	 * priority.
+	 * 
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param bufs
+	 *            the buffers to send.
+	 * @return the generated encapsulated packets. These are normally not
+	 *         important, however they can be used for packet acknowledged and
+	 *         not acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>bufs</code> are <code>null</code>.
+	 */
+	public default EncapsulatedPacket[] sendMessage(PacketPriority priority, Reliability reliability, ByteBuf... bufs)
+			throws NullPointerException {
+		return this.sendMessage(priority, reliability, RakNet.DEFAULT_CHANNEL, bufs);
+	}
+
 	/**
 	 * Sends a message identifier to the peer.
 	 * 
@@ -278,6 +519,34 @@ public interface RakNetPeerMessenger {
 		return this.sendMessage(reliability, channel, new RakNetPacket(packetId));
 	}
 
+	/**
+	 * Sends a message identifier to the peer with the specified priority.
+	 * 
+	 * @param priority
+	 *            the priority of the message identifier.
+	 * @param reliability
+	 *            the reliability of the message identifier.
+	 * @param channel
+	 *            the channel to send the message identifier on.
+	 * @param packetId
+	 *            the message identifier to send.
+	 * @return the generated encapsulated packet. This is normally not
+	 *         important, however it can be used for packet acknowledged and not
+	 *         acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code> or <code>reliability</code> are
+	 *             <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public default EncapsulatedPacket sendMessage(PacketPriority priority, Reliability reliability, int channel,
+			int packetId) throws NullPointerException, InvalidChannelException {
+		return this.sendMessage(priority, reliability, channel, new RakNetPacket(packetId));
+	}
+
 	/**
 	 * Sends message identifiers to the peer.
 	 * 
@@ -311,6 +580,41 @@ public interface RakNetPeerMessenger {
 		return encapsulated;
 	}
 
+	/**
+	 * Sends message identifiers to the peer with the specified priority.
+	 * 
+	 * @param priority
+	 *            the priority of the message identifiers.
+	 * @param reliability
+	 *            the reliability of the message identifiers.
+	 * @param channel
+	 *            the channel to send the message identifiers on.
+	 * @param packetIds
+	 *            the message identifiers to send.
+	 * @return the generated encapsulated packets. These are normally not
+	 *         important, however they can be used for packet acknowledged and
+	 *         not acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>packetIds</code> are <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public default EncapsulatedPacket[] sendMessage(PacketPriority priority, Reliability reliability, int channel,
+			int... packetIds) throws NullPointerException, InvalidChannelException {
+		if (packetIds == null) {
+			throw new NullPointerException("Packet IDs cannot be null");
+		}
+		EncapsulatedPacket[] encapsulated = new EncapsulatedPacket[packetIds.length];
+		for (int i = 0; i < encapsulated.length; i++) {
+			encapsulated[i] = this.sendMessage(priority, reliability, channel, packetIds[i]);
+		}
+		return encapsulated;
+	}
+
 	/**
 	 * Sends a message identifier to the peer on the default channel.
 	 * 
@@ -330,6 +634,30 @@ public interface RakNetPeerMessenger {
 		return this.sendMessage(reliability, new RakNetPacket(packetId));
 	}
 
+	/**
+	 * Sends a message identifier to the peer on the default channel with the
+	 * specified priority.
+	 * 
+	 * @param priority
+	 *            the priority of the message identifier.
+	 * @param reliability
+	 *            the reliability of the message identifier.
+	 * @param packetId
+	 *            the message identifier to send.
+	 * @return the generated encapsulated packet. This is normally not
+	 *         important, however it can be used for packet acknowledged and not
+	 *         acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code> or <code>reliability</code> are
+	 *             <code>null</code>.
+	 */
+	public default EncapsulatedPacket sendMessage(PacketPriority priority, Reliability reliability, int packetId)
+			throws NullPointerException {
+		return this.sendMessage(priority, reliability, new RakNetPacket(packetId));
+	}
+
 	/**
 	 * Sends message identifiers to the peer on the default channel.
 	 * 
@@ -351,4 +679,28 @@ public interface RakNetPeerMessenger {
 		return this.sendMessage(reliability, RakNet.DEFAULT_CHANNEL, packetIds);
 	}
 
+	/**
+	 * Sends message identifiers to the peer on the default channel with the
+	 * specified priority.
+	 * 
+	 * @param priority
+	 *            the priority of the message identifiers.
+	 * @param reliability
+	 *            the reliability of the message identifiers.
+	 * @param packetIds
+	 *            the message identifiers to send.
+	 * @return the generated encapsulated packets. These are normally not
+	 *         important, however they can be used for packet acknowledged and
+	 *         not acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>packetIds</code> are <code>null</code>.
+	 */
+	public default EncapsulatedPacket[] sendMessage(PacketPriority priority, Reliability reliability, int... packetIds)
+			throws NullPointerException {
+		return this.sendMessage(priority, reliability, RakNet.DEFAULT_CHANNEL, packetIds);
+	}
+
 }
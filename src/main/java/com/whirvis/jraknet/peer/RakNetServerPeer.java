@@ -97,6 +97,7 @@ public final class RakNetServerPeer extends RakNetPeer implements RakNetPeerMess
 		if (packet.getId() == ID_CONNECTION_REQUEST_ACCEPTED && this.isHandshaking()) {
 			ConnectionRequestAccepted connectionRequestAccepted = new ConnectionRequestAccepted(packet);
 			connectionRequestAccepted.decode();
+			packet.release();
 			if (!connectionRequestAccepted.failed()) {
 				NewIncomingConnection newIncomingConnection = new NewIncomingConnection();
 				newIncomingConnection.serverAddress = this.getAddress();
@@ -117,11 +118,13 @@ public final class RakNetServerPeer extends RakNetPeer implements RakNetPeerMess
 						+ " failed to decode)");
 			}
 		} else if (packet.getId() == ID_DISCONNECTION_NOTIFICATION) {
+			packet.release();
 			client.disconnect("Server disconnected");
 		} else if (packet.getId() >= ID_USER_PACKET_ENUM) {
-			client.callEvent(listener -> listener.handleMessage(client, this, packet, channel));
+			client.callEvent(listener -> listener.handleMessage(client, this, packet, channel), packet.buffer());
 		} else {
-			client.callEvent(listener -> listener.handleUnknownMessage(client, this, packet, channel));
+			client.callEvent(listener -> listener.handleUnknownMessage(client, this, packet, channel),
+					packet.buffer());
 		}
 	}
 
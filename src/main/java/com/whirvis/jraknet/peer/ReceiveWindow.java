@@ -0,0 +1,319 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.util.ArrayList;
+
+import com.whirvis.jraknet.protocol.message.acknowledge.Record;
+
+/**
+ * Keeps track of the datagrams received from a peer, and of the
+ * acknowledgements that have yet to be sent for them.
+ * <p>
+ * Which of the most recent sequence numbers have been received is kept in a
+ * bitmap that slides along with the highest sequence number received. This
+ * allows datagrams that arrive out of order to be told apart from duplicates.
+ * Datagrams that are older than the bitmap reaches are considered outdated,
+ * as it can no longer be told whether or not they were already received.
+ * Sequence numbers are sent as unsigned <code>triads</code>, and wrap around
+ * back to <code>0</code> once they exceed <code>2^24 - 1</code>. As such,
+ * they are compared by their distance from the highest sequence number
+ * received rather than by their value.
+ * <p>
+ * Rather than being sent right away, acknowledgements are gathered until
+ * they are {@link #pollAcknowledged() polled}. The sequence numbers that were
+ * skipped over are gathered as well, and only those that are still missing by
+ * the time they are {@link #pollNotAcknowledged() polled} are reported as not
+ * acknowledged. This way, a datagram that arrives slightly out of order does
+ * not have it and the datagrams around it resent for no reason.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+final class ReceiveWindow {
+
+	/**
+	 * The amount of bits in a sequence number.
+	 */
+	private static final int SEQUENCE_BITS = 24;
+
+	/**
+	 * The mask used to wrap a sequence number around.
+	 */
+	private static final int SEQUENCE_MASK = (1 << SEQUENCE_BITS) - 1;
+
+	private final long[] received;
+	private final int mask;
+	private int highestSequence;
+	private final ArrayList<Record> acknowledged;
+	private final ArrayList<Record> skipped;
+
+	/**
+	 * Creates a receive window.
+	 * 
+	 * @param size
+	 *            the amount of sequence numbers the window keeps track of,
+	 *            which is rounded up to a multiple of <code>64</code> that is
+	 *            a power of two.
+	 * @throws IllegalArgumentException
+	 *             if the <code>size</code> is less than or equal to
+	 *             <code>0</code> or greater than <code>2^23</code>.
+	 */
+	ReceiveWindow(int size) throws IllegalArgumentException {
+		if (size <= 0 || size > 1 << (SEQUENCE_BITS - 1)) {
+			throw new IllegalArgumentException("Size must be in between 1 and 2^23");
+		}
+		int capacity = Integer.highestOneBit(Math.max(size, Long.SIZE));
+		if (capacity < size) {
+			capacity <<= 1;
+		}
+		this.received = new long[capacity / Long.SIZE];
+		this.mask = capacity - 1;
+		this.highestSequence = -1;
+		this.acknowledged = new ArrayList<Record>();
+		this.skipped = new ArrayList<Record>();
+	}
+
+	/**
+	 * Returns the highest sequence number that has been received.
+	 * 
+	 * @return the highest sequence number that has been received,
+	 *         <code>-1</code> if none have been received yet.
+	 */
+	int getHighestSequence() {
+		return this.highestSequence;
+	}
+
+	/**
+	 * Returns whether or not the specified sequence number is too old for the
+	 * window to know whether or not it has already been received.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @return <code>true</code> if the sequence number is outdated,
+	 *         <code>false</code> otherwise.
+	 */
+	boolean isOutdated(int sequence) {
+		return highestSequence >= 0 && -distance(sequence, highestSequence) > mask;
+	}
+
+	/**
+	 * Marks a sequence number as received and gathers its acknowledgement.
+	 * <p>
+	 * The acknowledgement is gathered even if the sequence number was already
+	 * received, as the acknowledgement sent for it before may have been lost.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @return <code>true</code> if the sequence number had not been received
+	 *         yet, <code>false</code> if it is a duplicate or is outdated.
+	 */
+	boolean receive(int sequence) {
+		if (this.isOutdated(sequence)) {
+			return false;
+		}
+		sequence &= SEQUENCE_MASK;
+		boolean duplicate = false;
+		int distance = highestSequence < 0 ? sequence + 1 : distance(sequence, highestSequence);
+		if (distance > 0) {
+			if (distance > mask) {
+				for (int i = 0; i < received.length; i++) {
+					received[i] = 0L;
+				}
+			} else {
+				for (int i = 1; i <= distance; i++) {
+					this.clear(highestSequence + i);
+				}
+			}
+			if (distance > 1) {
+				add(skipped, highestSequence + 1, sequence - 1);
+			}
+			this.highestSequence = sequence;
+		} else {
+			duplicate = this.isReceived(sequence);
+		}
+		this.set(sequence);
+		add(acknowledged, sequence, sequence);
+		return duplicate == false;
+	}
+
+	/**
+	 * Returns whether or not there are acknowledgements waiting to be sent.
+	 * 
+	 * @return <code>true</code> if there are acknowledgements waiting to be
+	 *         sent, <code>false</code> otherwise.
+	 */
+	boolean hasPending() {
+		return !acknowledged.isEmpty() || !skipped.isEmpty();
+	}
+
+	/**
+	 * Returns the records of the sequence numbers that have been received
+	 * since they were last polled, and stops gathering them.
+	 * 
+	 * @return the records of the sequence numbers that have been received,
+	 *         condensed into as few records as possible.
+	 */
+	Record[] pollAcknowledged() {
+		Record[] records = Record.condense(acknowledged);
+		acknowledged.clear();
+		return records;
+	}
+
+	/**
+	 * Returns the records of the sequence numbers that were skipped over since
+	 * they were last polled and are still missing, and stops gathering them.
+	 * <p>
+	 * Skipped sequence numbers that have become outdated are reported as
+	 * missing, as it can no longer be told whether or not they arrived.
+	 * 
+	 * @return the records of the sequence numbers that are missing, condensed
+	 *         into as few records as possible.
+	 */
+	Record[] pollNotAcknowledged() {
+		ArrayList<Record> missing = new ArrayList<Record>();
+		for (Record record : skipped) {
+			int start = record.getIndex();
+			int end = record.isRanged() ? record.getEndIndex() : start;
+			if (this.isOutdated(start)) {
+				int outdatedEnd = end;
+				if (!this.isOutdated(end)) {
+					outdatedEnd = (highestSequence - mask - 1) & SEQUENCE_MASK;
+				}
+				add(missing, start, outdatedEnd);
+				start = (outdatedEnd + 1) & SEQUENCE_MASK;
+			}
+			for (int sequence = start; distance(sequence, end) <= 0; sequence = (sequence + 1) & SEQUENCE_MASK) {
+				if (!this.isReceived(sequence)) {
+					add(missing, sequence, sequence);
+				}
+			}
+		}
+		skipped.clear();
+		return Record.condense(missing);
+	}
+
+	/**
+	 * Forgets every sequence number that was received, and every
+	 * acknowledgement that has yet to be sent.
+	 */
+	void clear() {
+		for (int i = 0; i < received.length; i++) {
+			received[i] = 0L;
+		}
+		this.highestSequence = -1;
+		acknowledged.clear();
+		skipped.clear();
+	}
+
+	/**
+	 * Returns how far ahead the specified sequence number is from another,
+	 * taking into account that sequence numbers wrap around.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @param from
+	 *            the sequence number to measure from.
+	 * @return how far ahead the sequence number is, negative if it is behind.
+	 */
+	private static int distance(int sequence, int from) {
+		return ((sequence - from) << (Integer.SIZE - SEQUENCE_BITS)) >> (Integer.SIZE - SEQUENCE_BITS);
+	}
+
+	/**
+	 * Returns whether or not the specified sequence number is marked as
+	 * received in the bitmap.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @return <code>true</code> if the sequence number is marked as received,
+	 *         <code>false</code> otherwise.
+	 */
+	private boolean isReceived(int sequence) {
+		int index = sequence & mask;
+		return (received[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Marks the specified sequence number as received in the bitmap.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 */
+	private void set(int sequence) {
+		int index = sequence & mask;
+		received[index >>> 6] |= 1L << index;
+	}
+
+	/**
+	 * Marks the specified sequence number as not received in the bitmap.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 */
+	private void clear(int sequence) {
+		int index = sequence & mask;
+		received[index >>> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * Adds a range of sequence numbers to the specified records, extending
+	 * the last record if the range follows right after it.
+	 * <p>
+	 * A record cannot wrap around, so a range that does is split into one
+	 * record ending at <code>2^24 - 1</code> and another starting at
+	 * <code>0</code>.
+	 * 
+	 * @param records
+	 *            the records.
+	 * @param start
+	 *            the first sequence number of the range.
+	 * @param end
+	 *            the last sequence number of the range.
+	 */
+	private static void add(ArrayList<Record> records, int start, int end) {
+		start &= SEQUENCE_MASK;
+		end &= SEQUENCE_MASK;
+		if (end < start) {
+			add(records, start, SEQUENCE_MASK);
+			start = 0;
+		}
+		if (!records.isEmpty()) {
+			Record last = records.get(records.size() - 1);
+			int lastEnd = last.isRanged() ? last.getEndIndex() : last.getIndex();
+			if (lastEnd + 1 == start) {
+				last.setEndIndex(end);
+				return;
+			}
+		}
+		records.add(start == end ? new Record(start) : new Record(start, end));
+	}
+
+}
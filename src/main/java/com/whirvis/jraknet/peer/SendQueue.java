@@ -0,0 +1,253 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+import com.whirvis.jraknet.protocol.PacketPriority;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+
+/**
+ * The messages waiting to be sent to a peer, queued by their priority.
+ * <p>
+ * Messages with the {@link PacketPriority#IMMEDIATE IMMEDIATE} priority are
+ * always taken first. The other priorities are served by start-time fair
+ * queuing: each priority keeps a virtual time, which grows by the size of
+ * every message taken from it divided by the weight of the priority. The next
+ * message is taken from the priority with the lowest virtual time, giving
+ * each priority a share of the sent bytes in proportion to its weight for as
+ * long as they all have messages waiting. A priority that had nothing queued
+ * starts off at the virtual time of the last message taken, so it does not
+ * get to catch up on the time it spent idle.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+final class SendQueue {
+
+	/**
+	 * The amount the size of a message is multiplied by before being divided
+	 * by the weight of its priority.
+	 */
+	private static final long WEIGHT_SCALE = 64L;
+
+	private static final PacketPriority[] PRIORITIES = PacketPriority.values();
+	private static final int IMMEDIATE = PacketPriority.IMMEDIATE.ordinal();
+
+	private final ArrayDeque<EncapsulatedPacket>[] queues;
+	private final long[] virtualTimes;
+	private final ArrayList<Iterator<EncapsulatedPacket>> iterators;
+	private final EncapsulatedPacket[] candidates;
+	private final int[] scanned;
+	private long virtualTime;
+	private int skippedChannels;
+	private int size;
+
+	/**
+	 * Creates a send queue.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	SendQueue() {
+		this.queues = new ArrayDeque[PRIORITIES.length];
+		for (int i = 0; i < queues.length; i++) {
+			queues[i] = new ArrayDeque<EncapsulatedPacket>();
+		}
+		this.virtualTimes = new long[PRIORITIES.length];
+		this.iterators = new ArrayList<Iterator<EncapsulatedPacket>>(PRIORITIES.length);
+		this.candidates = new EncapsulatedPacket[PRIORITIES.length];
+		this.scanned = new int[PRIORITIES.length];
+	}
+
+	/**
+	 * Returns the amount of messages in the queue.
+	 * 
+	 * @return the amount of messages in the queue.
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns whether or not the queue is empty.
+	 * 
+	 * @return <code>true</code> if the queue is empty, <code>false</code>
+	 *         otherwise.
+	 */
+	boolean isEmpty() {
+		return size <= 0;
+	}
+
+	/**
+	 * Adds a message to the queue.
+	 * 
+	 * @param priority
+	 *            the priority of the message.
+	 * @param encapsulated
+	 *            the message.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code> or <code>encapsulated</code>
+	 *             are <code>null</code>.
+	 */
+	void add(PacketPriority priority, EncapsulatedPacket encapsulated) throws NullPointerException {
+		if (priority == null) {
+			throw new NullPointerException("Priority cannot be null");
+		} else if (encapsulated == null) {
+			throw new NullPointerException("Encapsulated packet cannot be null");
+		}
+		int index = priority.ordinal();
+		if (queues[index].isEmpty()) {
+			virtualTimes[index] = Math.max(virtualTimes[index], virtualTime);
+		}
+		queues[index].add(encapsulated);
+		this.size++;
+	}
+
+	/**
+	 * Removes the messages to send in the next datagram from the queue.
+	 * <p>
+	 * The datagram is filled first-fit. A message that does not fit in the
+	 * space left is skipped over rather than ending the datagram, so that
+	 * smaller messages behind it can fill that space. It is sent in a later
+	 * datagram instead. Since the receiver only handles the newest sequenced
+	 * message on a channel, a sequenced message is never taken ahead of one on
+	 * the same channel that was skipped.
+	 * 
+	 * @param space
+	 *            the space available in the datagram.
+	 * @param depth
+	 *            the maximum amount of messages looked at in each priority.
+	 * @return the messages to send in the next datagram.
+	 */
+	EncapsulatedPacket[] poll(int space, int depth) {
+		ArrayList<EncapsulatedPacket> polled = new ArrayList<EncapsulatedPacket>();
+		for (int i = 0; i < PRIORITIES.length; i++) {
+			iterators.add(queues[i].iterator());
+		}
+		while (space >= EncapsulatedPacket.MINIMUM_SIZE) {
+			int next = -1;
+			for (int i = 0; i < PRIORITIES.length; i++) {
+				if (this.candidate(i, space, depth) == null) {
+					continue; // Nothing from this priority fits
+				} else if (i == IMMEDIATE) {
+					next = i;
+					break;
+				} else if (next < 0 || virtualTimes[i] < virtualTimes[next]) {
+					next = i;
+				}
+			}
+			if (next < 0) {
+				break; // Nothing left that fits
+			}
+			EncapsulatedPacket encapsulated = candidates[next];
+			int encapsulatedSize = encapsulated.size();
+			iterators.get(next).remove();
+			candidates[next] = null;
+			polled.add(encapsulated);
+			space -= encapsulatedSize;
+			this.size--;
+			if (next != IMMEDIATE) {
+				this.virtualTime = virtualTimes[next];
+				virtualTimes[next] += encapsulatedSize * WEIGHT_SCALE / PRIORITIES[next].getWeight();
+			}
+		}
+		iterators.clear();
+		for (int i = 0; i < PRIORITIES.length; i++) {
+			candidates[i] = null;
+			scanned[i] = 0;
+		}
+		this.skippedChannels = 0;
+		return polled.toArray(new EncapsulatedPacket[polled.size()]);
+	}
+
+	/**
+	 * Returns the next message of the specified priority that fits in the
+	 * space left in the datagram being filled by {@link #poll(int, int)}.
+	 * 
+	 * @param index
+	 *            the index of the priority.
+	 * @param space
+	 *            the space left in the datagram.
+	 * @param depth
+	 *            the maximum amount of messages looked at in the priority.
+	 * @return the next message of the priority that fits, <code>null</code>
+	 *         if there is none.
+	 */
+	private EncapsulatedPacket candidate(int index, int space, int depth) {
+		Iterator<EncapsulatedPacket> iterator = iterators.get(index);
+		EncapsulatedPacket candidate = candidates[index];
+		while (true) {
+			if (candidate != null) {
+				int channelBit = 1 << candidate.orderChannel;
+				boolean sequenced = candidate.reliability.isSequenced();
+				if (candidate.size() <= space && (sequenced == false || (skippedChannels & channelBit) == 0)) {
+					return candidate;
+				} else if (sequenced == true) {
+					this.skippedChannels |= channelBit;
+				}
+			}
+			if (scanned[index] >= depth || !iterator.hasNext()) {
+				return candidates[index] = null;
+			}
+			candidate = candidates[index] = iterator.next();
+			scanned[index]++;
+		}
+	}
+
+	/**
+	 * Performs the specified action for every message in the queue.
+	 * 
+	 * @param action
+	 *            the action to perform.
+	 * @throws NullPointerException
+	 *             if the <code>action</code> is <code>null</code>.
+	 */
+	void forEach(Consumer<? super EncapsulatedPacket> action) throws NullPointerException {
+		if (action == null) {
+			throw new NullPointerException("Action cannot be null");
+		}
+		for (ArrayDeque<EncapsulatedPacket> queue : queues) {
+			queue.forEach(action);
+		}
+	}
+
+	/**
+	 * Removes every message from the queue.
+	 */
+	void clear() {
+		for (ArrayDeque<EncapsulatedPacket> queue : queues) {
+			queue.clear();
+		}
+		this.size = 0;
+	}
+
+}
@@ -0,0 +1,405 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+
+/**
+ * The datagrams sent to a peer that contain reliable messages and are still
+ * awaiting acknowledgement.
+ * <p>
+ * The datagrams are stored in a ring buffer indexed by their sequence number,
+ * along with their size, the time they were sent and how many times their
+ * messages have been resent. Since sequence numbers are given out in the order datagrams
+ * are sent, the ring also keeps the datagrams sorted from oldest to newest,
+ * with the oldest one at the head of the window. Every lookup is a single
+ * array access, and the memory used by the window is bound by the distance
+ * between the oldest datagram in flight and the newest one. Sequence numbers
+ * are sent as unsigned <code>triads</code>, and wrap around back to
+ * <code>0</code> once they exceed <code>2^24 - 1</code>. As such, they are
+ * compared by their distance from one another rather than by their value.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+final class SendWindow {
+
+	/**
+	 * The amount of bits in a sequence number.
+	 */
+	private static final int SEQUENCE_BITS = 24;
+
+	/**
+	 * The mask used to wrap a sequence number around.
+	 */
+	static final int SEQUENCE_MASK = (1 << SEQUENCE_BITS) - 1;
+
+	/**
+	 * The largest size the ring can grow to. This is half the amount of
+	 * sequence numbers that fit in a <code>triad</code>, as any further and
+	 * the oldest and newest datagrams could no longer be told apart.
+	 */
+	private static final int MAXIMUM_CAPACITY = 1 << (SEQUENCE_BITS - 1);
+
+	private EncapsulatedPacket[][] messages;
+	private long[] sendTimes;
+	private int[] resendCounts;
+	private int[] sizes;
+	private int mask;
+	private int head;
+	private int tail;
+	private int size;
+	private long bytes;
+
+	/**
+	 * Creates a send window.
+	 * 
+	 * @param initialCapacity
+	 *            the initial size of the ring, which is rounded up to the
+	 *            nearest power of two.
+	 * @throws IllegalArgumentException
+	 *             if the <code>initialCapacity</code> is less than or equal
+	 *             to <code>0</code> or greater than <code>2^23</code>.
+	 */
+	SendWindow(int initialCapacity) throws IllegalArgumentException {
+		if (initialCapacity <= 0 || initialCapacity > MAXIMUM_CAPACITY) {
+			throw new IllegalArgumentException("Initial capacity must be in between 1 and 2^23");
+		}
+		int capacity = Integer.highestOneBit(initialCapacity);
+		if (capacity < initialCapacity) {
+			capacity <<= 1;
+		}
+		this.messages = new EncapsulatedPacket[capacity][];
+		this.sendTimes = new long[capacity];
+		this.resendCounts = new int[capacity];
+		this.sizes = new int[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Returns the amount of datagrams in the window.
+	 * 
+	 * @return the amount of datagrams in the window.
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns whether or not the window is empty.
+	 * 
+	 * @return <code>true</code> if the window is empty, <code>false</code>
+	 *         otherwise.
+	 */
+	boolean isEmpty() {
+		return size <= 0;
+	}
+
+	/**
+	 * Returns the combined size of the datagrams in the window.
+	 * 
+	 * @return the combined size of the datagrams in the window in bytes.
+	 */
+	long getBytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * Returns the sequence number of the oldest datagram in the window.
+	 * 
+	 * @return the sequence number of the oldest datagram in the window. If the
+	 *         window is empty, this is the sequence number the next datagram
+	 *         added to the window is expected to have.
+	 */
+	int first() {
+		return this.head;
+	}
+
+	/**
+	 * Returns the amount of sequence numbers in between the oldest datagram in
+	 * the window and the specified sequence number.
+	 * 
+	 * @param sequence
+	 *            the sequence number of the next datagram to be sent.
+	 * @return the amount of sequence numbers in between the oldest datagram in
+	 *         the window and the <code>sequence</code>, <code>0</code> if the
+	 *         window is empty.
+	 */
+	int span(int sequence) {
+		if (size <= 0) {
+			return 0;
+		}
+		return distance(sequence, head);
+	}
+
+	/**
+	 * Returns whether or not the datagram with the specified sequence number
+	 * is in the window.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @return <code>true</code> if the datagram is in the window,
+	 *         <code>false</code> otherwise.
+	 */
+	boolean contains(int sequence) {
+		return distance(sequence, head) >= 0 && distance(sequence, tail) < 0 && messages[sequence & mask] != null;
+	}
+
+	/**
+	 * Returns the sequence number of the oldest datagram in the window that
+	 * is not older than the specified sequence number.
+	 * <p>
+	 * This allows the datagrams in a range of sequence numbers to be visited
+	 * from oldest to newest, while only checking the part of the range that
+	 * overlaps with the window.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @return the sequence number of the oldest datagram in the window that
+	 *         is not older than the <code>sequence</code>. If there is none,
+	 *         the sequence number returned is not in the window.
+	 */
+	int next(int sequence) {
+		int next = distance(sequence, head) > 0 ? sequence & SEQUENCE_MASK : head;
+		while (distance(next, tail) < 0 && messages[next & mask] == null) {
+			next = (next + 1) & SEQUENCE_MASK;
+		}
+		return next;
+	}
+
+	/**
+	 * Returns the messages of the datagram with the specified sequence number.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @return the messages of the datagram, <code>null</code> if it is not in
+	 *         the window.
+	 */
+	EncapsulatedPacket[] get(int sequence) {
+		return this.contains(sequence) ? messages[sequence & mask] : null;
+	}
+
+	/**
+	 * Returns the time the datagram with the specified sequence number was
+	 * sent.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @return the time the datagram was sent, <code>-1</code> if it is not in
+	 *         the window.
+	 */
+	long getSendTime(int sequence) {
+		return this.contains(sequence) ? sendTimes[sequence & mask] : -1L;
+	}
+
+	/**
+	 * Returns the size of the datagram with the specified sequence number.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @return the size of the datagram in bytes, <code>-1</code> if it is not
+	 *         in the window.
+	 */
+	int getSize(int sequence) {
+		return this.contains(sequence) ? sizes[sequence & mask] : -1;
+	}
+
+	/**
+	 * Returns how many times the messages of the datagram with the specified
+	 * sequence number have been resent.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @return how many times the messages of the datagram have been resent,
+	 *         <code>-1</code> if it is not in the window.
+	 */
+	int getResendCount(int sequence) {
+		return this.contains(sequence) ? resendCounts[sequence & mask] : -1;
+	}
+
+	/**
+	 * Adds a datagram to the window.
+	 * 
+	 * @param sequence
+	 *            the sequence number of the datagram. This must be newer than
+	 *            that of every datagram already in the window.
+	 * @param messages
+	 *            the reliable messages contained in the datagram.
+	 * @param size
+	 *            the size of the datagram in bytes.
+	 * @param sendTime
+	 *            the time the datagram was sent.
+	 * @param resendCount
+	 *            how many times the messages have been resent.
+	 * @throws NullPointerException
+	 *             if the <code>messages</code> are <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>sequence</code> is not newer than that of every
+	 *             datagram already in the window.
+	 * @throws IllegalStateException
+	 *             if the window cannot grow large enough to fit the datagram.
+	 */
+	void add(int sequence, EncapsulatedPacket[] messages, int size, long sendTime, int resendCount)
+			throws NullPointerException, IllegalArgumentException, IllegalStateException {
+		if (messages == null) {
+			throw new NullPointerException("Messages cannot be null");
+		} else if (this.size > 0 && distance(sequence, tail) < 0) {
+			throw new IllegalArgumentException("Sequence number must be newer than every one in the window");
+		}
+		sequence &= SEQUENCE_MASK;
+		if (this.size <= 0) {
+			this.head = sequence;
+		} else if (distance(sequence, head) >= this.messages.length) {
+			this.grow(distance(sequence, head) + 1);
+		}
+		int index = sequence & mask;
+		this.messages[index] = messages;
+		this.sendTimes[index] = sendTime;
+		this.resendCounts[index] = resendCount;
+		this.sizes[index] = size;
+		this.tail = (sequence + 1) & SEQUENCE_MASK;
+		this.size++;
+		this.bytes += size;
+	}
+
+	/**
+	 * Removes the datagram with the specified sequence number from the window.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @return the messages of the removed datagram, <code>null</code> if it
+	 *         was not in the window.
+	 */
+	EncapsulatedPacket[] remove(int sequence) {
+		if (!this.contains(sequence)) {
+			return null;
+		}
+		int index = sequence & mask;
+		EncapsulatedPacket[] removed = messages[index];
+		messages[index] = null;
+		this.size--;
+		this.bytes -= sizes[index];
+		if (size <= 0) {
+			this.head = this.tail;
+		} else if (sequence == head) {
+			while (messages[head & mask] == null) {
+				this.head = (head + 1) & SEQUENCE_MASK; // Skip removed datagrams
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Performs the specified action for the messages of every datagram in the
+	 * window.
+	 * 
+	 * @param action
+	 *            the action to perform. This action must not modify the
+	 *            window.
+	 * @throws NullPointerException
+	 *             if the <code>action</code> is <code>null</code>.
+	 */
+	void forEach(Consumer<EncapsulatedPacket[]> action) throws NullPointerException {
+		if (action == null) {
+			throw new NullPointerException("Action cannot be null");
+		}
+		for (int sequence = head; distance(sequence, tail) < 0; sequence = (sequence + 1) & SEQUENCE_MASK) {
+			EncapsulatedPacket[] datagram = messages[sequence & mask];
+			if (datagram != null) {
+				action.accept(datagram);
+			}
+		}
+	}
+
+	/**
+	 * Removes every datagram from the window.
+	 */
+	void clear() {
+		Arrays.fill(messages, null);
+		this.head = this.tail;
+		this.size = 0;
+		this.bytes = 0L;
+	}
+
+	/**
+	 * Returns how far ahead the specified sequence number is from another,
+	 * taking into account that sequence numbers wrap around.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @param from
+	 *            the sequence number to measure from.
+	 * @return how far ahead the sequence number is, negative if it is behind.
+	 */
+	static int distance(int sequence, int from) {
+		return ((sequence - from) << (Integer.SIZE - SEQUENCE_BITS)) >> (Integer.SIZE - SEQUENCE_BITS);
+	}
+
+	/**
+	 * Grows the ring so it can fit the specified amount of sequence numbers.
+	 * 
+	 * @param span
+	 *            the amount of sequence numbers the ring must be able to fit.
+	 * @throws IllegalStateException
+	 *             if the ring cannot grow large enough.
+	 */
+	private void grow(int span) throws IllegalStateException {
+		if (span > MAXIMUM_CAPACITY) {
+			throw new IllegalStateException("Send window cannot grow any larger");
+		}
+		int capacity = messages.length;
+		while (capacity < span) {
+			capacity <<= 1;
+		}
+		int grownMask = capacity - 1;
+		EncapsulatedPacket[][] grownMessages = new EncapsulatedPacket[capacity][];
+		long[] grownSendTimes = new long[capacity];
+		int[] grownResendCounts = new int[capacity];
+		int[] grownSizes = new int[capacity];
+		for (int sequence = head; distance(sequence, tail) < 0; sequence = (sequence + 1) & SEQUENCE_MASK) {
+			int index = sequence & mask;
+			if (messages[index] != null) {
+				grownMessages[sequence & grownMask] = messages[index];
+				grownSendTimes[sequence & grownMask] = sendTimes[index];
+				grownResendCounts[sequence & grownMask] = resendCounts[index];
+				grownSizes[sequence & grownMask] = sizes[index];
+			}
+		}
+		this.messages = grownMessages;
+		this.sendTimes = grownSendTimes;
+		this.resendCounts = grownResendCounts;
+		this.sizes = grownSizes;
+		this.mask = grownMask;
+	}
+
+}
@@ -0,0 +1,293 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A map from sequence numbers to values, backed by a ring buffer.
+ * <p>
+ * The value for a sequence number is stored at the index of the sequence
+ * number masked by the size of the ring, making every lookup a single array
+ * access. Since the sequence numbers stored at any one time belong to a
+ * window of recently sent datagrams, they rarely collide in the ring. When
+ * they do, the window has outgrown the ring, and the ring doubles in size.
+ * 
+ * @param <T>
+ *            the type of the values.
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+final class SequenceWindow<T> {
+
+	/**
+	 * The largest size the ring can grow to.
+	 */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private int[] sequences;
+	private Object[] values;
+	private int mask;
+	private int size;
+
+	/**
+	 * Creates a sequence window.
+	 * 
+	 * @param initialCapacity
+	 *            the initial size of the ring, which is rounded up to the
+	 *            nearest power of two.
+	 * @throws IllegalArgumentException
+	 *             if the <code>initialCapacity</code> is less than or equal
+	 *             to <code>0</code> or greater than <code>2^30</code>.
+	 */
+	SequenceWindow(int initialCapacity) throws IllegalArgumentException {
+		if (initialCapacity <= 0 || initialCapacity > MAXIMUM_CAPACITY) {
+			throw new IllegalArgumentException("Initial capacity must be in between 1 and 2^30");
+		}
+		int capacity = Integer.highestOneBit(initialCapacity);
+		if (capacity < initialCapacity) {
+			capacity <<= 1;
+		}
+		this.sequences = new int[capacity];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Returns the amount of values in the window.
+	 * 
+	 * @return the amount of values in the window.
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns whether or not the window is empty.
+	 * 
+	 * @return <code>true</code> if the window is empty, <code>false</code>
+	 *         otherwise.
+	 */
+	boolean isEmpty() {
+		return size <= 0;
+	}
+
+	/**
+	 * Returns the current size of the ring.
+	 * 
+	 * @return the current size of the ring.
+	 */
+	int capacity() {
+		return values.length;
+	}
+
+	/**
+	 * Returns the value stored for the specified sequence number.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @return the value stored for the sequence number, <code>null</code> if
+	 *         there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	T get(int sequence) {
+		int index = sequence & mask;
+		if (values[index] == null || sequences[index] != sequence) {
+			return null;
+		}
+		return (T) values[index];
+	}
+
+	/**
+	 * Stores a value for the specified sequence number, growing the ring if
+	 * the slot for the sequence number is taken by another.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @param value
+	 *            the value.
+	 * @return the value previously stored for the sequence number,
+	 *         <code>null</code> if there was none.
+	 * @throws NullPointerException
+	 *             if the <code>value</code> is <code>null</code>.
+	 * @throws IllegalStateException
+	 *             if the ring cannot grow any larger.
+	 */
+	@SuppressWarnings("unchecked")
+	T put(int sequence, T value) throws NullPointerException, IllegalStateException {
+		if (value == null) {
+			throw new NullPointerException("Value cannot be null");
+		}
+		int index = sequence & mask;
+		if (values[index] != null && sequences[index] != sequence) {
+			this.grow(sequence);
+			index = sequence & mask;
+		}
+		Object previous = values[index];
+		sequences[index] = sequence;
+		values[index] = value;
+		if (previous == null) {
+			this.size++;
+		}
+		return (T) previous;
+	}
+
+	/**
+	 * Removes the value stored for the specified sequence number.
+	 * 
+	 * @param sequence
+	 *            the sequence number.
+	 * @return the removed value, <code>null</code> if there was none.
+	 */
+	T remove(int sequence) {
+		T value = this.get(sequence);
+		if (value != null) {
+			values[sequence & mask] = null;
+			this.size--;
+		}
+		return value;
+	}
+
+	/**
+	 * Removes the values stored for every sequence number in between the
+	 * specified sequence numbers.
+	 * <p>
+	 * The sequence numbers are only looked up one by one when there are fewer
+	 * of them than there are slots in the ring. Otherwise, every slot in the
+	 * ring is checked instead. This keeps the cost of removing a range bound
+	 * by the size of the ring, no matter how large the range is.
+	 *
+	 * @param startSequence
+	 *            the first sequence number, inclusive.
+	 * @param endSequence
+	 *            the last sequence number, inclusive.
+	 * @param action
+	 *            the action to perform on every removed value. This action
+	 *            must not modify the window.
+	 * @throws NullPointerException
+	 *             if the <code>action</code> is <code>null</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	void removeRange(int startSequence, int endSequence, Consumer<? super T> action) throws NullPointerException {
+		if (action == null) {
+			throw new NullPointerException("Action cannot be null");
+		} else if (size <= 0 || endSequence < startSequence) {
+			return; // Nothing to remove
+		}
+		if ((long) endSequence - startSequence < values.length) {
+			for (int sequence = startSequence; sequence <= endSequence && size > 0; sequence++) {
+				T value = this.remove(sequence);
+				if (value != null) {
+					action.accept(value);
+				}
+			}
+		} else {
+			for (int i = 0; i < values.length && size > 0; i++) {
+				if (values[i] != null && sequences[i] >= startSequence && sequences[i] <= endSequence) {
+					Object value = values[i];
+					values[i] = null;
+					this.size--;
+					action.accept((T) value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Performs the specified action for every value in the window.
+	 * 
+	 * @param action
+	 *            the action to perform.
+	 * @throws NullPointerException
+	 *             if the <code>action</code> is <code>null</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	void forEach(Consumer<? super T> action) throws NullPointerException {
+		if (action == null) {
+			throw new NullPointerException("Action cannot be null");
+		}
+		for (int i = 0; i < values.length && size > 0; i++) {
+			if (values[i] != null) {
+				action.accept((T) values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Removes every value from the window.
+	 */
+	void clear() {
+		Arrays.fill(values, null);
+		this.size = 0;
+	}
+
+	/**
+	 * Doubles the size of the ring until none of the stored sequence numbers
+	 * and the specified sequence number share a slot.
+	 * 
+	 * @param sequence
+	 *            the sequence number about to be stored.
+	 * @throws IllegalStateException
+	 *             if the ring cannot grow any larger.
+	 */
+	private void grow(int sequence) throws IllegalStateException {
+		int capacity = values.length;
+		int[] grownSequences;
+		Object[] grownValues;
+		boolean collided;
+		do {
+			if (capacity >= MAXIMUM_CAPACITY) {
+				throw new IllegalStateException("Sequence window cannot grow any larger");
+			}
+			capacity <<= 1;
+			int grownMask = capacity - 1;
+			grownSequences = new int[capacity];
+			grownValues = new Object[capacity];
+			collided = false;
+			for (int i = 0; i < values.length && collided == false; i++) {
+				if (values[i] != null) {
+					int index = sequences[i] & grownMask;
+					if (grownValues[index] != null) {
+						collided = true;
+					} else {
+						grownSequences[index] = sequences[i];
+						grownValues[index] = values[i];
+					}
+				}
+			}
+			collided = collided || grownValues[sequence & grownMask] != null;
+		} while (collided == true);
+		this.sequences = grownSequences;
+		this.values = grownValues;
+		this.mask = capacity - 1;
+	}
+
+}
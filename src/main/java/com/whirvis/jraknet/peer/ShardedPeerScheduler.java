@@ -0,0 +1,529 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link PeerScheduler} that partitions peers across a fixed amount of
+ * worker threads, known as shards.
+ * <p>
+ * Each shard keeps its peers in a hashed timer wheel, keyed by the next time
+ * they must be updated. A shard only wakes up when the earliest of these
+ * deadlines has been reached, or when one of its peers is woken up early, such
+ * as when a message is added to its send queue. When there is nothing to do,
+ * the shard thread is parked and does not use any CPU.
+ * <p>
+ * Each shard is also the owner of the peers assigned to it, meaning that
+ * packets received by a peer are handed off to its shard to be handled.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class ShardedPeerScheduler implements PeerScheduler {
+
+	/**
+	 * The duration of a single tick of a shard's timer wheel in milliseconds.
+	 * <p>
+	 * This is kept as short as the clock allows, so that peers that pace the
+	 * datagrams they send are updated when their next datagram is due rather
+	 * than sending every datagram due within a longer tick at once.
+	 */
+	public static final long TICK_DURATION = 1L;
+
+	/**
+	 * The amount of buckets in a shard's timer wheel.
+	 * <p>
+	 * This must be a power of two. Deadlines further away than this many
+	 * ticks are checked again every time the wheel comes around.
+	 */
+	public static final int WHEEL_SIZE = 4096;
+
+	/**
+	 * Holds the scheduling data of a registered peer.
+	 * 
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static final class Slot {
+
+		private final RakNetPeer peer;
+		private final Shard shard;
+		private final AtomicBoolean queued;
+		private volatile boolean cancelled;
+		private long deadlineTick;
+		private int bucket;
+		private Slot previous;
+		private Slot next;
+
+		/**
+		 * Creates a slot.
+		 * 
+		 * @param peer
+		 *            the peer.
+		 * @param shard
+		 *            the shard the peer belongs to.
+		 */
+		private Slot(RakNetPeer peer, Shard shard) {
+			this.peer = peer;
+			this.shard = shard;
+			this.queued = new AtomicBoolean();
+			this.bucket = -1;
+		}
+
+	}
+
+	/**
+	 * A task to be run on the thread that owns a peer.
+	 * 
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static final class Task {
+
+		private final Slot slot;
+		private final Runnable runnable;
+
+		/**
+		 * Creates a task.
+		 * 
+		 * @param slot
+		 *            the slot of the peer.
+		 * @param runnable
+		 *            the task to run.
+		 */
+		private Task(Slot slot, Runnable runnable) {
+			this.slot = slot;
+			this.runnable = runnable;
+		}
+
+	}
+
+	/**
+	 * A worker thread which updates the peers assigned to it.
+	 * 
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private final class Shard extends Thread {
+
+		private final BiConsumer<RakNetPeer, Throwable> exceptionHandler;
+		private final ConcurrentLinkedQueue<Task> tasks;
+		private final ConcurrentLinkedQueue<Slot> ready;
+		private final ArrayList<Slot> drained;
+		private final Slot[] buckets;
+		private long nextTick;
+		private int scheduled;
+
+		/**
+		 * Creates a shard.
+		 * 
+		 * @param name
+		 *            the name of the shard thread.
+		 * @param exceptionHandler
+		 *            the handler called when a peer throws an exception while
+		 *            it is being updated.
+		 */
+		private Shard(String name, BiConsumer<RakNetPeer, Throwable> exceptionHandler) {
+			super(name);
+			this.exceptionHandler = exceptionHandler;
+			this.tasks = new ConcurrentLinkedQueue<Task>();
+			this.ready = new ConcurrentLinkedQueue<Slot>();
+			this.drained = new ArrayList<Slot>();
+			this.buckets = new Slot[WHEEL_SIZE];
+			this.nextTick = System.currentTimeMillis() / TICK_DURATION;
+		}
+
+		/**
+		 * Queues the slot to be updated as soon as possible.
+		 * 
+		 * @param slot
+		 *            the slot.
+		 */
+		private void queue(Slot slot) {
+			if (slot.queued.compareAndSet(false, true)) {
+				ready.add(slot);
+				LockSupport.unpark(this);
+			}
+		}
+
+		/**
+		 * Queues the task to be run as soon as possible.
+		 * 
+		 * @param task
+		 *            the task.
+		 */
+		private void queue(Task task) {
+			tasks.add(task);
+			LockSupport.unpark(this);
+		}
+
+		/**
+		 * Runs all queued tasks.
+		 */
+		private void runTasks() {
+			Task task = null;
+			while ((task = tasks.poll()) != null) {
+				try {
+					task.runnable.run();
+				} catch (Throwable throwable) {
+					if (slots.remove(task.slot.peer, task.slot)) {
+						ShardedPeerScheduler.this.unregister(task.slot);
+						exceptionHandler.accept(task.slot.peer, throwable);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Places the slot in the timer wheel.
+		 * 
+		 * @param slot
+		 *            the slot.
+		 * @param deadline
+		 *            the time the slot's peer must be updated.
+		 */
+		private void schedule(Slot slot, long deadline) {
+			this.unlink(slot);
+			slot.deadlineTick = Math.max(deadline / TICK_DURATION, nextTick);
+			slot.bucket = (int) (slot.deadlineTick & (WHEEL_SIZE - 1));
+			slot.next = buckets[slot.bucket];
+			if (slot.next != null) {
+				slot.next.previous = slot;
+			}
+			buckets[slot.bucket] = slot;
+			this.scheduled++;
+		}
+
+		/**
+		 * Removes the slot from the timer wheel, if it is in it.
+		 * 
+		 * @param slot
+		 *            the slot.
+		 */
+		private void unlink(Slot slot) {
+			if (slot.bucket < 0) {
+				return; // Not in the wheel
+			}
+			if (slot.previous != null) {
+				slot.previous.next = slot.next;
+			} else {
+				buckets[slot.bucket] = slot.next;
+			}
+			if (slot.next != null) {
+				slot.next.previous = slot.previous;
+			}
+			slot.previous = null;
+			slot.next = null;
+			slot.bucket = -1;
+			this.scheduled--;
+		}
+
+		/**
+		 * Updates the peer of the slot and determines when it must next be
+		 * updated.
+		 * 
+		 * @param slot
+		 *            the slot.
+		 */
+		private void update(Slot slot) {
+			this.unlink(slot);
+			RakNetPeer peer = slot.peer;
+			if (slot.cancelled == true || peer.isDisconnected()) {
+				return;
+			}
+			try {
+				peer.update();
+			} catch (Throwable throwable) {
+				if (slots.remove(peer, slot)) {
+					ShardedPeerScheduler.this.unregister(slot);
+					exceptionHandler.accept(peer, throwable);
+				}
+				return;
+			}
+			if (slot.cancelled == false) {
+				long deadline = peer.getNextUpdateTime();
+				if (deadline <= System.currentTimeMillis()) {
+					this.queue(slot);
+				} else {
+					this.schedule(slot, deadline);
+				}
+			}
+		}
+
+		/**
+		 * Returns the amount of nanoseconds the shard can sleep for before
+		 * the next peer in the timer wheel is due.
+		 * 
+		 * @param currentTime
+		 *            the current time.
+		 * @return the amount of nanoseconds the shard can sleep for,
+		 *         <code>-1</code> if there are no peers in the timer wheel.
+		 */
+		private long getParkTime(long currentTime) {
+			if (scheduled <= 0) {
+				return -1L;
+			}
+			long tick = nextTick;
+			for (int i = 0; i < WHEEL_SIZE; i++, tick++) {
+				if (buckets[(int) (tick & (WHEEL_SIZE - 1))] != null) {
+					break;
+				}
+			}
+			return TimeUnit.MILLISECONDS.toNanos(Math.max(tick * TICK_DURATION - currentTime, 0L));
+		}
+
+		@Override
+		public void run() {
+			while (running == true && !this.isInterrupted()) {
+				// Handle packets and messages given to the shard
+				this.runTasks();
+
+				// Update peers that were woken up
+				Slot woken = null;
+				while ((woken = ready.poll()) != null) {
+					woken.queued.set(false);
+					drained.add(woken);
+				}
+				for (int i = 0; i < drained.size(); i++) {
+					this.update(drained.get(i));
+				}
+				drained.clear();
+
+				// Update peers that are due in the timer wheel
+				long currentTick = System.currentTimeMillis() / TICK_DURATION;
+				while (nextTick <= currentTick) {
+					if (scheduled <= 0) {
+						/*
+						 * There is nothing left in the wheel, so the ticks
+						 * that have passed since the shard was last awake can
+						 * be skipped rather than stepped through one by one.
+						 */
+						this.nextTick = currentTick + 1;
+						break;
+					}
+					long tick = this.nextTick++;
+					Slot slot = buckets[(int) (tick & (WHEEL_SIZE - 1))];
+					while (slot != null) {
+						Slot next = slot.next;
+						if (slot.cancelled == true) {
+							this.unlink(slot);
+						} else if (slot.deadlineTick <= tick) {
+							this.update(slot);
+						}
+						slot = next;
+					}
+				}
+
+				// Sleep until there is something to do
+				if (ready.isEmpty() && tasks.isEmpty()) {
+					long parkTime = this.getParkTime(System.currentTimeMillis());
+					if (parkTime < 0) {
+						LockSupport.park(this);
+					} else if (parkTime > 0) {
+						LockSupport.parkNanos(this, parkTime);
+					}
+				}
+			}
+
+			/*
+			 * Tasks are guaranteed to run once they have been accepted, as
+			 * they may be holding onto buffers that must be released.
+			 */
+			this.runTasks();
+		}
+
+	}
+
+	private final int shardCount;
+	private final ConcurrentHashMap<RakNetPeer, Slot> slots;
+	private Shard[] shards;
+	private volatile boolean running;
+
+	/**
+	 * Creates a sharded peer scheduler.
+	 * 
+	 * @param shardCount
+	 *            the amount of shards to partition peers across.
+	 * @throws IllegalArgumentException
+	 *             if the <code>shardCount</code> is less than
+	 *             <code>1</code>.
+	 */
+	public ShardedPeerScheduler(int shardCount) throws IllegalArgumentException {
+		if (shardCount < 1) {
+			throw new IllegalArgumentException("Shard count must be at least 1");
+		}
+		this.shardCount = shardCount;
+		this.slots = new ConcurrentHashMap<RakNetPeer, Slot>();
+	}
+
+	/**
+	 * Creates a sharded peer scheduler with one shard for each available
+	 * processor.
+	 */
+	public ShardedPeerScheduler() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Returns the amount of shards peers are partitioned across.
+	 * 
+	 * @return the amount of shards peers are partitioned across.
+	 */
+	public int getShardCount() {
+		return this.shardCount;
+	}
+
+	@Override
+	public void start(String name, BiConsumer<RakNetPeer, Throwable> exceptionHandler)
+			throws NullPointerException, IllegalStateException {
+		if (name == null) {
+			throw new NullPointerException("Name cannot be null");
+		} else if (exceptionHandler == null) {
+			throw new NullPointerException("Exception handler cannot be null");
+		} else if (running == true) {
+			throw new IllegalStateException("Scheduler is already running");
+		}
+		this.shards = new Shard[shardCount];
+		for (int i = 0; i < shards.length; i++) {
+			shards[i] = new Shard(name + (shards.length > 1 ? "-" + i : ""), exceptionHandler);
+		}
+		this.running = true;
+		for (Shard shard : shards) {
+			shard.start();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public void register(RakNetPeer peer) throws NullPointerException, IllegalStateException {
+		if (peer == null) {
+			throw new NullPointerException("Peer cannot be null");
+		} else if (running == false) {
+			throw new IllegalStateException("Scheduler is not running");
+		}
+		int hash = peer.getAddress().hashCode();
+		Shard shard = shards[((hash ^ (hash >>> 16)) & 0x7FFFFFFF) % shards.length];
+		Slot slot = new Slot(peer, shard);
+		Slot previous = slots.put(peer, slot);
+		if (previous != null) {
+			previous.cancelled = true;
+		}
+		peer.setScheduler(this);
+		shard.queue(slot);
+	}
+
+	/**
+	 * Cancels a slot that has been removed from the registered slots.
+	 * 
+	 * @param slot
+	 *            the slot.
+	 */
+	private void unregister(Slot slot) {
+		slot.cancelled = true;
+		if (slot.peer.getScheduler() == this) {
+			slot.peer.setScheduler(null);
+		}
+		slot.shard.queue(slot); // Remove it from the timer wheel
+	}
+
+	@Override
+	public void unregister(RakNetPeer peer) {
+		if (peer == null) {
+			return;
+		}
+		Slot slot = slots.remove(peer);
+		if (slot != null) {
+			this.unregister(slot);
+		}
+	}
+
+	@Override
+	public boolean inPeerThread(RakNetPeer peer) {
+		Slot slot = peer != null ? slots.get(peer) : null;
+		return slot == null || Thread.currentThread() == slot.shard;
+	}
+
+	@Override
+	public void execute(RakNetPeer peer, Runnable task) throws NullPointerException {
+		if (peer == null) {
+			throw new NullPointerException("Peer cannot be null");
+		} else if (task == null) {
+			throw new NullPointerException("Task cannot be null");
+		}
+		Slot slot = slots.get(peer);
+		if (slot != null) {
+			slot.shard.queue(new Task(slot, task));
+		} else {
+			task.run();
+		}
+	}
+
+	@Override
+	public void wakeup(RakNetPeer peer) {
+		if (peer == null) {
+			return;
+		}
+		Slot slot = slots.get(peer);
+		if (slot != null) {
+			slot.shard.queue(slot);
+		}
+	}
+
+	@Override
+	public void shutdown() throws IllegalStateException {
+		if (running == false) {
+			throw new IllegalStateException("Scheduler is not running");
+		}
+		this.running = false;
+		for (Slot slot : slots.values()) {
+			slot.cancelled = true;
+			if (slot.peer.getScheduler() == this) {
+				slot.peer.setScheduler(null);
+			}
+		}
+		slots.clear();
+		for (Shard shard : shards) {
+			shard.interrupt();
+		}
+		this.shards = null;
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+/**
+ * A congestion controller that uses additive increase and multiplicative
+ * decrease, modeled after the sliding window congestion control of the
+ * original RakNet.
+ * <p>
+ * The congestion window starts out small, and grows by the size of every
+ * acknowledged datagram until it reaches the slow start threshold, doubling
+ * every round trip. After that, it grows by about one datagram every round
+ * trip. When the peer reports a datagram lost, the slow start threshold and
+ * the congestion window are halved. When a datagram is not acknowledged in
+ * time, the slow start threshold is halved and the congestion window is set
+ * back to a single datagram. Either only happens once for every group of
+ * datagrams that were in flight at the same time, as losing many datagrams
+ * sent around the same time is a sign of the same congestion.
+ * <p>
+ * This controller does not pace datagrams.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public class SlidingWindowCongestionController implements CongestionController {
+
+	/**
+	 * The size of the initial congestion window in datagrams.
+	 */
+	public static final int INITIAL_WINDOW = 4;
+
+	private final int maximumTransferUnit;
+	private long congestionWindow;
+	private long slowStartThreshold;
+	private long lastReductionTime;
+
+	/**
+	 * Creates a sliding window congestion controller.
+	 * 
+	 * @param maximumTransferUnit
+	 *            the maximum transfer unit of the peer.
+	 * @throws IllegalArgumentException
+	 *             if the <code>maximumTransferUnit</code> is less than or
+	 *             equal to <code>0</code>.
+	 */
+	public SlidingWindowCongestionController(int maximumTransferUnit) throws IllegalArgumentException {
+		if (maximumTransferUnit <= 0) {
+			throw new IllegalArgumentException("Maximum transfer unit must be greater than 0");
+		}
+		this.maximumTransferUnit = maximumTransferUnit;
+		this.congestionWindow = (long) maximumTransferUnit * INITIAL_WINDOW;
+		this.slowStartThreshold = Long.MAX_VALUE;
+		this.lastReductionTime = -1L;
+	}
+
+	/**
+	 * Returns the slow start threshold.
+	 * 
+	 * @return the slow start threshold in bytes, {@value Long#MAX_VALUE} if
+	 *         no datagrams have been lost yet.
+	 */
+	public long getSlowStartThreshold() {
+		return this.slowStartThreshold;
+	}
+
+	/**
+	 * Returns whether or not the controller is in slow start.
+	 * 
+	 * @return <code>true</code> if the controller is in slow start,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isSlowStart() {
+		return congestionWindow < slowStartThreshold;
+	}
+
+	@Override
+	public void onSend(long time, int size, long bytesInFlight) {
+		// Nothing to update
+	}
+
+	@Override
+	public void onAcknowledge(long time, long sendTime, int size, long bytesInFlight) {
+		/*
+		 * Only grow the window while it is being used. Otherwise, a peer that
+		 * sends little data would grow its window without ever testing if
+		 * the network can handle it, and then flood the network once it has
+		 * more data to send.
+		 */
+		if ((bytesInFlight + size) * 2 < congestionWindow) {
+			return;
+		}
+		if (this.isSlowStart()) {
+			this.congestionWindow += size;
+		} else {
+			this.congestionWindow += Math.max(1L, (long) maximumTransferUnit * size / congestionWindow);
+		}
+	}
+
+	@Override
+	public void onLoss(long time, long sendTime, int size, boolean timeout) {
+		if (sendTime <= lastReductionTime) {
+			return; // Already reduced for this loss
+		}
+		this.slowStartThreshold = Math.max(congestionWindow / 2, maximumTransferUnit);
+		this.congestionWindow = timeout ? maximumTransferUnit : slowStartThreshold;
+		this.lastReductionTime = time;
+	}
+
+	@Override
+	public long getCongestionWindow() {
+		return this.congestionWindow;
+	}
+
+	@Override
+	public long getPacingRate() {
+		return 0L;
+	}
+
+	@Override
+	public String toString() {
+		return "SlidingWindowCongestionController [congestionWindow=" + congestionWindow + ", slowStartThreshold="
+				+ slowStartThreshold + "]";
+	}
+
+}
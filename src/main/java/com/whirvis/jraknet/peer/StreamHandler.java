@@ -0,0 +1,66 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+/**
+ * Handles a stream opened by a {@link RakNetPeer} on the thread that owns the
+ * peer.
+ * <p>
+ * Stream handlers are registered to a {@link MessageRegistry} with the ID the
+ * streams are opened with. As reading from the stream blocks until data has
+ * been received, which can only happen on the thread that owns the peer, the
+ * stream should be handed off to another thread to be read.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see MessageRegistry#registerStream(int, StreamHandler)
+ * @see RakNetPeer#openStream(int, int)
+ */
+@FunctionalInterface
+public interface StreamHandler {
+
+	/**
+	 * Called when a peer has opened a stream with the ID the handler is
+	 * registered to.
+	 * <p>
+	 * Ownership of the <code>stream</code> is passed to the handler, which
+	 * must close it once it is done reading from it. Until then, it holds on
+	 * to any data that has been received but not yet read.
+	 * 
+	 * @param peer
+	 *            the peer that opened the stream.
+	 * @param stream
+	 *            the stream.
+	 * @param channel
+	 *            the channel the stream is sent on.
+	 */
+	public void handleStream(RakNetPeer peer, MessageInputStream stream, int channel);
+
+}
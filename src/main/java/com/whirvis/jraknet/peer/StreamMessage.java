@@ -0,0 +1,105 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+/**
+ * The types of messages that make up a message stream.
+ * <p>
+ * Every message belonging to a stream starts with the ID the stream was
+ * opened with, followed by one of the types below. The stream is identified
+ * by its ID and the channel it is sent on, and every message is sent
+ * {@link com.whirvis.jraknet.protocol.Reliability#RELIABLE_ORDERED
+ * RELIABLE_ORDERED} so they are handled in the order they were sent.
+ * <p>
+ * The sending peer sends <code>OPEN</code>, followed by any amount of
+ * <code>DATA</code> and a single <code>END</code>. The receiving peer sends
+ * <code>CREDIT</code> every time it has read enough data, followed by a
+ * single <code>CLOSE</code> once it has either received <code>END</code> or
+ * been closed early. A peer that receives <code>CLOSE</code> before it has
+ * sent <code>END</code> sends it right away. This way, neither side forgets a
+ * stream until the other side has sent its last message for it.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see MessageOutputStream
+ * @see MessageInputStream
+ */
+final class StreamMessage {
+
+	/**
+	 * The size of the ID and type that start every stream message.
+	 */
+	static final int HEADER_SIZE = 2;
+
+	/**
+	 * Sent by the sending peer to open a stream. The receiving peer responds
+	 * with the initial <code>CREDIT</code>.
+	 */
+	static final int OPEN = 0x00;
+
+	/**
+	 * Sent by the sending peer with a chunk of the stream data.
+	 */
+	static final int DATA = 0x01;
+
+	/**
+	 * Sent by the sending peer once the stream has no more data.
+	 */
+	static final int END = 0x02;
+
+	/**
+	 * Sent by the receiving peer with the amount of bytes the sending peer can
+	 * send on top of what it already has.
+	 */
+	static final int CREDIT = 0x03;
+
+	/**
+	 * Sent by the receiving peer once it will no longer read from the stream.
+	 */
+	static final int CLOSE = 0x04;
+
+	private StreamMessage() {
+		// Static class
+	}
+
+	/**
+	 * Returns the key a stream is stored under by a peer.
+	 * 
+	 * @param id
+	 *            the ID of the stream messages.
+	 * @param channel
+	 *            the channel the stream is sent on.
+	 * @return the key the stream is stored under.
+	 */
+	static int key(int id, int channel) {
+		return (id << 8) | channel;
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+/**
+ * A token bucket used to pace the datagrams sent to a peer.
+ * <p>
+ * Tokens are added to the bucket at a fixed rate, up to the capacity of the
+ * bucket, and are taken out of it whenever something is sent. Since the size
+ * of a datagram is not known until it has been built, sending is allowed for
+ * as long as there are tokens left, and the bucket is allowed to go into debt
+ * by the size of the last datagram. The next datagram then waits until the
+ * debt has been paid off. This keeps the average rate exact, while the
+ * capacity limits how much can be sent at once after the bucket has been
+ * left to fill up.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+final class TokenBucket {
+
+	private long rate;
+	private double capacity;
+	private double tokens;
+	private long lastRefillTime;
+
+	/**
+	 * Creates a token bucket with no limit.
+	 * 
+	 * @param time
+	 *            the current time in nanoseconds.
+	 */
+	TokenBucket(long time) {
+		this.lastRefillTime = time;
+	}
+
+	/**
+	 * Returns whether or not the bucket has no limit.
+	 * 
+	 * @return <code>true</code> if the bucket has no limit, <code>false</code>
+	 *         otherwise.
+	 */
+	boolean isUnlimited() {
+		return rate <= 0;
+	}
+
+	/**
+	 * Returns the rate at which tokens are added to the bucket.
+	 * 
+	 * @return the rate at which tokens are added to the bucket per second,
+	 *         <code>0</code> if the bucket has no limit.
+	 */
+	long getRate() {
+		return this.rate;
+	}
+
+	/**
+	 * Returns the capacity of the bucket.
+	 * 
+	 * @return the capacity of the bucket.
+	 */
+	double getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Sets the rate at which tokens are added to the bucket and its capacity.
+	 * <p>
+	 * The tokens added at the previous rate are accounted for first, so that
+	 * changing the rate does not affect what could already have been sent.
+	 * 
+	 * @param rate
+	 *            the rate at which tokens are added to the bucket per second,
+	 *            <code>0</code> for no limit.
+	 * @param capacity
+	 *            the capacity of the bucket.
+	 * @param time
+	 *            the current time in nanoseconds.
+	 */
+	void setRate(long rate, double capacity, long time) {
+		if (this.rate == rate && this.capacity == capacity) {
+			return; // Nothing changed
+		}
+		this.refill(time);
+		if (this.rate <= 0) {
+			this.tokens = capacity; // Start with a full bucket
+		}
+		this.rate = Math.max(rate, 0L);
+		this.capacity = capacity;
+		this.tokens = Math.min(tokens, capacity);
+	}
+
+	/**
+	 * Adds the tokens that have accumulated since the bucket was last
+	 * refilled.
+	 * 
+	 * @param time
+	 *            the current time in nanoseconds.
+	 */
+	void refill(long time) {
+		this.tokens = this.getTokens(time);
+		this.lastRefillTime = time;
+	}
+
+	/**
+	 * Returns the amount of tokens in the bucket.
+	 * 
+	 * @param time
+	 *            the current time in nanoseconds.
+	 * @return the amount of tokens in the bucket, negative if the bucket is in
+	 *         debt.
+	 */
+	double getTokens(long time) {
+		if (rate <= 0) {
+			return this.capacity;
+		}
+		long elapsed = Math.max(time - lastRefillTime, 0L);
+		return Math.min(tokens + (double) elapsed * rate / 1000000000.0D, capacity);
+	}
+
+	/**
+	 * Takes the specified amount of tokens out of the bucket.
+	 * 
+	 * @param amount
+	 *            the amount of tokens to take.
+	 * @param time
+	 *            the current time in nanoseconds.
+	 */
+	void consume(long amount, long time) {
+		if (rate > 0) {
+			this.refill(time);
+			this.tokens -= amount;
+		}
+	}
+
+	/**
+	 * Returns the amount of time until the bucket has tokens to spare.
+	 * 
+	 * @param time
+	 *            the current time in nanoseconds.
+	 * @return the amount of time in nanoseconds until the bucket has tokens to
+	 *         spare, <code>0</code> if it has them now.
+	 */
+	long getDelay(long time) {
+		double tokens = this.getTokens(time);
+		if (tokens > 0.0D) {
+			return 0L;
+		}
+		return (long) Math.ceil(-tokens * 1000000000.0D / rate) + 1L;
+	}
+
+	@Override
+	public String toString() {
+		return "TokenBucket [rate=" + rate + ", capacity=" + capacity + ", tokens=" + tokens + "]";
+	}
+
+}
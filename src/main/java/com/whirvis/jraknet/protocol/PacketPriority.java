@@ -0,0 +1,103 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.protocol;
+
+/**
+ * Represents a RakNet packet priority. Priorities determine the order in which
+ * queued packets are sent when more are waiting than can be sent at once.
+ * <p>
+ * Packets with the {@link #IMMEDIATE} priority are always sent first, and are
+ * sent as soon as they are queued rather than once the peer is next updated.
+ * The remaining priorities share what is left according to their weight, so
+ * that when all of them have packets waiting, a {@link #HIGH} priority packet
+ * is sent twice as often as a {@link #MEDIUM} priority packet, which is in
+ * turn sent twice as often as a {@link #LOW} priority packet. This way, lower
+ * priorities are never starved entirely.
+ * <p>
+ * Since ordered and sequenced packets are handled in the order they were
+ * sent on their channel, packets with different priorities should be sent on
+ * different channels. Otherwise, higher priority packets will still have to
+ * wait for the lower priority packets sent before them on the same channel.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public enum PacketPriority {
+
+	/**
+	 * The packet will be sent right away, ahead of every other packet.
+	 */
+	IMMEDIATE(0),
+
+	/**
+	 * The packet will be sent twice as often as {@link #MEDIUM} priority
+	 * packets.
+	 */
+	HIGH(4),
+
+	/**
+	 * The packet will be sent twice as often as {@link #LOW} priority packets.
+	 * This is the priority of packets sent without one.
+	 */
+	MEDIUM(2),
+
+	/**
+	 * The packet will be sent half as often as {@link #MEDIUM} priority
+	 * packets.
+	 */
+	LOW(1);
+
+	private final int weight;
+
+	/**
+	 * Constructs a <code>PacketPriority</code>.
+	 * 
+	 * @param weight
+	 *            the share of sent packets the priority is given relative to
+	 *            the other priorities, <code>0</code> if it is always sent
+	 *            first.
+	 */
+	private PacketPriority(int weight) {
+		this.weight = weight;
+	}
+
+	/**
+	 * Returns the share of sent packets the priority is given relative to the
+	 * other priorities.
+	 * 
+	 * @return the share of sent packets the priority is given relative to the
+	 *         other priorities, <code>0</code> if packets with the priority
+	 *         are always sent first.
+	 */
+	public int getWeight() {
+		return this.weight;
+	}
+
+}
@@ -46,4 +46,17 @@ public final class CustomFourPacket extends CustomPacket {
 		super(ID_CUSTOM_4);
 	}
 
+	/**
+	 * Creates a <code>CUSTOM_4</code> packet to be encoded with a buffer of
+	 * the specified initial capacity.
+	 * 
+	 * @param initialCapacity
+	 *            the initial capacity of the buffer, usually the maximum
+	 *            transfer unit of the peer the packet is being sent to.
+	 * @see #encode()
+	 */
+	public CustomFourPacket(int initialCapacity) {
+		super(ID_CUSTOM_4, initialCapacity);
+	}
+
 }
@@ -112,6 +112,28 @@ public class CustomPacket extends RakNetPacket {
 		}
 	}
 
+	/**
+	 * Creates a custom packet to be encoded with a buffer of the specified
+	 * initial capacity.
+	 * 
+	 * @param type
+	 *            the type of custom packet being in between
+	 *            <code>ID_CUSTOM_0</code> and <code>ID_CUSTOM_F</code>.
+	 * @param initialCapacity
+	 *            the initial capacity of the buffer, usually the maximum
+	 *            transfer unit of the peer the packet is being sent to.
+	 * @throws IllegalArgumentException
+	 *             if the <code>type</code> is not in between code
+	 *             <code>ID_CUSTOM_0</code> and <code>ID_CUSTOM_F</code>.
+	 * @see #encode()
+	 */
+	protected CustomPacket(int type, int initialCapacity) throws IllegalArgumentException {
+		super(type, initialCapacity);
+		if (type < ID_CUSTOM_0 || type > ID_CUSTOM_F) {
+			throw new IllegalArgumentException("Custom packet ID must be in between ID_CUSTOM_0 and ID_CUSTOM_F");
+		}
+	}
+
 	/**
 	 * Creates a <code>CUSTOM</code> packet to be decoded.
 	 * 
@@ -141,7 +163,7 @@ public class CustomPacket extends RakNetPacket {
 
 	@Override
 	public void decode() {
-		this.sequenceId = this.readTriadLE();
+		this.sequenceId = this.readUnsignedTriadLE();
 		ArrayList<EncapsulatedPacket> messages = new ArrayList<EncapsulatedPacket>();
 		ArrayList<EncapsulatedPacket> ackMessages = new ArrayList<EncapsulatedPacket>();
 		while (this.remaining() >= EncapsulatedPacket.MINIMUM_SIZE) {
@@ -32,11 +32,14 @@ package com.whirvis.jraknet.protocol.message;
 import java.util.Arrays;
 
 import com.whirvis.jraknet.Packet;
-import com.whirvis.jraknet.map.IntMap;
+import com.whirvis.jraknet.RakNet;
 import com.whirvis.jraknet.peer.RakNetPeer;
 import com.whirvis.jraknet.protocol.Reliability;
 import com.whirvis.jraknet.protocol.message.acknowledge.Record;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+
 /**
  * An encapsulated packet.
  * <p>
@@ -86,6 +89,12 @@ public final class EncapsulatedPacket implements Cloneable {
 
 		/**
 		 * Splits the packet.
+		 * <p>
+		 * The payload of each split packet is a retained slice of the payload
+		 * of the <code>encapsulated</code> packet, rather than a copy of it.
+		 * As such, the payload of the <code>encapsulated</code> packet is only
+		 * freed once it and the payloads of all the split packets have been
+		 * released.
 		 * 
 		 * @param peer
 		 *            the peer.
@@ -116,33 +125,25 @@ public final class EncapsulatedPacket implements Cloneable {
 			// Split packet payload
 			int size = peer.getMaximumTransferUnit() - CustomPacket.MINIMUM_SIZE
 					- EncapsulatedPacket.size(encapsulated.reliability, true);
-			byte[] src = encapsulated.payload.array();
-			int payloadIndex = 0;
-			int splitIndex = 0;
-			byte[][] split = new byte[(int) Math.ceil((float) src.length / (float) size)][size];
-			while (payloadIndex < src.length) {
-				if (payloadIndex + size <= src.length) {
-					split[splitIndex++] = Arrays.copyOfRange(src, payloadIndex, payloadIndex + size);
-					payloadIndex += size;
-				} else {
-					split[splitIndex++] = Arrays.copyOfRange(src, payloadIndex, src.length);
-					payloadIndex = src.length;
-				}
-			}
+			ByteBuf src = encapsulated.payload.buffer();
+			int length = src.writerIndex();
+			int splitCount = (length + size - 1) / size;
 
 			// Generate split encapsulated packets
-			EncapsulatedPacket[] splitPackets = new EncapsulatedPacket[split.length];
-			for (int i = 0; i < split.length; i++) {
+			EncapsulatedPacket[] splitPackets = new EncapsulatedPacket[splitCount];
+			for (int i = 0; i < splitCount; i++) {
+				int payloadIndex = i * size;
 				EncapsulatedPacket encapsulatedSplit = new EncapsulatedPacket();
 				encapsulatedSplit.reliability = encapsulated.reliability;
-				encapsulatedSplit.payload = new Packet(split[i]);
+				encapsulatedSplit.payload = new Packet(
+						src.retainedSlice(payloadIndex, Math.min(size, length - payloadIndex)));
 				encapsulatedSplit.messageIndex = encapsulated.reliability.isReliable() ? peer.bumpMessageIndex() : 0;
 				if (encapsulated.reliability.isOrdered() || encapsulated.reliability.isSequenced()) {
 					encapsulatedSplit.orderChannel = encapsulated.orderChannel;
 					encapsulatedSplit.orderIndex = encapsulated.orderIndex;
 				}
 				encapsulatedSplit.split = true;
-				encapsulatedSplit.splitCount = split.length;
+				encapsulatedSplit.splitCount = splitCount;
 				encapsulatedSplit.splitId = encapsulated.splitId;
 				encapsulatedSplit.splitIndex = i;
 				splitPackets[i] = encapsulatedSplit;
@@ -153,7 +154,11 @@ public final class EncapsulatedPacket implements Cloneable {
 		private final int splitId;
 		private final int splitCount;
 		private final Reliability reliability;
-		private final IntMap<Packet> payloads;
+		private final ByteBuf[] payloads;
+		private final long[] received;
+		private int receivedCount;
+		private int size;
+		private long lastUpdateTime;
 
 		/**
 		 * Creates a split packet container.
@@ -164,25 +169,54 @@ public final class EncapsulatedPacket implements Cloneable {
 		 *            the split count.
 		 * @param reliability
 		 *            the reliability.
+		 * @param maximumSplitCount
+		 *            the maximum amount of chunks the packet can be split
+		 *            into.
 		 * @throws IllegalArgumentException
 		 *             if the <code>splitId</code> is negative or if the
-		 *             <code>splitCount</code> is greater than
-		 *             {@value RakNetPeer#MAX_SPLIT_COUNT}.
+		 *             <code>splitCount</code> is less than or equal to
+		 *             <code>0</code> or greater than the
+		 *             <code>maximumSplitCount</code>.
 		 * @throws NullPointerException
 		 *             if the <code>reliability</code> is <code>null</code>.
 		 */
-		public Split(int splitId, int splitCount, Reliability reliability) {
+		public Split(int splitId, int splitCount, Reliability reliability, int maximumSplitCount) {
 			if (splitId < 0) {
 				throw new IllegalArgumentException("Split ID cannot be negative");
-			} else if (splitCount > RakNetPeer.MAX_SPLIT_COUNT) {
-				throw new IllegalArgumentException("Split count can be no greater than " + RakNetPeer.MAX_SPLIT_COUNT);
+			} else if (splitCount <= 0) {
+				throw new IllegalArgumentException("Split count must be greater than 0");
+			} else if (splitCount > maximumSplitCount) {
+				throw new IllegalArgumentException("Split count can be no greater than " + maximumSplitCount);
 			} else if (reliability == null) {
 				throw new NullPointerException("Reliability cannot be null");
 			}
 			this.splitId = splitId;
 			this.splitCount = splitCount;
 			this.reliability = reliability;
-			this.payloads = new IntMap<Packet>();
+			this.payloads = new ByteBuf[splitCount];
+			this.received = new long[(splitCount + Long.SIZE - 1) / Long.SIZE];
+			this.lastUpdateTime = System.currentTimeMillis();
+		}
+
+		/**
+		 * Creates a split packet container.
+		 * 
+		 * @param splitId
+		 *            the split ID.
+		 * @param splitCount
+		 *            the split count.
+		 * @param reliability
+		 *            the reliability.
+		 * @throws IllegalArgumentException
+		 *             if the <code>splitId</code> is negative or if the
+		 *             <code>splitCount</code> is less than or equal to
+		 *             <code>0</code> or greater than
+		 *             {@value RakNetPeer#MAX_SPLIT_COUNT}.
+		 * @throws NullPointerException
+		 *             if the <code>reliability</code> is <code>null</code>.
+		 */
+		public Split(int splitId, int splitCount, Reliability reliability) {
+			this(splitId, splitCount, reliability, RakNetPeer.MAX_SPLIT_COUNT);
 		}
 
 		/**
@@ -194,9 +228,38 @@ public final class EncapsulatedPacket implements Cloneable {
 			return this.reliability;
 		}
 
+		/**
+		 * Returns the amount of payload bytes that have been received so far.
+		 * 
+		 * @return the amount of payload bytes that have been received so far.
+		 */
+		public int getSize() {
+			return this.size;
+		}
+
+		/**
+		 * Returns the last time a chunk of the split packet was received.
+		 * 
+		 * <p>
+		 * This is only updated by the
+		 * {@link #update(EncapsulatedPacket, long)} method.
+		 * 
+		 * @return the last time a chunk of the split packet was received, or
+		 *         the time the split packet container was created if none
+		 *         have been.
+		 */
+		public long getLastUpdateTime() {
+			return this.lastUpdateTime;
+		}
+
 		/**
 		 * Updates the data for the split packet while also verifying that the
 		 * <code>EncapsulatedPacket</code> belongs to this split packet.
+		 * <p>
+		 * Once every chunk has been received, the payload of the stitched
+		 * packet is a composite buffer made up of the payloads of the chunks,
+		 * rather than a copy of them. As such, the payloads of the chunks
+		 * remain in use until the payload of the stitched packet is released.
 		 * 
 		 * @param encapsulated
 		 *            the encapsulated packet chunk.
@@ -224,35 +287,95 @@ public final class EncapsulatedPacket implements Cloneable {
 				throw new IllegalArgumentException("This split packet does not belong to this one");
 			} else if (encapsulated.splitIndex < 0 || encapsulated.splitIndex >= encapsulated.splitCount) {
 				throw new IllegalArgumentException("Encapsulated packet split index out of range");
-			} else if (payloads.containsKey(encapsulated.splitIndex)) {
+			} else if ((received[encapsulated.splitIndex >>> 6] & (1L << encapsulated.splitIndex)) != 0) {
 				throw new IllegalArgumentException("Encapsulated packet with split index has already been registered");
 			}
-			payloads.put(encapsulated.splitIndex, encapsulated.payload);
-			if (payloads.size() >= splitCount) {
-				// Stitch payload
-				Packet payload = new Packet();
-				for (int i = 0; i < payloads.size(); i++) {
-					payload.write(payloads.get(i).array());
-				}
-				payloads.clear();
-
-				// Create stitched encapsulated packet
-				EncapsulatedPacket stitched = new EncapsulatedPacket();
-				stitched.ackRecord = null;
-				stitched.reliability = encapsulated.reliability;
-				stitched.split = false; // No longer split
-				stitched.messageIndex = encapsulated.messageIndex;
-				stitched.orderIndex = encapsulated.orderIndex;
-				stitched.orderChannel = encapsulated.orderChannel;
-				stitched.splitCount = encapsulated.splitCount;
-				stitched.splitId = encapsulated.splitId;
-				stitched.splitIndex = -1; // No longer split
-				stitched.payload = payload;
-				return stitched;
+			received[encapsulated.splitIndex >>> 6] |= 1L << encapsulated.splitIndex;
+			payloads[encapsulated.splitIndex] = encapsulated.payload.buffer();
+			this.size += encapsulated.payload.buffer().readableBytes();
+			if (++this.receivedCount >= splitCount) {
+				return this.stitch(encapsulated);
 			}
 			return null;
 		}
 
+		/**
+		 * Updates the data for the split packet and records the time the chunk
+		 * was received.
+		 * 
+		 * @param encapsulated
+		 *            the encapsulated packet chunk.
+		 * @param updateTime
+		 *            the time the chunk was received in milliseconds.
+		 * @return the packet if finished, <code>null</code> if data is still
+		 *         missing.
+		 * @throws NullPointerException
+		 *             if the <code>encapsulated</code> is <code>null</code>.
+		 * @throws IllegalArgumentException
+		 *             if the <code>encapsulated</code> is not part of the
+		 *             bigger split packet.
+		 * @see #update(EncapsulatedPacket)
+		 */
+		public EncapsulatedPacket update(EncapsulatedPacket encapsulated, long updateTime)
+				throws NullPointerException, IllegalArgumentException {
+			EncapsulatedPacket stitched = this.update(encapsulated);
+			this.lastUpdateTime = updateTime;
+			return stitched;
+		}
+
+		/**
+		 * Stitches the payloads of the received chunks together into a single
+		 * encapsulated packet.
+		 * <p>
+		 * This is kept out of the {@link #update(EncapsulatedPacket)} method,
+		 * as it only runs once per split packet.
+		 * 
+		 * @param encapsulated
+		 *            the last encapsulated packet chunk that was received.
+		 * @return the stitched packet.
+		 */
+		private EncapsulatedPacket stitch(EncapsulatedPacket encapsulated) {
+			// Stitch payload
+			CompositeByteBuf stitchedPayload = RakNet.getAllocator().compositeBuffer(splitCount);
+			stitchedPayload.addComponents(true, payloads);
+			Arrays.fill(payloads, null); // Now owned by the stitched payload
+			Packet payload = new Packet(stitchedPayload);
+
+			// Create stitched encapsulated packet
+			EncapsulatedPacket stitched = new EncapsulatedPacket();
+			stitched.ackRecord = null;
+			stitched.reliability = encapsulated.reliability;
+			stitched.split = false; // No longer split
+			stitched.messageIndex = encapsulated.messageIndex;
+			stitched.orderIndex = encapsulated.orderIndex;
+			stitched.orderChannel = encapsulated.orderChannel;
+			stitched.splitCount = encapsulated.splitCount;
+			stitched.splitId = encapsulated.splitId;
+			stitched.splitIndex = -1; // No longer split
+			stitched.payload = payload;
+			return stitched;
+		}
+
+		/**
+		 * Releases the payloads of all encapsulated packet chunks that have
+		 * been received so far.
+		 * <p>
+		 * This must be called if the split packet is discarded before it has
+		 * been completed, as the payloads may be slices of the datagrams they
+		 * were received in.
+		 */
+		public void release() {
+			for (int i = 0; i < payloads.length; i++) {
+				if (payloads[i] != null) {
+					payloads[i].release();
+					payloads[i] = null;
+				}
+			}
+			Arrays.fill(received, 0L);
+			this.receivedCount = 0;
+			this.size = 0;
+		}
+
 		@Override
 		public String toString() {
 			return "Split [splitId=" + splitId + ", splitCount=" + splitCount + ", reliability=" + reliability + "]";
@@ -471,11 +594,15 @@ public final class EncapsulatedPacket implements Cloneable {
 			buffer.writeUnsignedShort(splitId);
 			buffer.writeInt(splitIndex);
 		}
-		buffer.write(payload.array());
+		buffer.write(payload);
 	}
 
 	/**
 	 * Decodes the packet.
+	 * <p>
+	 * The payload is not copied, it is a retained slice of the
+	 * <code>buffer</code> instead. As such, it must be released once it is no
+	 * longer needed.
 	 * 
 	 * @param buffer
 	 *            the buffer to read from.
@@ -508,7 +635,7 @@ public final class EncapsulatedPacket implements Cloneable {
 			this.splitId = buffer.readUnsignedShort();
 			this.splitIndex = buffer.readInt();
 		}
-		this.payload = new Packet(buffer.read(length));
+		this.payload = new Packet(buffer.buffer().readRetainedSlice(length));
 	}
 
 	/**
@@ -130,24 +130,25 @@ public class AcknowledgedPacket extends RakNetPacket {
 	/**
 	 * {@inheritDoc}
 	 * <p>
-	 * After decoding is finished, all records will be expanded. This means that
-	 * all ranged records will be converted to single records, making it easier
-	 * to cycle through them. The <code>records</code> field will be updated
-	 * with these expanded records.
+	 * After decoding is finished, all records will be condensed. Ranged
+	 * records are kept as they are rather than being expanded, which makes the
+	 * cost of decoding depend only on the amount of records in the packet. The
+	 * <code>records</code> field will be updated with these condensed records,
+	 * which are sorted in ascending order and do not overlap.
 	 */
 	@Override
 	public void decode() {
-		ArrayList<Record> records = new ArrayList<Record>();
 		int size = this.readUnsignedShort();
+		ArrayList<Record> records = new ArrayList<Record>(size);
 		for (int i = 0; i < size; i++) {
 			boolean ranged = this.readUnsignedByte() == RANGED;
 			if (ranged == false) {
-				records.add(new Record(this.readTriadLE()));
+				records.add(new Record(this.readUnsignedTriadLE()));
 			} else {
-				records.add(new Record(this.readTriadLE(), this.readTriadLE()));
+				records.add(new Record(this.readUnsignedTriadLE(), this.readUnsignedTriadLE()));
 			}
 		}
-		this.records = Record.simplify(records);
+		this.records = Record.condense(records);
 	}
 
 }
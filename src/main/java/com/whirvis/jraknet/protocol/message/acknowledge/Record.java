@@ -34,8 +34,6 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
-import com.whirvis.jraknet.map.IntMap;
-
 /**
  * Represents a packet record which is used in acknowledgement packets to
  * indicate a packet was either acknowledged (received) or not acknowledged
@@ -56,25 +54,26 @@ public final class Record {
 	 * 
 	 * @param records
 	 *            the records to get the sequence IDs from.
-	 * @return the sequence IDs contained within the specified records.
+	 * @return the sequence IDs contained within the specified records, sorted
+	 *         in ascending order and without duplicates.
 	 */
 	public static int[] getSequenceIds(Record... records) {
-		// Get sequence IDs from records
-		ArrayList<Integer> sequenceIdsList = new ArrayList<Integer>();
-		for (Record record : records) {
-			for (int recordId : record.getSequenceIds()) {
-				if (!sequenceIdsList.contains(recordId)) {
-					sequenceIdsList.add(recordId);
-				}
-			}
+		/*
+		 * Condensing the records first sorts them and merges the ones that
+		 * overlap, which leaves nothing but to write out the ranges.
+		 */
+		Record[] condensed = condense(records);
+		int size = 0;
+		for (Record record : condensed) {
+			size += record.size();
 		}
-
-		// Convert boxed values to sorted native array
-		int[] sequenceIds = new int[sequenceIdsList.size()];
-		for (int i = 0; i < sequenceIds.length; i++) {
-			sequenceIds[i] = sequenceIdsList.get(i);
+		int[] sequenceIds = new int[size];
+		int written = 0;
+		for (Record record : condensed) {
+			for (int i = 0; i < record.size(); i++) {
+				sequenceIds[written++] = record.getIndex() + i;
+			}
 		}
-		Arrays.sort(sequenceIds);
 		return sequenceIds;
 	}
 
@@ -83,7 +82,8 @@ public final class Record {
 	 * 
 	 * @param records
 	 *            the records to get the sequence IDs from.
-	 * @return the sequence IDs contained within the specified records.
+	 * @return the sequence IDs contained within the specified records, sorted
+	 *         in ascending order and without duplicates.
 	 */
 	public static int[] getSequenceIds(List<Record> records) {
 		return getSequenceIds(records.toArray(new Record[records.size()]));
@@ -93,19 +93,26 @@ public final class Record {
 	 * Simplifies the specified sequence IDs into a <code>Record[]</code> with
 	 * all sequence IDs having their own dedicated record to make handling them
 	 * easier.
+	 * <p>
+	 * This allocates a record for every sequence ID, and as such should not be
+	 * used on records received from the other side of the connection. Ranged
+	 * records can be handled directly through their {@link #getIndex() index}
+	 * and {@link #getEndIndex() end index}.
 	 * 
 	 * @param sequenceIds
 	 *            the sequence IDs to simplify.
-	 * @return the simplified records
+	 * @return the simplified records, sorted in ascending order.
 	 */
 	public static Record[] simplify(int... sequenceIds) {
-		IntMap<Record> simplified = new IntMap<Record>();
-		for (int i = 0; i < sequenceIds.length; i++) {
-			if (!simplified.containsKey(sequenceIds[i])) {
-				simplified.put(sequenceIds[i], new Record(sequenceIds[i]));
+		int[] sorted = sequenceIds.clone();
+		Arrays.sort(sorted);
+		ArrayList<Record> simplified = new ArrayList<Record>(sorted.length);
+		for (int i = 0; i < sorted.length; i++) {
+			if (i <= 0 || sorted[i] != sorted[i - 1]) {
+				simplified.add(new Record(sorted[i]));
 			}
 		}
-		return simplified.values().toArray(new Record[simplified.size()]);
+		return simplified.toArray(new Record[simplified.size()]);
 	}
 
 	/**
@@ -116,6 +123,7 @@ public final class Record {
 	 * @param records
 	 *            the records to simplify.
 	 * @return the simplified records
+	 * @see #simplify(int...)
 	 */
 	public static Record[] simplify(Record... records) {
 		return simplify(getSequenceIds(records));
@@ -129,41 +137,39 @@ public final class Record {
 	 * @param records
 	 *            the records to simplify.
 	 * @return the simplified records
+	 * @see #simplify(int...)
 	 */
 	public static Record[] simplify(List<Record> records) {
 		return simplify(records.toArray(new Record[records.size()]));
 	}
 
 	/**
-	 * Condenses the specified records into a <code>Record[]</code> with all
-	 * ranges of sequence IDs being in ranged records to save memory.
+	 * Condenses the specified ranges into a <code>Record[]</code>.
 	 * 
-	 * @param records
-	 *            the records to condense.
+	 * @param ranges
+	 *            the ranges to condense, each with its starting index in the
+	 *            upper 32 bits and its ending index in the lower 32 bits.
+	 *            This array is sorted in place.
 	 * @return the condensed records.
 	 */
-	public static Record[] condense(Record... records) {
+	private static Record[] condense(long[] ranges) {
 		/*
-		 * Get sequence IDs and sort them in ascending order. This is crucial in
-		 * order for condensing to occur.
+		 * Sort the ranges by their starting index in ascending order. This is
+		 * crucial in order for condensing to occur, as every range can then
+		 * only overlap or border the range before it.
 		 */
-		int[] sequenceIds = Record.getSequenceIds(records);
-		Arrays.sort(sequenceIds);
+		Arrays.sort(ranges);
 
 		// Condense records
 		ArrayList<Record> condensed = new ArrayList<Record>();
-		for (int i = 0; i < sequenceIds.length; i++) {
-			int startIndex = sequenceIds[i];
-			int endIndex = startIndex;
-			if (i + 1 < sequenceIds.length) {
-				while (endIndex + 1 == sequenceIds[i + 1]) {
-					endIndex = sequenceIds[++i]; // This value is sequential
-					if (i + 1 >= sequenceIds.length) {
-						break;
-					}
-				}
+		int i = 0;
+		while (i < ranges.length) {
+			int startIndex = (int) (ranges[i] >>> 32);
+			int endIndex = (int) ranges[i++];
+			while (i < ranges.length && (ranges[i] >>> 32) <= endIndex + 1L) {
+				endIndex = Math.max(endIndex, (int) ranges[i++]); // This range is sequential
 			}
-			condensed.add(new Record(startIndex, endIndex == startIndex ? -1 : endIndex));
+			condensed.add(new Record(startIndex, endIndex == startIndex ? NOT_RANGED : endIndex));
 		}
 		return condensed.toArray(new Record[condensed.size()]);
 	}
@@ -171,10 +177,33 @@ public final class Record {
 	/**
 	 * Condenses the specified records into a <code>Record[]</code> with all
 	 * ranges of sequence IDs being in ranged records to save memory.
+	 * <p>
+	 * Ranged records are merged with the records they overlap or border
+	 * without being expanded, which makes the cost of condensing depend only
+	 * on the amount of records.
 	 * 
 	 * @param records
 	 *            the records to condense.
-	 * @return the condensed records.
+	 * @return the condensed records, sorted in ascending order.
+	 */
+	public static Record[] condense(Record... records) {
+		long[] ranges = new long[records.length];
+		for (int i = 0; i < records.length; i++) {
+			Record record = records[i];
+			int endIndex = Math.max(record.getIndex(), record.getEndIndex());
+			ranges[i] = ((long) record.getIndex() << 32) | endIndex;
+		}
+		return condense(ranges);
+	}
+
+	/**
+	 * Condenses the specified records into a <code>Record[]</code> with all
+	 * ranges of sequence IDs being in ranged records to save memory.
+	 * 
+	 * @param records
+	 *            the records to condense.
+	 * @return the condensed records, sorted in ascending order.
+	 * @see #condense(Record...)
 	 */
 	public static Record[] condense(List<Record> records) {
 		return condense(records.toArray(new Record[records.size()]));
@@ -186,14 +215,19 @@ public final class Record {
 	 * 
 	 * @param sequenceIds
 	 *            the sequence IDs to condense.
-	 * @return the condensed records.
+	 * @return the condensed records, sorted in ascending order.
+	 * @throws IllegalArgumentException
+	 *             if any of the <code>sequenceIds</code> are negative.
 	 */
-	public static Record[] condense(int... sequenceIds) {
-		Record[] records = new Record[sequenceIds.length];
-		for (int i = 0; i < records.length; i++) {
-			records[i] = new Record(sequenceIds[i]);
+	public static Record[] condense(int... sequenceIds) throws IllegalArgumentException {
+		long[] ranges = new long[sequenceIds.length];
+		for (int i = 0; i < sequenceIds.length; i++) {
+			if (sequenceIds[i] < 0) {
+				throw new IllegalArgumentException("Index cannot be negative");
+			}
+			ranges[i] = ((long) sequenceIds[i] << 32) | sequenceIds[i];
 		}
-		return condense(records);
+		return condense(ranges);
 	}
 
 	private int index;
@@ -216,7 +250,6 @@ public final class Record {
 		}
 		this.index = index;
 		this.endIndex = endIndex;
-		this.updateSequenceIds();
 	}
 
 	/**
@@ -232,20 +265,6 @@ public final class Record {
 		this(id, NOT_RANGED);
 	}
 
-	/**
-	 * Updates the sequence IDs within the record.
-	 */
-	private void updateSequenceIds() {
-		if (!this.isRanged()) {
-			this.sequenceIds = new int[] { this.getIndex() };
-		} else {
-			int[] ranged = new int[this.getEndIndex() - this.getIndex() + 1];
-			for (int i = 0; i < ranged.length; i++) {
-				ranged[i] = i + this.getIndex();
-			}
-			this.sequenceIds = ranged;
-		}
-	}
 
 	/**
 	 * Returns the starting index of the record.
@@ -269,7 +288,7 @@ public final class Record {
 			throw new IllegalArgumentException("Index cannot be negative");
 		}
 		this.index = index;
-		this.updateSequenceIds();
+		this.sequenceIds = null;
 	}
 
 	/**
@@ -296,7 +315,7 @@ public final class Record {
 			endIndex = NOT_RANGED;
 		}
 		this.endIndex = endIndex;
-		this.updateSequenceIds();
+		this.sequenceIds = null;
 	}
 
 	/**
@@ -309,6 +328,18 @@ public final class Record {
 		return endIndex > NOT_RANGED;
 	}
 
+	/**
+	 * Returns the amount of sequence IDs contained within this record.
+	 * 
+	 * @return the amount of sequence IDs contained within this record.
+	 */
+	public int size() {
+		if (!this.isRanged() || endIndex <= index) {
+			return 1;
+		}
+		return endIndex - index + 1;
+	}
+
 	/**
 	 * Returns the sequence ID contained within this record. This is the
 	 * equivalent of calling {@link #getIndex()}, however an error will be
@@ -329,11 +360,22 @@ public final class Record {
 
 	/**
 	 * Returns the sequence IDs contained within this record.
+	 * <p>
+	 * The sequence IDs are only created the first time this method is called,
+	 * as a ranged record can contain millions of them.
 	 * 
 	 * @return the sequence IDs contained within this record.
 	 * @see #getSequenceId()
+	 * @see #size()
 	 */
 	public int[] getSequenceIds() {
+		if (sequenceIds == null) {
+			int[] sequenceIds = new int[this.size()];
+			for (int i = 0; i < sequenceIds.length; i++) {
+				sequenceIds[i] = index + i;
+			}
+			this.sequenceIds = sequenceIds;
+		}
 		return this.sequenceIds;
 	}
 
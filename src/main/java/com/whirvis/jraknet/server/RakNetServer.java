@@ -33,11 +33,11 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -45,6 +45,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.whirvis.jraknet.InvalidChannelException;
+import com.whirvis.jraknet.NetworkConfiguration;
 import com.whirvis.jraknet.Packet;
 import com.whirvis.jraknet.RakNet;
 import com.whirvis.jraknet.RakNetException;
@@ -52,7 +53,11 @@ import com.whirvis.jraknet.RakNetPacket;
 import com.whirvis.jraknet.ThreadedListener;
 import com.whirvis.jraknet.client.RakNetClient;
 import com.whirvis.jraknet.identifier.Identifier;
+import com.whirvis.jraknet.peer.MessageRegistry;
+import com.whirvis.jraknet.peer.PeerScheduler;
 import com.whirvis.jraknet.peer.RakNetClientPeer;
+import com.whirvis.jraknet.peer.ShardedPeerScheduler;
+import com.whirvis.jraknet.protocol.PacketPriority;
 import com.whirvis.jraknet.protocol.Reliability;
 import com.whirvis.jraknet.protocol.connection.ConnectionBanned;
 import com.whirvis.jraknet.protocol.connection.IncompatibleProtocolVersion;
@@ -70,9 +75,14 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.util.ReferenceCounted;
 
 /**
  * Used to create servers using the RakNet protocol.
@@ -114,9 +124,14 @@ public class RakNetServer implements RakNetServerListener {
 	private Bootstrap bootstrap;
 	private EventLoopGroup group;
 	private RakNetServerHandler handler;
-	private Channel channel;
+	private Channel[] channels;
 	private InetSocketAddress bindAddress;
-	private Thread peerThread;
+	private PeerScheduler peerScheduler;
+	private boolean nativeTransportEnabled;
+	private int socketCount;
+	private NetworkConfiguration networkConfiguration;
+	private final MessageRegistry messageRegistry;
+	private boolean nativeTransport;
 	private volatile boolean running;
 
 	/**
@@ -182,6 +197,10 @@ public class RakNetServer implements RakNetServerListener {
 		this.listeners = new ConcurrentLinkedQueue<RakNetServerListener>();
 		this.clients = new ConcurrentHashMap<InetSocketAddress, RakNetClientPeer>();
 		this.banned = new ConcurrentLinkedQueue<InetAddress>();
+		this.peerScheduler = new ShardedPeerScheduler();
+		this.socketCount = 1;
+		this.networkConfiguration = new NetworkConfiguration();
+		this.messageRegistry = new MessageRegistry(Long.toHexString(guid).toUpperCase());
 		if (this.getClass() != RakNetServer.class && RakNetServerListener.class.isAssignableFrom(this.getClass())) {
 			this.addSelfListener();
 		}
@@ -843,6 +862,199 @@ public class RakNetServer implements RakNetServerListener {
 		}
 	}
 
+	/**
+	 * Returns the scheduler used to update the clients connected to the
+	 * server.
+	 * <p>
+	 * By default, this is a {@link ShardedPeerScheduler} with one shard for
+	 * each available processor.
+	 * 
+	 * @return the scheduler used to update the clients connected to the
+	 *         server.
+	 */
+	public final PeerScheduler getPeerScheduler() {
+		return this.peerScheduler;
+	}
+
+	/**
+	 * Sets the scheduler used to update the clients connected to the server.
+	 * 
+	 * @param peerScheduler
+	 *            the scheduler.
+	 * @throws NullPointerException
+	 *             if the <code>peerScheduler</code> is <code>null</code>.
+	 * @throws IllegalStateException
+	 *             if the server is running.
+	 */
+	public final void setPeerScheduler(PeerScheduler peerScheduler)
+			throws NullPointerException, IllegalStateException {
+		if (peerScheduler == null) {
+			throw new NullPointerException("Peer scheduler cannot be null");
+		} else if (running == true) {
+			throw new IllegalStateException("Cannot change peer scheduler while the server is running");
+		}
+		this.peerScheduler = peerScheduler;
+		logger.info("Set peer scheduler to " + peerScheduler.getClass().getName());
+	}
+
+	/**
+	 * Enables/disables the native transport.
+	 * <p>
+	 * When enabled, the server will use Netty's epoll transport and bind
+	 * {@link #getSocketCount() multiple sockets} to the same port with
+	 * <code>SO_REUSEPORT</code>, letting the kernel spread inbound datagrams
+	 * across them. If the native transport is not available on this platform,
+	 * the server falls back to a single NIO socket.
+	 * 
+	 * @param enabled
+	 *            <code>true</code> to enable the native transport,
+	 *            <code>false</code> to disable it.
+	 * @throws IllegalStateException
+	 *             if the server is running.
+	 */
+	public final void setNativeTransportEnabled(boolean enabled) throws IllegalStateException {
+		if (running == true) {
+			throw new IllegalStateException("Cannot change transport while the server is running");
+		}
+		boolean wasEnabled = this.nativeTransportEnabled;
+		this.nativeTransportEnabled = enabled;
+		if (wasEnabled != enabled) {
+			logger.info((enabled ? "Enabled" : "Disabled") + " native transport");
+		}
+	}
+
+	/**
+	 * Returns whether or not the native transport is enabled.
+	 * 
+	 * @return <code>true</code> if the native transport is enabled,
+	 *         <code>false</code> otherwise.
+	 */
+	public final boolean isNativeTransportEnabled() {
+		return this.nativeTransportEnabled;
+	}
+
+	/**
+	 * Returns whether or not the server is currently running on the native
+	 * transport.
+	 * 
+	 * @return <code>true</code> if the server is running on the native
+	 *         transport, <code>false</code> if it is running on NIO or is not
+	 *         running.
+	 */
+	public final boolean isUsingNativeTransport() {
+		return this.nativeTransport;
+	}
+
+	/**
+	 * Returns the amount of sockets the server binds to its port when using
+	 * the native transport.
+	 * <p>
+	 * By default, this is <code>1</code>.
+	 * 
+	 * @return the amount of sockets the server binds to its port when using
+	 *         the native transport.
+	 */
+	public final int getSocketCount() {
+		return this.socketCount;
+	}
+
+	/**
+	 * Sets the amount of sockets the server binds to its port when using the
+	 * native transport.
+	 * <p>
+	 * Each socket is serviced by its own event loop. A client stays on the
+	 * socket that first received a packet from it for the lifetime of its
+	 * connection. This has no effect when the server falls back to NIO, as it
+	 * only ever binds a single socket.
+	 * 
+	 * @param socketCount
+	 *            the amount of sockets.
+	 * @throws IllegalArgumentException
+	 *             if the <code>socketCount</code> is less than <code>1</code>.
+	 * @throws IllegalStateException
+	 *             if the server is running.
+	 */
+	public final void setSocketCount(int socketCount) throws IllegalArgumentException, IllegalStateException {
+		if (socketCount < 1) {
+			throw new IllegalArgumentException("Socket count must be greater than 0");
+		} else if (running == true) {
+			throw new IllegalStateException("Cannot change socket count while the server is running");
+		}
+		this.socketCount = socketCount;
+		logger.info("Set socket count to " + socketCount);
+	}
+
+	/**
+	 * Returns the network configuration of the server.
+	 * 
+	 * @return the network configuration of the server.
+	 */
+	public final NetworkConfiguration getNetworkConfiguration() {
+		return this.networkConfiguration;
+	}
+
+	/**
+	 * Sets the network configuration of the server.
+	 * <p>
+	 * The read batch size only has an effect on the
+	 * {@link #setNativeTransportEnabled(boolean) native transport}, where up
+	 * to that many datagrams are received with a single <code>recvmmsg</code>
+	 * call.
+	 * 
+	 * @param networkConfiguration
+	 *            the network configuration.
+	 * @throws NullPointerException
+	 *             if the <code>networkConfiguration</code> is
+	 *             <code>null</code>.
+	 * @throws IllegalStateException
+	 *             if the server is running.
+	 */
+	public final void setNetworkConfiguration(NetworkConfiguration networkConfiguration)
+			throws NullPointerException, IllegalStateException {
+		if (networkConfiguration == null) {
+			throw new NullPointerException("Network configuration cannot be null");
+		} else if (running == true) {
+			throw new IllegalStateException("Cannot change network configuration while the server is running");
+		}
+		this.networkConfiguration = networkConfiguration;
+		logger.info("Set network configuration to " + networkConfiguration);
+	}
+
+	/**
+	 * Returns the registry of the handlers for user messages received from
+	 * the clients.
+	 * <p>
+	 * A message with an ID that has a handler registered to it is passed to
+	 * that handler on the thread that owns the peer it was received from,
+	 * rather than to the <code>handleMessage()</code> method of the
+	 * listeners.
+	 * 
+	 * @return the registry of the handlers for user messages.
+	 */
+	public final MessageRegistry getMessageRegistry() {
+		return this.messageRegistry;
+	}
+
+	/**
+	 * Returns the amount of datagrams the kernel has dropped for the sockets
+	 * of the server.
+	 * <p>
+	 * A rising value means datagrams are arriving faster than they can be
+	 * read, and that the {@link NetworkConfiguration#setReceiveBufferSize(int)
+	 * receive buffer size} should be increased.
+	 * 
+	 * @return the amount of datagrams the kernel has dropped for the sockets
+	 *         of the server, <code>-1</code> if it could not be determined or
+	 *         the server is not running.
+	 * @see RakNet#getKernelDropCount(int)
+	 */
+	public final long getKernelDropCount() {
+		if (running == false) {
+			return -1L;
+		}
+		return RakNet.getKernelDropCount(this.getPort());
+	}
+
 	/**
 	 * Adds a listener to the server.
 	 * <p>
@@ -925,11 +1137,66 @@ public class RakNetServer implements RakNetServerListener {
 	 *             if the event is <code>null</code>.
 	 */
 	public final void callEvent(Consumer<? super RakNetServerListener> event) throws NullPointerException {
+		this.dispatchEvent(event, null);
+	}
+
+	/**
+	 * Calls an event which hands a reference counted message to each
+	 * listener.
+	 * <p>
+	 * The <code>message</code> is retained once for every listener before the
+	 * event is called for it, with each listener being responsible for
+	 * releasing its reference once it is done with the message. This allows
+	 * listeners that handle events on their own thread to keep using the
+	 * message after the event has been called. The reference held by the
+	 * caller is released once the event has been called for every listener.
+	 * 
+	 * @param event
+	 *            the event to call.
+	 * @param message
+	 *            the message handed to each listener.
+	 * @throws NullPointerException
+	 *             if the <code>event</code> or <code>message</code> are
+	 *             <code>null</code>.
+	 * @see RakNetServerListener
+	 */
+	public final void callEvent(Consumer<? super RakNetServerListener> event, ReferenceCounted message)
+			throws NullPointerException {
+		if (message == null) {
+			throw new NullPointerException("Message cannot be null");
+		}
+		try {
+			this.dispatchEvent(event, message);
+		} finally {
+			message.release();
+		}
+	}
+
+	/**
+	 * Calls an event for every listener, retaining the message for each of
+	 * them if there is one.
+	 * 
+	 * @param event
+	 *            the event to call.
+	 * @param message
+	 *            the message handed to each listener, may be
+	 *            <code>null</code>.
+	 * @throws NullPointerException
+	 *             if the <code>event</code> is <code>null</code>.
+	 */
+	private void dispatchEvent(Consumer<? super RakNetServerListener> event, ReferenceCounted message)
+			throws NullPointerException {
 		if (event == null) {
 			throw new NullPointerException("Event cannot be null");
 		}
-		logger.trace("Called event of class " + event.getClass().getName() + " for " + listeners.size() + " listeners");
+		if (logger.isTraceEnabled()) {
+			logger.trace("Called event of class " + event.getClass().getName() + " for " + listeners.size()
+					+ " listeners");
+		}
 		for (RakNetServerListener listener : listeners) {
+			if (message != null) {
+				message.retain(); // Reference owned by the listener
+			}
 			if (listener.getClass().isAnnotationPresent(ThreadedListener.class)) {
 				ThreadedListener threadedListener = listener.getClass().getAnnotation(ThreadedListener.class);
 				new Thread(RakNetServer.class.getSimpleName() + (threadedListener.name().length() > 0 ? "-" : "")
@@ -1254,14 +1521,48 @@ public class RakNetServer implements RakNetServerListener {
 	 */
 	public final EncapsulatedPacket sendMessage(long guid, Reliability reliability, int channel, Packet packet)
 			throws NullPointerException, IllegalArgumentException {
-		if (reliability == null) {
+		return this.sendMessage(guid, PacketPriority.MEDIUM, reliability, channel, packet);
+	}
+
+	/**
+	 * Sends a message to the specified peer with the specified priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>packet</code> are <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket sendMessage(long guid, PacketPriority priority, Reliability reliability,
+			int channel, Packet packet) throws NullPointerException, IllegalArgumentException {
+		if (priority == null) {
+			throw new NullPointerException("Priority cannot be null");
+		} else if (reliability == null) {
 			throw new NullPointerException("Reliability cannot be null");
 		} else if (packet == null) {
 			throw new NullPointerException("Packet cannot be null");
 		} else if (!this.hasClient(guid)) {
 			throw new IllegalArgumentException("No client with the specified GUID exists");
 		}
-		return this.getClient(guid).sendMessage(reliability, channel, packet);
+		return this.getClient(guid).sendMessage(priority, reliability, channel, packet);
 	}
 
 	/**
@@ -1296,6 +1597,41 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(this.getGuid(peer), reliability, channel, packet);
 	}
 
+	/**
+	 * Sends a message to the specified peer with the specified priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>priority</code>,
+	 *             <code>reliability</code>, or <code>packet</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket sendMessage(RakNetClientPeer peer, PacketPriority priority, Reliability reliability,
+			int channel, Packet packet) throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		return this.sendMessage(this.getGuid(peer), priority, reliability, channel, packet);
+	}
+
 	/**
 	 * Sends messages to the specified peer.
 	 * 
@@ -1333,6 +1669,45 @@ public class RakNetServer implements RakNetServerListener {
 		return encapsulated;
 	}
 
+	/**
+	 * Sends messages to the specified peer with the specified priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packets.
+	 * @param reliability
+	 *            the reliability of the packets.
+	 * @param channel
+	 *            the channel to send the packets on.
+	 * @param packets
+	 *            the packets to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>packets</code> are <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket[] sendMessage(long guid, PacketPriority priority, Reliability reliability,
+			int channel, Packet... packets) throws NullPointerException, InvalidChannelException {
+		if (packets == null) {
+			throw new NullPointerException("Packets cannot be null");
+		}
+		EncapsulatedPacket[] encapsulated = new EncapsulatedPacket[packets.length];
+		for (int i = 0; i < encapsulated.length; i++) {
+			encapsulated[i] = this.sendMessage(guid, priority, reliability, channel, packets[i]);
+		}
+		return encapsulated;
+	}
+
 	/**
 	 * Sends messages to the specified peer.
 	 * 
@@ -1365,6 +1740,42 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(this.getGuid(peer), reliability, channel, packets);
 	}
 
+	/**
+	 * Sends messages to the specified peer with the specified priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packets.
+	 * @param reliability
+	 *            the reliability of the packets.
+	 * @param channel
+	 *            the channel to send the packets on.
+	 * @param packets
+	 *            the packets to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>priority</code>,
+	 *             <code>reliability</code>, or <code>packets</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket[] sendMessage(RakNetClientPeer peer, PacketPriority priority,
+			Reliability reliability, int channel, Packet... packets) throws NullPointerException,
+			IllegalArgumentException, InvalidChannelException {
+		return this.sendMessage(this.getGuid(peer), priority, reliability, channel, packets);
+	}
+
 	/**
 	 * Sends a message to the specified peer on the default channel.
 	 * 
@@ -1390,6 +1801,34 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(guid, reliability, RakNet.DEFAULT_CHANNEL, packet);
 	}
 
+	/**
+	 * Sends a message to the specified peer on the default channel with the
+	 * specified priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>packet</code> are <code>null</code>.
+	 */
+	public final EncapsulatedPacket sendMessage(long guid, PacketPriority priority, Reliability reliability,
+			Packet packet) throws NullPointerException {
+		return this.sendMessage(guid, priority, reliability, RakNet.DEFAULT_CHANNEL, packet);
+	}
+
 	/**
 	 * Sends a message to the specified peer on the default channel.
 	 * 
@@ -1418,14 +1857,17 @@ public class RakNetServer implements RakNetServerListener {
 	}
 
 	/**
-	 * Sends messages to the specified peer on the default channel.
+	 * Sends a message to the specified peer on the default channel with the
+	 * specified priority.
 	 * 
-	 * @param guid
-	 *            the globally unique ID of the peer to send the packet to.
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packet.
 	 * @param reliability
-	 *            the reliability of the packets.
-	 * @param packets
-	 *            the packets to send.
+	 *            the reliability of the packet.
+	 * @param packet
+	 *            the packet to send.
 	 * @return the generated encapsulated packet, <code>null</code> if no packet
 	 *         was sent due to the non existence of the peer with the
 	 *         <code>guid</code>. This is normally not important, however it can
@@ -1434,19 +1876,22 @@ public class RakNetServer implements RakNetServerListener {
 	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
 	 *         type.
 	 * @throws NullPointerException
-	 *             if the <code>reliability</code> or <code>packets</code> are
+	 *             if the <code>peer</code>, <code>priority</code>,
+	 *             <code>reliability</code>, or <code>packet</code> are
 	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
 	 */
-	public final EncapsulatedPacket[] sendMessage(long guid, Reliability reliability, Packet... packets)
-			throws NullPointerException {
-		return this.sendMessage(guid, reliability, RakNet.DEFAULT_CHANNEL, packets);
+	public final EncapsulatedPacket sendMessage(RakNetClientPeer peer, PacketPriority priority, Reliability reliability,
+			Packet packet) throws NullPointerException, IllegalArgumentException {
+		return this.sendMessage(this.getGuid(peer), priority, reliability, packet);
 	}
 
 	/**
 	 * Sends messages to the specified peer on the default channel.
 	 * 
-	 * @param peer
-	 *            the peer to send the packet to.
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
 	 * @param reliability
 	 *            the reliability of the packets.
 	 * @param packets
@@ -1459,7 +1904,60 @@ public class RakNetServer implements RakNetServerListener {
 	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
 	 *         type.
 	 * @throws NullPointerException
-	 *             if the <code>peer</code>, <code>reliability</code> or
+	 *             if the <code>reliability</code> or <code>packets</code> are
+	 *             <code>null</code>.
+	 */
+	public final EncapsulatedPacket[] sendMessage(long guid, Reliability reliability, Packet... packets)
+			throws NullPointerException {
+		return this.sendMessage(guid, reliability, RakNet.DEFAULT_CHANNEL, packets);
+	}
+
+	/**
+	 * Sends messages to the specified peer on the default channel with the
+	 * specified priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packets.
+	 * @param reliability
+	 *            the reliability of the packets.
+	 * @param packets
+	 *            the packets to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>packets</code> are <code>null</code>.
+	 */
+	public final EncapsulatedPacket[] sendMessage(long guid, PacketPriority priority, Reliability reliability,
+			Packet... packets) throws NullPointerException {
+		return this.sendMessage(guid, priority, reliability, RakNet.DEFAULT_CHANNEL, packets);
+	}
+
+	/**
+	 * Sends messages to the specified peer on the default channel.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param reliability
+	 *            the reliability of the packets.
+	 * @param packets
+	 *            the packets to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>reliability</code> or
 	 *             <code>packets</code> are <code>null</code>.
 	 * @throws IllegalArgumentException
 	 *             if the <code>peer</code> is not of the server.
@@ -1469,6 +1967,37 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(this.getGuid(peer), reliability, packets);
 	}
 
+	/**
+	 * Sends messages to the specified peer on the default channel with the
+	 * specified priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packets.
+	 * @param reliability
+	 *            the reliability of the packets.
+	 * @param packets
+	 *            the packets to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>priority</code>,
+	 *             <code>reliability</code>, or <code>packets</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 */
+	public final EncapsulatedPacket[] sendMessage(RakNetClientPeer peer, PacketPriority priority,
+			Reliability reliability, Packet... packets) throws NullPointerException, IllegalArgumentException {
+		return this.sendMessage(this.getGuid(peer), priority, reliability, packets);
+	}
+
 	/**
 	 * Sends a message to the specified peer.
 	 * 
@@ -1499,6 +2028,38 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(guid, reliability, channel, new Packet(buf));
 	}
 
+	/**
+	 * Sends a message to the specified peer with the specified priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param buf
+	 *            the buffer to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>buf</code> are <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket sendMessage(long guid, PacketPriority priority, Reliability reliability,
+			int channel, ByteBuf buf) throws NullPointerException, InvalidChannelException {
+		return this.sendMessage(guid, priority, reliability, channel, new Packet(buf));
+	}
+
 	/**
 	 * Sends a message to the specified peer.
 	 * 
@@ -1531,6 +2092,41 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(this.getGuid(peer), reliability, channel, buf);
 	}
 
+	/**
+	 * Sends a message to the specified peer with the specified priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param buf
+	 *            the buffer to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>priority</code>,
+	 *             <code>reliability</code>, or <code>buf</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket sendMessage(RakNetClientPeer peer, PacketPriority priority, Reliability reliability,
+			int channel, ByteBuf buf) throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		return this.sendMessage(this.getGuid(peer), priority, reliability, channel, buf);
+	}
+
 	/**
 	 * Sends messages to the specified peer.
 	 * 
@@ -1568,6 +2164,45 @@ public class RakNetServer implements RakNetServerListener {
 		return encapsulated;
 	}
 
+	/**
+	 * Sends messages to the specified peer with the specified priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packets.
+	 * @param reliability
+	 *            the reliability of the packets.
+	 * @param channel
+	 *            the channel to send the packets on.
+	 * @param bufs
+	 *            the buffers to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>bufs</code> are <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket[] sendMessage(long guid, PacketPriority priority, Reliability reliability,
+			int channel, ByteBuf... bufs) throws NullPointerException, InvalidChannelException {
+		if (bufs == null) {
+			throw new NullPointerException("Buffers cannot be null");
+		}
+		EncapsulatedPacket[] encapsulated = new EncapsulatedPacket[bufs.length];
+		for (int i = 0; i < encapsulated.length; i++) {
+			encapsulated[i] = this.sendMessage(guid, priority, reliability, channel, bufs[i]);
+		}
+		return encapsulated;
+	}
+
 	/**
 	 * Sends messages to the specified peer.
 	 * 
@@ -1600,6 +2235,42 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(this.getGuid(peer), reliability, bufs);
 	}
 
+	/**
+	 * Sends messages to the specified peer with the specified priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packets.
+	 * @param reliability
+	 *            the reliability of the packets.
+	 * @param channel
+	 *            the channel to send the packets on.
+	 * @param bufs
+	 *            the buffers to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>priority</code>,
+	 *             <code>reliability</code>, or <code>bufs</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket[] sendMessage(RakNetClientPeer peer, PacketPriority priority,
+			Reliability reliability, int channel, ByteBuf... bufs) throws NullPointerException,
+			IllegalArgumentException, InvalidChannelException {
+		return this.sendMessage(this.getGuid(peer), priority, reliability, bufs);
+	}
+
 	/**
 	 * Sends messages to the specified peer on the default channel.
 	 * 
@@ -1625,6 +2296,34 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(guid, reliability, RakNet.DEFAULT_CHANNEL, buf);
 	}
 
+	/**
+	 * Sends messages to the specified peer on the default channel with the
+	 * specified priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param buf
+	 *            the buffer to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the inexistence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>buf</code> are <code>null</code>.
+	 */
+	public final EncapsulatedPacket sendMessage(long guid, PacketPriority priority, Reliability reliability,
+			ByteBuf buf) throws NullPointerException {
+		return this.sendMessage(guid, priority, reliability, RakNet.DEFAULT_CHANNEL, buf);
+	}
+
 	/**
 	 * Sends messages to the specified peer on the default channel.
 	 * 
@@ -1652,6 +2351,37 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(this.getGuid(peer), reliability, buf);
 	}
 
+	/**
+	 * Sends messages to the specified peer on the default channel with the
+	 * specified priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param buf
+	 *            the buffer to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>priority</code>,
+	 *             <code>reliability</code>, or <code>buf</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 */
+	public final EncapsulatedPacket sendMessage(RakNetClientPeer peer, PacketPriority priority, Reliability reliability,
+			ByteBuf buf) throws NullPointerException, IllegalArgumentException {
+		return this.sendMessage(this.getGuid(peer), priority, reliability, buf);
+	}
+
 	/**
 	 * Sends messages to the specified peer on the default channel.
 	 * 
@@ -1677,6 +2407,34 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(guid, reliability, RakNet.DEFAULT_CHANNEL, bufs);
 	}
 
+	/**
+	 * Sends messages to the specified peer on the default channel with the
+	 * specified priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param bufs
+	 *            the buffers to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>bufs</code> are <code>null</code>.
+	 */
+	public final EncapsulatedPacket[] sendMessage(long guid, PacketPriority priority, Reliability reliability,
+			ByteBuf... bufs) throws NullPointerException {
+		return this.sendMessage(guid, priority, reliability, RakNet.DEFAULT_CHANNEL, bufs);
+	}
+
 	/**
 	 * Sends messages to the specified peer on the default channel.
 	 * 
@@ -1694,21 +2452,114 @@ public class RakNetServer implements RakNetServerListener {
 	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
 	 *         type.
 	 * @throws NullPointerException
-	 *             if the <code>peer</code>, <code>reliability</code> or
-	 *             <code>bufs</code> are <code>null</code>.
-	 * @throws IllegalArgumentException
-	 *             if the <code>peer</code> is not of the server.
+	 *             if the <code>peer</code>, <code>reliability</code> or
+	 *             <code>bufs</code> are <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 */
+	public final EncapsulatedPacket[] sendMessage(RakNetClientPeer peer, Reliability reliability, ByteBuf... bufs)
+			throws NullPointerException, IllegalArgumentException {
+		return this.sendMessage(this.getGuid(peer), reliability, bufs);
+	}
+
+	/**
+	 * Sends messages to the specified peer on the default channel with the
+	 * specified priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param bufs
+	 *            the buffers to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>priority</code>,
+	 *             <code>reliability</code>, or <code>bufs</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 */
+	public final EncapsulatedPacket[] sendMessage(RakNetClientPeer peer, PacketPriority priority,
+			Reliability reliability, ByteBuf... bufs) throws NullPointerException, IllegalArgumentException {
+		return this.sendMessage(this.getGuid(peer), priority, reliability, bufs);
+	}
+
+	/**
+	 * Sends a message identifier to the specified peer.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param reliability
+	 *            the reliability of the message identifier.
+	 * @param channel
+	 *            the channel to send the message identifier on.
+	 * @param packetId
+	 *            the message identifier to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>reliability</code> is <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket sendMessage(long guid, Reliability reliability, int channel, int packetId)
+			throws NullPointerException, InvalidChannelException {
+		return this.sendMessage(guid, reliability, channel, new RakNetPacket(packetId));
+	}
+
+	/**
+	 * Sends a message identifier to the specified peer with the specified
+	 * priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the message identifier.
+	 * @param reliability
+	 *            the reliability of the message identifier.
+	 * @param channel
+	 *            the channel to send the message identifier on.
+	 * @param packetId
+	 *            the message identifier to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code> or <code>reliability</code> are
+	 *             <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
 	 */
-	public final EncapsulatedPacket[] sendMessage(RakNetClientPeer peer, Reliability reliability, ByteBuf... bufs)
-			throws NullPointerException, IllegalArgumentException {
-		return this.sendMessage(this.getGuid(peer), reliability, bufs);
+	public final EncapsulatedPacket sendMessage(long guid, PacketPriority priority, Reliability reliability,
+			int channel, int packetId) throws NullPointerException, InvalidChannelException {
+		return this.sendMessage(guid, priority, reliability, channel, new RakNetPacket(packetId));
 	}
 
 	/**
 	 * Sends a message identifier to the specified peer.
 	 * 
-	 * @param guid
-	 *            the globally unique ID of the peer to send the packet to.
+	 * @param peer
+	 *            the peer to send the packet to.
 	 * @param reliability
 	 *            the reliability of the message identifier.
 	 * @param channel
@@ -1723,21 +2574,27 @@ public class RakNetServer implements RakNetServerListener {
 	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
 	 *         type.
 	 * @throws NullPointerException
-	 *             if the <code>reliability</code> is <code>null</code>.
+	 *             if the<code>peer</code> or <code>reliability</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
 	 * @throws InvalidChannelException
 	 *             if the channel is higher than or equal to
 	 *             {@value RakNet#CHANNEL_COUNT}.
 	 */
-	public final EncapsulatedPacket sendMessage(long guid, Reliability reliability, int channel, int packetId)
-			throws NullPointerException, InvalidChannelException {
-		return this.sendMessage(guid, reliability, channel, new RakNetPacket(packetId));
+	public final EncapsulatedPacket sendMessage(RakNetClientPeer peer, Reliability reliability, int channel,
+			int packetId) throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		return this.sendMessage(this.getGuid(peer), reliability, channel, packetId);
 	}
 
 	/**
-	 * Sends a message identifier to the specified peer.
+	 * Sends a message identifier to the specified peer with the specified
+	 * priority.
 	 * 
 	 * @param peer
 	 *            the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the message identifier.
 	 * @param reliability
 	 *            the reliability of the message identifier.
 	 * @param channel
@@ -1752,17 +2609,17 @@ public class RakNetServer implements RakNetServerListener {
 	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
 	 *         type.
 	 * @throws NullPointerException
-	 *             if the<code>peer</code> or <code>reliability</code> are
-	 *             <code>null</code>.
+	 *             if the <code>peer</code>, <code>priority</code>, or
+	 *             <code>reliability</code> are <code>null</code>.
 	 * @throws IllegalArgumentException
 	 *             if the <code>peer</code> is not of the server.
 	 * @throws InvalidChannelException
 	 *             if the channel is higher than or equal to
 	 *             {@value RakNet#CHANNEL_COUNT}.
 	 */
-	public final EncapsulatedPacket sendMessage(RakNetClientPeer peer, Reliability reliability, int channel,
-			int packetId) throws NullPointerException, IllegalArgumentException, InvalidChannelException {
-		return this.sendMessage(this.getGuid(peer), reliability, channel, packetId);
+	public final EncapsulatedPacket sendMessage(RakNetClientPeer peer, PacketPriority priority, Reliability reliability,
+			int channel, int packetId) throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		return this.sendMessage(this.getGuid(peer), priority, reliability, channel, packetId);
 	}
 
 	/**
@@ -1802,6 +2659,46 @@ public class RakNetServer implements RakNetServerListener {
 		return encapsulated;
 	}
 
+	/**
+	 * Sends message identifiers to the specified peer with the specified
+	 * priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the message identifiers.
+	 * @param reliability
+	 *            the reliability of the message identifiers.
+	 * @param channel
+	 *            the channel to send the message identifiers on.
+	 * @param packetIds
+	 *            the message identifiers to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>packetIds</code> are <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket[] sendMessage(long guid, PacketPriority priority, Reliability reliability,
+			int channel, int... packetIds) throws NullPointerException, InvalidChannelException {
+		if (packetIds == null) {
+			throw new NullPointerException("Packet IDs cannot be null");
+		}
+		EncapsulatedPacket[] encapsulated = new EncapsulatedPacket[packetIds.length];
+		for (int i = 0; i < encapsulated.length; i++) {
+			encapsulated[i] = this.sendMessage(guid, priority, reliability, channel, packetIds[i]);
+		}
+		return encapsulated;
+	}
+
 	/**
 	 * Sends message identifiers to the specified peer.
 	 * 
@@ -1834,6 +2731,43 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(this.getGuid(peer), reliability, channel, packetIds);
 	}
 
+	/**
+	 * Sends message identifiers to the specified peer with the specified
+	 * priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the message identifiers.
+	 * @param reliability
+	 *            the reliability of the message identifiers.
+	 * @param channel
+	 *            the channel to send the message identifiers on.
+	 * @param packetIds
+	 *            the message identifiers to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>priority</code>,
+	 *             <code>reliability</code>, or <code>packetIds</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket[] sendMessage(RakNetClientPeer peer, PacketPriority priority,
+			Reliability reliability, int channel, int... packetIds) throws NullPointerException,
+			IllegalArgumentException, InvalidChannelException {
+		return this.sendMessage(this.getGuid(peer), priority, reliability, channel, packetIds);
+	}
+
 	/**
 	 * Sends a message identifier to the specified peer on the default channel.
 	 * 
@@ -1858,6 +2792,34 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(guid, reliability, new RakNetPacket(packetId));
 	}
 
+	/**
+	 * Sends a message identifier to the specified peer on the default channel
+	 * with the specified priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the message identifier.
+	 * @param reliability
+	 *            the reliability of the message identifier.
+	 * @param packetId
+	 *            the message identifier to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code> or <code>reliability</code> are
+	 *             <code>null</code>.
+	 */
+	public final EncapsulatedPacket sendMessage(long guid, PacketPriority priority, Reliability reliability,
+			int packetId) throws NullPointerException {
+		return this.sendMessage(guid, priority, reliability, new RakNetPacket(packetId));
+	}
+
 	/**
 	 * Sends a message identifier to the specified peer on the default channel.
 	 * 
@@ -1885,6 +2847,36 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(this.getGuid(peer), reliability, packetId);
 	}
 
+	/**
+	 * Sends a message identifier to the specified peer on the default channel
+	 * with the specified priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the message identifier.
+	 * @param reliability
+	 *            the reliability of the message identifier.
+	 * @param packetId
+	 *            the message identifier to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>priority</code>, or
+	 *             <code>reliability</code> are <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 */
+	public final EncapsulatedPacket sendMessage(RakNetClientPeer peer, PacketPriority priority, Reliability reliability,
+			int packetId) throws NullPointerException, IllegalArgumentException {
+		return this.sendMessage(this.getGuid(peer), priority, reliability, packetId);
+	}
+
 	/**
 	 * Sends message identifiers to the specified peer on the default channel.
 	 * 
@@ -1910,6 +2902,34 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(guid, reliability, RakNet.DEFAULT_CHANNEL, packetIds);
 	}
 
+	/**
+	 * Sends message identifiers to the specified peer on the default channel
+	 * with the specified priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the message identifiers.
+	 * @param reliability
+	 *            the reliability of the message identifiers.
+	 * @param packetIds
+	 *            the message identifiers to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>priority</code>, <code>reliability</code>, or
+	 *             <code>packetIds</code> are <code>null</code>.
+	 */
+	public final EncapsulatedPacket[] sendMessage(long guid, PacketPriority priority, Reliability reliability,
+			int... packetIds) throws NullPointerException {
+		return this.sendMessage(guid, priority, reliability, RakNet.DEFAULT_CHANNEL, packetIds);
+	}
+
 	/**
 	 * Sends message identifiers to the specified peer on the default channel.
 	 * 
@@ -1937,6 +2957,37 @@ public class RakNetServer implements RakNetServerListener {
 		return this.sendMessage(this.getGuid(peer), reliability, packetIds);
 	}
 
+	/**
+	 * Sends message identifiers to the specified peer on the default channel
+	 * with the specified priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param priority
+	 *            the priority of the message identifiers.
+	 * @param reliability
+	 *            the reliability of the message identifiers.
+	 * @param packetIds
+	 *            the message identifiers to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>priority</code>,
+	 *             <code>reliability</code>, or <code>packetIds</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 */
+	public final EncapsulatedPacket[] sendMessage(RakNetClientPeer peer, PacketPriority priority,
+			Reliability reliability, int... packetIds) throws NullPointerException, IllegalArgumentException {
+		return this.sendMessage(this.getGuid(peer), priority, reliability, packetIds);
+	}
+
 	/**
 	 * Returns whether or not the specified client IP address is banned.
 	 * 
@@ -2042,16 +3093,37 @@ public class RakNetServer implements RakNetServerListener {
 	 *         <code>false</code> otherwise.
 	 */
 	public final boolean disconnect(InetSocketAddress address, String reason) {
+		return this.disconnectPeer(address, reason) != null;
+	}
+
+	/**
+	 * Disconnects a client from the server on the thread that owns its peer.
+	 * <p>
+	 * The <code>onDisconnect</code> event is called by the thread that owns
+	 * the peer once it has been disconnected, which may be after this method
+	 * has returned.
+	 * 
+	 * @param address
+	 *            the address of the client.
+	 * @param reason
+	 *            the reason for client disconnection. A <code>null</code>
+	 *            reason will have <code>"Disconnected"</code> be used as the
+	 *            reason instead.
+	 * @return a latch that is counted down once the client has been
+	 *         disconnected, <code>null</code> if there was no client to
+	 *         disconnect.
+	 */
+	private final CountDownLatch disconnectPeer(InetSocketAddress address, String reason) {
 		RakNetClientPeer peer = clients.remove(address);
 		if (peer == null) {
-			return false; // No client to disconnect
+			return null; // No client to disconnect
 		}
-		peer.disconnect();
-		logger.debug("Disconnected client with address " + address + " for \""
-				+ (reason == null ? "Disconnected" : reason) + "\"");
-		this.callEvent(
-				listener -> listener.onDisconnect(this, address, peer, reason == null ? "Disconnected" : reason));
-		return true;
+		return peerScheduler.disconnect(peer, () -> {
+			logger.debug("Disconnected client with address " + address + " for \""
+					+ (reason == null ? "Disconnected" : reason) + "\"");
+			this.callEvent(
+					listener -> listener.onDisconnect(this, address, peer, reason == null ? "Disconnected" : reason));
+		});
 	}
 
 	/**
@@ -2506,100 +3578,180 @@ public class RakNetServer implements RakNetServerListener {
 	/**
 	 * Handles a packet received by the {@link RakNetServerHandler}.
 	 * 
+	 * @param channel
+	 *            the channel the packet was received on. If the packet
+	 *            creates a new client, the client will be bound to this
+	 *            channel.
 	 * @param sender
 	 *            the address of the sender.
 	 * @param packet
 	 *            the packet to handle.
 	 * @throws NullPointerException
-	 *             if the <code>sender</code> or <code>packet</code> are
-	 *             <code>null</code>.
+	 *             if the <code>channel</code>, <code>sender</code> or
+	 *             <code>packet</code> are <code>null</code>.
 	 */
-	protected final void handleMessage(InetSocketAddress sender, RakNetPacket packet) throws NullPointerException {
-		if (sender == null) {
+	protected final void handleMessage(Channel channel, InetSocketAddress sender, RakNetPacket packet)
+			throws NullPointerException {
+		if (channel == null) {
+			throw new NullPointerException("Channel cannot be null");
+		} else if (sender == null) {
 			throw new NullPointerException("Sender cannot be null");
 		} else if (packet == null) {
 			throw new NullPointerException("Packet cannot be null");
-		} else if (clients.containsKey(sender)) {
-			clients.get(sender).handleInternal(packet);
-		} else if (packet.getId() == RakNetPacket.ID_UNCONNECTED_PING
-				|| packet.getId() == RakNetPacket.ID_UNCONNECTED_PING_OPEN_CONNECTIONS) {
-			UnconnectedPing ping = new UnconnectedPing(packet);
-			ping.decode();
-			if (!ping.failed()
-					&& (packet.getId() == RakNetPacket.ID_UNCONNECTED_PING
-							|| (clients.size() < maxConnections || maxConnections < 0))
-					&& broadcastingEnabled == true && ping.magic == true) {
-				ServerPing pingEvent = new ServerPing(sender, ping.connectionType, identifier);
-				this.callEvent(listener -> listener.onPing(this, pingEvent));
-				if (pingEvent.getIdentifier() != null) {
-					UnconnectedPong pong = new UnconnectedPong();
-					pong.timestamp = ping.timestamp;
-					pong.pongId = this.pongId;
-					pong.identifier = pingEvent.getIdentifier();
-					pong.encode();
-					if (!pong.failed()) {
-						this.sendNettyMessage(pong, sender);
-					} else {
-						logger.error(pong.getClass().getSimpleName() + " packet failed to encode");
-					}
-				}
+		}
+		RakNetClientPeer peer = clients.get(sender);
+		if (peer != null) {
+			peer.handleInternal(packet);
+			if (peer.getPacketsReceivedThisSecond() >= RakNet.getMaxPacketsPerSecond()) {
+				this.blockAddress(peer.getInetAddress(), "Too many packets", RakNet.MAX_PACKETS_PER_SECOND_BLOCK);
 			}
-		} else if (packet.getId() == RakNetPacket.ID_OPEN_CONNECTION_REQUEST_1) {
-			OpenConnectionRequestOne connectionRequestOne = new OpenConnectionRequestOne(packet);
-			connectionRequestOne.decode();
-			if (clients.containsKey(sender)) {
-				if (clients.get(sender).isLoggedIn()) {
-					this.disconnect(sender, "Client reinstantiated connection");
-				}
+		} else {
+			switch (packet.getId()) {
+			case RakNetPacket.ID_UNCONNECTED_PING:
+			case RakNetPacket.ID_UNCONNECTED_PING_OPEN_CONNECTIONS:
+				this.handleUnconnectedPing(sender, packet);
+				break;
+			case RakNetPacket.ID_OPEN_CONNECTION_REQUEST_1:
+				this.handleConnectionRequestOne(sender, packet);
+				break;
+			case RakNetPacket.ID_OPEN_CONNECTION_REQUEST_2:
+				this.handleConnectionRequestTwo(channel, sender, packet);
+				break;
+			default:
+				break; // Not from a client, ignore
 			}
-			if (connectionRequestOne.magic == true) {
-				RakNetPacket errorPacket = this.validateSender(sender, NO_GUID);
-				if (errorPacket == null) {
-					if (connectionRequestOne.networkProtocol != this.getProtocolVersion()) {
-						IncompatibleProtocolVersion incompatibleProtocol = new IncompatibleProtocolVersion();
-						incompatibleProtocol.networkProtocol = this.getProtocolVersion();
-						incompatibleProtocol.serverGuid = this.guid;
-						incompatibleProtocol.encode();
-						this.sendNettyMessage(incompatibleProtocol, sender);
-					} else {
-						OpenConnectionResponseOne connectionResponseOne = new OpenConnectionResponseOne();
-						connectionResponseOne.serverGuid = this.guid;
-						connectionResponseOne.maximumTransferUnit = connectionRequestOne.maximumTransferUnit;
-						connectionResponseOne.encode();
-						this.sendNettyMessage(connectionResponseOne, sender);
-					}
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace("Handled " + RakNetPacket.getName(packet) + " packet from " + sender);
+		}
+	}
+
+	/**
+	 * Handles an {@link UnconnectedPing UNCONNECTED_PING} or
+	 * <code>UNCONNECTED_PING_OPEN_CONNECTIONS</code> packet.
+	 * 
+	 * @param sender
+	 *            the address of the sender.
+	 * @param packet
+	 *            the packet to handle.
+	 */
+	private final void handleUnconnectedPing(InetSocketAddress sender, RakNetPacket packet) {
+		UnconnectedPing ping = new UnconnectedPing(packet);
+		ping.decode();
+		if (!ping.failed()
+				&& (packet.getId() == RakNetPacket.ID_UNCONNECTED_PING
+						|| (clients.size() < maxConnections || maxConnections < 0))
+				&& broadcastingEnabled == true && ping.magic == true) {
+			ServerPing pingEvent = new ServerPing(sender, ping.connectionType, identifier);
+			this.callEvent(listener -> listener.onPing(this, pingEvent));
+			if (pingEvent.getIdentifier() != null) {
+				UnconnectedPong pong = new UnconnectedPong();
+				pong.timestamp = ping.timestamp;
+				pong.pongId = this.pongId;
+				pong.identifier = pingEvent.getIdentifier();
+				pong.encode();
+				if (!pong.failed()) {
+					this.sendNettyMessage(pong, sender);
 				} else {
-					this.sendNettyMessage(errorPacket, sender);
+					logger.error(pong.getClass().getSimpleName() + " packet failed to encode");
 				}
 			}
-		} else if (packet.getId() == RakNetPacket.ID_OPEN_CONNECTION_REQUEST_2) {
-			OpenConnectionRequestTwo connectionRequestTwo = new OpenConnectionRequestTwo(packet);
-			connectionRequestTwo.decode();
-			if (!connectionRequestTwo.failed() && connectionRequestTwo.magic == true
-					&& connectionRequestTwo.maximumTransferUnit >= RakNet.MINIMUM_MTU_SIZE) {
-				RakNetPacket errorPacket = this.validateSender(sender, connectionRequestTwo.clientGuid);
-				if (errorPacket == null) {
-					OpenConnectionResponseTwo connectionResponseTwo = new OpenConnectionResponseTwo();
-					connectionResponseTwo.serverGuid = this.guid;
-					connectionResponseTwo.clientAddress = sender;
-					connectionResponseTwo.maximumTransferUnit = Math.min(connectionRequestTwo.maximumTransferUnit,
-							maximumTransferUnit);
-					connectionResponseTwo.encode();
-					if (!connectionResponseTwo.failed()) {
-						this.callEvent(
-								listener -> listener.onConnect(this, sender, connectionRequestTwo.connectionType));
-						clients.put(sender,
-								new RakNetClientPeer(this, connectionRequestTwo.connectionType,
-										connectionRequestTwo.clientGuid, connectionResponseTwo.maximumTransferUnit,
-										channel, sender));
-						this.sendNettyMessage(connectionResponseTwo, sender);
-					}
+		}
+	}
+
+	/**
+	 * Handles an {@link OpenConnectionRequestOne OPEN_CONNECTION_REQUEST_1}
+	 * packet.
+	 * 
+	 * @param sender
+	 *            the address of the sender.
+	 * @param packet
+	 *            the packet to handle.
+	 */
+	private final void handleConnectionRequestOne(InetSocketAddress sender, RakNetPacket packet) {
+		OpenConnectionRequestOne connectionRequestOne = new OpenConnectionRequestOne(packet);
+		connectionRequestOne.decode();
+		if (clients.containsKey(sender)) {
+			if (clients.get(sender).isLoggedIn()) {
+				this.disconnect(sender, "Client reinstantiated connection");
+			}
+		}
+		if (connectionRequestOne.magic == true) {
+			RakNetPacket errorPacket = this.validateSender(sender, NO_GUID);
+			if (errorPacket == null) {
+				if (connectionRequestOne.networkProtocol != this.getProtocolVersion()) {
+					IncompatibleProtocolVersion incompatibleProtocol = new IncompatibleProtocolVersion();
+					incompatibleProtocol.networkProtocol = this.getProtocolVersion();
+					incompatibleProtocol.serverGuid = this.guid;
+					incompatibleProtocol.encode();
+					this.sendNettyMessage(incompatibleProtocol, sender);
 				} else {
-					this.sendNettyMessage(errorPacket, sender);
+					OpenConnectionResponseOne connectionResponseOne = new OpenConnectionResponseOne();
+					connectionResponseOne.serverGuid = this.guid;
+					connectionResponseOne.maximumTransferUnit = connectionRequestOne.maximumTransferUnit;
+					connectionResponseOne.encode();
+					this.sendNettyMessage(connectionResponseOne, sender);
+				}
+			} else {
+				this.sendNettyMessage(errorPacket, sender);
+			}
+		}
+	}
+
+	/**
+	 * Handles an {@link OpenConnectionRequestTwo OPEN_CONNECTION_REQUEST_2}
+	 * packet, creating the client if the request is valid.
+	 * 
+	 * @param channel
+	 *            the channel the packet was received on, which the client
+	 *            will be bound to.
+	 * @param sender
+	 *            the address of the sender.
+	 * @param packet
+	 *            the packet to handle.
+	 */
+	private final void handleConnectionRequestTwo(Channel channel, InetSocketAddress sender, RakNetPacket packet) {
+		OpenConnectionRequestTwo connectionRequestTwo = new OpenConnectionRequestTwo(packet);
+		connectionRequestTwo.decode();
+		if (!connectionRequestTwo.failed() && connectionRequestTwo.magic == true
+				&& connectionRequestTwo.maximumTransferUnit >= RakNet.MINIMUM_MTU_SIZE) {
+			RakNetPacket errorPacket = this.validateSender(sender, connectionRequestTwo.clientGuid);
+			if (errorPacket == null) {
+				OpenConnectionResponseTwo connectionResponseTwo = new OpenConnectionResponseTwo();
+				connectionResponseTwo.serverGuid = this.guid;
+				connectionResponseTwo.clientAddress = sender;
+				connectionResponseTwo.maximumTransferUnit = Math.min(connectionRequestTwo.maximumTransferUnit,
+						maximumTransferUnit);
+				connectionResponseTwo.encode();
+				if (!connectionResponseTwo.failed()) {
+					this.callEvent(
+							listener -> listener.onConnect(this, sender, connectionRequestTwo.connectionType));
+					RakNetClientPeer peer = new RakNetClientPeer(this, connectionRequestTwo.connectionType,
+							connectionRequestTwo.clientGuid, connectionResponseTwo.maximumTransferUnit, channel,
+							sender);
+					peer.setWriteBatchSize(networkConfiguration.getWriteBatchSize());
+					peer.setZeroCopyPayloads(networkConfiguration.isZeroCopyPayloads());
+					peer.setSendPacketRate(networkConfiguration.getSendPacketRate());
+					peer.setSendByteRate(networkConfiguration.getSendByteRate());
+					peer.setSendBurstTime(networkConfiguration.getSendBurstTime());
+					peer.setAcknowledgeDelay(networkConfiguration.getAcknowledgeDelay());
+					peer.setOrderWindowSize(networkConfiguration.getOrderWindowSize());
+					peer.setMaximumSplitCount(networkConfiguration.getMaximumSplitCount());
+					peer.setMaximumSplits(networkConfiguration.getMaximumSplits());
+					peer.setMaximumSplitBytes(networkConfiguration.getMaximumSplitBytes());
+					peer.setSplitTimeout(networkConfiguration.getSplitTimeout());
+					peer.setStreamWindowSize(networkConfiguration.getStreamWindowSize());
+					peer.setCongestionController(networkConfiguration.getCongestionControllerFactory()
+							.create(peer.getMaximumTransferUnit()));
+					peer.setMessageRegistry(messageRegistry);
+					clients.put(sender, peer);
+					peerScheduler.register(peer);
+					this.sendNettyMessage(connectionResponseTwo, sender);
 				}
+			} else {
+				this.sendNettyMessage(errorPacket, sender);
 			}
 		}
-		logger.trace("Handled " + RakNetPacket.getName(packet) + " packet from " + sender);
 	}
 
 	/**
@@ -2659,9 +3811,12 @@ public class RakNetServer implements RakNetServerListener {
 		} else if (address.getAddress() == null) {
 			throw new NullPointerException("IP address cannot be null");
 		}
-		channel.writeAndFlush(new DatagramPacket(buf, address));
-		logger.trace("Sent netty message with size of " + buf.capacity() + " bytes (" + (buf.capacity() * 8)
-				+ " bits) to " + address);
+		RakNetClientPeer peer = clients.get(address);
+		(peer != null ? peer.getChannel() : channels[0]).writeAndFlush(new DatagramPacket(buf, address));
+		if (logger.isTraceEnabled()) {
+			logger.trace("Sent netty message with size of " + buf.capacity() + " bytes (" + (buf.capacity() * 8)
+					+ " bits) to " + address);
+		}
 	}
 
 	/**
@@ -2733,83 +3888,68 @@ public class RakNetServer implements RakNetServerListener {
 		} else if (listeners.isEmpty()) {
 			logger.warn("Server has no listeners");
 		}
+
+		// Start peer scheduler
+		peerScheduler.start(
+				RakNetServer.class.getSimpleName() + "-Peer-Thread-" + Long.toHexString(guid).toUpperCase(),
+				(peer, throwable) -> {
+					RakNetClientPeer client = (RakNetClientPeer) peer;
+					this.callEvent(listener -> listener.onPeerException(this, client, throwable));
+					this.disconnect(client, throwable);
+				});
+		logger.debug("Started peer scheduler");
 		try {
+			this.nativeTransport = nativeTransportEnabled == true && Epoll.isAvailable();
+			if (nativeTransportEnabled == true && nativeTransport == false) {
+				logger.warn("Native transport is unavailable, falling back to NIO");
+				logger.debug("Native transport unavailable due to", Epoll.unavailabilityCause());
+			}
 			this.bootstrap = new Bootstrap();
-			this.group = new NioEventLoopGroup();
+			this.group = nativeTransport ? new EpollEventLoopGroup(socketCount) : new NioEventLoopGroup();
 			this.handler = new RakNetServerHandler(this);
 			bootstrap.handler(handler);
 
-			// Create bootstrap and bind channel
-			bootstrap.channel(NioDatagramChannel.class).group(group);
+			// Create bootstrap and bind channels
+			bootstrap.channel(nativeTransport ? EpollDatagramChannel.class : NioDatagramChannel.class).group(group);
+			NetworkConfiguration configuration = this.networkConfiguration;
+			int readBatchSize = nativeTransport ? configuration.getReadBatchSize() : 1;
 			bootstrap.option(ChannelOption.SO_BROADCAST, true).option(ChannelOption.SO_REUSEADDR, false)
-					.option(ChannelOption.SO_SNDBUF, maximumTransferUnit)
-					.option(ChannelOption.SO_RCVBUF, maximumTransferUnit)
-					.option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(maximumTransferUnit));
-			this.channel = (bindingAddress != null ? bootstrap.bind(bindingAddress) : bootstrap.bind(0)).sync()
+					.option(ChannelOption.SO_SNDBUF, configuration.getSendBufferSize())
+					.option(ChannelOption.SO_RCVBUF, configuration.getReceiveBufferSize())
+					.option(ChannelOption.ALLOCATOR, configuration.getAllocator())
+					.option(ChannelOption.RCVBUF_ALLOCATOR,
+							configuration.getReceiveAllocator() != null ? configuration.getReceiveAllocator()
+									: new FixedRecvByteBufAllocator(maximumTransferUnit * readBatchSize));
+			if (nativeTransport == true) {
+				bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+			}
+			if (readBatchSize > 1) {
+				/*
+				 * Each read fills a buffer large enough for a full batch of
+				 * datagrams using recvmmsg, with every datagram being handed
+				 * to the handler as a slice of that buffer.
+				 */
+				bootstrap.option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, maximumTransferUnit);
+			}
+			this.channels = new Channel[nativeTransport ? socketCount : 1];
+			channels[0] = (bindingAddress != null ? bootstrap.bind(bindingAddress) : bootstrap.bind(0)).sync()
 					.channel();
-			this.bindAddress = (InetSocketAddress) channel.localAddress();
+			this.bindAddress = (InetSocketAddress) channels[0].localAddress();
+			for (int i = 1; i < channels.length; i++) {
+				channels[i] = bootstrap.bind(bindAddress).sync().channel(); // Same port as the first socket
+			}
+			int receiveBufferSize = channels[0].config().getOption(ChannelOption.SO_RCVBUF);
+			if (receiveBufferSize < configuration.getReceiveBufferSize()) {
+				logger.warn("Receive buffer size was limited to " + receiveBufferSize + " bytes by the kernel (requested "
+						+ configuration.getReceiveBufferSize() + " bytes), datagrams may be dropped during bursts");
+			}
 			this.running = true;
 			logger.debug("Created and bound bootstrap");
 
-			// Create and start peer update thread
-			RakNetServer server = this;
-			this.peerThread = new Thread(
-					RakNetServer.class.getSimpleName() + "-Peer-Thread-" + Long.toHexString(guid).toUpperCase()) {
-
-				@Override
-				public void run() {
-					HashMap<RakNetClientPeer, Throwable> disconnected = new HashMap<RakNetClientPeer, Throwable>();
-					while (server.running == true && !this.isInterrupted()) {
-						try {
-							Thread.sleep(0, 1); // Lower CPU usage
-						} catch (InterruptedException e) {
-							this.interrupt(); // Interrupted during sleep
-							continue;
-						}
-						for (RakNetClientPeer peer : clients.values()) {
-							if (!peer.isDisconnected()) {
-								try {
-									peer.update();
-									if (peer.getPacketsReceivedThisSecond() >= RakNet.getMaxPacketsPerSecond()) {
-										server.blockAddress(peer.getInetAddress(), "Too many packets",
-												RakNet.MAX_PACKETS_PER_SECOND_BLOCK);
-									}
-								} catch (Throwable throwable) {
-									server.callEvent(listener -> listener.onPeerException(server, peer, throwable));
-									disconnected.put(peer, throwable);
-								}
-							}
-						}
-
-						/*
-						 * Disconnect peers.
-						 * 
-						 * This must be done here as simply removing a client
-						 * from the clients map would be an incorrect way of
-						 * disconnecting a client. This means that calling the
-						 * disconnect() method is required. However, calling it
-						 * while in the loop would cause a
-						 * ConcurrentModifactionException. To get around this,
-						 * the clients that need to be disconnected are properly
-						 * disconnected after the loop is finished. This is done
-						 * simply by having them and their disconnect reason be
-						 * put in a disconnection map.
-						 */
-						if (disconnected.size() > 0) {
-							for (RakNetClientPeer peer : disconnected.keySet()) {
-								server.disconnect(peer, disconnected.get(peer));
-							}
-							disconnected.clear();
-						}
-					}
-				}
-
-			};
-			peerThread.start();
-			logger.debug("Created and started peer update thread");
 			this.callEvent(listener -> listener.onStart(this));
 		} catch (InterruptedException e) {
 			this.running = false;
+			peerScheduler.shutdown();
 			throw new RakNetException(e);
 		}
 		logger.info("Started server");
@@ -2832,21 +3972,44 @@ public class RakNetServer implements RakNetServerListener {
 			throw new IllegalStateException("Server is not running");
 		}
 
-		// Disconnect clients
-		for (RakNetClientPeer client : clients.values()) {
-			this.disconnect(client, reason == null ? "Server shutdown" : reason);
+		/*
+		 * Clients are disconnected by the threads that own their peers, which
+		 * must finish doing so before the peer scheduler is shutdown. If they
+		 * take too long, the peer scheduler is shutdown anyway.
+		 */
+		ArrayList<CountDownLatch> disconnecting = new ArrayList<CountDownLatch>();
+		for (InetSocketAddress address : clients.keySet()) {
+			CountDownLatch disconnected = this.disconnectPeer(address, reason == null ? "Server shutdown" : reason);
+			if (disconnected != null) {
+				disconnecting.add(disconnected);
+			}
 		}
 		clients.clear();
+		long disconnectDeadline = System.currentTimeMillis() + PeerScheduler.DISCONNECT_TIMEOUT;
+		try {
+			for (CountDownLatch disconnected : disconnecting) {
+				long remaining = disconnectDeadline - System.currentTimeMillis();
+				if (remaining <= 0 || disconnected.await(remaining, TimeUnit.MILLISECONDS) == false) {
+					logger.warn("Timed out while waiting for clients to be disconnected");
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 
 		// Stop server
 		this.running = false;
-		peerThread.interrupt();
+		peerScheduler.shutdown();
 		logger.info("Shutdown server" + (reason != null ? " for \"" + reason + "\"" : ""));
 
 		// Shutdown networking
-		channel.close();
+		for (Channel channel : channels) {
+			channel.close();
+		}
 		group.shutdownGracefully(0L, 1000L, TimeUnit.MILLISECONDS);
-		this.channel = null;
+		this.channels = null;
+		this.nativeTransport = false;
 		this.handler = null;
 		this.group = null;
 		this.bootstrap = null;
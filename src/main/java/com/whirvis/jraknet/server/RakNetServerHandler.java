@@ -39,24 +39,32 @@ import org.apache.logging.log4j.Logger;
 import com.whirvis.jraknet.RakNetPacket;
 import com.whirvis.jraknet.peer.RakNetClientPeer;
 
+import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.AttributeKey;
 
 /**
  * Used by the {@link RakNetServer} with the sole purpose of sending received
  * packets to the server so they can be handled. Any errors that occurs will
  * also be sent to the server to be dealt with.
+ * <p>
+ * A single handler is shared by every socket the server has bound, so the
+ * address blamed for an exception is tracked per channel.
  *
  * @author "Whirvis" Trent Summerlin
  * @since JRakNet v1.0.0
  */
+@Sharable
 public final class RakNetServerHandler extends ChannelInboundHandlerAdapter {
 
+	private static final AttributeKey<InetSocketAddress> CAUSE_ADDRESS = AttributeKey
+			.valueOf(RakNetServerHandler.class, "causeAddress");
+
 	private final Logger logger;
 	private final RakNetServer server;
 	private final ConcurrentHashMap<InetAddress, BlockedAddress> blocked;
-	private InetSocketAddress causeAddress;
 
 	/**
 	 * Creates a RakNet server Netty handler.
@@ -137,7 +145,7 @@ public final class RakNetServerHandler extends ChannelInboundHandlerAdapter {
 			RakNetPacket packet = new RakNetPacket(datagram);
 
 			// If an exception happens it's because of this address
-			this.causeAddress = sender;
+			ctx.channel().attr(CAUSE_ADDRESS).set(sender);
 
 			// Check if address is blocked
 			if (this.isAddressBlocked(sender.getAddress())) {
@@ -150,7 +158,7 @@ public final class RakNetServerHandler extends ChannelInboundHandlerAdapter {
 			}
 
 			// Handle the packet and release the buffer
-			server.handleMessage(sender, packet);
+			server.handleMessage(ctx.channel(), sender, packet);
 			logger.debug("Sent packet to server and reset datagram buffer read position");
 			server.callEvent(listener -> {
 				datagram.content().readerIndex(0); // Reset index
@@ -159,17 +167,22 @@ public final class RakNetServerHandler extends ChannelInboundHandlerAdapter {
 			if (datagram.release() /* No longer needed */) {
 				logger.trace("Released datagram");
 			} else {
-				logger.error("Memory leak: Failed to deallocate datagram when releasing it");
+				/*
+				 * The datagram is still referenced by a peer that has yet to
+				 * handle it on its own thread. It will be deallocated once the
+				 * peer has finished handling it and releases it.
+				 */
+				logger.trace("Released datagram, still referenced by peer");
 			}
 
 			// No exceptions occurred, release the suspect
-			this.causeAddress = null;
+			ctx.channel().attr(CAUSE_ADDRESS).set(null);
 		}
 	}
 
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-		server.handleHandlerException(this.causeAddress, cause);
+		server.handleHandlerException(ctx.channel().attr(CAUSE_ADDRESS).get(), cause);
 	}
 
 }
@@ -245,6 +245,11 @@ public interface RakNetServerListener {
 	/**
 	 * Called when a packet has been received from a client and is ready to be
 	 * handled.
+	 * <p>
+	 * If {@link com.whirvis.jraknet.NetworkConfiguration#setZeroCopyPayloads(boolean)
+	 * zero-copy payloads} are enabled, the packet is a slice of the received
+	 * datagram and the listener owns one reference to it, which must be
+	 * released with {@link RakNetPacket#release()} once it has been handled.
 	 * 
 	 * @param server
 	 *            the server.
@@ -265,6 +270,11 @@ public interface RakNetServerListener {
 	 * <p>
 	 * This function can be used to add missing features from the regular RakNet
 	 * protocol that are absent in JRakNet if needed.
+	 * <p>
+	 * If {@link com.whirvis.jraknet.NetworkConfiguration#setZeroCopyPayloads(boolean)
+	 * zero-copy payloads} are enabled, the packet is a slice of the received
+	 * datagram and the listener owns one reference to it, which must be
+	 * released with {@link RakNetPacket#release()} once it has been handled.
 	 * 
 	 * @param server
 	 *            the server.
@@ -0,0 +1,224 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.peer.RakNetPeer;
+import com.whirvis.jraknet.peer.TimeoutException;
+import com.whirvis.jraknet.protocol.ConnectionType;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.protocol.message.acknowledge.AcknowledgedPacket;
+import com.whirvis.jraknet.protocol.message.acknowledge.Record;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+
+/**
+ * Measures how long it takes a {@link RakNetPeer} to handle the
+ * <code>ACK</code> packets for a large amount of outstanding acknowledgement
+ * receipts.
+ * <p>
+ * Every round, the peer sends {@value #OUTSTANDING_RECEIPTS} messages with the
+ * {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT UNRELIABLE_WITH_ACK_RECEIPT}
+ * reliability, each large enough to be sent in its own datagram. The sequence
+ * numbers of the datagrams are then acknowledged in <code>ACK</code> packets
+ * of {@value #RECORDS_PER_ACK} records each, and only the handling of these
+ * packets is timed. The first program argument is the size of the messages
+ * (<code>1024</code> by default).
+ * <p>
+ * This is a rough harness rather than a JMH benchmark, with a few warmup
+ * rounds and no fork isolation. It is meant to show the order of magnitude
+ * of the cost of handling an <code>ACK</code>, not precise timings.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class AckReceiptBenchmark {
+
+	private static final Logger LOG = LogManager.getLogger(AckReceiptBenchmark.class);
+	private static final short BENCHMARK_ID = 0xFE;
+	private static final int MAXIMUM_TRANSFER_UNIT = 1464;
+	private static final int OUTSTANDING_RECEIPTS = 10000;
+	private static final int RECORDS_PER_ACK = 64;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int BENCHMARK_ROUNDS = 20;
+
+	private static int recordsAcknowledged;
+
+	/**
+	 * A peer that counts the acknowledgement receipts it is notified of.
+	 *
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static final class BenchmarkPeer extends RakNetPeer {
+
+		private int acknowledged;
+
+		/**
+		 * Creates a benchmark peer.
+		 * 
+		 * @param channel
+		 *            the channel to write to.
+		 */
+		private BenchmarkPeer(EmbeddedChannel channel) {
+			super(new InetSocketAddress("127.0.0.1", RakNetTest.WHIRVIS_DEVELOPMENT_PORT), 0L, MAXIMUM_TRANSFER_UNIT,
+					ConnectionType.JRAKNET, channel);
+		}
+
+		@Override
+		public long getTimestamp() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public void handleMessage(RakNetPacket packet, int channel) {
+			packet.release();
+		}
+
+		@Override
+		public void onAcknowledge(Record record, EncapsulatedPacket packet) {
+			this.acknowledged++;
+		}
+
+		@Override
+		public void onNotAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+	}
+
+	private AckReceiptBenchmark() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the benchmark.
+	 * 
+	 * @param args
+	 *            the program arguments.
+	 * @throws TimeoutException
+	 *             if the peer times out.
+	 */
+	public static void main(String[] args) throws TimeoutException {
+		int messageSize = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		RakNet.setMaxPacketsPerSecond(Long.MAX_VALUE);
+		EmbeddedChannel channel = new EmbeddedChannel();
+		BenchmarkPeer peer = new BenchmarkPeer(channel);
+		peer.setWriteBatchSize(OUTSTANDING_RECEIPTS);
+
+		LOG.info("Warming up with " + WARMUP_ROUNDS + " rounds of " + OUTSTANDING_RECEIPTS + " receipts...");
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			benchmark(peer, channel, messageSize);
+		}
+		LOG.info("Benchmarking " + BENCHMARK_ROUNDS + " rounds...");
+		long time = 0;
+		peer.acknowledged = 0;
+		recordsAcknowledged = 0;
+		for (int i = 0; i < BENCHMARK_ROUNDS; i++) {
+			time += benchmark(peer, channel, messageSize);
+		}
+
+		if (peer.acknowledged != OUTSTANDING_RECEIPTS * BENCHMARK_ROUNDS) {
+			LOG.error("Only " + peer.acknowledged + " out of " + (OUTSTANDING_RECEIPTS * BENCHMARK_ROUNDS)
+					+ " receipts were acknowledged");
+		}
+		LOG.info(String.format("Handled %d ACK records in %.1f ms per round (%.1f ns per record)",
+				recordsAcknowledged / BENCHMARK_ROUNDS, time / 1000000.0D / BENCHMARK_ROUNDS,
+				(double) time / recordsAcknowledged));
+		channel.finishAndReleaseAll();
+		System.exit(0);
+	}
+
+	/**
+	 * Sends {@value #OUTSTANDING_RECEIPTS} messages that require an
+	 * acknowledgement receipt, and then acknowledges all of them.
+	 * 
+	 * @param peer
+	 *            the peer to send the messages through.
+	 * @param channel
+	 *            the channel the peer writes to.
+	 * @param messageSize
+	 *            the size of the messages.
+	 * @return how long it took to handle the <code>ACK</code> packets in
+	 *         nanoseconds.
+	 * @throws TimeoutException
+	 *             if the peer times out.
+	 */
+	private static long benchmark(BenchmarkPeer peer, EmbeddedChannel channel, int messageSize)
+			throws TimeoutException {
+		for (int i = 0; i < OUTSTANDING_RECEIPTS; i++) {
+			RakNetPacket packet = new RakNetPacket(BENCHMARK_ID, messageSize);
+			packet.pad(messageSize - 1);
+			peer.sendMessage(Reliability.UNRELIABLE_WITH_ACK_RECEIPT, packet);
+		}
+		peer.update();
+
+		// Collect the sequence numbers of the sent datagrams
+		int sent = channel.outboundMessages().size();
+		int[] sequenceIds = new int[sent];
+		for (int i = 0; i < sent; i++) {
+			DatagramPacket datagram = channel.readOutbound();
+			ByteBuf content = datagram.content();
+			sequenceIds[i] = content.getUnsignedMediumLE(content.readerIndex() + 1);
+			datagram.release();
+		}
+
+		// Acknowledge the datagrams
+		RakNetPacket[] acknowledgements = new RakNetPacket[(sent + RECORDS_PER_ACK - 1)
+				/ RECORDS_PER_ACK];
+		for (int i = 0; i < acknowledgements.length; i++) {
+			Record[] records = new Record[Math.min(RECORDS_PER_ACK, sent - i * RECORDS_PER_ACK)];
+			for (int j = 0; j < records.length; j++) {
+				records[j] = new Record(sequenceIds[i * RECORDS_PER_ACK + j]);
+			}
+			AcknowledgedPacket acknowledged = new AcknowledgedPacket();
+			acknowledged.records = records;
+			acknowledged.encode();
+			acknowledgements[i] = new RakNetPacket(acknowledged.buffer());
+		}
+		long start = System.nanoTime();
+		for (RakNetPacket acknowledged : acknowledgements) {
+			peer.handleInternal(acknowledged);
+		}
+		long time = System.nanoTime() - start;
+		for (RakNetPacket acknowledged : acknowledgements) {
+			acknowledged.release();
+		}
+		recordsAcknowledged += sent;
+		return time;
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.lang.management.ManagementFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.management.ThreadMXBean;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.CustomFourPacket;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+/**
+ * Measures how many bytes are allocated on the heap for every message that
+ * is encoded into a datagram, using both unpooled heap buffers and the
+ * default pooled direct buffers as the {@link RakNet#getAllocator() packet
+ * allocator}.
+ * <p>
+ * Every iteration creates a message the way a user would, encapsulates it
+ * and encodes it into a {@link CustomFourPacket} sized by the maximum
+ * transfer unit, then releases the datagram the same way the channel does
+ * once it has been written. The first program argument is the size of the
+ * messages (<code>512</code> by default).
+ * <p>
+ * This is a rough harness rather than a JMH benchmark. It runs both
+ * allocators in the same JVM after a single warmup loop, and reads the
+ * allocated bytes from the JVM's thread allocation counter. Its numbers are
+ * only good for spotting large differences between two builds run on the
+ * same machine.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class AllocationBenchmark {
+
+	private static final Logger LOG = LogManager.getLogger(AllocationBenchmark.class);
+	private static final short BENCHMARK_ID = 0xFE;
+	private static final int MAXIMUM_TRANSFER_UNIT = 1464;
+	private static final int WARMUP_ITERATIONS = 200000;
+	private static final int BENCHMARK_ITERATIONS = 1000000;
+
+	private AllocationBenchmark() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the benchmark.
+	 * 
+	 * @param args
+	 *            the program arguments.
+	 */
+	public static void main(String[] args) {
+		int messageSize = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			LOG.error("Thread allocated memory is not supported by this JVM");
+			System.exit(1);
+		}
+
+		LOG.info("Benchmarking unpooled heap buffers...");
+		double unpooled = benchmark(threads, new UnpooledByteBufAllocator(false), messageSize);
+		LOG.info("Benchmarking pooled direct buffers...");
+		double pooled = benchmark(threads, PooledByteBufAllocator.DEFAULT, messageSize);
+
+		LOG.info(String.format("Unpooled heap buffers:  %.1f bytes allocated per message", unpooled));
+		LOG.info(String.format("Pooled direct buffers:  %.1f bytes allocated per message", pooled));
+		System.exit(0);
+	}
+
+	/**
+	 * Runs the benchmark with the specified packet allocator.
+	 * 
+	 * @param threads
+	 *            the thread management bean used to measure allocations.
+	 * @param allocator
+	 *            the packet allocator.
+	 * @param messageSize
+	 *            the size of the messages.
+	 * @return the amount of bytes allocated on the heap per message.
+	 */
+	private static double benchmark(ThreadMXBean threads, ByteBufAllocator allocator, int messageSize) {
+		RakNet.setAllocator(allocator);
+		long threadId = Thread.currentThread().getId();
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			encode(i, messageSize);
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId);
+		long startTime = System.nanoTime();
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+			encode(i, messageSize);
+		}
+		long time = System.nanoTime() - startTime;
+		allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+		LOG.info(String.format("Encoded %d messages in %d ms", BENCHMARK_ITERATIONS, time / 1000000L));
+		return (double) allocated / BENCHMARK_ITERATIONS;
+	}
+
+	/**
+	 * Creates a message and encodes it into a datagram, then releases the
+	 * datagram.
+	 * 
+	 * @param sequenceId
+	 *            the sequence ID of the datagram.
+	 * @param messageSize
+	 *            the size of the message.
+	 */
+	private static void encode(int sequenceId, int messageSize) {
+		RakNetPacket message = new RakNetPacket(BENCHMARK_ID, messageSize);
+		message.pad(messageSize - 1);
+		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+		encapsulated.reliability = Reliability.UNRELIABLE;
+		encapsulated.payload = message;
+		CustomFourPacket custom = new CustomFourPacket(MAXIMUM_TRANSFER_UNIT);
+		custom.sequenceId = sequenceId & 0xFFFFFF;
+		custom.messages = new EncapsulatedPacket[] { encapsulated };
+		custom.encode();
+		message.release();
+		custom.release();
+	}
+
+}
@@ -0,0 +1,231 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.client.RakNetClient;
+import com.whirvis.jraknet.client.RakNetClientListener;
+import com.whirvis.jraknet.peer.RakNetClientPeer;
+import com.whirvis.jraknet.peer.RakNetServerPeer;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.CustomPacket;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.server.RakNetServer;
+import com.whirvis.jraknet.server.RakNetServerListener;
+
+/**
+ * Compares the packets per second a {@link RakNetServer} can handle with
+ * batched datagram I/O against flushing every datagram on its own.
+ * <p>
+ * Several clients send {@link Reliability#UNRELIABLE UNRELIABLE} messages
+ * that each fill an entire datagram to the server, which echoes every one of
+ * them back. Each client keeps a fixed window of messages in flight, and the
+ * amount of echoes received per second is reported for both modes. The first
+ * program argument is the batch size to compare against (<code>64</code> by
+ * default), and the second is whether or not to use the native transport
+ * (<code>true</code> by default).
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class BatchedIoBenchmark {
+
+	private static final Logger LOG = LogManager.getLogger(BatchedIoBenchmark.class);
+	private static final short BENCHMARK_ID = 0xFE;
+	private static final int CLIENT_COUNT = 4;
+	private static final int WINDOW_SIZE = 256;
+	private static final long WARMUP_TIME = 2000L;
+	private static final long BENCHMARK_TIME = 5000L;
+	private static final long LOSS_TIMEOUT = 100L;
+	private static volatile boolean running;
+
+	private BatchedIoBenchmark() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the benchmark.
+	 * 
+	 * @param args
+	 *            the program arguments.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws InterruptedException
+	 *             if any thread has interrupted the current thread. The
+	 *             <i>interrupted status</i> of the current thread is cleared
+	 *             when this exception is thrown.
+	 */
+	public static void main(String[] args) throws RakNetException, InterruptedException {
+		int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+		boolean nativeTransport = args.length > 1 ? Boolean.parseBoolean(args[1]) : true;
+		RakNet.setMaxPacketsPerSecond(Long.MAX_VALUE);
+
+		LOG.info("Benchmarking per-datagram flush...");
+		double flushed = benchmark(1, nativeTransport);
+		LOG.info("Benchmarking batched I/O with a batch size of " + batchSize + "...");
+		double batched = benchmark(batchSize, nativeTransport);
+
+		LOG.info(String.format("Per-datagram flush: %.0f packets per second", flushed));
+		LOG.info(String.format("Batched I/O:        %.0f packets per second (%.2fx)", batched, batched / flushed));
+		System.exit(0);
+	}
+
+	/**
+	 * Runs the benchmark with the specified I/O batch size.
+	 * 
+	 * @param batchSize
+	 *            the read and write batch size of the server.
+	 * @param nativeTransport
+	 *            <code>true</code> if the server should use the native
+	 *            transport, <code>false</code> otherwise.
+	 * @return the amount of echoed packets received per second.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws InterruptedException
+	 *             if any thread has interrupted the current thread.
+	 */
+	private static double benchmark(int batchSize, boolean nativeTransport)
+			throws RakNetException, InterruptedException {
+		RakNetServer server = new RakNetServer(RakNetTest.WHIRVIS_DEVELOPMENT_PORT, CLIENT_COUNT);
+		server.setNativeTransportEnabled(nativeTransport);
+		server.setNetworkConfiguration(
+				new NetworkConfiguration().setReadBatchSize(batchSize).setWriteBatchSize(batchSize));
+		server.addListener(new RakNetServerListener() {
+
+			@Override
+			public void handleMessage(RakNetServer server, RakNetClientPeer peer, RakNetPacket packet, int channel) {
+				packet.buffer().readerIndex(0);
+				peer.sendMessage(Reliability.UNRELIABLE, packet);
+			}
+
+			@Override
+			public void onDisconnect(RakNetServer server, InetSocketAddress address, RakNetClientPeer peer,
+					String reason) {
+				if (running == true) {
+					LOG.error("Client from " + address + " disconnected (" + reason + ")");
+					System.exit(1);
+				}
+			}
+
+		});
+		server.start();
+		running = true;
+		if (nativeTransport == true && server.isUsingNativeTransport() == false) {
+			LOG.warn("Native transport is unavailable, benchmarking NIO instead");
+		}
+
+		// Connect clients
+		RakNetClient[] clients = new RakNetClient[CLIENT_COUNT];
+		AtomicLong[] received = new AtomicLong[CLIENT_COUNT];
+		for (int i = 0; i < clients.length; i++) {
+			AtomicLong counter = received[i] = new AtomicLong();
+			clients[i] = new RakNetClient();
+			clients[i].addListener(new RakNetClientListener() {
+
+				@Override
+				public void handleMessage(RakNetClient client, RakNetServerPeer peer, RakNetPacket packet,
+						int channel) {
+					counter.incrementAndGet();
+				}
+
+			});
+			clients[i].connect(new InetSocketAddress("127.0.0.1", server.getPort()));
+		}
+		while (server.getClientCount() < CLIENT_COUNT) {
+			Thread.sleep(10L);
+		}
+		for (RakNetClient client : clients) {
+			while (!client.isLoggedIn()) {
+				Thread.sleep(10L);
+			}
+		}
+
+		// Keep a window of messages in flight for each client
+		RakNetServerPeer peer = clients[0].getServer();
+		int payloadSize = peer.getMaximumTransferUnit() - CustomPacket.MINIMUM_SIZE
+				- EncapsulatedPacket.size(Reliability.UNRELIABLE, false);
+		long[] sent = new long[CLIENT_COUNT];
+		long[] lastReceived = new long[CLIENT_COUNT];
+		long[] lastProgress = new long[CLIENT_COUNT];
+		long start = System.currentTimeMillis();
+		long measureStart = -1L;
+		long measureReceived = 0L;
+		while (true) {
+			long currentTime = System.currentTimeMillis();
+			if (measureStart < 0 && currentTime - start >= WARMUP_TIME) {
+				measureStart = currentTime;
+				for (AtomicLong counter : received) {
+					measureReceived -= counter.get();
+				}
+			} else if (measureStart >= 0 && currentTime - measureStart >= BENCHMARK_TIME) {
+				for (AtomicLong counter : received) {
+					measureReceived += counter.get();
+				}
+				break;
+			}
+			boolean idle = true;
+			for (int i = 0; i < clients.length; i++) {
+				long echoed = received[i].get();
+				if (echoed != lastReceived[i]) {
+					lastReceived[i] = echoed;
+					lastProgress[i] = currentTime;
+				} else if (currentTime - lastProgress[i] >= LOSS_TIMEOUT) {
+					sent[i] = echoed; // Assume the rest of the window was lost
+					lastProgress[i] = currentTime;
+				}
+				while (sent[i] - echoed < WINDOW_SIZE) {
+					RakNetPacket packet = new RakNetPacket(BENCHMARK_ID);
+					packet.pad(payloadSize - 1);
+					clients[i].sendMessage(Reliability.UNRELIABLE, packet);
+					sent[i]++;
+					idle = false;
+				}
+			}
+			if (idle == true) {
+				Thread.sleep(0, 100000); // Wait for echoes
+			}
+		}
+
+		// Shutdown
+		running = false;
+		for (RakNetClient client : clients) {
+			client.disconnect();
+		}
+		server.shutdown();
+		Thread.sleep(1000L); // Let the port close
+		return measureReceived / (BENCHMARK_TIME / 1000.0);
+	}
+
+}
@@ -0,0 +1,217 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.management.ThreadMXBean;
+import com.whirvis.jraknet.peer.RakNetPeer;
+import com.whirvis.jraknet.peer.TimeoutException;
+import com.whirvis.jraknet.protocol.ConnectionType;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.protocol.message.acknowledge.AcknowledgedPacket;
+import com.whirvis.jraknet.protocol.message.acknowledge.Record;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+
+/**
+ * Measures how quickly a {@link RakNetPeer} can send large messages that must
+ * be split, and how many bytes are allocated on the heap to do so.
+ * <p>
+ * Every iteration, the peer sends a single
+ * {@link Reliability#RELIABLE_ORDERED RELIABLE_ORDERED} message whose payload
+ * is allocated by the default pooled allocator. The peer is then updated until
+ * every split packet has been sent, acknowledging every datagram it writes to
+ * its {@link EmbeddedChannel} as it goes. The benchmark fails if the payload
+ * of a message has not been freed once all of its split packets have been
+ * acknowledged. The first program argument is the size of the messages
+ * (<code>131072</code> by default).
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class LargeMessageSendBenchmark {
+
+	private static final Logger LOG = LogManager.getLogger(LargeMessageSendBenchmark.class);
+	private static final short BENCHMARK_ID = 0xFE;
+	private static final int MAXIMUM_TRANSFER_UNIT = 1464;
+	private static final int MAXIMUM_UPDATES = 10000;
+	private static final int WARMUP_ITERATIONS = 2000;
+	private static final int BENCHMARK_ITERATIONS = 10000;
+
+	/**
+	 * A peer that does nothing with the messages it receives.
+	 *
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static final class BenchmarkPeer extends RakNetPeer {
+
+		/**
+		 * Creates a benchmark peer.
+		 * 
+		 * @param channel
+		 *            the channel to write to.
+		 */
+		private BenchmarkPeer(EmbeddedChannel channel) {
+			super(new InetSocketAddress("127.0.0.1", RakNetTest.WHIRVIS_DEVELOPMENT_PORT), 0L, MAXIMUM_TRANSFER_UNIT,
+					ConnectionType.JRAKNET, channel);
+		}
+
+		@Override
+		public long getTimestamp() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public void handleMessage(RakNetPacket packet, int channel) {
+			packet.release();
+		}
+
+		@Override
+		public void onAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+		@Override
+		public void onNotAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+	}
+
+	private LargeMessageSendBenchmark() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the benchmark.
+	 * 
+	 * @param args
+	 *            the program arguments.
+	 * @throws TimeoutException
+	 *             if the peer times out.
+	 */
+	public static void main(String[] args) throws TimeoutException {
+		int messageSize = args.length > 0 ? Integer.parseInt(args[0]) : 131072;
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			LOG.error("Thread allocated memory is not supported by this JVM");
+			System.exit(1);
+		}
+		RakNet.setMaxPacketsPerSecond(Long.MAX_VALUE);
+		RakNet.setAllocator(PooledByteBufAllocator.DEFAULT);
+		EmbeddedChannel channel = new EmbeddedChannel();
+		BenchmarkPeer peer = new BenchmarkPeer(channel);
+
+		LOG.info("Warming up with " + WARMUP_ITERATIONS + " messages of " + messageSize + " bytes...");
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			if (send(peer, channel, messageSize) == false) {
+				System.exit(1);
+			}
+		}
+		LOG.info("Benchmarking " + BENCHMARK_ITERATIONS + " messages...");
+		long threadId = Thread.currentThread().getId();
+		long allocated = threads.getThreadAllocatedBytes(threadId);
+		long startTime = System.nanoTime();
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+			if (send(peer, channel, messageSize) == false) {
+				System.exit(1);
+			}
+		}
+		long time = System.nanoTime() - startTime;
+		allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+		LOG.info(String.format("Sent %.1f MB per second (%.1f us per message), %.1f bytes allocated per message",
+				((double) messageSize * BENCHMARK_ITERATIONS / (1024.0D * 1024.0D)) / (time / 1000000000.0D),
+				time / 1000.0D / BENCHMARK_ITERATIONS, (double) allocated / BENCHMARK_ITERATIONS));
+		channel.finishAndReleaseAll();
+		System.exit(0);
+	}
+
+	/**
+	 * Sends a message through the peer, and acknowledges every datagram the
+	 * peer writes until all of its split packets have been acknowledged.
+	 * 
+	 * @param peer
+	 *            the peer to send the message through.
+	 * @param channel
+	 *            the channel the peer writes to.
+	 * @param messageSize
+	 *            the size of the message.
+	 * @return <code>true</code> if the payload of the message was freed once
+	 *         all of its split packets were acknowledged, <code>false</code>
+	 *         otherwise.
+	 * @throws TimeoutException
+	 *             if the peer times out.
+	 */
+	private static boolean send(BenchmarkPeer peer, EmbeddedChannel channel, int messageSize)
+			throws TimeoutException {
+		RakNetPacket packet = new RakNetPacket(BENCHMARK_ID, messageSize);
+		packet.pad(messageSize - 1);
+		ByteBuf payload = packet.buffer();
+		peer.sendMessage(Reliability.RELIABLE_ORDERED, packet);
+		for (int i = 0; i < MAXIMUM_UPDATES; i++) {
+			peer.update();
+			int sent = channel.outboundMessages().size();
+			if (sent <= 0) {
+				if (payload.refCnt() <= 0) {
+					break; // Everything has been sent and acknowledged
+				}
+				continue;
+			}
+			Record[] records = new Record[sent];
+			for (int j = 0; j < sent; j++) {
+				DatagramPacket datagram = channel.readOutbound();
+				ByteBuf content = datagram.content();
+				records[j] = new Record(content.getUnsignedMediumLE(content.readerIndex() + 1));
+				datagram.release();
+			}
+			AcknowledgedPacket acknowledged = new AcknowledgedPacket();
+			acknowledged.records = records;
+			acknowledged.encode();
+			RakNetPacket acknowledgement = new RakNetPacket(acknowledged.buffer());
+			peer.handleInternal(acknowledgement);
+			acknowledgement.release();
+		}
+		if (payload.refCnt() > 0) {
+			LOG.error("Payload was not freed after " + MAXIMUM_UPDATES + " updates");
+			return false;
+		}
+		return true;
+	}
+
+}
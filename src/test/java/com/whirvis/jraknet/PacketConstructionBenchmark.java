@@ -0,0 +1,152 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.lang.management.ManagementFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.management.ThreadMXBean;
+import com.whirvis.jraknet.protocol.status.ConnectedPing;
+
+/**
+ * Measures the time taken and the bytes allocated on the heap to create a
+ * {@link RakNetPacket} for a received message.
+ * <p>
+ * Every iteration wraps the same encoded {@link ConnectedPing}, decodes it
+ * and checks if it supports encoding and decoding, just like a peer does
+ * whenever it receives one. For comparison, the same is done while also
+ * repeating the reflective lookups every packet constructor used to perform
+ * before the results were cached per class.
+ * <p>
+ * This is a rough timing loop, not a JMH benchmark. Both variants run one
+ * after the other in the same JVM with no fork isolation, and nothing keeps
+ * the JIT from optimizing parts of the loop away. The results are a hint,
+ * not a measurement.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class PacketConstructionBenchmark {
+
+	private static final Logger LOG = LogManager.getLogger(PacketConstructionBenchmark.class);
+	private static final int WARMUP_ITERATIONS = 1000000;
+	private static final int BENCHMARK_ITERATIONS = 5000000;
+	private static volatile boolean blackhole;
+
+	private PacketConstructionBenchmark() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the benchmark.
+	 * 
+	 * @param args
+	 *            the program arguments.
+	 * @throws NoSuchMethodException
+	 *             if the <code>encode()</code> or <code>decode()</code>
+	 *             methods of {@link ConnectedPing} cannot be found.
+	 */
+	public static void main(String[] args) throws NoSuchMethodException {
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		ConnectedPing ping = new ConnectedPing();
+		ping.timestamp = System.currentTimeMillis();
+		ping.encode();
+
+		LOG.info("Benchmarking packet construction with reflective lookups...");
+		long[] reflective = benchmark(threads, ping, true);
+		LOG.info("Benchmarking packet construction with cached lookups...");
+		long[] cached = benchmark(threads, ping, false);
+
+		LOG.info(String.format("Reflective lookups: %.1f ns, %.1f bytes allocated per packet",
+				(double) reflective[0] / BENCHMARK_ITERATIONS, (double) reflective[1] / BENCHMARK_ITERATIONS));
+		LOG.info(String.format("Cached lookups:     %.1f ns, %.1f bytes allocated per packet",
+				(double) cached[0] / BENCHMARK_ITERATIONS, (double) cached[1] / BENCHMARK_ITERATIONS));
+		ping.release();
+		System.exit(0);
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * 
+	 * @param threads
+	 *            the thread management bean used to measure allocations.
+	 * @param ping
+	 *            the encoded ping to wrap.
+	 * @param reflective
+	 *            <code>true</code> if the reflective lookups should be
+	 *            repeated for every packet, <code>false</code> otherwise.
+	 * @return the time taken in nanoseconds and the amount of bytes allocated
+	 *         on the heap, in that order.
+	 * @throws NoSuchMethodException
+	 *             if the <code>encode()</code> or <code>decode()</code>
+	 *             methods of {@link ConnectedPing} cannot be found.
+	 */
+	private static long[] benchmark(ThreadMXBean threads, ConnectedPing ping, boolean reflective)
+			throws NoSuchMethodException {
+		long threadId = Thread.currentThread().getId();
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			construct(ping, reflective);
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId);
+		long startTime = System.nanoTime();
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+			construct(ping, reflective);
+		}
+		long time = System.nanoTime() - startTime;
+		allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+		return new long[] { time, allocated };
+	}
+
+	/**
+	 * Wraps and decodes the encoded ping.
+	 * 
+	 * @param ping
+	 *            the encoded ping.
+	 * @param reflective
+	 *            <code>true</code> if the reflective lookups should be
+	 *            repeated, <code>false</code> otherwise.
+	 * @throws NoSuchMethodException
+	 *             if the <code>encode()</code> or <code>decode()</code>
+	 *             methods of {@link ConnectedPing} cannot be found.
+	 */
+	private static void construct(ConnectedPing ping, boolean reflective) throws NoSuchMethodException {
+		ping.buffer().readerIndex(0);
+		ConnectedPing received = new ConnectedPing(new RakNetPacket(ping.buffer()));
+		received.decode();
+		if (reflective == true) {
+			blackhole = ConnectedPing.class.getMethod("encode").getDeclaringClass() != RakNetPacket.class
+					&& ConnectedPing.class.getMethod("decode").getDeclaringClass() != RakNetPacket.class;
+		}
+		blackhole = received.supportsEncoding() && received.supportsDecoding();
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.peer.RakNetPeer;
+import com.whirvis.jraknet.peer.TimeoutException;
+import com.whirvis.jraknet.protocol.ConnectionType;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.protocol.message.acknowledge.Record;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.IllegalReferenceCountException;
+
+/**
+ * Tests the ownership rule of
+ * {@link RakNetPeer#sendMessage(com.whirvis.jraknet.protocol.PacketPriority, Reliability, int, Packet)
+ * RakNetPeer.sendMessage()}.
+ * <p>
+ * Sending a packet passes ownership of its buffer to the peer, which releases
+ * it once it has been sent. This test checks that the buffer is released
+ * after a single send, that a packet {@link Packet#retain() retained} before
+ * every extra send can be sent more than once, and that sending a packet
+ * again without retaining it fails.
+ * <p>
+ * The last check is done with unpooled buffers. A pooled buffer is returned
+ * to the pool as soon as it is released, and can be handed out again before
+ * it is sent a second time. Sending it again then reads from whatever buffer
+ * now owns that memory, without failing at all. This is why retaining a
+ * packet before every extra send is required, rather than just recommended.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class PacketOwnershipTest {
+
+	private static final Logger LOG = LogManager.getLogger(PacketOwnershipTest.class);
+	private static final short TEST_ID = 0xFE;
+	private static final int MAXIMUM_TRANSFER_UNIT = 1464;
+
+	/**
+	 * A peer that does nothing with the messages it receives.
+	 *
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static final class TestPeer extends RakNetPeer {
+
+		/**
+		 * Creates a test peer.
+		 * 
+		 * @param channel
+		 *            the channel to write to.
+		 */
+		private TestPeer(EmbeddedChannel channel) {
+			super(new InetSocketAddress("127.0.0.1", RakNetTest.WHIRVIS_DEVELOPMENT_PORT), 0L, MAXIMUM_TRANSFER_UNIT,
+					ConnectionType.JRAKNET, channel);
+		}
+
+		@Override
+		public long getTimestamp() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public void handleMessage(RakNetPacket packet, int channel) {
+			packet.release();
+		}
+
+		@Override
+		public void onAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+		@Override
+		public void onNotAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+	}
+
+	private PacketOwnershipTest() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the test.
+	 * 
+	 * @param args
+	 *            the program arguments. These values are ignored.
+	 * @throws TimeoutException
+	 *             if the peer times out.
+	 */
+	public static void main(String[] args) throws TimeoutException {
+		RakNet.setMaxPacketsPerSecond(Long.MAX_VALUE);
+
+		// A sent packet is released by the peer
+		LOG.info("Sending a packet once...");
+		EmbeddedChannel channel = new EmbeddedChannel();
+		TestPeer peer = new TestPeer(channel);
+		RakNetPacket packet = createPacket();
+		peer.sendMessage(Reliability.UNRELIABLE, packet);
+		peer.update();
+		check(channel.outboundMessages().size() == 1, "Packet was not sent");
+		check(packet.buffer().refCnt() == 0, "Packet was not released after being sent");
+		channel.finishAndReleaseAll();
+
+		// A retained packet can be sent again
+		LOG.info("Sending a retained packet twice...");
+		channel = new EmbeddedChannel();
+		peer = new TestPeer(channel);
+		packet = createPacket();
+		packet.retain();
+		peer.sendMessage(Reliability.UNRELIABLE, packet);
+		peer.update();
+		check(packet.buffer().refCnt() == 1, "Retained packet was released after the first send");
+		peer.sendMessage(Reliability.UNRELIABLE, packet);
+		peer.update();
+		check(channel.outboundMessages().size() == 2, "Retained packet was not sent twice");
+		check(packet.buffer().refCnt() == 0, "Retained packet was not released after the last send");
+		channel.finishAndReleaseAll();
+
+		// A packet that was not retained cannot be sent again
+		LOG.info("Sending a packet twice without retaining it...");
+		ByteBufAllocator allocator = RakNet.getAllocator();
+		RakNet.setAllocator(new UnpooledByteBufAllocator(false));
+		channel = new EmbeddedChannel();
+		peer = new TestPeer(channel);
+		packet = createPacket();
+		peer.sendMessage(Reliability.UNRELIABLE, packet);
+		peer.update();
+		boolean failed = false;
+		try {
+			peer.sendMessage(Reliability.UNRELIABLE, packet);
+			peer.update();
+		} catch (IllegalReferenceCountException e) {
+			failed = true;
+		}
+		check(failed == true, "Packet that was not retained was sent again");
+		channel.finishAndReleaseAll();
+		RakNet.setAllocator(allocator);
+
+		LOG.info("Packet ownership test passed");
+		System.exit(0);
+	}
+
+	/**
+	 * Creates a packet to send.
+	 * 
+	 * @return the packet.
+	 */
+	private static RakNetPacket createPacket() {
+		RakNetPacket packet = new RakNetPacket(TEST_ID, 32);
+		packet.pad(31);
+		return packet;
+	}
+
+	/**
+	 * Exits with an error if the specified condition is not met.
+	 * 
+	 * @param condition
+	 *            the condition.
+	 * @param message
+	 *            the error message.
+	 */
+	private static void check(boolean condition, String message) {
+		if (condition == false) {
+			LOG.error(message);
+			System.exit(1);
+		}
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.client.RakNetClient;
+import com.whirvis.jraknet.client.RakNetClientListener;
+import com.whirvis.jraknet.peer.RakNetClientPeer;
+import com.whirvis.jraknet.peer.RakNetServerPeer;
+import com.whirvis.jraknet.protocol.PacketPriority;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.CustomPacket;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.server.RakNetServer;
+import com.whirvis.jraknet.server.RakNetServerListener;
+
+/**
+ * Tests that messages sent with a higher {@link PacketPriority} are not held
+ * up by a large amount of lower priority messages.
+ * <p>
+ * The server is given a send packet rate, and queues a download of
+ * {@link Reliability#RELIABLE_ORDERED RELIABLE_ORDERED} messages that each
+ * fill an entire datagram to the client all at once. While the download is
+ * underway, it sends a small timestamped gameplay message every few
+ * milliseconds on another channel. This is done twice: once with everything
+ * sent with the {@link PacketPriority#MEDIUM MEDIUM} priority, and once with
+ * the download sent with the {@link PacketPriority#LOW LOW} priority and the
+ * gameplay messages sent with the {@link PacketPriority#HIGH HIGH} priority.
+ * The test passes if the gameplay messages arrive quickly when they have a
+ * higher priority, and the download still completes. The first program
+ * argument is the send packet rate (<code>1000</code> by default), and the
+ * second is the amount of messages in the download (<code>1500</code> by
+ * default).
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class PacketPriorityTest {
+
+	private static final Logger LOG = LogManager.getLogger(PacketPriorityTest.class);
+	private static final short DOWNLOAD_ID = 0xFE;
+	private static final short GAMEPLAY_ID = 0xFD;
+	private static final int DOWNLOAD_CHANNEL = 1;
+	private static final int GAMEPLAY_CHANNEL = 0;
+	private static final long GAMEPLAY_INTERVAL = 10L;
+	private static final long LATENCY_LIMIT = 50L;
+	private static volatile boolean running;
+
+	private PacketPriorityTest() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the test.
+	 * 
+	 * @param args
+	 *            the program arguments.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws InterruptedException
+	 *             if any thread has interrupted the current thread. The
+	 *             <i>interrupted status</i> of the current thread is cleared
+	 *             when this exception is thrown.
+	 */
+	public static void main(String[] args) throws RakNetException, InterruptedException {
+		long rate = args.length > 0 ? Long.parseLong(args[0]) : 1000L;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 1500;
+		RakNet.setMaxPacketsPerSecond(Long.MAX_VALUE); // Acknowledgements
+
+		LOG.info("Sending everything with the same priority...");
+		long unprioritized = test(rate, count, PacketPriority.MEDIUM, PacketPriority.MEDIUM);
+		Thread.sleep(1000L); // Let the port close
+		LOG.info("Sending gameplay messages with a higher priority than the download...");
+		long prioritized = test(rate, count, PacketPriority.LOW, PacketPriority.HIGH);
+
+		LOG.info("Same priority:   99th percentile gameplay latency of " + unprioritized + " ms");
+		LOG.info("Higher priority: 99th percentile gameplay latency of " + prioritized + " ms");
+		if (prioritized > LATENCY_LIMIT) {
+			LOG.error("Gameplay messages were held up by the download despite their higher priority");
+			System.exit(1);
+		}
+		LOG.info("Packet priority test passed");
+		System.exit(0);
+	}
+
+	/**
+	 * Sends a download and gameplay messages from the server to a client with
+	 * the specified priorities.
+	 * 
+	 * @param rate
+	 *            the send packet rate of the server.
+	 * @param count
+	 *            the amount of messages in the download.
+	 * @param downloadPriority
+	 *            the priority of the download.
+	 * @param gameplayPriority
+	 *            the priority of the gameplay messages.
+	 * @return the 99th percentile latency of the gameplay messages in
+	 *         milliseconds.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws InterruptedException
+	 *             if any thread has interrupted the current thread.
+	 */
+	private static long test(long rate, int count, PacketPriority downloadPriority, PacketPriority gameplayPriority)
+			throws RakNetException, InterruptedException {
+		// Create server
+		RakNetServer server = new RakNetServer(RakNetTest.WHIRVIS_DEVELOPMENT_PORT, 1);
+		server.setNetworkConfiguration(new NetworkConfiguration().setSendPacketRate(rate));
+		server.addListener(new RakNetServerListener() {
+
+			@Override
+			public void onLogin(RakNetServer server, RakNetClientPeer peer) {
+				int payloadSize = peer.getMaximumTransferUnit() - CustomPacket.MINIMUM_SIZE
+						- EncapsulatedPacket.size(Reliability.RELIABLE_ORDERED, false);
+				for (int i = 0; i < count; i++) {
+					RakNetPacket packet = new RakNetPacket(DOWNLOAD_ID);
+					packet.pad(payloadSize - 1);
+					peer.sendMessage(downloadPriority, Reliability.RELIABLE_ORDERED, DOWNLOAD_CHANNEL, packet);
+				}
+			}
+
+		});
+		server.start();
+
+		// Create client
+		int gameplayCount = (int) (count * 1000L / rate / GAMEPLAY_INTERVAL / 2);
+		long[] latencies = new long[gameplayCount];
+		AtomicInteger gameplayReceived = new AtomicInteger();
+		AtomicInteger downloadReceived = new AtomicInteger();
+		RakNetClient client = new RakNetClient();
+		client.addListener(new RakNetClientListener() {
+
+			@Override
+			public void handleMessage(RakNetClient client, RakNetServerPeer peer, RakNetPacket packet, int channel) {
+				if (packet.getId() == DOWNLOAD_ID) {
+					downloadReceived.incrementAndGet();
+				} else if (packet.getId() == GAMEPLAY_ID) {
+					int index = gameplayReceived.getAndIncrement();
+					if (index < latencies.length) {
+						latencies[index] = System.nanoTime() - packet.readLong();
+					}
+				}
+			}
+
+			@Override
+			public void onDisconnect(RakNetClient client, InetSocketAddress address, RakNetServerPeer peer,
+					String reason) {
+				if (running == true) {
+					LOG.error("Client - Lost connection to server (" + reason + ")");
+					System.exit(1);
+				}
+			}
+
+		});
+		running = true;
+		client.connect(new InetSocketAddress("127.0.0.1", server.getPort()));
+		while (server.getClientCount() < 1 || !client.isLoggedIn()) {
+			Thread.sleep(10L);
+		}
+
+		// Send gameplay messages while the download is underway
+		RakNetClientPeer peer = server.getClients()[0];
+		for (int i = 0; i < gameplayCount; i++) {
+			RakNetPacket packet = new RakNetPacket(GAMEPLAY_ID);
+			packet.writeLong(System.nanoTime());
+			peer.sendMessage(gameplayPriority, Reliability.RELIABLE_ORDERED, GAMEPLAY_CHANNEL, packet);
+			Thread.sleep(GAMEPLAY_INTERVAL);
+		}
+
+		// Wait for everything to arrive
+		long deadline = System.currentTimeMillis() + count * 2000L / rate + 5000L;
+		while ((downloadReceived.get() < count || gameplayReceived.get() < gameplayCount)
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10L);
+		}
+		running = false;
+		client.disconnect();
+		server.shutdown();
+		if (downloadReceived.get() < count) {
+			LOG.error("Only " + downloadReceived.get() + "/" + count + " download messages arrived");
+			System.exit(1);
+		} else if (gameplayReceived.get() < gameplayCount) {
+			LOG.error("Only " + gameplayReceived.get() + "/" + gameplayCount + " gameplay messages arrived");
+			System.exit(1);
+		}
+		Arrays.sort(latencies);
+		long median = latencies[latencies.length / 2] / 1000000L;
+		long percentile = latencies[(int) (latencies.length * 0.99D)] / 1000000L;
+		LOG.info("Received " + count + " download messages and " + gameplayCount
+				+ " gameplay messages, with a median gameplay latency of " + median + " ms");
+		return percentile;
+	}
+
+}
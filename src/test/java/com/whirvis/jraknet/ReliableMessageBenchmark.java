@@ -0,0 +1,278 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.peer.RakNetPeer;
+import com.whirvis.jraknet.peer.TimeoutException;
+import com.whirvis.jraknet.protocol.ConnectionType;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.CustomFourPacket;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.protocol.message.acknowledge.Record;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * Measures how long it takes a {@link RakNetPeer} to handle a large amount of
+ * reliable messages, including the duplicate detection done on their message
+ * indexes and the reordering done on their order indexes.
+ * <p>
+ * Every round, a new peer is sent {@value #MESSAGE_COUNT} reliable messages,
+ * {@value #MESSAGES_PER_DATAGRAM} to a datagram. The message indexes start
+ * shortly before they wrap around, every {@value #LOSS_INTERVAL}th datagram
+ * is held back and only arrives {@value #RESEND_DELAY} datagrams later as if
+ * it had been lost and resent, and every {@value #DUPLICATE_INTERVAL}th
+ * datagram arrives a second time {@value #RESEND_DELAY} datagrams later as if
+ * its acknowledgement had been lost. The datagrams are encoded beforehand, and
+ * only the handling of them is timed. The benchmark fails if any message is
+ * not handled exactly once, or if an ordered message is handled out of order.
+ * The first program argument is the reliability of the messages
+ * (<code>RELIABLE</code> by default).
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class ReliableMessageBenchmark {
+
+	private static final Logger LOG = LogManager.getLogger(ReliableMessageBenchmark.class);
+	private static final short BENCHMARK_ID = 0xFE;
+	private static final int MAXIMUM_TRANSFER_UNIT = 1464;
+	private static final int MESSAGE_COUNT = 1000000;
+	private static final int MESSAGES_PER_DATAGRAM = 16;
+	private static final int FIRST_MESSAGE_INDEX = (1 << 24) - MESSAGE_COUNT / 2;
+	private static final int LOSS_INTERVAL = 97;
+	private static final int DUPLICATE_INTERVAL = 89;
+	private static final int RESEND_DELAY = 32;
+	private static final int UPDATE_INTERVAL = 64;
+	private static final int WARMUP_ROUNDS = 2;
+	private static final int BENCHMARK_ROUNDS = 5;
+
+	/**
+	 * A peer that counts the messages it handles.
+	 *
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static final class BenchmarkPeer extends RakNetPeer {
+
+		private int handled;
+		private boolean outOfOrder;
+
+		/**
+		 * Creates a benchmark peer.
+		 * 
+		 * @param channel
+		 *            the channel to write to.
+		 */
+		private BenchmarkPeer(EmbeddedChannel channel) {
+			super(new InetSocketAddress("127.0.0.1", RakNetTest.WHIRVIS_DEVELOPMENT_PORT), 0L, MAXIMUM_TRANSFER_UNIT,
+					ConnectionType.JRAKNET, channel);
+		}
+
+		@Override
+		public long getTimestamp() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public void handleMessage(RakNetPacket packet, int channel) {
+			if (packet.readInt() != handled) {
+				this.outOfOrder = true;
+			}
+			this.handled++;
+			packet.release();
+		}
+
+		@Override
+		public void onAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+		@Override
+		public void onNotAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+	}
+
+	private ReliableMessageBenchmark() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the benchmark.
+	 * 
+	 * @param args
+	 *            the program arguments.
+	 * @throws TimeoutException
+	 *             if a peer times out.
+	 */
+	public static void main(String[] args) throws TimeoutException {
+		Reliability reliability = args.length > 0 ? Reliability.valueOf(args[0]) : Reliability.RELIABLE;
+		if (!reliability.isReliable()) {
+			LOG.error("Reliability must be reliable");
+			System.exit(1);
+		}
+		RakNet.setMaxPacketsPerSecond(Long.MAX_VALUE);
+		LOG.info("Encoding datagrams for " + MESSAGE_COUNT + " " + reliability + " messages...");
+		RakNetPacket[] datagrams = encode(reliability);
+
+		LOG.info("Warming up with " + WARMUP_ROUNDS + " rounds...");
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			if (benchmark(datagrams, reliability) < 0) {
+				System.exit(1);
+			}
+		}
+		LOG.info("Benchmarking " + BENCHMARK_ROUNDS + " rounds...");
+		long time = 0;
+		for (int i = 0; i < BENCHMARK_ROUNDS; i++) {
+			long roundTime = benchmark(datagrams, reliability);
+			if (roundTime < 0) {
+				System.exit(1);
+			}
+			time += roundTime;
+		}
+
+		LOG.info(String.format("Handled %d %s messages in %.1f ms per round (%.1f ns per message)",
+				MESSAGE_COUNT, reliability, time / 1000000.0D / BENCHMARK_ROUNDS,
+				(double) time / BENCHMARK_ROUNDS / MESSAGE_COUNT));
+		for (RakNetPacket datagram : datagrams) {
+			datagram.release();
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Encodes the datagrams sent to the peer every round, in the order they
+	 * arrive in.
+	 * 
+	 * @param reliability
+	 *            the reliability of the messages.
+	 * @return the datagrams.
+	 */
+	private static RakNetPacket[] encode(Reliability reliability) {
+		ArrayList<EncapsulatedPacket[]> sent = new ArrayList<EncapsulatedPacket[]>();
+		int messageIndex = FIRST_MESSAGE_INDEX;
+		for (int i = 0; i < MESSAGE_COUNT; i += MESSAGES_PER_DATAGRAM) {
+			EncapsulatedPacket[] messages = new EncapsulatedPacket[Math.min(MESSAGES_PER_DATAGRAM,
+					MESSAGE_COUNT - i)];
+			for (int j = 0; j < messages.length; j++) {
+				EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+				encapsulated.reliability = reliability;
+				encapsulated.orderIndex = i + j;
+				encapsulated.messageIndex = messageIndex++;
+				encapsulated.payload = new RakNetPacket(BENCHMARK_ID);
+				encapsulated.payload.writeInt(i + j);
+				messages[j] = encapsulated;
+			}
+			sent.add(messages);
+		}
+
+		// Hold back and duplicate datagrams as if they were resent
+		ArrayList<EncapsulatedPacket[]> arrivals = new ArrayList<EncapsulatedPacket[]>();
+		ArrayList<EncapsulatedPacket[]> resends = new ArrayList<EncapsulatedPacket[]>();
+		ArrayList<Integer> resendTimes = new ArrayList<Integer>();
+		for (int i = 0; i < sent.size(); i++) {
+			while (!resendTimes.isEmpty() && resendTimes.get(0) <= i) {
+				arrivals.add(resends.remove(0));
+				resendTimes.remove(0);
+			}
+			if (i % LOSS_INTERVAL != LOSS_INTERVAL - 1) {
+				arrivals.add(sent.get(i));
+			}
+			if (i % LOSS_INTERVAL == LOSS_INTERVAL - 1 || i % DUPLICATE_INTERVAL == DUPLICATE_INTERVAL - 1) {
+				resends.add(sent.get(i));
+				resendTimes.add(i + RESEND_DELAY);
+			}
+		}
+		arrivals.addAll(resends);
+
+		RakNetPacket[] datagrams = new RakNetPacket[arrivals.size()];
+		for (int i = 0; i < datagrams.length; i++) {
+			CustomFourPacket custom = new CustomFourPacket(MAXIMUM_TRANSFER_UNIT);
+			custom.sequenceId = i;
+			custom.messages = arrivals.get(i);
+			custom.encode();
+			datagrams[i] = new RakNetPacket(custom.buffer());
+		}
+		for (EncapsulatedPacket[] messages : sent) {
+			for (EncapsulatedPacket encapsulated : messages) {
+				encapsulated.payload.release();
+			}
+		}
+		return datagrams;
+	}
+
+	/**
+	 * Has a new peer handle every datagram.
+	 * 
+	 * @param datagrams
+	 *            the datagrams to handle.
+	 * @param reliability
+	 *            the reliability of the messages.
+	 * @return how long it took to handle the datagrams in nanoseconds,
+	 *         <code>-1</code> if not every message was handled exactly once or
+	 *         an ordered message was handled out of order.
+	 * @throws TimeoutException
+	 *             if the peer times out.
+	 */
+	private static long benchmark(RakNetPacket[] datagrams, Reliability reliability) throws TimeoutException {
+		EmbeddedChannel channel = new EmbeddedChannel();
+		BenchmarkPeer peer = new BenchmarkPeer(channel);
+		long start = System.nanoTime();
+		for (int i = 0; i < datagrams.length; i++) {
+			RakNetPacket datagram = datagrams[i];
+			datagram.buffer().readerIndex(0);
+			datagram.buffer().skipBytes(1);
+			peer.handleInternal(datagram);
+			if (i % UPDATE_INTERVAL == UPDATE_INTERVAL - 1) {
+				peer.update();
+				channel.releaseOutbound();
+			}
+		}
+		peer.update();
+		long time = System.nanoTime() - start;
+		channel.finishAndReleaseAll();
+
+		if (peer.handled != MESSAGE_COUNT) {
+			LOG.error("Handled " + peer.handled + " out of " + MESSAGE_COUNT + " messages");
+			return -1L;
+		} else if (reliability.isOrdered() && peer.outOfOrder == true) {
+			LOG.error("Handled messages out of order");
+			return -1L;
+		}
+		return time;
+	}
+
+}
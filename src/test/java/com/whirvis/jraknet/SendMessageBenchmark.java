@@ -0,0 +1,174 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.peer.RakNetPeer;
+import com.whirvis.jraknet.peer.TimeoutException;
+import com.whirvis.jraknet.protocol.ConnectionType;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.protocol.message.acknowledge.Record;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * Measures how many messages per second a {@link RakNetPeer} can send, with
+ * everything below the channel taken out of the picture.
+ * <p>
+ * The peer writes to an {@link EmbeddedChannel}, whose written datagrams are
+ * released right away. This makes the cost of the protocol internals stand
+ * out, such as the trace logging that is expected to cost nothing while it
+ * is disabled. The logger level should be left at <code>INFO</code> or above
+ * when running this benchmark. The first program argument is the size of the
+ * messages (<code>32</code> by default).
+ * <p>
+ * This is a rough harness, not a JMH benchmark. It times a fixed period after
+ * a short warmup in a single JVM, so run-to-run noise can easily be larger
+ * than small differences between builds.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class SendMessageBenchmark {
+
+	private static final Logger LOG = LogManager.getLogger(SendMessageBenchmark.class);
+	private static final short BENCHMARK_ID = 0xFE;
+	private static final int MAXIMUM_TRANSFER_UNIT = 1464;
+	private static final int MESSAGES_PER_UPDATE = 64;
+	private static final long WARMUP_TIME = 2000L;
+	private static final long BENCHMARK_TIME = 5000L;
+
+	/**
+	 * A peer that does nothing with the messages it receives.
+	 *
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static final class BenchmarkPeer extends RakNetPeer {
+
+		/**
+		 * Creates a benchmark peer.
+		 * 
+		 * @param channel
+		 *            the channel to write to.
+		 */
+		private BenchmarkPeer(EmbeddedChannel channel) {
+			super(new InetSocketAddress("127.0.0.1", RakNetTest.WHIRVIS_DEVELOPMENT_PORT), 0L, MAXIMUM_TRANSFER_UNIT,
+					ConnectionType.JRAKNET, channel);
+		}
+
+		@Override
+		public long getTimestamp() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public void handleMessage(RakNetPacket packet, int channel) {
+			packet.release();
+		}
+
+		@Override
+		public void onAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+		@Override
+		public void onNotAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+	}
+
+	private SendMessageBenchmark() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the benchmark.
+	 * 
+	 * @param args
+	 *            the program arguments.
+	 * @throws TimeoutException
+	 *             if the peer times out.
+	 */
+	public static void main(String[] args) throws TimeoutException {
+		int messageSize = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+		RakNet.setMaxPacketsPerSecond(Long.MAX_VALUE);
+		EmbeddedChannel channel = new EmbeddedChannel();
+		BenchmarkPeer peer = new BenchmarkPeer(channel);
+		peer.setWriteBatchSize(MESSAGES_PER_UPDATE);
+
+		LOG.info("Trace logging is " + (LOG.isTraceEnabled() ? "enabled" : "disabled") + ", warming up...");
+		benchmark(peer, channel, messageSize, WARMUP_TIME);
+		LOG.info("Benchmarking for " + BENCHMARK_TIME + " milliseconds...");
+		long sent = benchmark(peer, channel, messageSize, BENCHMARK_TIME);
+
+		LOG.info(String.format("Sent %.0f messages per second (%.1f ns per message)",
+				sent / (BENCHMARK_TIME / 1000.0D), (BENCHMARK_TIME * 1000000.0D) / sent));
+		channel.finishAndReleaseAll();
+		System.exit(0);
+	}
+
+	/**
+	 * Sends messages through the peer for the specified amount of time.
+	 * 
+	 * @param peer
+	 *            the peer to send the messages through.
+	 * @param channel
+	 *            the channel the peer writes to.
+	 * @param messageSize
+	 *            the size of the messages.
+	 * @param time
+	 *            how long to send messages for in milliseconds.
+	 * @return the amount of messages sent.
+	 * @throws TimeoutException
+	 *             if the peer times out.
+	 */
+	private static long benchmark(BenchmarkPeer peer, EmbeddedChannel channel, int messageSize, long time)
+			throws TimeoutException {
+		long sent = 0;
+		long endTime = System.currentTimeMillis() + time;
+		while (System.currentTimeMillis() < endTime) {
+			for (int i = 0; i < MESSAGES_PER_UPDATE; i++) {
+				RakNetPacket packet = new RakNetPacket(BENCHMARK_ID, messageSize);
+				packet.pad(messageSize - 1);
+				peer.sendMessage(Reliability.UNRELIABLE, packet);
+			}
+			peer.update();
+			channel.releaseOutbound();
+			sent += MESSAGES_PER_UPDATE;
+		}
+		return sent;
+	}
+
+}
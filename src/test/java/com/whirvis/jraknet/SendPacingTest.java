@@ -0,0 +1,204 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.client.RakNetClient;
+import com.whirvis.jraknet.client.RakNetClientListener;
+import com.whirvis.jraknet.peer.RakNetClientPeer;
+import com.whirvis.jraknet.peer.RakNetServerPeer;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.CustomPacket;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.server.RakNetServer;
+import com.whirvis.jraknet.server.RakNetServerListener;
+
+/**
+ * Tests that the datagrams sent to a peer are paced according to its send
+ * packet rate.
+ * <p>
+ * The server is given a send packet rate, and queues a large amount of
+ * {@link Reliability#UNRELIABLE UNRELIABLE} messages that each fill an entire
+ * datagram to the client all at once. The client records the time each of
+ * them arrives at. The test passes if the messages arrive at the configured
+ * rate, and if they are spread out rather than arriving in bursts. Since the
+ * arrival times are taken when the client handles the messages, some
+ * clumping caused by the client itself is tolerated. The
+ * first program argument is the send packet rate (<code>1000</code> by
+ * default), and the second is the amount of messages to send
+ * (<code>2000</code> by default).
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class SendPacingTest {
+
+	private static final Logger LOG = LogManager.getLogger(SendPacingTest.class);
+	private static final short PACING_ID = 0xFE;
+	private static final long BURST_TIME = 5L;
+	private static final long WINDOW_TIME = 10L;
+	private static final double RATE_TOLERANCE = 0.1D;
+	private static volatile boolean running;
+
+	private SendPacingTest() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the test.
+	 * 
+	 * @param args
+	 *            the program arguments.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws InterruptedException
+	 *             if any thread has interrupted the current thread. The
+	 *             <i>interrupted status</i> of the current thread is cleared
+	 *             when this exception is thrown.
+	 */
+	public static void main(String[] args) throws RakNetException, InterruptedException {
+		long rate = args.length > 0 ? Long.parseLong(args[0]) : 1000L;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		RakNet.setMaxPacketsPerSecond(Long.MAX_VALUE); // Acknowledgements
+
+		// Create server
+		RakNetServer server = new RakNetServer(RakNetTest.WHIRVIS_DEVELOPMENT_PORT, 1);
+		server.setNetworkConfiguration(new NetworkConfiguration().setSendPacketRate(rate).setSendBurstTime(BURST_TIME));
+		server.addListener(new RakNetServerListener() {
+
+			@Override
+			public void onLogin(RakNetServer server, RakNetClientPeer peer) {
+				LOG.info("Server - Sending " + count + " messages at " + rate + " packets per second...");
+				int payloadSize = peer.getMaximumTransferUnit() - CustomPacket.MINIMUM_SIZE
+						- EncapsulatedPacket.size(Reliability.UNRELIABLE, false);
+				for (int i = 0; i < count; i++) {
+					RakNetPacket packet = new RakNetPacket(PACING_ID);
+					packet.pad(payloadSize - 1);
+					peer.sendMessage(Reliability.UNRELIABLE, packet);
+				}
+			}
+
+		});
+		server.start();
+
+		// Create client
+		long[] arrivals = new long[count];
+		AtomicInteger received = new AtomicInteger();
+		RakNetClient client = new RakNetClient();
+		client.addListener(new RakNetClientListener() {
+
+			@Override
+			public void handleMessage(RakNetClient client, RakNetServerPeer peer, RakNetPacket packet, int channel) {
+				if (packet.getId() == PACING_ID) {
+					int index = received.getAndIncrement();
+					if (index < arrivals.length) {
+						arrivals[index] = System.nanoTime();
+					}
+				}
+			}
+
+			@Override
+			public void onDisconnect(RakNetClient client, InetSocketAddress address, RakNetServerPeer peer,
+					String reason) {
+				if (running == true) {
+					LOG.error("Client - Lost connection to server (" + reason + ")");
+					System.exit(1);
+				}
+			}
+
+		});
+		running = true;
+		client.connect(new InetSocketAddress("127.0.0.1", server.getPort()));
+
+		// Wait for the messages to arrive
+		long expectedTime = count * 1000L / rate;
+		long deadline = System.currentTimeMillis() + expectedTime * 2 + 5000L;
+		int lastReceived = -1;
+		long lastProgress = System.currentTimeMillis();
+		while (received.get() < count && System.currentTimeMillis() < deadline) {
+			if (received.get() != lastReceived) {
+				lastReceived = received.get();
+				lastProgress = System.currentTimeMillis();
+			} else if (lastReceived > 0 && System.currentTimeMillis() - lastProgress >= 1000L) {
+				break; // The rest were lost
+			}
+			Thread.sleep(10L);
+		}
+		int arrived = Math.min(received.get(), count);
+		running = false;
+		client.disconnect();
+		server.shutdown();
+		if (arrived < 2) {
+			LOG.error("Only " + arrived + " messages arrived");
+			System.exit(1);
+		}
+
+		// Measure the rate and the spacing of the messages
+		long[] times = Arrays.copyOf(arrivals, arrived);
+		double seconds = (times[times.length - 1] - times[0]) / 1000000000.0D;
+		double measuredRate = (times.length - 1) / seconds;
+		long[] gaps = new long[times.length - 1];
+		for (int i = 0; i < gaps.length; i++) {
+			gaps[i] = times[i + 1] - times[i];
+		}
+		Arrays.sort(gaps);
+		int maximumWindowCount = 0;
+		for (int start = 0, end = 0; start < times.length; start++) {
+			while (end < times.length && times[end] - times[start] < WINDOW_TIME * 1000000L) {
+				end++;
+			}
+			maximumWindowCount = Math.max(maximumWindowCount, end - start);
+		}
+		long allowedWindowCount = 2 * ((long) Math.ceil(rate * (WINDOW_TIME + BURST_TIME) / 1000.0D) + 1);
+		LOG.info(String.format("Received %d/%d messages at %.0f packets per second", arrived, count, measuredRate));
+		LOG.info(String.format("Gaps: median %.3f ms, 99th percentile %.3f ms, maximum %.3f ms",
+				gaps[gaps.length / 2] / 1000000.0D, gaps[(int) (gaps.length * 0.99D)] / 1000000.0D,
+				gaps[gaps.length - 1] / 1000000.0D));
+		LOG.info("At most " + maximumWindowCount + " messages arrived within " + WINDOW_TIME + " ms (allowed "
+				+ allowedWindowCount + ")");
+		if (Math.abs(measuredRate - rate) > rate * RATE_TOLERANCE) {
+			LOG.error("Messages arrived at " + Math.round(measuredRate) + " packets per second when they should have "
+					+ "arrived at " + rate);
+			System.exit(1);
+		} else if (maximumWindowCount > allowedWindowCount) {
+			LOG.error("Messages were sent in bursts larger than the burst time allows");
+			System.exit(1);
+		}
+		LOG.info("Send pacing test passed");
+		System.exit(0);
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.CustomFourPacket;
+import com.whirvis.jraknet.protocol.message.CustomPacket;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+
+/**
+ * Tests that the sequence number of a {@link CustomPacket} survives being
+ * encoded and decoded across the entire 24-bit range.
+ * <p>
+ * Sequence numbers are sent as unsigned little-endian triads. Any sequence
+ * number of <code>0x800000</code> and above has its highest bit set, and
+ * must not be decoded as a negative number, or the datagram would be
+ * mistaken for an old one and its acknowledgement record could not be
+ * created.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class SequenceNumberTest {
+
+	private static final Logger LOG = LogManager.getLogger(SequenceNumberTest.class);
+	private static final short TEST_ID = 0xFE;
+	private static final int[] SEQUENCE_IDS = new int[] { 0x000000, 0x000001, 0x7FFFFF, 0x800000, 0x800001, 0xABCDEF,
+			0xFFFFFE, 0xFFFFFF };
+
+	private SequenceNumberTest() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the test.
+	 * 
+	 * @param args
+	 *            the program arguments. These values are ignored.
+	 */
+	public static void main(String[] args) {
+		for (int sequenceId : SEQUENCE_IDS) {
+			// Encode datagram
+			RakNetPacket message = new RakNetPacket(TEST_ID, 5);
+			message.writeInt(sequenceId);
+			EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+			encapsulated.reliability = Reliability.RELIABLE_WITH_ACK_RECEIPT;
+			encapsulated.messageIndex = 0;
+			encapsulated.payload = message;
+			CustomFourPacket custom = new CustomFourPacket();
+			custom.sequenceId = sequenceId;
+			custom.messages = new EncapsulatedPacket[] { encapsulated };
+			custom.encode();
+			message.release();
+
+			// Decode datagram
+			CustomPacket decoded = new CustomPacket(new RakNetPacket(custom.buffer()));
+			decoded.decode();
+			String name = String.format("0x%06X", sequenceId);
+			if (decoded.sequenceId != sequenceId) {
+				LOG.error("Decoded sequence ID " + String.format("0x%06X", decoded.sequenceId) + " when " + name
+						+ " was encoded");
+				System.exit(1);
+			} else if (decoded.messages.length != 1 || decoded.ackMessages.length != 1) {
+				LOG.error("Decoded " + decoded.messages.length + " messages from datagram " + name
+						+ " when 1 was encoded");
+				System.exit(1);
+			} else if (decoded.ackMessages[0].ackRecord.getIndex() != sequenceId) {
+				LOG.error("Decoded acknowledgement record " + decoded.ackMessages[0].ackRecord + " for datagram "
+						+ name);
+				System.exit(1);
+			} else if (decoded.messages[0].payload.buffer().getInt(1) != sequenceId) {
+				LOG.error("Decoded the wrong message from datagram " + name);
+				System.exit(1);
+			}
+			LOG.info("Decoded datagram " + name);
+			custom.release();
+		}
+		LOG.info("Sequence number test passed");
+		System.exit(0);
+	}
+
+}
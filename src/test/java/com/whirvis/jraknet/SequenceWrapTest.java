@@ -0,0 +1,269 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.peer.RakNetPeer;
+import com.whirvis.jraknet.peer.TimeoutException;
+import com.whirvis.jraknet.protocol.ConnectionType;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.CustomFourPacket;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.protocol.message.acknowledge.AcknowledgedPacket;
+import com.whirvis.jraknet.protocol.message.acknowledge.Record;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+
+/**
+ * Tests that a peer keeps receiving and acknowledging datagrams when their
+ * sequence number wraps around from <code>2^24 - 1</code> back to
+ * <code>0</code>.
+ * <p>
+ * The datagrams are handed straight to a peer on an embedded channel, with a
+ * few of them skipped, delivered late, delivered twice, or delivered so late
+ * that the peer can no longer tell whether or not it received them. The
+ * messages the peer handles and the acknowledgements it sends back are then
+ * checked against what is expected.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class SequenceWrapTest {
+
+	private static final Logger LOG = LogManager.getLogger(SequenceWrapTest.class);
+	private static final short TEST_ID = 0xFE;
+	private static final int MAXIMUM_TRANSFER_UNIT = 1464;
+	private static final int MAXIMUM_PRINTED = 16;
+
+	/**
+	 * A peer that keeps track of the sequence numbers of the datagrams whose
+	 * messages it has handled.
+	 *
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static final class TestPeer extends RakNetPeer {
+
+		private final ArrayList<Integer> handled;
+
+		/**
+		 * Creates a test peer.
+		 * 
+		 * @param channel
+		 *            the channel to write to.
+		 */
+		private TestPeer(EmbeddedChannel channel) {
+			super(new InetSocketAddress("127.0.0.1", RakNetTest.WHIRVIS_DEVELOPMENT_PORT), 0L, MAXIMUM_TRANSFER_UNIT,
+					ConnectionType.JRAKNET, channel);
+			this.handled = new ArrayList<Integer>();
+		}
+
+		@Override
+		public long getTimestamp() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public void handleMessage(RakNetPacket packet, int channel) {
+			handled.add(packet.readInt());
+			packet.release();
+		}
+
+		@Override
+		public void onAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+		@Override
+		public void onNotAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+	}
+
+	private SequenceWrapTest() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the test.
+	 * 
+	 * @param args
+	 *            the program arguments. These values are ignored.
+	 * @throws TimeoutException
+	 *             if the peer times out.
+	 */
+	public static void main(String[] args) throws TimeoutException {
+		EmbeddedChannel channel = new EmbeddedChannel();
+		TestPeer peer = new TestPeer(channel);
+
+		// Receive a datagram right before the wrap
+		receive(peer, 0xFFFFFC);
+		peer.update();
+		check(channel, peer, new int[] { 0xFFFFFC }, new int[0], new int[] { 0xFFFFFC });
+
+		// Receive datagrams across the wrap, skipping a few
+		receive(peer, 0xFFFFFD);
+		receive(peer, 0xFFFFFF);
+		receive(peer, 0x000000);
+		receive(peer, 0x000002);
+		peer.update();
+		check(channel, peer, new int[] { 0x000000, 0x000002, 0xFFFFFD, 0xFFFFFF }, new int[] { 0x000001, 0xFFFFFE },
+				new int[] { 0xFFFFFD, 0xFFFFFF, 0x000000, 0x000002 });
+
+		// Receive a skipped datagram late, and another twice
+		receive(peer, 0xFFFFFE);
+		receive(peer, 0x000000);
+		peer.update();
+		check(channel, peer, new int[] { 0x000000, 0xFFFFFE }, new int[0], new int[] { 0xFFFFFE });
+
+		// Receive a datagram too old to tell whether it was received
+		receive(peer, (0x000002 - RakNetPeer.RECEIVE_WINDOW_SIZE - 1) & 0xFFFFFF);
+		peer.update();
+		check(channel, peer, new int[0], new int[0], new int[0]);
+
+		channel.finishAndReleaseAll();
+		LOG.info("Sequence wrap test passed");
+		System.exit(0);
+	}
+
+	/**
+	 * Hands a datagram with the specified sequence number to the peer. The
+	 * datagram contains a single message holding the sequence number.
+	 * 
+	 * @param peer
+	 *            the peer.
+	 * @param sequenceId
+	 *            the sequence number of the datagram.
+	 */
+	private static void receive(TestPeer peer, int sequenceId) {
+		RakNetPacket message = new RakNetPacket(TEST_ID, 5);
+		message.writeInt(sequenceId);
+		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+		encapsulated.reliability = Reliability.UNRELIABLE;
+		encapsulated.payload = message;
+		CustomFourPacket custom = new CustomFourPacket();
+		custom.sequenceId = sequenceId;
+		custom.messages = new EncapsulatedPacket[] { encapsulated };
+		custom.encode();
+		message.release();
+		peer.handleInternal(new RakNetPacket(custom.buffer()));
+		custom.release();
+	}
+
+	/**
+	 * Checks the acknowledgements sent by the peer and the messages it has
+	 * handled since the last check. If they are not as expected, the test
+	 * fails.
+	 * 
+	 * @param channel
+	 *            the channel the peer writes to.
+	 * @param peer
+	 *            the peer.
+	 * @param acknowledged
+	 *            the sequence numbers that are expected to be acknowledged,
+	 *            in ascending order.
+	 * @param notAcknowledged
+	 *            the sequence numbers that are expected to be not
+	 *            acknowledged, in ascending order.
+	 * @param handled
+	 *            the sequence numbers of the datagrams whose messages are
+	 *            expected to be handled, in the order they are handled.
+	 */
+	private static void check(EmbeddedChannel channel, TestPeer peer, int[] acknowledged, int[] notAcknowledged,
+			int[] handled) {
+		ArrayList<Integer> sentAcknowledged = new ArrayList<Integer>();
+		ArrayList<Integer> sentNotAcknowledged = new ArrayList<Integer>();
+		DatagramPacket datagram;
+		while ((datagram = channel.readOutbound()) != null) {
+			AcknowledgedPacket acknowledge = new AcknowledgedPacket(new RakNetPacket(datagram.content()));
+			acknowledge.decode();
+			ArrayList<Integer> sent = acknowledge.isAcknowledgement() ? sentAcknowledged : sentNotAcknowledged;
+			for (Record record : acknowledge.records) {
+				for (int sequenceId : record.getSequenceIds()) {
+					sent.add(sequenceId);
+				}
+			}
+			datagram.release();
+		}
+		compare("Acknowledged", sentAcknowledged, acknowledged);
+		compare("Not acknowledged", sentNotAcknowledged, notAcknowledged);
+		compare("Handled", peer.handled, handled);
+		peer.handled.clear();
+	}
+
+	/**
+	 * Compares the sequence numbers that were found with those that were
+	 * expected. If they are not the same, the test fails.
+	 * 
+	 * @param name
+	 *            the name of what is being compared.
+	 * @param found
+	 *            the sequence numbers that were found.
+	 * @param expected
+	 *            the sequence numbers that were expected.
+	 */
+	private static void compare(String name, ArrayList<Integer> found, int[] expected) {
+		int[] actual = new int[found.size()];
+		for (int i = 0; i < actual.length; i++) {
+			actual[i] = found.get(i);
+		}
+		if (!Arrays.equals(actual, expected)) {
+			LOG.error(name + " sequence numbers were " + toString(actual) + " when " + toString(expected)
+					+ " were expected");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Returns the specified sequence numbers as a string in hexadecimal. Only
+	 * the first {@value #MAXIMUM_PRINTED} sequence numbers are included.
+	 * 
+	 * @param sequenceIds
+	 *            the sequence numbers.
+	 * @return the sequence numbers as a string in hexadecimal.
+	 */
+	private static String toString(int[] sequenceIds) {
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < sequenceIds.length && i < MAXIMUM_PRINTED; i++) {
+			builder.append(i > 0 ? ", " : "").append(String.format("0x%06X", sequenceIds[i]));
+		}
+		if (sequenceIds.length > MAXIMUM_PRINTED) {
+			builder.append(", ... (" + sequenceIds.length + " total)");
+		}
+		return builder.append("]").toString();
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.client.RakNetClient;
+import com.whirvis.jraknet.client.RakNetClientListener;
+import com.whirvis.jraknet.peer.RakNetClientPeer;
+import com.whirvis.jraknet.peer.RakNetServerPeer;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.server.RakNetServer;
+import com.whirvis.jraknet.server.RakNetServerListener;
+
+/**
+ * Measures how quickly a {@link RakNetClient} can deliver a large amount of
+ * data to a {@link RakNetServer} as many small messages.
+ * <p>
+ * The client queues {@link Reliability#RELIABLE_ORDERED RELIABLE_ORDERED}
+ * messages of random sizes until 10 MB worth of payload has been queued,
+ * and the time it takes for the server to receive all of them is reported.
+ * How quickly this completes depends mostly on how many messages are packed
+ * into each datagram, and how many datagrams are sent each time the client
+ * is updated. The first program argument is the maximum amount of packets
+ * per second a peer can send (unlimited by default), and the second is the
+ * largest size a message can be (<code>256</code> by default).
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class SmallMessageThroughputBenchmark {
+
+	private static final Logger LOG = LogManager.getLogger(SmallMessageThroughputBenchmark.class);
+	private static final short BENCHMARK_ID = 0xFE;
+	private static final long TRANSFER_SIZE = 10L * 1024L * 1024L;
+	private static final long WARMUP_SIZE = 1024L * 1024L;
+	private static final int MINIMUM_MESSAGE_SIZE = 8;
+	private static final long TRANSFER_TIMEOUT = 120000L;
+	private static volatile boolean running;
+
+	private SmallMessageThroughputBenchmark() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the benchmark.
+	 * 
+	 * @param args
+	 *            the program arguments.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws InterruptedException
+	 *             if any thread has interrupted the current thread. The
+	 *             <i>interrupted status</i> of the current thread is cleared
+	 *             when this exception is thrown.
+	 */
+	public static void main(String[] args) throws RakNetException, InterruptedException {
+		long maxPacketsPerSecond = args.length > 0 ? Long.parseLong(args[0]) : Long.MAX_VALUE;
+		int maximumMessageSize = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+		if (maximumMessageSize < MINIMUM_MESSAGE_SIZE) {
+			throw new IllegalArgumentException("Maximum message size must be at least " + MINIMUM_MESSAGE_SIZE);
+		}
+		RakNet.setMaxPacketsPerSecond(maxPacketsPerSecond);
+
+		// Create server
+		AtomicLong received = new AtomicLong();
+		RakNetServer server = new RakNetServer(RakNetTest.WHIRVIS_DEVELOPMENT_PORT, 1);
+		server.addListener(new RakNetServerListener() {
+
+			@Override
+			public void handleMessage(RakNetServer server, RakNetClientPeer peer, RakNetPacket packet, int channel) {
+				received.addAndGet(packet.size());
+			}
+
+			@Override
+			public void onDisconnect(RakNetServer server, InetSocketAddress address, RakNetClientPeer peer,
+					String reason) {
+				if (running == true) {
+					LOG.error("Client from " + address + " disconnected (" + reason + ")");
+					System.exit(1);
+				}
+			}
+
+		});
+		server.start();
+		running = true;
+
+		// Connect client
+		RakNetClient client = new RakNetClient();
+		client.addListener(new RakNetClientListener() {
+
+			@Override
+			public void onDisconnect(RakNetClient client, InetSocketAddress address, RakNetServerPeer peer,
+					String reason) {
+				if (running == true) {
+					LOG.error("Disconnected from server (" + reason + ")");
+					System.exit(1);
+				}
+			}
+
+		});
+		client.connect(new InetSocketAddress("127.0.0.1", server.getPort()));
+		while (!client.isLoggedIn()) {
+			Thread.sleep(10L);
+		}
+
+		// Transfer data
+		Random random = new Random(0L);
+		LOG.info("Warming up with " + (WARMUP_SIZE / 1024L) + " KB...");
+		if (transfer(client, received, WARMUP_SIZE, maximumMessageSize, random) == false) {
+			System.exit(1);
+		}
+		LOG.info("Transferring " + (TRANSFER_SIZE / 1024L / 1024L) + " MB in messages of " + MINIMUM_MESSAGE_SIZE
+				+ " to " + maximumMessageSize + " bytes...");
+		if (transfer(client, received, TRANSFER_SIZE, maximumMessageSize, random) == false) {
+			System.exit(1);
+		}
+
+		// Shutdown
+		running = false;
+		client.disconnect();
+		server.shutdown();
+		System.exit(0);
+	}
+
+	/**
+	 * Sends the specified amount of data from the client to the server and
+	 * waits for all of it to be received.
+	 * 
+	 * @param client
+	 *            the client.
+	 * @param received
+	 *            the amount of bytes received by the server.
+	 * @param size
+	 *            the amount of bytes to send.
+	 * @param maximumMessageSize
+	 *            the largest size a message can be.
+	 * @param random
+	 *            the random used to pick the size of each message.
+	 * @return <code>true</code> if the server received all of the data,
+	 *         <code>false</code> if it did not in time.
+	 * @throws InterruptedException
+	 *             if any thread has interrupted the current thread.
+	 */
+	private static boolean transfer(RakNetClient client, AtomicLong received, long size, int maximumMessageSize,
+			Random random) throws InterruptedException {
+		long expected = received.get() + size;
+		long messages = 0L;
+		long start = System.nanoTime();
+		for (long queued = 0L; queued < size; messages++) {
+			int messageSize = (int) Math.min(size - queued,
+					MINIMUM_MESSAGE_SIZE + random.nextInt(maximumMessageSize - MINIMUM_MESSAGE_SIZE + 1));
+			RakNetPacket packet = new RakNetPacket(BENCHMARK_ID);
+			packet.pad(messageSize - 1);
+			client.sendMessage(Reliability.RELIABLE_ORDERED, packet);
+			queued += messageSize;
+		}
+		while (received.get() < expected) {
+			if (System.nanoTime() - start >= TRANSFER_TIMEOUT * 1000000L) {
+				LOG.error("Transfer did not complete within " + (TRANSFER_TIMEOUT / 1000L) + " seconds ("
+						+ (expected - received.get()) + " bytes left)");
+				return false;
+			}
+			Thread.sleep(0, 100000); // Wait for messages
+		}
+		double time = (System.nanoTime() - start) / 1000000000.0D;
+		LOG.info(String.format("Transferred %d messages in %.0fMS (%.2f MB per second, %.0f messages per second)",
+				messages, time * 1000.0D, size / 1024.0D / 1024.0D / time, messages / time));
+		return true;
+	}
+
+}
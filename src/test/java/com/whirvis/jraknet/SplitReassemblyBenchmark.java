@@ -0,0 +1,159 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.lang.management.ManagementFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.management.ThreadMXBean;
+import com.whirvis.jraknet.peer.RakNetPeer;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Measures how long it takes to reassemble a large message that was split
+ * into chunks, and how many bytes are allocated on the heap to do so.
+ * <p>
+ * Every iteration splits a message into chunks of
+ * {@value #CHUNK_SIZE} bytes, each of which is a slice of a single pooled
+ * direct buffer the same way the payloads of received chunks are slices of
+ * the datagrams they were received in. The chunks are handed to an
+ * {@link EncapsulatedPacket.Split} in reverse order, and the stitched payload is
+ * copied out to an array before being released, the same way it is copied out
+ * when it is handed to the user without zero-copy payloads. The first program argument is the
+ * size of the messages (<code>131072</code> by default).
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class SplitReassemblyBenchmark {
+
+	private static final Logger LOG = LogManager.getLogger(SplitReassemblyBenchmark.class);
+	private static final int CHUNK_SIZE = 1420;
+	private static final int WARMUP_ITERATIONS = 20000;
+	private static final int BENCHMARK_ITERATIONS = 100000;
+
+	private static byte[] data;
+
+	private SplitReassemblyBenchmark() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the benchmark.
+	 * 
+	 * @param args
+	 *            the program arguments.
+	 */
+	public static void main(String[] args) {
+		int messageSize = args.length > 0 ? Integer.parseInt(args[0]) : 131072;
+		int splitCount = (messageSize + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		if (splitCount > RakNetPeer.MAX_SPLIT_COUNT) {
+			LOG.error("Message cannot be split into more than " + RakNetPeer.MAX_SPLIT_COUNT + " chunks");
+			System.exit(1);
+		}
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			LOG.error("Thread allocated memory is not supported by this JVM");
+			System.exit(1);
+		}
+		RakNet.setAllocator(PooledByteBufAllocator.DEFAULT);
+		data = new byte[messageSize];
+		ByteBuf message = PooledByteBufAllocator.DEFAULT.directBuffer(messageSize);
+		for (int i = 0; i < messageSize; i++) {
+			message.writeByte(i);
+		}
+
+		LOG.info("Warming up with " + WARMUP_ITERATIONS + " messages of " + messageSize + " bytes in " + splitCount
+				+ " chunks...");
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			reassemble(message, splitCount, i);
+			if (!ByteBufUtil.equals(message, Unpooled.wrappedBuffer(data))) {
+				LOG.error("Reassembled message does not match the original message");
+				System.exit(1);
+			}
+		}
+		LOG.info("Benchmarking " + BENCHMARK_ITERATIONS + " messages...");
+		long threadId = Thread.currentThread().getId();
+		long allocated = threads.getThreadAllocatedBytes(threadId);
+		long startTime = System.nanoTime();
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+			reassemble(message, splitCount, i);
+		}
+		long time = System.nanoTime() - startTime;
+		allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+		LOG.info(String.format("Reassembled a message in %.1f us, %.1f bytes allocated per message",
+				time / 1000.0D / BENCHMARK_ITERATIONS, (double) allocated / BENCHMARK_ITERATIONS));
+		message.release();
+		System.exit(0);
+	}
+
+	/**
+	 * Splits the message into chunks and reassembles it, then copies out the
+	 * reassembled message and releases it.
+	 * 
+	 * @param message
+	 *            the message.
+	 * @param splitCount
+	 *            the amount of chunks to split the message into.
+	 * @param splitId
+	 *            the split ID.
+	 */
+	private static void reassemble(ByteBuf message, int splitCount, int splitId) {
+		EncapsulatedPacket.Split split = new EncapsulatedPacket.Split(splitId & 0xFFFF, splitCount,
+				Reliability.RELIABLE_ORDERED);
+		EncapsulatedPacket stitched = null;
+		for (int i = 0; i < splitCount; i++) {
+			int splitIndex = splitCount - i - 1;
+			EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+			encapsulated.reliability = Reliability.RELIABLE_ORDERED;
+			encapsulated.split = true;
+			encapsulated.splitId = splitId & 0xFFFF;
+			encapsulated.splitCount = splitCount;
+			encapsulated.splitIndex = splitIndex;
+			int offset = splitIndex * CHUNK_SIZE;
+			encapsulated.payload = new Packet(
+					message.retainedSlice(offset, Math.min(CHUNK_SIZE, message.writerIndex() - offset)));
+			stitched = split.update(encapsulated);
+		}
+		ByteBuf payload = stitched.payload.buffer();
+		payload.readBytes(data, 0, payload.readableBytes());
+		stitched.payload.release();
+	}
+
+}
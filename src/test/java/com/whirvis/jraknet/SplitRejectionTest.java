@@ -0,0 +1,224 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.peer.RakNetPeer;
+import com.whirvis.jraknet.peer.SplitQueueOverflowException;
+import com.whirvis.jraknet.protocol.ConnectionType;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.CustomFourPacket;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.protocol.message.acknowledge.Record;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * Tests that a peer releases the chunks of a split packet it rejects.
+ * <p>
+ * Split packets with too many chunks, split packets that would go over the
+ * maximum amount of split packets, and split packets that would go over the
+ * maximum amount of split bytes are handed straight to a peer on an embedded
+ * channel. Once each of them has been rejected, the datagrams they arrived in
+ * must no longer be referenced by the peer.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class SplitRejectionTest {
+
+	private static final Logger LOG = LogManager.getLogger(SplitRejectionTest.class);
+	private static final short TEST_ID = 0xFE;
+	private static final int MAXIMUM_TRANSFER_UNIT = 1464;
+	private static final int CHUNK_SIZE = 512;
+
+	/**
+	 * A peer that fails the test if it handles a message.
+	 *
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static final class TestPeer extends RakNetPeer {
+
+		/**
+		 * Creates a test peer.
+		 * 
+		 * @param channel
+		 *            the channel to write to.
+		 */
+		private TestPeer(EmbeddedChannel channel) {
+			super(new InetSocketAddress("127.0.0.1", RakNetTest.WHIRVIS_DEVELOPMENT_PORT), 0L, MAXIMUM_TRANSFER_UNIT,
+					ConnectionType.JRAKNET, channel);
+		}
+
+		@Override
+		public long getTimestamp() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public void handleMessage(RakNetPacket packet, int channel) {
+			packet.release();
+			LOG.error("Handled a message from a rejected split packet");
+			System.exit(1);
+		}
+
+		@Override
+		public void onAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+		@Override
+		public void onNotAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+	}
+
+	private static int sequenceId;
+	private static int messageIndex;
+
+	private SplitRejectionTest() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the test.
+	 * 
+	 * @param args
+	 *            the program arguments. These values are ignored.
+	 */
+	public static void main(String[] args) {
+		EmbeddedChannel channel = new EmbeddedChannel();
+		TestPeer peer = new TestPeer(channel);
+		peer.setMaximumSplitCount(4);
+		peer.setMaximumSplits(1);
+		peer.setMaximumSplitBytes(CHUNK_SIZE * 2 - 1);
+
+		// Receive a split packet with too many chunks
+		ByteBuf tooManyChunks = receive(peer, 0, 5, 0, true);
+		check("Split packet with too many chunks", tooManyChunks, 1);
+
+		// Receive a split packet while another is being reassembled
+		ByteBuf held = receive(peer, 1, 3, 0, false);
+		check("Held chunk", held, 2);
+		ByteBuf tooManySplits = receive(peer, 2, 3, 0, true);
+		check("Split packet going over the maximum splits", tooManySplits, 1);
+		check("Held chunk", held, 2);
+
+		// Receive a chunk that goes over the maximum split bytes
+		ByteBuf tooManyBytes = receive(peer, 1, 3, 1, true);
+		check("Chunk going over the maximum split bytes", tooManyBytes, 1);
+		check("Chunk of the split packet going over the maximum split bytes", held, 1);
+
+		tooManyChunks.release();
+		held.release();
+		tooManySplits.release();
+		tooManyBytes.release();
+		channel.finishAndReleaseAll();
+		LOG.info("Split rejection test passed");
+		System.exit(0);
+	}
+
+	/**
+	 * Hands a datagram containing a single reliable split packet chunk to the
+	 * peer.
+	 * 
+	 * @param peer
+	 *            the peer.
+	 * @param splitId
+	 *            the split ID of the chunk.
+	 * @param splitCount
+	 *            the amount of chunks in the split packet.
+	 * @param splitIndex
+	 *            the index of the chunk.
+	 * @param rejected
+	 *            <code>true</code> if the peer is expected to reject the
+	 *            chunk, <code>false</code> otherwise.
+	 * @return the buffer the datagram was received in.
+	 */
+	private static ByteBuf receive(TestPeer peer, int splitId, int splitCount, int splitIndex, boolean rejected) {
+		RakNetPacket chunk = new RakNetPacket(TEST_ID, CHUNK_SIZE);
+		chunk.pad(CHUNK_SIZE - 1);
+		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+		encapsulated.reliability = Reliability.RELIABLE;
+		encapsulated.messageIndex = messageIndex++;
+		encapsulated.split = true;
+		encapsulated.splitCount = splitCount;
+		encapsulated.splitId = splitId;
+		encapsulated.splitIndex = splitIndex;
+		encapsulated.payload = chunk;
+		CustomFourPacket custom = new CustomFourPacket();
+		custom.sequenceId = sequenceId++;
+		custom.messages = new EncapsulatedPacket[] { encapsulated };
+		custom.encode();
+		chunk.release();
+		ByteBuf datagram = Unpooled.copiedBuffer(custom.buffer());
+		custom.release();
+
+		boolean thrown = false;
+		try {
+			peer.handleInternal(new RakNetPacket(datagram));
+		} catch (SplitQueueOverflowException e) {
+			thrown = true;
+		}
+		if (thrown != rejected) {
+			LOG.error("Chunk " + splitIndex + " of split packet " + splitId + " was "
+					+ (thrown ? "rejected" : "accepted") + " when it should have been "
+					+ (rejected ? "rejected" : "accepted"));
+			System.exit(1);
+		}
+		return datagram;
+	}
+
+	/**
+	 * Checks the reference count of the buffer a datagram was received in. If
+	 * it is not as expected, the test fails.
+	 * 
+	 * @param name
+	 *            the name of what is being checked.
+	 * @param datagram
+	 *            the buffer the datagram was received in.
+	 * @param expected
+	 *            the expected reference count.
+	 */
+	private static void check(String name, ByteBuf datagram, int expected) {
+		if (datagram.refCnt() != expected) {
+			LOG.error(name + " had a reference count of " + datagram.refCnt() + " when " + expected
+					+ " was expected");
+			System.exit(1);
+		}
+	}
+
+}
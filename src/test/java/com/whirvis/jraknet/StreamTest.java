@@ -0,0 +1,285 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.client.RakNetClient;
+import com.whirvis.jraknet.client.RakNetClientListener;
+import com.whirvis.jraknet.peer.MessageInputStream;
+import com.whirvis.jraknet.peer.MessageOutputStream;
+import com.whirvis.jraknet.peer.RakNetClientPeer;
+import com.whirvis.jraknet.peer.RakNetServerPeer;
+import com.whirvis.jraknet.server.BlockedAddress;
+import com.whirvis.jraknet.server.RakNetServer;
+import com.whirvis.jraknet.server.RakNetServerListener;
+
+/**
+ * Tests the message streams of the
+ * {@link com.whirvis.jraknet.peer.RakNetPeer RakNetPeer} by sending a large
+ * amount of data through one.
+ * <p>
+ * The client writes a sequence of integers to a stream far larger than a
+ * single split packet could hold, which the server reads back and checks. The
+ * amount of data waiting to be read on the server is checked to never go over
+ * the stream window size, as the client must wait for credit before sending
+ * more. The amount of data to send in megabytes can be given as the first
+ * argument.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class StreamTest {
+
+	private static final Logger LOG = LogManager.getLogger(StreamTest.class);
+	private static final short STREAM_ID = 0xFE;
+	private static final int STREAM_CHANNEL = 1;
+	private static final int DEFAULT_MEGABYTES = 32;
+	private static final int BLOCK_SIZE = 48 * 1024;
+	private static long startSend = -1;
+
+	private StreamTest() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the test.
+	 * 
+	 * @param args
+	 *            the program arguments. The first argument is the amount of
+	 *            data to send in megabytes.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws InterruptedException
+	 *             if any thread has interrupted the current thread. The
+	 *             <i>interrupted status</i> of the current thread is cleared
+	 *             when this exception is thrown.
+	 * @throws UnknownHostException
+	 *             if the <code>localhost</code> address could not be found.
+	 */
+	public static void main(String[] args) throws RakNetException, InterruptedException, UnknownHostException {
+		long size = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MEGABYTES) * 1024L * 1024L;
+		RakNet.setMaxPacketsPerSecond(Long.MAX_VALUE);
+		LOG.info("Creating server, sleeping 3000MS, and then creating the client...");
+		createServer(size);
+		RakNet.sleep(3000L);
+		createClient(size);
+
+		// Wait for either a result or for a timeout
+		long currentTime = System.currentTimeMillis();
+		while (true) {
+			Thread.sleep(0, 1); // Lower CPU usage
+			if (currentTime - startSend >= 60000 && startSend > -1) {
+				LOG.info("Failed to complete test due to timeout (Took over 60 seconds!)");
+				System.exit(1);
+			}
+			currentTime = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Reads the stream sent by the client and checks its data.
+	 * 
+	 * @param stream
+	 *            the stream.
+	 * @param size
+	 *            the amount of data the client sends.
+	 */
+	private static void readStream(MessageInputStream stream, long size) {
+		int windowSize = stream.getPeer().getStreamWindowSize();
+		int mostAvailable = 0;
+		try (DataInputStream in = new DataInputStream(stream)) {
+			byte[] block = new byte[BLOCK_SIZE];
+			long expected = 0;
+			long received = 0;
+			while (true) {
+				mostAvailable = Math.max(mostAvailable, stream.available());
+				if (mostAvailable > windowSize) {
+					LOG.error("Server - " + mostAvailable + " bytes were waiting to be read, which is more than the "
+							+ windowSize + " byte stream window");
+					System.exit(1);
+				}
+				int read = in.read(block);
+				if (read < 0) {
+					break;
+				} else if (read % 4 != 0) {
+					in.readFully(block, read, 4 - read % 4);
+					read += 4 - read % 4;
+				}
+				ByteBuffer ints = ByteBuffer.wrap(block, 0, read);
+				while (ints.hasRemaining()) {
+					int value = ints.getInt();
+					if (value != (int) expected) {
+						LOG.error("Server - Read " + value + " when " + expected + " was expected");
+						System.exit(1);
+					}
+					expected++;
+				}
+				received += read;
+			}
+			if (received != size) {
+				LOG.error("Server - Received " + received + " bytes when " + size + " bytes were sent");
+				System.exit(1);
+			}
+			long time = System.currentTimeMillis() - startSend;
+			LOG.info("Server - Received " + (received / 1024 / 1024) + " MB in order with at most " + mostAvailable
+					+ " bytes waiting to be read (" + String.format("%.1f", received / 1024.0D / 1024.0D
+							/ Math.max(time, 1L) * 1000.0D) + " MB per second)");
+			LOG.info("Server - Stream test passed (Took " + time + "MS)");
+			System.exit(0);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Writes a sequence of integers to the stream.
+	 * 
+	 * @param stream
+	 *            the stream.
+	 * @param size
+	 *            the amount of data to write.
+	 */
+	private static void writeStream(MessageOutputStream stream, long size) {
+		try (MessageOutputStream out = stream) {
+			ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+			int value = 0;
+			for (long written = 0; written < size; written += block.limit()) {
+				block.clear();
+				block.limit((int) Math.min(BLOCK_SIZE, size - written));
+				while (block.hasRemaining()) {
+					block.putInt(value++);
+				}
+				block.flip();
+				out.write(block);
+			}
+			LOG.info("Client - Wrote " + (size / 1024 / 1024) + " MB to the stream");
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Creates the server for the test.
+	 * 
+	 * @param size
+	 *            the amount of data the client sends.
+	 * @return the server that will receive the stream.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 */
+	private static RakNetServer createServer(long size) throws RakNetException {
+		RakNetServer server = new RakNetServer(RakNetTest.WHIRVIS_DEVELOPMENT_PORT, 1);
+		server.getMessageRegistry().registerStream(STREAM_ID, (peer, stream, channel) -> {
+			LOG.info("Server - Client opened stream on channel " + channel + ", reading data...");
+			new Thread(() -> readStream(stream, size), "StreamTest-Reader").start();
+		});
+		server.addListener(new RakNetServerListener() {
+
+			@Override
+			public void onLogin(RakNetServer server, RakNetClientPeer peer) {
+				if (RakNet.isLocalAddress(peer.getAddress())) {
+					LOG.info("Server - Client logged in from " + peer.getAddress());
+				} else {
+					server.disconnect(peer, "Session is not from local address");
+					server.blockAddress(peer.getInetAddress(), BlockedAddress.PERMANENT_BLOCK);
+				}
+			}
+
+			@Override
+			public void onDisconnect(RakNetServer server, InetSocketAddress address, RakNetClientPeer peer,
+					String reason) {
+				LOG.info("Server - Client from " + address + " disconnected (" + reason + ")");
+				System.exit(1);
+			}
+
+			@Override
+			public void onHandlerException(RakNetServer server, InetSocketAddress address, Throwable cause) {
+				cause.printStackTrace();
+				System.exit(1);
+			}
+
+		});
+		server.start();
+		return server;
+	}
+
+	/**
+	 * Creates the client for the test.
+	 * 
+	 * @param size
+	 *            the amount of data to send.
+	 * @return the client that will be sending the stream.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws UnknownHostException
+	 *             if the <code>localhost</code> address cannot be found.
+	 */
+	private static RakNetClient createClient(long size) throws RakNetException, UnknownHostException {
+		RakNetClient client = new RakNetClient();
+		client.addListener(new RakNetClientListener() {
+
+			@Override
+			public void onLogin(RakNetClient client, RakNetServerPeer peer) {
+				LOG.info("Client - Logged in to server with MTU " + peer.getMaximumTransferUnit() + ", sending "
+						+ (size / 1024 / 1024) + " MB through a stream...");
+				MessageOutputStream stream = peer.openStream(STREAM_ID, STREAM_CHANNEL);
+				startSend = System.currentTimeMillis();
+				new Thread(() -> writeStream(stream, size), "StreamTest-Writer").start();
+			}
+
+			@Override
+			public void onDisconnect(RakNetClient client, InetSocketAddress address, RakNetServerPeer peer,
+					String reason) {
+				LOG.error("Client - Lost connection to server (" + reason + ")");
+				System.exit(1);
+			}
+
+			@Override
+			public void onHandlerException(RakNetClient client, InetSocketAddress address, Throwable cause) {
+				cause.printStackTrace();
+				System.exit(1);
+			}
+
+		});
+		client.connect("localhost", RakNetTest.WHIRVIS_DEVELOPMENT_PORT);
+		return client;
+	}
+
+}
@@ -0,0 +1,261 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.peer.RakNetPeer;
+import com.whirvis.jraknet.protocol.ConnectionType;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.CustomFourPacket;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.protocol.message.acknowledge.Record;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * Tests that a peer does not copy the split packet chunks and ordered
+ * messages it holds on to out of the buffers they were received in.
+ * <p>
+ * The datagrams are handed straight to a peer on an embedded channel, each
+ * in a receive buffer larger than the maximum transfer unit. These are the
+ * size of a batch of datagrams read by the server, and the size of the
+ * default datagram buffer used by the client. The reference counts of the
+ * receive buffers are then checked while the peer holds on to the messages
+ * inside of them, and once it has handled them.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class ZeroCopyReceiveTest {
+
+	private static final Logger LOG = LogManager.getLogger(ZeroCopyReceiveTest.class);
+	private static final short TEST_ID = 0xFE;
+	private static final int MAXIMUM_TRANSFER_UNIT = 1464;
+	private static final int BATCH_BUFFER_SIZE = MAXIMUM_TRANSFER_UNIT * NetworkConfiguration.DEFAULT_READ_BATCH_SIZE;
+	private static final int DATAGRAM_BUFFER_SIZE = 2048;
+	private static final int CHUNK_SIZE = 1024;
+
+	/**
+	 * A peer that keeps track of the messages it has handled.
+	 *
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static final class TestPeer extends RakNetPeer {
+
+		private final ArrayList<Integer> handled;
+
+		/**
+		 * Creates a test peer.
+		 * 
+		 * @param channel
+		 *            the channel to write to.
+		 */
+		private TestPeer(EmbeddedChannel channel) {
+			super(new InetSocketAddress("127.0.0.1", RakNetTest.WHIRVIS_DEVELOPMENT_PORT), 0L, MAXIMUM_TRANSFER_UNIT,
+					ConnectionType.JRAKNET, channel);
+			this.handled = new ArrayList<Integer>();
+		}
+
+		@Override
+		public long getTimestamp() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public void handleMessage(RakNetPacket packet, int channel) {
+			handled.add(packet.size());
+			packet.release();
+		}
+
+		@Override
+		public void onAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+		@Override
+		public void onNotAcknowledge(Record record, EncapsulatedPacket packet) {
+		}
+
+	}
+
+	private static int sequenceId;
+	private static int messageIndex;
+
+	private ZeroCopyReceiveTest() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the test.
+	 * 
+	 * @param args
+	 *            the program arguments. These values are ignored.
+	 */
+	public static void main(String[] args) {
+		EmbeddedChannel channel = new EmbeddedChannel();
+		TestPeer peer = new TestPeer(channel);
+
+		// Receive a split packet in batch sized buffers
+		ByteBuf[] chunks = new ByteBuf[3];
+		for (int i = 0; i < chunks.length; i++) {
+			EncapsulatedPacket chunk = message(Reliability.RELIABLE, CHUNK_SIZE);
+			chunk.split = true;
+			chunk.splitCount = chunks.length;
+			chunk.splitId = 0;
+			chunk.splitIndex = i;
+			chunks[i] = receive(peer, chunk, BATCH_BUFFER_SIZE);
+			if (i < chunks.length - 1) {
+				check("Held split packet chunk " + i, chunks[i], 2);
+			}
+		}
+		check("Handled split packet", peer, CHUNK_SIZE * chunks.length);
+		for (int i = 0; i < chunks.length; i++) {
+			check("Split packet chunk " + i, chunks[i], 1);
+			chunks[i].release();
+		}
+
+		// Receive ordered messages out of order in datagram sized buffers
+		EncapsulatedPacket late = message(Reliability.RELIABLE_ORDERED, CHUNK_SIZE);
+		late.orderIndex = 0;
+		EncapsulatedPacket early = message(Reliability.RELIABLE_ORDERED, CHUNK_SIZE / 2);
+		early.orderIndex = 1;
+		ByteBuf earlyBuffer = receive(peer, early, DATAGRAM_BUFFER_SIZE);
+		check("Held ordered message", earlyBuffer, 2);
+		ByteBuf lateBuffer = receive(peer, late, DATAGRAM_BUFFER_SIZE);
+		check("Handled ordered messages", peer, CHUNK_SIZE, CHUNK_SIZE / 2);
+		check("Early ordered message", earlyBuffer, 1);
+		check("Late ordered message", lateBuffer, 1);
+		earlyBuffer.release();
+		lateBuffer.release();
+
+		channel.finishAndReleaseAll();
+		LOG.info("Zero-copy receive test passed");
+		System.exit(0);
+	}
+
+	/**
+	 * Creates a message with the specified reliability and size.
+	 * 
+	 * @param reliability
+	 *            the reliability of the message.
+	 * @param size
+	 *            the size of the payload of the message.
+	 * @return the message.
+	 */
+	private static EncapsulatedPacket message(Reliability reliability, int size) {
+		RakNetPacket payload = new RakNetPacket(TEST_ID, size);
+		payload.pad(size - 1);
+		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
+		encapsulated.reliability = reliability;
+		encapsulated.messageIndex = messageIndex++;
+		encapsulated.payload = payload;
+		return encapsulated;
+	}
+
+	/**
+	 * Hands a datagram containing a single message to the peer. The datagram
+	 * is received in a pooled buffer with the specified capacity, the same as
+	 * it would be by Netty.
+	 * 
+	 * @param peer
+	 *            the peer.
+	 * @param encapsulated
+	 *            the message. Its payload is released once it has been
+	 *            encoded.
+	 * @param capacity
+	 *            the capacity of the buffer the datagram is received in.
+	 * @return the buffer the datagram was received in.
+	 */
+	private static ByteBuf receive(TestPeer peer, EncapsulatedPacket encapsulated, int capacity) {
+		CustomFourPacket custom = new CustomFourPacket();
+		custom.sequenceId = sequenceId++;
+		custom.messages = new EncapsulatedPacket[] { encapsulated };
+		custom.encode();
+		encapsulated.payload.release();
+		ByteBuf datagram = RakNet.getAllocator().buffer(capacity, capacity);
+		datagram.writeBytes(custom.buffer());
+		custom.release();
+		peer.handleInternal(new RakNetPacket(datagram));
+		return datagram;
+	}
+
+	/**
+	 * Checks the reference count of the buffer a datagram was received in. If
+	 * it is not as expected, the message inside of it was either copied or
+	 * leaked, and the test fails.
+	 * 
+	 * @param name
+	 *            the name of what is being checked.
+	 * @param datagram
+	 *            the buffer the datagram was received in.
+	 * @param expected
+	 *            the expected reference count.
+	 */
+	private static void check(String name, ByteBuf datagram, int expected) {
+		if (datagram.refCnt() != expected) {
+			LOG.error(name + " had a reference count of " + datagram.refCnt() + " when " + expected
+					+ " was expected");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Checks the sizes of the messages the peer has handled since the last
+	 * check. If they are not as expected, the test fails.
+	 * 
+	 * @param name
+	 *            the name of what is being checked.
+	 * @param peer
+	 *            the peer.
+	 * @param sizes
+	 *            the expected sizes of the messages, in the order they are
+	 *            handled.
+	 */
+	private static void check(String name, TestPeer peer, int... sizes) {
+		boolean matches = peer.handled.size() == sizes.length;
+		for (int i = 0; matches == true && i < sizes.length; i++) {
+			matches = peer.handled.get(i) == sizes[i];
+		}
+		if (matches == false) {
+			LOG.error(name + " sizes were " + peer.handled + " when " + Arrays.toString(sizes)
+					+ " were expected");
+			System.exit(1);
+		}
+		peer.handled.clear();
+	}
+
+}